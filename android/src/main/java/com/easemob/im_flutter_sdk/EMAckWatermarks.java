@@ -0,0 +1,117 @@
+package com.easemob.im_flutter_sdk;
+
+import com.hyphenate.chat.EMMessage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns read and delivery acks into one watermark per conversation instead of full messages.
+ *
+ * Acks that arrive within a window are merged per conversation and kind. A flush sends
+ * {@link EMSDKMethod#onAckWatermarks} with a list of {@code conversationId}, {@code chatType},
+ * {@code read} (false for delivery), {@code serverTime} and {@code msgId} of the newest acked
+ * message, and {@code msgIds} of every acked message. No message is serialized and no per message
+ * ack event is sent, so a conversation opened after a long time offline costs one event instead of
+ * hundreds.
+ */
+final class EMAckWatermarks {
+
+    interface Sender {
+        void send(List<Map<String, Object>> watermarks);
+    }
+
+    private static final class Mark {
+        final String conversationId;
+        final int chatType;
+        final boolean read;
+        long serverTime = -1;
+        String msgId;
+        final Set<String> msgIds = new LinkedHashSet<>();
+
+        Mark(String conversationId, int chatType, boolean read) {
+            this.conversationId = conversationId;
+            this.chatType = chatType;
+            this.read = read;
+        }
+    }
+
+    private final long windowMs;
+    private final Sender sender;
+
+    private final Object lock = new Object();
+    private Map<String, Mark> pending = new LinkedHashMap<>();
+    private boolean scheduled;
+
+    EMAckWatermarks(long windowMs, Sender sender) {
+        this.windowMs = windowMs;
+        this.sender = sender;
+    }
+
+    void add(boolean read, List<EMMessage> messages) {
+        synchronized (lock) {
+            for (EMMessage message : messages) {
+                String conversationId = message.conversationId();
+                String key = (read ? "r/" : "d/") + conversationId;
+                Mark mark = pending.get(key);
+                if (mark == null) {
+                    mark = new Mark(conversationId, chatTypeToInt(message.getChatType()), read);
+                    pending.put(key, mark);
+                }
+                mark.msgIds.add(message.getMsgId());
+                if (message.getMsgTime() >= mark.serverTime) {
+                    mark.serverTime = message.getMsgTime();
+                    mark.msgId = message.getMsgId();
+                }
+            }
+            if (pending.isEmpty() || scheduled) return;
+            scheduled = true;
+        }
+        ImFlutterSdkPlugin.handler.postDelayed(this::flush, windowMs);
+    }
+
+    void clear() {
+        synchronized (lock) {
+            pending = new LinkedHashMap<>();
+        }
+    }
+
+    private void flush() {
+        Map<String, Mark> batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = new LinkedHashMap<>();
+            scheduled = false;
+        }
+        if (batch.isEmpty()) return;
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (Mark mark : batch.values()) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("conversationId", mark.conversationId);
+            data.put("chatType", mark.chatType);
+            data.put("read", mark.read);
+            data.put("serverTime", mark.serverTime);
+            data.put("msgId", mark.msgId);
+            data.put("msgIds", new ArrayList<>(mark.msgIds));
+            list.add(data);
+        }
+        sender.send(list);
+    }
+
+    // 与 flutter 端 conversationTypeFromInt 一致
+    private static int chatTypeToInt(EMMessage.ChatType type) {
+        switch (type) {
+            case GroupChat:
+                return 1;
+            case ChatRoom:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.easemob.im_flutter_sdk;
+
+import com.hyphenate.EMError;
+import com.hyphenate.exceptions.HyphenateException;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Runs the calls of one {@code batch} request of {@link EMClientWrapper}.
+ *
+ * Each call is {@code {channel, method, params}} and goes through
+ * {@link EMWrapper#onMethodCall} of the wrapper bound to {@code channel} in the same engine, exactly
+ * as if flutter had sent it on that channel. Stats, lanes, backpressure and {@code requestId}
+ * cancellation all apply. Every call is dispatched from the scheduler in the lane of the batch,
+ * because {@code chat_client} delivers the batch itself on the main looper. By default, all calls
+ * are dispatched at once and run in parallel. With {@code sequential}, each call starts only after
+ * the previous one has replied.
+ * The combined reply lists the reply of every call in request order, each being the map the call
+ * would have returned on its own. A list the call pre-encoded for its own channel
+ * ({@link EMWrapper#lazyListResults}) is read back into plain values first, since the batch reply
+ * goes out through the JSON codec of {@code chat_client}.
+ */
+final class EMBatchCall {
+
+    interface Callback {
+        void onComplete(List<Object> replies);
+    }
+
+    private final Map<String, ? extends MethodChannel.MethodCallHandler> wrappers;
+    private final JSONArray calls;
+    private final boolean sequential;
+    private final EMScheduler.Lane lane;
+    private final Callback callback;
+    private final Object[] replies;
+    private final AtomicInteger remaining;
+
+    private EMBatchCall(Map<String, ? extends MethodChannel.MethodCallHandler> wrappers, JSONArray calls,
+                        boolean sequential, Callback callback) {
+        this.wrappers = wrappers;
+        this.calls = calls;
+        this.sequential = sequential;
+        this.lane = EMScheduler.currentLane();
+        this.callback = callback;
+        this.replies = new Object[calls.length()];
+        this.remaining = new AtomicInteger(calls.length());
+    }
+
+    static void run(Map<String, ? extends MethodChannel.MethodCallHandler> wrappers, JSONArray calls,
+                    boolean sequential, Callback callback) {
+        EMBatchCall batch = new EMBatchCall(wrappers, calls, sequential, callback);
+        if (calls.length() == 0) {
+            callback.onComplete(Arrays.asList(batch.replies));
+        } else if (sequential) {
+            batch.schedule(0);
+        } else {
+            for (int i = 0; i < calls.length(); i++) {
+                batch.schedule(i);
+            }
+        }
+    }
+
+    // batch 本身在主线程收到, 每个调用都交给 scheduler 分发
+    private void schedule(int index) {
+        EMWrapper.scheduler.execute(lane, () -> dispatch(index));
+    }
+
+    private void dispatch(int index) {
+        JSONObject call = calls.optJSONObject(index);
+        String channel = call != null ? call.optString("channel") : null;
+        String method = call != null ? call.optString("method") : null;
+        MethodChannel.MethodCallHandler wrapper = channel != null ? wrappers.get(channel) : null;
+        if (wrapper == null || method == null || method.isEmpty()) {
+            complete(index, error("Unknown batch call: " + channel + "/" + method));
+            return;
+        }
+        wrapper.onMethodCall(new MethodCall(method, call.optJSONObject("params")), new MethodChannel.Result() {
+            @Override
+            public void success(Object data) {
+                complete(index, data);
+            }
+
+            @Override
+            public void error(String errorCode, String errorMessage, Object errorDetails) {
+                complete(index, EMBatchCall.error(errorMessage));
+            }
+
+            @Override
+            public void notImplemented() {
+                complete(index, EMBatchCall.error("Not implemented: " + channel + "/" + method));
+            }
+        });
+    }
+
+    private void complete(int index, Object reply) {
+        replies[index] = reply;
+        if (remaining.decrementAndGet() == 0) {
+            // 回复在主线程, 预编码的列表在 scheduler 上还原
+            EMWrapper.scheduler.execute(lane, () -> {
+                for (int i = 0; i < replies.length; i++) {
+                    replies[i] = decodeLists(replies[i]);
+                }
+                callback.onComplete(Arrays.asList(replies));
+            });
+        } else if (sequential) {
+            schedule(index + 1);
+        }
+    }
+
+    // 调用的回复是 {channelName: value}, 只有 value 可能是预编码的列表
+    private static Object decodeLists(Object reply) {
+        if (!(reply instanceof Map)) {
+            return reply;
+        }
+        Map<Object, Object> data = new HashMap<>((Map<?, ?>) reply);
+        for (Map.Entry<Object, Object> entry : data.entrySet()) {
+            if (entry.getValue() instanceof EMEncodedList) {
+                entry.setValue(EMTransportCodec.decodeList((EMEncodedList) entry.getValue()));
+            }
+        }
+        return data;
+    }
+
+    private static Map<String, Object> error(String desc) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("error", HyphenateExceptionHelper.toJson(new HyphenateException(EMError.GENERAL_ERROR, desc)));
+        return data;
+    }
+}
@@ -0,0 +1,164 @@
+package com.easemob.im_flutter_sdk;
+
+import com.hyphenate.EMError;
+import com.hyphenate.exceptions.HyphenateException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * The reply of a call that may end before its handler answers: flutter sent it with a
+ * {@code requestId} it may cancel, or it has a deadline.
+ *
+ * {@link EMWrapper} wraps the result of such a call and keeps it until the first reply.
+ * {@link #cancel(String)} and an expired deadline both answer the call right away with an error and
+ * mark it cancelled. The SDK work itself usually cannot be stopped, but handlers check
+ * {@link #isCancelled} before they convert a result, and the reply helpers drop replies of
+ * cancelled calls, so nothing is serialized or sent for a caller that has gone away. When a deadline
+ * expires while the call is blocked in a synchronous SDK method on a scheduler worker, that worker
+ * is detached from the pool so the call no longer holds a thread slot.
+ */
+final class EMCancellableRequest implements MethodChannel.Result {
+
+    private static final Map<String, EMCancellableRequest> pending = new ConcurrentHashMap<>();
+
+    // 正在分发或执行的调用, asyncRunnable 提交的任务沿用它
+    private static final ThreadLocal<EMCancellableRequest> current = new ThreadLocal<>();
+
+    private final String requestId;
+    private final MethodChannel.Result result;
+    private final EMMethodStats stats;
+    private final AtomicBoolean done = new AtomicBoolean();
+    private volatile boolean cancelled;
+    private volatile Runnable timer;
+
+    // 正在 scheduler 上执行这次调用的任务和线程
+    private volatile Thread worker;
+    private volatile Runnable task;
+    private volatile EMScheduler.Lane lane;
+
+    private EMCancellableRequest(String requestId, MethodChannel.Result result, EMMethodStats stats) {
+        this.requestId = requestId;
+        this.result = result;
+        this.stats = stats;
+    }
+
+    /**
+     * Wraps {@code result}; {@code requestId} may be null, and {@code timeoutMs <= 0} means no deadline.
+     */
+    static EMCancellableRequest register(String requestId, long timeoutMs, MethodChannel.Result result, EMMethodStats stats) {
+        EMCancellableRequest request = new EMCancellableRequest(requestId, result, stats);
+        if (requestId != null) {
+            pending.put(requestId, request);
+        }
+        if (timeoutMs > 0) {
+            request.timer = request::expire;
+            ImFlutterSdkPlugin.handler.postDelayed(request.timer, timeoutMs);
+        }
+        return request;
+    }
+
+    /**
+     * Cancels the pending call with {@code requestId}; returns false if it has already been answered.
+     */
+    static boolean cancel(String requestId) {
+        EMCancellableRequest request = pending.get(requestId);
+        return request != null && request.abort(EMError.GENERAL_ERROR, "The request was cancelled");
+    }
+
+    static boolean isCancelled(MethodChannel.Result result) {
+        return result instanceof EMCancellableRequest && ((EMCancellableRequest) result).cancelled;
+    }
+
+    static EMCancellableRequest current() {
+        return current.get();
+    }
+
+    static void setCurrent(EMCancellableRequest request) {
+        if (request == null) {
+            current.remove();
+        } else {
+            current.set(request);
+        }
+    }
+
+    /**
+     * Wraps a scheduler task of this call, so an expired deadline can find the worker running it.
+     */
+    Runnable wrap(EMScheduler.Lane lane, Runnable runnable) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                EMCancellableRequest.this.lane = lane;
+                task = this;
+                worker = Thread.currentThread();
+                current.set(EMCancellableRequest.this);
+                try {
+                    runnable.run();
+                } finally {
+                    current.remove();
+                    if (task == this) {
+                        worker = null;
+                        task = null;
+                    }
+                }
+            }
+        };
+    }
+
+    private void expire() {
+        if (!abort(EMError.SERVER_TIMEOUT, "The request timed out")) return;
+        stats.timeout();
+        Thread w = worker;
+        Runnable t = task;
+        if (w != null && t != null) {
+            EMWrapper.scheduler.detach(w, t, lane);
+        }
+    }
+
+    private boolean abort(int code, String desc) {
+        cancelled = true;
+        if (!finish()) {
+            return false;
+        }
+        HyphenateException e = new HyphenateException(code, desc);
+        EMMainQueue.post(() -> {
+            Map<String, Object> data = new HashMap<>();
+            data.put("error", HyphenateExceptionHelper.toJson(e));
+            result.success(data);
+        });
+        return true;
+    }
+
+    private boolean finish() {
+        if (!done.compareAndSet(false, true)) {
+            return false;
+        }
+        if (requestId != null) {
+            pending.remove(requestId, this);
+        }
+        if (timer != null) {
+            ImFlutterSdkPlugin.handler.removeCallbacks(timer);
+        }
+        return true;
+    }
+
+    @Override
+    public void success(Object data) {
+        if (finish()) result.success(data);
+    }
+
+    @Override
+    public void error(String errorCode, String errorMessage, Object errorDetails) {
+        if (finish()) result.error(errorCode, errorMessage, errorDetails);
+    }
+
+    @Override
+    public void notImplemented() {
+        if (finish()) result.notImplemented();
+    }
+}
@@ -1,6 +1,7 @@
 package com.easemob.im_flutter_sdk;
 
 import com.hyphenate.EMConversationListener;
+import com.hyphenate.EMError;
 import com.hyphenate.EMMessageListener;
 import com.hyphenate.chat.EMClient;
 import com.hyphenate.chat.*;
@@ -24,142 +25,101 @@ import java.util.List;
 import java.util.Map;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
-import io.flutter.plugin.common.JSONMethodCodec;
-import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
+import io.flutter.plugin.common.MethodCodec;
 
 
 public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler {
 
     private MethodChannel messageChannel;
+    // 发送/下载中的消息, 状态事件只带变化的字段
+    final EMMessageDeltas messageDeltas = new EMMessageDeltas();
     private EMMessageListener messageListener;
     private EMConversationListener conversationListener;
+    // 开启后已读和送达回执按会话合并成水位, 由 EMClientWrapper 设置
+    private volatile EMAckWatermarks ackWatermarks;
 
 
-    EMChatManagerWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName) {
-        super(flutterPluginBinding, channelName);
-        messageChannel = new MethodChannel(flutterPluginBinding.getBinaryMessenger(), "com.chat.im/chat_message", JSONMethodCodec.INSTANCE);
+    EMChatManagerWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName, MethodCodec codec) {
+        super(flutterPluginBinding, channelName, codec);
+        registerMethods();
+        messageChannel = new MethodChannel(flutterPluginBinding.getBinaryMessenger(), "com.chat.im/chat_message", codec);
         registerEaseListener();
     }
 
+    void enableAckWatermarks(long windowMs) {
+        ackWatermarks = windowMs > 0
+                ? new EMAckWatermarks(windowMs, list -> sendEvent(EMSDKMethod.onAckWatermarks, list))
+                : null;
+    }
 
-    @Override
-    public void onMethodCall(MethodCall call, Result result) {
-        JSONObject params = (JSONObject) call.arguments;
-        try {
-            if (EMSDKMethod.sendMessage.equals(call.method)) {
-                sendMessage(params, call.method, result);
-            } else if (EMSDKMethod.resendMessage.equals(call.method)) {
-                resendMessage(params, call.method, result);
-            } else if (EMSDKMethod.ackMessageRead.equals(call.method)) {
-                ackMessageRead(params, call.method, result);
-            } else if (EMSDKMethod.ackGroupMessageRead.equals(call.method)) {
-                ackGroupMessageRead(params, call.method, result);
-            } else if (EMSDKMethod.ackConversationRead.equals(call.method)) {
-                ackConversationRead(params, call.method, result);
-            } else if (EMSDKMethod.recallMessage.equals(call.method)) {
-                recallMessage(params, call.method, result);
-            } else if (EMSDKMethod.getConversation.equals(call.method)) {
-                getConversation(params, call.method, result);
-            } else if (EMSDKMethod.getThreadConversation.equals(call.method)) {
-                getThreadConversation(params, call.method, result);
-            } else if (EMSDKMethod.markAllChatMsgAsRead.equals(call.method)) {
-                markAllChatMsgAsRead(params, call.method, result);
-            } else if (EMSDKMethod.getUnreadMessageCount.equals(call.method)) {
-                getUnreadMessageCount(params, call.method, result);
-            } else if (EMSDKMethod.updateChatMessage.equals(call.method)) {
-                updateChatMessage(params, call.method, result);
-            } else if (EMSDKMethod.downloadAttachment.equals(call.method)) {
-                downloadAttachment(params, call.method, result);
-            } else if (EMSDKMethod.downloadThumbnail.equals(call.method)) {
-                downloadThumbnail(params, call.method, result);
-            } else if (EMSDKMethod.downloadMessageAttachmentInCombine.equals(call.method)) {
-                downloadMessageAttachmentInCombine(params, call.method, result);
-            } else if (EMSDKMethod.downloadMessageThumbnailInCombine.equals(call.method)) {
-                downloadMessageThumbnailInCombine(params, call.method, result);
-            } else if (EMSDKMethod.importMessages.equals(call.method)) {
-                importMessages(params, call.method, result);
-            } else if (EMSDKMethod.loadAllConversations.equals(call.method)) {
-                loadAllConversations(params, call.method, result);
-            } else if (EMSDKMethod.getConversationsFromServer.equals(call.method)) {
-                getConversationsFromServer(params, call.method, result);
-            } else if (EMSDKMethod.deleteConversation.equals(call.method)) {
-                deleteConversation(params, call.method, result);
-            } else if (EMSDKMethod.fetchHistoryMessages.equals(call.method)) {
-                fetchHistoryMessages(params, call.method, result);
-            } else if (EMSDKMethod.fetchHistoryMessagesByOptions.equals(call.method)) {
-                fetchHistoryMessagesByOptions(params, call.method, result);
-            } else if (EMSDKMethod.searchChatMsgFromDB.equals(call.method)) {
-                searchChatMsgFromDB(params, call.method, result);
-            } else if (EMSDKMethod.getMessage.equals(call.method)) {
-                getMessage(params, call.method, result);
-            } else if (EMSDKMethod.asyncFetchGroupAcks.equals(call.method)){
-                asyncFetchGroupMessageAckFromServer(params, call.method, result);
-            } else if (EMSDKMethod.deleteRemoteConversation.equals(call.method)){
-                deleteRemoteConversation(params, call.method, result);
-            } else if (EMSDKMethod.deleteMessagesBeforeTimestamp.equals(call.method)) {
-                deleteMessagesBefore(params, call.method, result);
-            } else if (EMSDKMethod.translateMessage.equals(call.method)) {
-                translateMessage(params, call.method, result);
-            } else if (EMSDKMethod.fetchSupportedLanguages.equals(call.method)) {
-                fetchSupportedLanguages(params, call.method, result);
-            } else if (EMSDKMethod.addReaction.equals(call.method)) {
-                addReaction(params, call.method, result);
-            } else if (EMSDKMethod.removeReaction.equals(call.method)) {
-                removeReaction(params, call.method, result);
-            } else if (EMSDKMethod.fetchReactionList.equals(call.method)) {
-                fetchReactionList(params, call.method, result);
-            } else if (EMSDKMethod.fetchReactionDetail.equals(call.method)) {
-                fetchReactionDetail(params, call.method, result);
-            } else if (EMSDKMethod.reportMessage.equals(call.method)) {
-                reportMessage(params, call.method, result);
-            } else if (EMSDKMethod.fetchConversationsFromServerWithPage.equals(call.method)) {
-                getConversationsFromServerWithPage(params, call.method, result);
-            } else if (EMSDKMethod.removeMessagesFromServerWithMsgIds.equals(call.method)) {
-                removeMessagesFromServerWithMsgIds(params, call.method, result);
-            } else if (EMSDKMethod.removeMessagesFromServerWithTs.equals(call.method)) {
-                removeMessagesFromServerWithTs(params, call.method, result);
-            } else if (EMSDKMethod.getConversationsFromServerWithCursor.equals(call.method)) {
-                getConversationsFromServerWithCursor(params, call.method, result);
-            } else if (EMSDKMethod.getPinnedConversationsFromServerWithCursor.equals(call.method)) {
-                getPinnedConversationsFromServerWithCursor(params, call.method, result);
-            } else if (EMSDKMethod.pinConversation.equals(call.method)) {
-                pinConversation(params, call.method, result);
-            } else if (EMSDKMethod.modifyMessage.equals(call.method)) {
-                modifyMessage(params, call.method, result);
-            } else if (EMSDKMethod.downloadAndParseCombineMessage.equals(call.method)) {
-                downloadAndParseCombineMessage(params, call.method, result);
-            }
-            // 450
-            else if (EMSDKMethod.addRemoteAndLocalConversationsMark.equals(call.method)) {
-                addRemoteAndLocalConversationsMark(params, call.method, result);
-            }
-            else if (EMSDKMethod.deleteRemoteAndLocalConversationsMark.equals(call.method)) {
-                deleteRemoteAndLocalConversationsMark(params, call.method, result);
-            }
-            else if (EMSDKMethod.fetchConversationsByOptions.equals(call.method)) {
-                fetchConversationsByOptions(params, call.method, result);
-            }
-            else if (EMSDKMethod.deleteAllMessageAndConversation.equals(call.method)) {
-                deleteAllMessageAndConversation(params, call.method, result);
-            }
-            else if (EMSDKMethod.pinMessage.equals(call.method)) {
-                pinMessage(params, call.method, result);
-            }
-            else if (EMSDKMethod.unpinMessage.equals(call.method)) {
-                unpinMessage(params, call.method, result);
-            }
-            else if (EMSDKMethod.fetchPinnedMessages.equals(call.method)) {
-                fetchPinnedMessages(params, call.method, result);
-            }
-            else {
-                super.onMethodCall(call, result);
-            }
-        } catch (JSONException ignored) {
-
+    // 水位模式下不转换消息, 只记录会话和消息 id
+    private boolean addAckWatermarks(boolean read, List<EMMessage> messages) {
+        EMAckWatermarks watermarks = ackWatermarks;
+        if (watermarks == null) return false;
+        if (!eventFilter.acceptsEvent(EMSDKMethod.onAckWatermarks, null)) return true;
+        List<EMMessage> acked = new ArrayList<>();
+        for (EMMessage message : messages) {
+            if (eventFilter.accepts(message)) acked.add(message);
         }
+        watermarks.add(read, acked);
+        return true;
+    }
+
+
+    private void registerMethods() {
+        registerMethod(EMSDKMethod.sendMessage, this::sendMessage);
+        registerMethod(EMSDKMethod.cancelRequest, this::cancelRequest);
+        registerMethod(EMSDKMethod.resendMessage, this::resendMessage);
+        registerMethod(EMSDKMethod.ackMessageRead, this::ackMessageRead);
+        registerMethod(EMSDKMethod.ackGroupMessageRead, this::ackGroupMessageRead);
+        registerMethod(EMSDKMethod.ackConversationRead, this::ackConversationRead);
+        registerMethod(EMSDKMethod.recallMessage, this::recallMessage);
+        registerMethod(EMSDKMethod.getConversation, this::getConversation);
+        registerMethod(EMSDKMethod.getThreadConversation, this::getThreadConversation);
+        registerMethod(EMSDKMethod.markAllChatMsgAsRead, this::markAllChatMsgAsRead);
+        registerMethod(EMSDKMethod.getUnreadMessageCount, this::getUnreadMessageCount);
+        registerMethod(EMSDKMethod.updateChatMessage, this::updateChatMessage);
+        registerMethod(EMSDKMethod.downloadAttachment, this::downloadAttachment);
+        registerMethod(EMSDKMethod.downloadThumbnail, this::downloadThumbnail);
+        registerMethod(EMSDKMethod.downloadMessageAttachmentInCombine, this::downloadMessageAttachmentInCombine);
+        registerMethod(EMSDKMethod.downloadMessageThumbnailInCombine, this::downloadMessageThumbnailInCombine);
+        registerMethod(EMSDKMethod.importMessages, this::importMessages);
+        registerMethod(EMSDKMethod.loadAllConversations, this::loadAllConversations);
+        registerMethod(EMSDKMethod.getConversationsFromServer, this::getConversationsFromServer);
+        registerMethod(EMSDKMethod.deleteConversation, this::deleteConversation);
+        registerMethod(EMSDKMethod.fetchHistoryMessages, this::fetchHistoryMessages);
+        registerMethod(EMSDKMethod.fetchHistoryMessagesByOptions, this::fetchHistoryMessagesByOptions);
+        registerMethod(EMSDKMethod.searchChatMsgFromDB, this::searchChatMsgFromDB);
+        registerMethod(EMSDKMethod.getMessage, this::getMessage);
+        registerMethod(EMSDKMethod.asyncFetchGroupAcks, this::asyncFetchGroupMessageAckFromServer);
+        registerMethod(EMSDKMethod.deleteRemoteConversation, this::deleteRemoteConversation);
+        registerMethod(EMSDKMethod.deleteMessagesBeforeTimestamp, this::deleteMessagesBefore);
+        registerMethod(EMSDKMethod.translateMessage, this::translateMessage);
+        registerMethod(EMSDKMethod.fetchSupportedLanguages, this::fetchSupportedLanguages);
+        registerMethod(EMSDKMethod.addReaction, this::addReaction);
+        registerMethod(EMSDKMethod.removeReaction, this::removeReaction);
+        registerMethod(EMSDKMethod.fetchReactionList, this::fetchReactionList);
+        registerMethod(EMSDKMethod.fetchReactionDetail, this::fetchReactionDetail);
+        registerMethod(EMSDKMethod.reportMessage, this::reportMessage);
+        registerMethod(EMSDKMethod.fetchConversationsFromServerWithPage, this::getConversationsFromServerWithPage);
+        registerMethod(EMSDKMethod.removeMessagesFromServerWithMsgIds, this::removeMessagesFromServerWithMsgIds);
+        registerMethod(EMSDKMethod.removeMessagesFromServerWithTs, this::removeMessagesFromServerWithTs);
+        registerMethod(EMSDKMethod.getConversationsFromServerWithCursor, this::getConversationsFromServerWithCursor);
+        registerMethod(EMSDKMethod.getPinnedConversationsFromServerWithCursor, this::getPinnedConversationsFromServerWithCursor);
+        registerMethod(EMSDKMethod.pinConversation, this::pinConversation);
+        registerMethod(EMSDKMethod.modifyMessage, this::modifyMessage);
+        registerMethod(EMSDKMethod.downloadAndParseCombineMessage, this::downloadAndParseCombineMessage);
+        // 450
+        registerMethod(EMSDKMethod.addRemoteAndLocalConversationsMark, this::addRemoteAndLocalConversationsMark);
+        registerMethod(EMSDKMethod.deleteRemoteAndLocalConversationsMark, this::deleteRemoteAndLocalConversationsMark);
+        registerMethod(EMSDKMethod.fetchConversationsByOptions, this::fetchConversationsByOptions);
+        registerMethod(EMSDKMethod.deleteAllMessageAndConversation, this::deleteAllMessageAndConversation);
+        registerMethod(EMSDKMethod.pinMessage, this::pinMessage);
+        registerMethod(EMSDKMethod.unpinMessage, this::unpinMessage);
+        registerMethod(EMSDKMethod.fetchPinnedMessages, this::fetchPinnedMessages);
     }
 
     private void sendMessage(JSONObject params, String channelName, Result result) throws JSONException {
@@ -168,10 +128,12 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         msg.setMessageStatusCallback(new EMWrapperCallBack(result, channelName, null) {
             @Override
             public void onSuccess() {
+                EMMessageJsonCache.invalidate(localId);
+                EMMessageJsonCache.invalidate(msg.getMsgId());
                 EMClient.getInstance().chatManager().updateMessage(msg);
                 post(() -> {
                     Map<String, Object> map = new HashMap<>();
-                    map.put("message", EMMessageHelper.toJson(msg));
+                    messageDeltas.fill(map, localId, EMMessageHelper.toJson(msg), true);
                     map.put("localId", localId);
                     messageChannel.invokeMethod(EMSDKMethod.onMessageSuccess, map);
                 });
@@ -189,12 +151,14 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
 
             @Override
             public void onError(int code, String desc) {
+                EMMessageJsonCache.invalidate(localId);
+                EMMessageJsonCache.invalidate(msg.getMsgId());
                 Map<String, Object> data = new HashMap<>();
                 data.put("code", code);
                 data.put("description", desc);
                 post(() -> {
                     Map<String, Object> map = new HashMap<>();
-                    map.put("message", EMMessageHelper.toJson(msg));
+                    messageDeltas.fill(map, localId, EMMessageHelper.toJson(msg), true);
                     map.put("localId", localId);
                     map.put("error", data);
                     messageChannel.invokeMethod(EMSDKMethod.onMessageError, map);
@@ -203,7 +167,7 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         });
         asyncRunnable(() -> {
             EMClient.getInstance().chatManager().sendMessage(msg);
-            onSuccess(result, channelName, EMMessageHelper.toJson(msg));
+            onMessageSuccess(result, channelName, localId, EMMessageHelper.toJson(msg));
         });
     }
 
@@ -219,9 +183,11 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         finalMsg.setMessageStatusCallback(new EMWrapperCallBack(result, channelName, null) {
             @Override
             public void onSuccess() {
+                EMMessageJsonCache.invalidate(localId);
+                EMMessageJsonCache.invalidate(finalMsg.getMsgId());
                 post(() -> {
                     Map<String, Object> map = new HashMap<>();
-                    map.put("message", EMMessageHelper.toJson(finalMsg));
+                    messageDeltas.fill(map, localId, EMMessageHelper.toJson(finalMsg), true);
                     map.put("localId", localId);
                     messageChannel.invokeMethod(EMSDKMethod.onMessageSuccess, map);
                 });
@@ -240,12 +206,14 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
 
             @Override
             public void onError(int code, String desc) {
+                EMMessageJsonCache.invalidate(localId);
+                EMMessageJsonCache.invalidate(finalMsg.getMsgId());
                 Map<String, Object> data = new HashMap<>();
                 data.put("code", code);
                 data.put("description", desc);
                 post(() -> {
                     Map<String, Object> map = new HashMap<>();
-                    map.put("message", EMMessageHelper.toJson(finalMsg));
+                    messageDeltas.fill(map, localId, EMMessageHelper.toJson(finalMsg), true);
                     map.put("localId", localId);
                     map.put("error", data);
                     messageChannel.invokeMethod(EMSDKMethod.onMessageError, map);
@@ -254,10 +222,25 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         });
         EMClient.getInstance().chatManager().sendMessage(msg);
         asyncRunnable(() -> {
-            onSuccess(result, channelName, EMMessageHelper.toJson(finalMsg));
+            onMessageSuccess(result, channelName, localId, EMMessageHelper.toJson(finalMsg));
+        });
+    }
+
+    // 与 onSuccess 相同, 但在同一次主线程回调里记录 flutter 收到的消息, 保证之后的事件不会早于这次返回
+    private void onMessageSuccess(Result result, String channelName, String localId, Map<String, Object> json) {
+        post(() -> {
+            messageDeltas.publish(localId, json);
+            Map<String, Object> data = new HashMap<>();
+            data.put(channelName, json);
+            result.success(data);
         });
     }
 
+    // 目标放在 targetRequestId, requestId 会让这次调用自己登记为可取消的调用
+    private void cancelRequest(JSONObject params, String channelName, Result result) throws JSONException {
+        onSuccess(result, channelName, EMCancellableRequest.cancel(params.getString("targetRequestId")));
+    }
+
     private void ackMessageRead(JSONObject params, String channelName, Result result) throws JSONException {
         String msgId = params.getString("msg_id");
         String to = params.getString("to");
@@ -265,6 +248,7 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         asyncRunnable(() -> {
             try {
                 EMClient.getInstance().chatManager().ackMessageRead(to, msgId);
+                EMMessageJsonCache.invalidate(msgId);
                 onSuccess(result, channelName, true);
             } catch (HyphenateException e) {
                 onError(result, e);
@@ -283,6 +267,7 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         asyncRunnable(()->{
             try {
                 EMClient.getInstance().chatManager().ackGroupMessageRead(to, msgId, finalContent);
+                EMMessageJsonCache.invalidate(msgId);
                 onSuccess(result, channelName, true);
             } catch (HyphenateException e) {
                 onError(result, e);
@@ -295,6 +280,7 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         asyncRunnable(() -> {
             try {
                 EMClient.getInstance().chatManager().ackConversationRead(conversationId);
+                EMMessageJsonCache.invalidateConversation(conversationId);
                 onSuccess(result, channelName, true);
             } catch (HyphenateException e) {
                 onError(result, e);
@@ -310,6 +296,7 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
                 EMMessage msg = EMClient.getInstance().chatManager().getMessage(msgId);
                 if (msg != null) {
                     EMClient.getInstance().chatManager().recallMessage(msg);
+                    EMMessageJsonCache.invalidate(msgId);
                     onSuccess(result, channelName, true);
                 }else {
                     onError(result, new HyphenateException(500, "The message was not found"));
@@ -328,7 +315,7 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
             if(msg == null) {
                 onSuccess(result, channelName, null);
             }else {
-                onSuccess(result, channelName, EMMessageHelper.toJson(msg));
+                onSuccess(result, channelName, EMMessageJsonCache.toJson(msg));
             }
         });
     }
@@ -359,6 +346,7 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
 
     private void markAllChatMsgAsRead(JSONObject params, String channelName, Result result) throws JSONException {
        boolean ret = EMClient.getInstance().chatManager().markAllConversationsAsRead();
+       EMMessageJsonCache.clear();
 
         asyncRunnable(() -> {
             onSuccess(result, channelName, ret);
@@ -456,21 +444,34 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         this.mergeMessage(msg, dbMsg);
         asyncRunnable(() -> {
             EMClient.getInstance().chatManager().updateMessage(dbMsg);
-            onSuccess(result, channelName, EMMessageHelper.toJson(dbMsg));
+            EMMessageJsonCache.invalidate(dbMsg.getMsgId());
+            onSuccess(result, channelName, EMMessageJsonCache.toJson(dbMsg));
         });
     }
 
+    // 每次写入数据库的消息条数, flutter 端再按 chunkSize 分批调用
+    private static final int IMPORT_BATCH_SIZE = 200;
+
     private void importMessages(JSONObject params, String channelName, Result result) throws JSONException {
         JSONArray ary = params.getJSONArray("messages");
-        List<EMMessage> messages = new ArrayList<>();
-        for (int i = 0; i < ary.length(); i++) {
-            JSONObject obj = ary.getJSONObject(i);
-            messages.add(EMMessageHelper.fromJson(obj));
-        }
-
         asyncRunnable(() -> {
-            EMClient.getInstance().chatManager().importMessages(messages);
-            onSuccess(result, channelName, true);
+            try {
+                List<EMMessage> messages = new ArrayList<>();
+                for (int i = 0; i < ary.length(); i++) {
+                    EMMessage message = EMMessageHelper.fromJson(ary.getJSONObject(i));
+                    EMMessageJsonCache.invalidate(message.getMsgId());
+                    messages.add(message);
+                    // 已解析的 json 不再需要, 释放掉
+                    ary.put(i, JSONObject.NULL);
+                    if (messages.size() == IMPORT_BATCH_SIZE || i == ary.length() - 1) {
+                        EMClient.getInstance().chatManager().importMessages(messages);
+                        messages = new ArrayList<>();
+                    }
+                }
+                onSuccess(result, channelName, true);
+            } catch (JSONException e) {
+                onError(result, new HyphenateException(EMError.GENERAL_ERROR, e.getMessage()));
+            }
         });
     }
 
@@ -480,9 +481,10 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         msg.setMessageStatusCallback(new EMWrapperCallBack(result, channelName, null) {
             @Override
             public void onSuccess() {
+                EMMessageJsonCache.invalidate(msg.getMsgId());
                 post(() -> {
                     Map<String, Object> map = new HashMap<>();
-                    map.put("message", updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.SUCCESSED, msg, false));
+                    messageDeltas.fill(map, msg.getMsgId(), updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.SUCCESSED, msg, false), true);
                     map.put("localId", msg.getMsgId());
                     messageChannel.invokeMethod(EMSDKMethod.onMessageSuccess, map);
                 });
@@ -500,12 +502,13 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
 
             @Override
             public void onError(int code, String desc) {
+                EMMessageJsonCache.invalidate(msg.getMsgId());
                 Map<String, Object> data = new HashMap<>();
                 data.put("code", code);
                 data.put("description", desc);
                 post(() -> {
                     Map<String, Object> map = new HashMap<>();
-                    map.put("message", updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.FAILED, msg, false));
+                    messageDeltas.fill(map, msg.getMsgId(), updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.FAILED, msg, false), true);
                     map.put("localId", msg.getMsgId());
                     map.put("error", data);
                     messageChannel.invokeMethod(EMSDKMethod.onMessageError, map);
@@ -514,7 +517,7 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         });
         asyncRunnable(() -> {
             EMClient.getInstance().chatManager().downloadAttachment(msg);
-            onSuccess(result, channelName, updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.DOWNLOADING, msg, false));
+            onMessageSuccess(result, channelName, msg.getMsgId(), updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.DOWNLOADING, msg, false));
         });
     }
 
@@ -523,9 +526,10 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         msg.setMessageStatusCallback(new EMWrapperCallBack(result, channelName, null) {
             @Override
             public void onSuccess() {
+                EMMessageJsonCache.invalidate(msg.getMsgId());
                 post(() -> {
                     Map<String, Object> map = new HashMap<>();
-                    map.put("message", updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.SUCCESSED, msg, true));
+                    messageDeltas.fill(map, msg.getMsgId(), updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.SUCCESSED, msg, true), true);
                     map.put("localId", msg.getMsgId());
                     messageChannel.invokeMethod(EMSDKMethod.onMessageSuccess, map);
                 });
@@ -543,12 +547,13 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
 
             @Override
             public void onError(int code, String desc) {
+                EMMessageJsonCache.invalidate(msg.getMsgId());
                 Map<String, Object> data = new HashMap<>();
                 data.put("code", code);
                 data.put("description", desc);
                 post(() -> {
                     Map<String, Object> map = new HashMap<>();
-                    map.put("message", updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.FAILED, msg, true));
+                    messageDeltas.fill(map, msg.getMsgId(), updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.FAILED, msg, true), true);
                     map.put("localId", msg.getMsgId());
                     map.put("error", data);
                     messageChannel.invokeMethod(EMSDKMethod.onMessageError, map);
@@ -557,7 +562,7 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         });
         asyncRunnable(() -> {
             EMClient.getInstance().chatManager().downloadThumbnail(msg);
-            onSuccess(result, channelName, updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.DOWNLOADING, msg, true));
+            onMessageSuccess(result, channelName, msg.getMsgId(), updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.DOWNLOADING, msg, true));
         });
     }
     private void downloadAttachment(JSONObject params, String channelName, Result result) throws JSONException {
@@ -566,9 +571,10 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         msg.setMessageStatusCallback(new EMWrapperCallBack(result, channelName, null) {
             @Override
             public void onSuccess() {
+                EMMessageJsonCache.invalidate(msg.getMsgId());
                 post(() -> {
                     Map<String, Object> map = new HashMap<>();
-                    map.put("message", updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.SUCCESSED, msg, false));
+                    messageDeltas.fill(map, msg.getMsgId(), updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.SUCCESSED, msg, false), true);
                     map.put("localId", msg.getMsgId());
                     messageChannel.invokeMethod(EMSDKMethod.onMessageSuccess, map);
                 });
@@ -586,12 +592,13 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
 
             @Override
             public void onError(int code, String desc) {
+                EMMessageJsonCache.invalidate(msg.getMsgId());
                 Map<String, Object> data = new HashMap<>();
                 data.put("code", code);
                 data.put("description", desc);
                 post(() -> {
                     Map<String, Object> map = new HashMap<>();
-                    map.put("message", updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.FAILED, msg, false));
+                    messageDeltas.fill(map, msg.getMsgId(), updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.FAILED, msg, false), true);
                     map.put("localId", msg.getMsgId());
                     map.put("error", data);
                     messageChannel.invokeMethod(EMSDKMethod.onMessageError, map);
@@ -600,7 +607,7 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         });
         asyncRunnable(() -> {
             EMClient.getInstance().chatManager().downloadAttachment(msg);
-            onSuccess(result, channelName, updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.DOWNLOADING, msg, false));
+            onMessageSuccess(result, channelName, msg.getMsgId(), updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.DOWNLOADING, msg, false));
         });
     }
 
@@ -610,9 +617,10 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         msg.setMessageStatusCallback(new EMWrapperCallBack(result, channelName, null) {
             @Override
             public void onSuccess() {
+                EMMessageJsonCache.invalidate(msg.getMsgId());
                 post(() -> {
                     Map<String, Object> map = new HashMap<>();
-                    map.put("message", updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.SUCCESSED, msg, true));
+                    messageDeltas.fill(map, msg.getMsgId(), updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.SUCCESSED, msg, true), true);
                     map.put("localId", msg.getMsgId());
                     messageChannel.invokeMethod(EMSDKMethod.onMessageSuccess, map);
                 });
@@ -630,12 +638,13 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
 
             @Override
             public void onError(int code, String desc) {
+                EMMessageJsonCache.invalidate(msg.getMsgId());
                 Map<String, Object> data = new HashMap<>();
                 data.put("code", code);
                 data.put("description", desc);
                 post(() -> {
                     Map<String, Object> map = new HashMap<>();
-                    map.put("message", updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.FAILED, msg, true));
+                    messageDeltas.fill(map, msg.getMsgId(), updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.FAILED, msg, true), true);
                     map.put("localId", msg.getMsgId());
                     map.put("error", data);
                     messageChannel.invokeMethod(EMSDKMethod.onMessageError, map);
@@ -644,7 +653,7 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         });
         asyncRunnable(() -> {
             EMClient.getInstance().chatManager().downloadThumbnail(msg);
-            onSuccess(result, channelName, updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.DOWNLOADING, msg, true));
+            onMessageSuccess(result, channelName, msg.getMsgId(), updateDownloadStatus(EMFileMessageBody.EMDownloadStatus.DOWNLOADING, msg, true));
         });
     }
 
@@ -708,11 +717,7 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
             return;
         }
         List<EMConversation> list = EMClient.getInstance().chatManager().getAllConversationsBySort();
-        List<Map> conversations = new ArrayList<>();
-        for (EMConversation conversation : list) {
-            conversations.add(EMConversationHelper.toJson(conversation));
-        }
-        onSuccess(result, channelName, conversations);
+        onSuccess(result, channelName, listResult(list, EMConversationHelper::toJson));
     }
 
     private void getConversationsFromServer(JSONObject params, String channelName, Result result) throws JSONException {
@@ -720,6 +725,7 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
             try {
                 List<EMConversation> list = new ArrayList<>(
                         EMClient.getInstance().chatManager().fetchConversationsFromServer().values());
+                if (isCancelled(result)) return;
                 Collections.sort(list, new Comparator<EMConversation>() {
                     @Override
                     public int compare(EMConversation o1, EMConversation o2) {
@@ -787,12 +793,14 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         if (params.has("options")) {
             option = FetchHistoryOptionsHelper.fromJson(params.getJSONObject("options"));
         }
+        EMMessageProjection projection = EMMessageProjection.fromJson(params);
 
         EMValueWrapperCallBack<EMCursorResult<EMMessage>> callBack = new EMValueWrapperCallBack<EMCursorResult<EMMessage>>(result,
                 channelName) {
             @Override
             public void onSuccess(EMCursorResult<EMMessage> result) {
-                updateObject(EMCursorResultHelper.toJson(result));
+                if (isCancelled()) return;
+                updateObject(EMCursorResultHelper.toJson(result, projection));
             }
         };
 
@@ -812,12 +820,14 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         }else {
             scope = EMConversation.EMMessageSearchScope.ALL;
         }
+        EMMessageProjection projection = EMMessageProjection.fromJson(params);
         asyncRunnable(() -> {
             List<EMMessage> msgList = EMClient.getInstance().chatManager().searchMsgFromDB(keywords, timestamp, count,
                     from, direction, scope);
+            if (isCancelled(result)) return;
             List<Map> messages = new ArrayList<>();
             for (EMMessage msg : msgList) {
-                messages.add(EMMessageHelper.toJson(msg));
+                messages.add(EMMessageHelper.toJson(msg, projection));
             }
             onSuccess(result, channelName, messages);
         });
@@ -870,7 +880,8 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         EMClient.getInstance().chatManager().translateMessage(dbMsg, list, new EMValueWrapperCallBack<EMMessage>(result, channelName){
             @Override
             public void onSuccess(EMMessage object) {
-                updateObject(EMMessageHelper.toJson(object));
+                EMMessageJsonCache.invalidate(object.getMsgId());
+                updateObject(EMMessageJsonCache.toJson(object));
             }
         });
     }
@@ -993,7 +1004,8 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         EMClient.getInstance().chatManager().asyncModifyMessage(msgId, body, new EMValueWrapperCallBack<EMMessage>(result, channelName) {
             @Override
             public void onSuccess(EMMessage object) {
-                updateObject(EMMessageHelper.toJson(object));
+                EMMessageJsonCache.invalidate(object.getMsgId());
+                updateObject(EMMessageJsonCache.toJson(object));
             }
         });
     }
@@ -1002,6 +1014,7 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         EMClient.getInstance().chatManager().downloadAndParseCombineMessage(msg, new EMValueWrapperCallBack<List<EMMessage>>(result, channelName){
             @Override
             public void onSuccess(List<EMMessage> msgList) {
+                if (isCancelled()) return;
                 List<Map> messages = new ArrayList<>();
                 for(EMMessage msg: msgList) {
                     messages.add(EMMessageHelper.toJson(msg));
@@ -1086,6 +1099,7 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         EMClient.getInstance().chatManager().asyncGetPinnedMessagesFromServer(convId, new EMValueWrapperCallBack<List<EMMessage>>(result, channelName){
             @Override
             public void onSuccess(List<EMMessage> msgList) {
+                if (isCancelled()) return;
                 List<Map> messages = new ArrayList<>();
                 for(EMMessage msg: msgList) {
                     messages.add(EMMessageHelper.toJson(msg));
@@ -1098,6 +1112,8 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
     public void unRegisterEaseListener() {
         EMClient.getInstance().chatManager().removeMessageListener(messageListener);
         EMClient.getInstance().chatManager().removeConversationListener(conversationListener);
+        EMAckWatermarks watermarks = ackWatermarks;
+        if (watermarks != null) watermarks.clear();
     }
 
     private void registerEaseListener() {
@@ -1109,53 +1125,79 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
         messageListener = new EMMessageListener() {
             @Override
             public void onMessageReceived(List<EMMessage> messages) {
+                // 先按订阅过滤, 不需要的消息不做转换
+                if (!eventFilter.acceptsEvent(EMSDKMethod.onMessagesReceived, null)) return;
                 ArrayList<Map<String, Object>> msgList = new ArrayList<>();
                 for (EMMessage message : messages) {
+                    if (!eventFilter.accepts(message)) continue;
                     msgList.add(EMMessageHelper.toJson(message));
                 }
-                post(() -> channel.invokeMethod(EMSDKMethod.onMessagesReceived, msgList));
+                if (msgList.isEmpty()) return;
+                sendEvent(EMSDKMethod.onMessagesReceived, msgList);
             }
 
             @Override
             public void onCmdMessageReceived(List<EMMessage> messages) {
-
+                if (!eventFilter.acceptsEvent(EMSDKMethod.onCmdMessagesReceived, null)) return;
                 ArrayList<Map<String, Object>> msgList = new ArrayList<>();
                 for (EMMessage message : messages) {
+                    if (!eventFilter.accepts(message)) continue;
                     msgList.add(EMMessageHelper.toJson(message));
                 }
-                post(() -> channel.invokeMethod(EMSDKMethod.onCmdMessagesReceived, msgList));
+                if (msgList.isEmpty()) return;
+                sendEvent(EMSDKMethod.onCmdMessagesReceived, msgList);
             }
 
             @Override
             public void onMessageRead(List<EMMessage> messages) {
+                if (addAckWatermarks(true, messages)) return;
+                boolean wanted = eventFilter.acceptsEvent(EMSDKMethod.onMessagesRead, null);
+                boolean ackWanted = eventFilter.acceptsEvent(EMSDKMethod.onMessageReadAck, null);
+                if (!wanted && !ackWanted) return;
                 ArrayList<Map<String, Object>> msgList = new ArrayList<>();
                 for (EMMessage message : messages) {
-                    msgList.add(EMMessageHelper.toJson(message));
-                    post(() -> messageChannel.invokeMethod(EMSDKMethod.onMessageReadAck,
-                            EMMessageHelper.toJson(message)));
+                    // 回执改变了消息状态, 先失效再转换
+                    EMMessageJsonCache.invalidate(message.getMsgId());
+                    if (!eventFilter.accepts(message)) continue;
+                    Map<String, Object> json = EMMessageJsonCache.toJson(message);
+                    if (wanted) msgList.add(json);
+                    if (ackWanted) post(() -> messageChannel.invokeMethod(EMSDKMethod.onMessageReadAck, json));
                 }
-
-                post(() -> channel.invokeMethod(EMSDKMethod.onMessagesRead, msgList));
+                if (msgList.isEmpty()) return;
+                sendEvent(EMSDKMethod.onMessagesRead, msgList);
             }
 
             @Override
             public void onMessageDelivered(List<EMMessage> messages) {
+                if (addAckWatermarks(false, messages)) return;
+                boolean wanted = eventFilter.acceptsEvent(EMSDKMethod.onMessagesDelivered, null);
+                boolean ackWanted = eventFilter.acceptsEvent(EMSDKMethod.onMessageDeliveryAck, null);
+                if (!wanted && !ackWanted) return;
                 ArrayList<Map<String, Object>> msgList = new ArrayList<>();
                 for (EMMessage message : messages) {
-                    msgList.add(EMMessageHelper.toJson(message));
-                    post(() -> messageChannel.invokeMethod(EMSDKMethod.onMessageDeliveryAck,
-                            EMMessageHelper.toJson(message)));
+                    // 回执改变了消息状态, 先失效再转换
+                    EMMessageJsonCache.invalidate(message.getMsgId());
+                    if (!eventFilter.accepts(message)) continue;
+                    Map<String, Object> json = EMMessageJsonCache.toJson(message);
+                    if (wanted) msgList.add(json);
+                    if (ackWanted) post(() -> messageChannel.invokeMethod(EMSDKMethod.onMessageDeliveryAck, json));
                 }
-                post(() -> channel.invokeMethod(EMSDKMethod.onMessagesDelivered, msgList));
+                if (msgList.isEmpty()) return;
+                sendEvent(EMSDKMethod.onMessagesDelivered, msgList);
             }
 
             @Override
             public void onMessageRecalled(List<EMMessage> messages) {
+                boolean wanted = eventFilter.acceptsEvent(EMSDKMethod.onMessagesRecalled, null);
                 ArrayList<Map<String, Object>> msgList = new ArrayList<>();
                 for (EMMessage message : messages) {
+                    // 缓存无论是否订阅都要失效
+                    EMMessageJsonCache.invalidate(message.getMsgId());
+                    if (!wanted || !eventFilter.accepts(message)) continue;
                     msgList.add(EMMessageHelper.toJson(message));
                 }
-                post(() -> channel.invokeMethod(EMSDKMethod.onMessagesRecalled, msgList));
+                if (msgList.isEmpty()) return;
+                sendEvent(EMSDKMethod.onMessagesRecalled, msgList);
             }
 
             @Override
@@ -1164,12 +1206,12 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
                 for (EMGroupReadAck ack : var1) {
                     msgList.add(EMGroupAckHelper.toJson(ack));
                 }
-                post(() -> channel.invokeMethod(EMSDKMethod.onGroupMessageRead, msgList));
+                sendEvent(EMSDKMethod.onGroupMessageRead, msgList);
             }
 
             @Override
             public void onReadAckForGroupMessageUpdated() {
-                post(() -> channel.invokeMethod(EMSDKMethod.onReadAckForGroupMessageUpdated, null));
+                sendEvent(EMSDKMethod.onReadAckForGroupMessageUpdated, null);
             }
 
             @Override
@@ -1178,17 +1220,20 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
                 for (EMMessageReactionChange change : messageReactionChangeList) {
                     list.add(EMMessageReactionChangeHelper.toJson(change));
                 }
-                post(() -> channel.invokeMethod(EMSDKMethod.onMessageReactionDidChange, list));
+                sendEvent(EMSDKMethod.onMessageReactionDidChange, list);
             }
 
             @Override
             public void onMessageContentChanged(EMMessage messageModified, String operatorId, long operationTime) {
-                 Map msgMap = EMMessageHelper.toJson(messageModified);
+                 EMMessageJsonCache.invalidate(messageModified.getMsgId());
+                 if (!eventFilter.acceptsEvent(EMSDKMethod.onMessageContentChanged, null)
+                         || !eventFilter.accepts(messageModified)) return;
+                 Map msgMap = EMMessageJsonCache.toJson(messageModified);
                  Map map = new HashMap<>();
                  map.put("message", msgMap);
                  map.put("operator", operatorId);
                  map.put("operationTime", operationTime);
-                post(() -> channel.invokeMethod(EMSDKMethod.onMessageContentChanged, map));
+                sendEvent(EMSDKMethod.onMessageContentChanged, map);
             }
 
             @Override
@@ -1198,7 +1243,7 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
                 map.put("conversationId", conversationId);
                 map.put("pinOperation", pinOperation.ordinal());
                 map.put("pinInfo", EMMessagePinInfoHelper.toJson(pinInfo));
-                post(() -> channel.invokeMethod(EMSDKMethod.onMessagePinChanged, map));
+                sendEvent(EMSDKMethod.onMessagePinChanged, map);
             }
         };
 
@@ -1210,15 +1255,16 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
             @Override
             public void onConversationUpdate() {
                 Map<String, Object> data = new HashMap<>();
-                post(() -> channel.invokeMethod(EMSDKMethod.onConversationUpdate, data));
+                sendEvent(EMSDKMethod.onConversationUpdate, data);
             }
 
             @Override
             public void onConversationRead(String from, String to) {
+                EMMessageJsonCache.invalidateConversation(from);
                 Map<String, Object> data = new HashMap<>();
                 data.put("from", from);
                 data.put("to", to);
-                post(() -> channel.invokeMethod(EMSDKMethod.onConversationHasRead, data));
+                sendEvent(EMSDKMethod.onConversationHasRead, data);
             }
         };
 
@@ -1327,18 +1373,17 @@ public class EMChatManagerWrapper extends EMWrapper implements MethodCallHandler
             for (Map.Entry<String, Object> entry : list.entrySet()) {
                 String key = entry.getKey();
                 Object result = entry.getValue();
-                if (result.getClass().getSimpleName().equals("Integer")) {
+                if (result instanceof Integer) {
                     dbMsg.setAttribute(key, (Integer)result);
-                } else if (result.getClass().getSimpleName().equals("Boolean")) {
+                } else if (result instanceof Boolean) {
                     dbMsg.setAttribute(key, (Boolean)result);
-                } else if (result.getClass().getSimpleName().equals("Long")) {
+                } else if (result instanceof Long) {
                     dbMsg.setAttribute(key, (Long)result);
-                } else if (result.getClass().getSimpleName().equals("Double") ||
-                        result.getClass().getSimpleName().equals("Float")) {
-                    dbMsg.setAttribute(key, (Double)result);
-                } else if (result.getClass().getSimpleName().equals("JSONObject")) {
+                } else if (result instanceof Double || result instanceof Float) {
+                    dbMsg.setAttribute(key, ((Number)result).doubleValue());
+                } else if (result instanceof JSONObject) {
                     dbMsg.setAttribute(key, (JSONObject)result);
-                } else if (result.getClass().getSimpleName().equals("JSONArray")) {
+                } else if (result instanceof JSONArray) {
                     dbMsg.setAttribute(key, (JSONArray)result);
                 } else {
                     dbMsg.setAttribute(key, jsonParams.getString(key));
@@ -23,94 +23,66 @@ import java.util.Map;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
 
-import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.MethodCodec;
 
 
 public class EMChatRoomManagerWrapper extends EMWrapper implements MethodChannel.MethodCallHandler {
 
     private EMChatRoomChangeListener chatRoomChangeListener;
 
-    EMChatRoomManagerWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName) {
-        super(flutterPluginBinding, channelName);
+    // 同一个聊天室同时多次获取详情时只请求一次服务器
+    private final EMSingleFlight<Map<String, Object>> roomFlights = new EMSingleFlight<>();
+
+    // 开启后成员变化按窗口合并发送, 由 EMClientWrapper 设置
+    private volatile EMMemberDeltas memberDeltas;
+
+    EMChatRoomManagerWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName, MethodCodec codec) {
+        super(flutterPluginBinding, channelName, codec);
+        registerMethods();
         registerEaseListener();
     }
 
-    @Override
-    public void onMethodCall(MethodCall call, MethodChannel.Result result) {
-
-        JSONObject param = (JSONObject) call.arguments;
-        try {
-            if (EMSDKMethod.joinChatRoom.equals(call.method)) {
-                joinChatRoom(param, call.method, result);
-            } else if (EMSDKMethod.leaveChatRoom.equals(call.method)) {
-                leaveChatRoom(param, call.method, result);
-            } else if (EMSDKMethod.fetchPublicChatRoomsFromServer.equals(call.method)) {
-                fetchPublicChatRoomsFromServer(param, call.method, result);
-            } else if (EMSDKMethod.fetchChatRoomInfoFromServer.equals(call.method)) {
-                fetchChatRoomInfoFromServer(param, call.method, result);
-            } else if (EMSDKMethod.getChatRoom.equals(call.method)) {
-                getChatRoom(param, call.method, result);
-            } else if (EMSDKMethod.getAllChatRooms.equals(call.method)) {
-                getAllChatRooms(param, call.method, result);
-            } else if (EMSDKMethod.createChatRoom.equals(call.method)) {
-                createChatRoom(param, call.method, result);
-            } else if (EMSDKMethod.destroyChatRoom.equals(call.method)) {
-                destroyChatRoom(param, call.method, result);
-            } else if (EMSDKMethod.changeChatRoomSubject.equals(call.method)) {
-                changeChatRoomSubject(param, call.method, result);
-            } else if (EMSDKMethod.changeChatRoomDescription.equals(call.method)) {
-                changeChatRoomDescription(param, call.method, result);
-            } else if (EMSDKMethod.fetchChatRoomMembers.equals(call.method)) {
-                fetchChatRoomMembers(param, call.method, result);
-            } else if (EMSDKMethod.muteChatRoomMembers.equals(call.method)) {
-                muteChatRoomMembers(param, call.method, result);
-            } else if (EMSDKMethod.unMuteChatRoomMembers.equals(call.method)) {
-                unMuteChatRoomMembers(param, call.method, result);
-            } else if (EMSDKMethod.changeChatRoomOwner.equals(call.method)) {
-                changeChatRoomOwner(param, call.method, result);
-            } else if (EMSDKMethod.addChatRoomAdmin.equals(call.method)) {
-                addChatRoomAdmin(param, call.method, result);
-            } else if (EMSDKMethod.removeChatRoomAdmin.equals(call.method)) {
-                removeChatRoomAdmin(param, call.method, result);
-            } else if (EMSDKMethod.fetchChatRoomMuteList.equals(call.method)) {
-                fetchChatRoomMuteList(param, call.method, result);
-            } else if (EMSDKMethod.removeChatRoomMembers.equals(call.method)) {
-                removeChatRoomMembers(param, call.method, result);
-            } else if (EMSDKMethod.blockChatRoomMembers.equals(call.method)) {
-                blockChatRoomMembers(param, call.method, result);
-            } else if (EMSDKMethod.unBlockChatRoomMembers.equals(call.method)) {
-                unBlockChatRoomMembers(param, call.method, result);
-            } else if (EMSDKMethod.fetchChatRoomBlockList.equals(call.method)) {
-                fetchChatRoomBlockList(param, call.method, result);
-            } else if (EMSDKMethod.updateChatRoomAnnouncement.equals(call.method)) {
-                updateChatRoomAnnouncement(param, call.method, result);
-            } else if (EMSDKMethod.fetchChatRoomAnnouncement.equals(call.method)) {
-                fetchChatRoomAnnouncement(param, call.method, result);
-            } else if (EMSDKMethod.addMembersToChatRoomWhiteList.equals(call.method)) {
-                addMembersToChatRoomWhiteList(param, call.method, result);
-            } else if (EMSDKMethod.removeMembersFromChatRoomWhiteList.equals(call.method)) {
-                removeMembersFromChatRoomWhiteList(param, call.method, result);
-            } else if (EMSDKMethod.isMemberInChatRoomWhiteListFromServer.equals(call.method)) {
-                isMemberInChatRoomWhiteListFromServer(param, call.method, result);
-            } else if (EMSDKMethod.fetchChatRoomWhiteListFromServer.equals(call.method)) {
-                fetchChatRoomWhiteListFromServer(param, call.method, result);
-            } else if (EMSDKMethod.muteAllChatRoomMembers.equals(call.method)) {
-                muteAllChatRoomsMembers(param, call.method, result);
-            } else if (EMSDKMethod.unMuteAllChatRoomMembers.equals(call.method)) {
-                unMuteAllChatRoomsMembers(param, call.method, result);
-            } else if (EMSDKMethod.fetchChatRoomAttributes.equals(call.method)){
-                fetchChatRoomAttributes(param, call.method, result);
-            } else if (EMSDKMethod.setChatRoomAttributes.equals(call.method)){
-                setChatRoomAttributes(param, call.method, result);
-            } else if (EMSDKMethod.removeChatRoomAttributes.equals(call.method)){
-                removeChatRoomAttributes(param, call.method, result);
-            } else {
-                super.onMethodCall(call, result);
-            }
-        } catch (JSONException ignored) {
-
-        }
+    void enableMemberDeltas(long windowMs) {
+        memberDeltas = windowMs > 0
+                ? new EMMemberDeltas("onRoomMembersChanged", "roomId", "roomName", windowMs,
+                        data -> sendEvent(EMSDKMethod.chatRoomChange, data))
+                : null;
+    }
+
+    private void registerMethods() {
+        registerMethod(EMSDKMethod.joinChatRoom, this::joinChatRoom);
+        registerMethod(EMSDKMethod.leaveChatRoom, this::leaveChatRoom);
+        registerMethod(EMSDKMethod.fetchPublicChatRoomsFromServer, this::fetchPublicChatRoomsFromServer);
+        registerMethod(EMSDKMethod.fetchChatRoomInfoFromServer, this::fetchChatRoomInfoFromServer);
+        registerMethod(EMSDKMethod.getChatRoom, this::getChatRoom);
+        registerMethod(EMSDKMethod.getAllChatRooms, this::getAllChatRooms);
+        registerMethod(EMSDKMethod.createChatRoom, this::createChatRoom);
+        registerMethod(EMSDKMethod.destroyChatRoom, this::destroyChatRoom);
+        registerMethod(EMSDKMethod.changeChatRoomSubject, this::changeChatRoomSubject);
+        registerMethod(EMSDKMethod.changeChatRoomDescription, this::changeChatRoomDescription);
+        registerMethod(EMSDKMethod.fetchChatRoomMembers, this::fetchChatRoomMembers);
+        registerMethod(EMSDKMethod.muteChatRoomMembers, this::muteChatRoomMembers);
+        registerMethod(EMSDKMethod.unMuteChatRoomMembers, this::unMuteChatRoomMembers);
+        registerMethod(EMSDKMethod.changeChatRoomOwner, this::changeChatRoomOwner);
+        registerMethod(EMSDKMethod.addChatRoomAdmin, this::addChatRoomAdmin);
+        registerMethod(EMSDKMethod.removeChatRoomAdmin, this::removeChatRoomAdmin);
+        registerMethod(EMSDKMethod.fetchChatRoomMuteList, this::fetchChatRoomMuteList);
+        registerMethod(EMSDKMethod.removeChatRoomMembers, this::removeChatRoomMembers);
+        registerMethod(EMSDKMethod.blockChatRoomMembers, this::blockChatRoomMembers);
+        registerMethod(EMSDKMethod.unBlockChatRoomMembers, this::unBlockChatRoomMembers);
+        registerMethod(EMSDKMethod.fetchChatRoomBlockList, this::fetchChatRoomBlockList);
+        registerMethod(EMSDKMethod.updateChatRoomAnnouncement, this::updateChatRoomAnnouncement);
+        registerMethod(EMSDKMethod.fetchChatRoomAnnouncement, this::fetchChatRoomAnnouncement);
+        registerMethod(EMSDKMethod.addMembersToChatRoomWhiteList, this::addMembersToChatRoomWhiteList);
+        registerMethod(EMSDKMethod.removeMembersFromChatRoomWhiteList, this::removeMembersFromChatRoomWhiteList);
+        registerMethod(EMSDKMethod.isMemberInChatRoomWhiteListFromServer, this::isMemberInChatRoomWhiteListFromServer);
+        registerMethod(EMSDKMethod.fetchChatRoomWhiteListFromServer, this::fetchChatRoomWhiteListFromServer);
+        registerMethod(EMSDKMethod.muteAllChatRoomMembers, this::muteAllChatRoomsMembers);
+        registerMethod(EMSDKMethod.unMuteAllChatRoomMembers, this::unMuteAllChatRoomsMembers);
+        registerMethod(EMSDKMethod.fetchChatRoomAttributes, this::fetchChatRoomAttributes);
+        registerMethod(EMSDKMethod.setChatRoomAttributes, this::setChatRoomAttributes);
+        registerMethod(EMSDKMethod.removeChatRoomAttributes, this::removeChatRoomAttributes);
     }
 
     private void joinChatRoom(JSONObject param, String channelName, MethodChannel.Result result) throws JSONException {
@@ -157,19 +129,26 @@ public class EMChatRoomManagerWrapper extends EMWrapper implements MethodChannel
             throws JSONException {
         String roomId = param.getString("roomId");
         boolean fetchMembers = param.getBoolean("fetchMembers");
-        asyncRunnable(() -> {
-            EMChatRoom room = null;
-            try {
-                if (fetchMembers) {
-                    room = EMClient.getInstance().chatroomManager().fetchChatRoomFromServer(roomId, true);
-                }else {
-                    room = EMClient.getInstance().chatroomManager().fetchChatRoomFromServer(roomId);
-                }
-                onSuccess(result, channelName, EMChatRoomHelper.toJson(room));
-            } catch (HyphenateException e) {
+        String key = roomId + "/" + fetchMembers;
+        boolean leader = roomFlights.join(key, (json, e) -> {
+            if (e != null) {
                 onError(result, e);
+            } else {
+                onSuccess(result, channelName, json);
+            }
+        });
+        if (!leader) return;
+        // 合并进来的调用也在等这个请求, 时限加在请求上, 异常和超时同样会结束它
+        EMFuture<Map<String, Object>> fetch = EMFuture.supply(() -> {
+            EMChatRoom room;
+            if (fetchMembers) {
+                room = EMClient.getInstance().chatroomManager().fetchChatRoomFromServer(roomId, true);
+            }else {
+                room = EMClient.getInstance().chatroomManager().fetchChatRoomFromServer(roomId);
             }
+            return EMChatRoomHelper.toJson(room);
         });
+        fetch.timeout(EMFuture.deadlineOf(channelName)).whenComplete((json, e) -> roomFlights.complete(key, json, e));
     }
 
     private void getChatRoom(JSONObject param, String channelName, MethodChannel.Result result) throws JSONException {
@@ -185,11 +164,7 @@ public class EMChatRoomManagerWrapper extends EMWrapper implements MethodChannel
             throws JSONException {
         asyncRunnable(() -> {
             List<EMChatRoom> list = EMClient.getInstance().chatroomManager().getAllChatRooms();
-            List<Map<String, Object>> roomList = new ArrayList<>();
-            for (EMChatRoom room : list) {
-                roomList.add(EMChatRoomHelper.toJson(room));
-            }
-            onSuccess(result, channelName, roomList);
+            onSuccess(result, channelName, listResult(list, EMChatRoomHelper::toJson));
         });
     }
 
@@ -664,13 +639,18 @@ public class EMChatRoomManagerWrapper extends EMWrapper implements MethodChannel
 
             @Override
             public void onWhiteListAdded(String chatRoomId, List<String> whitelist) {
+                EMMemberDeltas deltas = memberDeltas;
+                if (deltas != null) {
+                    deltas.allowListAdded(chatRoomId, whitelist);
+                    return;
+                }
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("roomId", chatRoomId);
                             data.put("whitelist", whitelist);
                             data.put("type", "onRoomWhiteListAdded");
-                            post(() -> channel.invokeMethod(EMSDKMethod.chatRoomChange, data));
+                            sendEvent(EMSDKMethod.chatRoomChange, data);
                         }
                 );
 
@@ -678,26 +658,32 @@ public class EMChatRoomManagerWrapper extends EMWrapper implements MethodChannel
 
             @Override
             public void onWhiteListRemoved(String chatRoomId, List<String> whitelist) {
+                EMMemberDeltas deltas = memberDeltas;
+                if (deltas != null) {
+                    deltas.allowListRemoved(chatRoomId, whitelist);
+                    return;
+                }
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("roomId", chatRoomId);
                             data.put("whitelist", whitelist);
                             data.put("type", "onRoomWhiteListRemoved");
-                            post(() -> channel.invokeMethod(EMSDKMethod.chatRoomChange, data));
+                            sendEvent(EMSDKMethod.chatRoomChange, data);
                         }
                 );
             }
 
             @Override
             public void onAllMemberMuteStateChanged(String chatRoomId, boolean isMuted) {
-                EMListenerHandle.getInstance().addHandle(
+                flushMemberDeltas(chatRoomId);
+                EMListenerHandle.getInstance().addHandle("room/mute/" + chatRoomId,
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("roomId", chatRoomId);
                             data.put("isMuted", isMuted);
                             data.put("type", "onRoomAllMemberMuteStateChanged");
-                            post(() -> channel.invokeMethod(EMSDKMethod.chatRoomChange, data));
+                            sendEvent(EMSDKMethod.chatRoomChange, data);
                         }
                 );
 
@@ -705,13 +691,14 @@ public class EMChatRoomManagerWrapper extends EMWrapper implements MethodChannel
 
             @Override
             public void onChatRoomDestroyed(String roomId, String roomName) {
+                flushMemberDeltas(roomId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("roomId", roomId);
                             data.put("roomName", roomName);
                             data.put("type", "onRoomDestroyed");
-                            post(() -> channel.invokeMethod(EMSDKMethod.chatRoomChange, data));
+                            sendEvent(EMSDKMethod.chatRoomChange, data);
                         }
                 );
 
@@ -719,19 +706,29 @@ public class EMChatRoomManagerWrapper extends EMWrapper implements MethodChannel
 
             @Override
             public void onMemberJoined(String roomId, String participant) {
+                EMMemberDeltas deltas = memberDeltas;
+                if (deltas != null) {
+                    deltas.joined(roomId, participant);
+                    return;
+                }
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("roomId", roomId);
                             data.put("participant", participant);
                             data.put("type", "onRoomMemberJoined");
-                            post(() -> channel.invokeMethod(EMSDKMethod.chatRoomChange, data));
+                            sendEvent(EMSDKMethod.chatRoomChange, data);
                         }
                 );
             }
 
             @Override
             public void onMemberExited(String roomId, String roomName, String participant) {
+                EMMemberDeltas deltas = memberDeltas;
+                if (deltas != null) {
+                    deltas.exited(roomId, roomName, participant);
+                    return;
+                }
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
@@ -739,7 +736,7 @@ public class EMChatRoomManagerWrapper extends EMWrapper implements MethodChannel
                             data.put("roomName", roomName);
                             data.put("participant", participant);
                             data.put("type", "onRoomMemberExited");
-                            post(() -> channel.invokeMethod(EMSDKMethod.chatRoomChange, data));
+                            sendEvent(EMSDKMethod.chatRoomChange, data);
                         }
                 );
 
@@ -747,6 +744,7 @@ public class EMChatRoomManagerWrapper extends EMWrapper implements MethodChannel
 
             @Override
             public void onRemovedFromChatRoom(int reason, String roomId, String roomName, String participant) {
+                flushMemberDeltas(roomId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
@@ -755,7 +753,7 @@ public class EMChatRoomManagerWrapper extends EMWrapper implements MethodChannel
                             data.put("participant", participant);
                             data.put("type", "onRoomRemoved");
                             data.put("reason", reason);
-                            post(() -> channel.invokeMethod(EMSDKMethod.chatRoomChange, data));
+                            sendEvent(EMSDKMethod.chatRoomChange, data);
                         }
                 );
 
@@ -763,6 +761,11 @@ public class EMChatRoomManagerWrapper extends EMWrapper implements MethodChannel
 
             @Override
             public void onMuteListAdded(String chatRoomId, List<String> mutes, long expireTime) {
+                EMMemberDeltas deltas = memberDeltas;
+                if (deltas != null) {
+                    deltas.muted(chatRoomId, mutes, expireTime);
+                    return;
+                }
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
@@ -770,20 +773,25 @@ public class EMChatRoomManagerWrapper extends EMWrapper implements MethodChannel
                             data.put("mutes", mutes);
                             data.put("expireTime", String.valueOf(expireTime));
                             data.put("type", "onRoomMuteListAdded");
-                            post(() -> channel.invokeMethod(EMSDKMethod.chatRoomChange, data));
+                            sendEvent(EMSDKMethod.chatRoomChange, data);
                         }
                 );
             }
 
             @Override
             public void onMuteListRemoved(String chatRoomId, List<String> mutes) {
+                EMMemberDeltas deltas = memberDeltas;
+                if (deltas != null) {
+                    deltas.unmuted(chatRoomId, mutes);
+                    return;
+                }
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("roomId", chatRoomId);
                             data.put("mutes", mutes);
                             data.put("type", "onRoomMuteListRemoved");
-                            post(() -> channel.invokeMethod(EMSDKMethod.chatRoomChange, data));
+                            sendEvent(EMSDKMethod.chatRoomChange, data);
                         }
                 );
 
@@ -791,13 +799,14 @@ public class EMChatRoomManagerWrapper extends EMWrapper implements MethodChannel
 
             @Override
             public void onAdminAdded(String chatRoomId, String admin) {
+                flushMemberDeltas(chatRoomId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("roomId", chatRoomId);
                             data.put("admin", admin);
                             data.put("type", "onRoomAdminAdded");
-                            post(() -> channel.invokeMethod(EMSDKMethod.chatRoomChange, data));
+                            sendEvent(EMSDKMethod.chatRoomChange, data);
                         }
                 );
 
@@ -805,19 +814,21 @@ public class EMChatRoomManagerWrapper extends EMWrapper implements MethodChannel
 
             @Override
             public void onAdminRemoved(String chatRoomId, String admin) {
+                flushMemberDeltas(chatRoomId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("roomId", chatRoomId);
                             data.put("admin", admin);
                             data.put("type", "onRoomAdminRemoved");
-                            post(() -> channel.invokeMethod(EMSDKMethod.chatRoomChange, data));
+                            sendEvent(EMSDKMethod.chatRoomChange, data);
                         }
                 );
             }
 
             @Override
             public void onOwnerChanged(String chatRoomId, String newOwner, String oldOwner) {
+                flushMemberDeltas(chatRoomId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
@@ -825,7 +836,7 @@ public class EMChatRoomManagerWrapper extends EMWrapper implements MethodChannel
                             data.put("newOwner", newOwner);
                             data.put("oldOwner", oldOwner);
                             data.put("type", "onRoomOwnerChanged");
-                            post(() -> channel.invokeMethod(EMSDKMethod.chatRoomChange, data));
+                            sendEvent(EMSDKMethod.chatRoomChange, data);
                         }
                 );
 
@@ -833,31 +844,34 @@ public class EMChatRoomManagerWrapper extends EMWrapper implements MethodChannel
 
             @Override
             public void onAnnouncementChanged(String chatRoomId, String announcement) {
-                EMListenerHandle.getInstance().addHandle(
+                flushMemberDeltas(chatRoomId);
+                EMListenerHandle.getInstance().addHandle("room/announcement/" + chatRoomId,
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("roomId", chatRoomId);
                             data.put("announcement", announcement);
                             data.put("type", "onRoomAnnouncementChanged");
-                            post(() -> channel.invokeMethod(EMSDKMethod.chatRoomChange, data));
+                            sendEvent(EMSDKMethod.chatRoomChange, data);
                         }
                 );
             }
 
             @Override
             public void onSpecificationChanged(EMChatRoom room) {
-                EMListenerHandle.getInstance().addHandle(
+                flushMemberDeltas(room.getId());
+                EMListenerHandle.getInstance().addHandle("room/specification/" + room.getId(),
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("room", EMChatRoomHelper.toJson(room));
                             data.put("type", "onRoomSpecificationChanged");
-                            post(() -> channel.invokeMethod(EMSDKMethod.chatRoomChange, data));
+                            sendEvent(EMSDKMethod.chatRoomChange, data);
                         }
                 );
             }
 
             @Override
             public void onAttributesUpdate(String chatRoomId, Map<String, String> attributeMap, String from) {
+                flushMemberDeltas(chatRoomId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
@@ -865,13 +879,14 @@ public class EMChatRoomManagerWrapper extends EMWrapper implements MethodChannel
                             data.put("type", "onRoomAttributesDidUpdated");
                             data.put("attributes", attributeMap);
                             data.put("fromId", from);
-                            post(() -> channel.invokeMethod(EMSDKMethod.chatRoomChange, data));
+                            sendEvent(EMSDKMethod.chatRoomChange, data);
                         }
                 );
             }
 
             @Override
             public void onAttributesRemoved(String chatRoomId, List<String> keyList, String from) {
+                flushMemberDeltas(chatRoomId);
                 EMListenerHandle.getInstance().addHandle(
                         () -> {
                             Map<String, Object> data = new HashMap<>();
@@ -879,7 +894,7 @@ public class EMChatRoomManagerWrapper extends EMWrapper implements MethodChannel
                             data.put("keys", keyList);
                             data.put("type", "onRoomAttributesDidRemoved");
                             data.put("fromId", from);
-                            post(() -> channel.invokeMethod(EMSDKMethod.chatRoomChange, data));
+                            sendEvent(EMSDKMethod.chatRoomChange, data);
                         }
                 );
             }
@@ -888,8 +903,16 @@ public class EMChatRoomManagerWrapper extends EMWrapper implements MethodChannel
         EMClient.getInstance().chatroomManager().addChatRoomChangeListener(chatRoomChangeListener);
     }
 
+    // 先发出这个房间待合并的成员变化, 不要排在它的其他事件之后
+    private void flushMemberDeltas(String roomId) {
+        EMMemberDeltas deltas = memberDeltas;
+        if (deltas != null) deltas.flush(roomId);
+    }
+
     @Override
     public void unRegisterEaseListener() {
         EMClient.getInstance().chatroomManager().removeChatRoomListener(chatRoomChangeListener);
+        EMMemberDeltas deltas = memberDeltas;
+        if (deltas != null) deltas.clear();
     }
 }
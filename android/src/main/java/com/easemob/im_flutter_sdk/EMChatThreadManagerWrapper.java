@@ -18,54 +18,32 @@ import java.util.List;
 import java.util.Map;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
-import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.MethodCodec;
 
 public class EMChatThreadManagerWrapper extends EMWrapper implements MethodChannel.MethodCallHandler {
 
     private EMChatThreadChangeListener chatThreadChangeListener;
 
-    public EMChatThreadManagerWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName) {
-        super(flutterPluginBinding, channelName);
+    public EMChatThreadManagerWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName, MethodCodec codec) {
+        super(flutterPluginBinding, channelName, codec);
+        registerMethods();
         registerEaseListener();
     }
 
-    @Override
-    public void onMethodCall(MethodCall call, MethodChannel.Result result) {
-
-        JSONObject param = (JSONObject) call.arguments;
-        try {
-            if (EMSDKMethod.fetchChatThreadDetail.equals(call.method)) {
-                fetchChatThreadDetail(param, call.method, result);
-            } else if (EMSDKMethod.fetchJoinedChatThreads.equals(call.method)) {
-                fetchJoinedChatThreads(param, call.method, result);
-            } else if (EMSDKMethod.fetchChatThreadsWithParentId.equals(call.method)) {
-                fetchChatThreadsWithParentId(param, call.method, result);
-            } else if (EMSDKMethod.fetchJoinedChatThreadsWithParentId.equals(call.method)) {
-                fetchJoinedChatThreadsWithParentId(param, call.method, result);
-            } else if (EMSDKMethod.fetchChatThreadMember.equals(call.method)) {
-                fetchChatThreadMember(param, call.method, result);
-            } else if (EMSDKMethod.fetchLastMessageWithChatThreads.equals(call.method)) {
-                fetchLastMessageWithChatThreads(param, call.method, result);
-            } else if (EMSDKMethod.removeMemberFromChatThread.equals(call.method)) {
-                removeMemberFromChatThread(param, call.method, result);
-            } else if (EMSDKMethod.updateChatThreadSubject.equals(call.method)) {
-                updateChatThreadSubject(param, call.method, result);
-            } else if (EMSDKMethod.createChatThread.equals(call.method)) {
-                createChatThread(param, call.method, result);
-            } else if (EMSDKMethod.joinChatThread.equals(call.method)) {
-                joinChatThread(param, call.method, result);
-            } else if (EMSDKMethod.leaveChatThread.equals(call.method)) {
-                leaveChatThread(param, call.method, result);
-            } else if (EMSDKMethod.destroyChatThread.equals(call.method)) {
-                destroyChatThread(param, call.method, result);
-            }
-            else {
-                super.onMethodCall(call, result);
-            }
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
+    private void registerMethods() {
+        registerMethod(EMSDKMethod.fetchChatThreadDetail, this::fetchChatThreadDetail);
+        registerMethod(EMSDKMethod.fetchJoinedChatThreads, this::fetchJoinedChatThreads);
+        registerMethod(EMSDKMethod.fetchChatThreadsWithParentId, this::fetchChatThreadsWithParentId);
+        registerMethod(EMSDKMethod.fetchJoinedChatThreadsWithParentId, this::fetchJoinedChatThreadsWithParentId);
+        registerMethod(EMSDKMethod.fetchChatThreadMember, this::fetchChatThreadMember);
+        registerMethod(EMSDKMethod.fetchLastMessageWithChatThreads, this::fetchLastMessageWithChatThreads);
+        registerMethod(EMSDKMethod.removeMemberFromChatThread, this::removeMemberFromChatThread);
+        registerMethod(EMSDKMethod.updateChatThreadSubject, this::updateChatThreadSubject);
+        registerMethod(EMSDKMethod.createChatThread, this::createChatThread);
+        registerMethod(EMSDKMethod.joinChatThread, this::joinChatThread);
+        registerMethod(EMSDKMethod.leaveChatThread, this::leaveChatThread);
+        registerMethod(EMSDKMethod.destroyChatThread, this::destroyChatThread);
     }
 
     private void fetchChatThreadDetail(JSONObject param, String channelName, MethodChannel.Result result) throws JSONException {
@@ -210,28 +188,34 @@ public class EMChatThreadManagerWrapper extends EMWrapper implements MethodChann
         chatThreadChangeListener = new EMChatThreadChangeListener() {
             @Override
             public void onChatThreadCreated(EMChatThreadEvent event) {
-                post(() -> channel.invokeMethod(EMSDKMethod.onChatThreadCreate, EMChatThreadEventHelper.toJson(event)));
+                sendThreadEvent(EMSDKMethod.onChatThreadCreate, event);
             }
 
             @Override
             public void onChatThreadUpdated(EMChatThreadEvent event) {
-                post(() -> channel.invokeMethod(EMSDKMethod.onChatThreadUpdate, EMChatThreadEventHelper.toJson(event)));
+                sendThreadEvent(EMSDKMethod.onChatThreadUpdate, event);
             }
 
             @Override
             public void onChatThreadDestroyed(EMChatThreadEvent event) {
-                post(() -> channel.invokeMethod(EMSDKMethod.onChatThreadDestroy, EMChatThreadEventHelper.toJson(event)));
+                sendThreadEvent(EMSDKMethod.onChatThreadDestroy, event);
             }
 
             @Override
             public void onChatThreadUserRemoved(EMChatThreadEvent event) {
-                post(() -> channel.invokeMethod(EMSDKMethod.onUserKickOutOfChatThread, EMChatThreadEventHelper.toJson(event)));
+                sendThreadEvent(EMSDKMethod.onUserKickOutOfChatThread, event);
             }
         };
 
         EMClient.getInstance().chatThreadManager().addChatThreadChangeListener(chatThreadChangeListener);
     }
 
+    // 没有订阅的事件不做转换
+    private void sendThreadEvent(String method, EMChatThreadEvent event) {
+        if (!eventFilter.acceptsEvent(method, null)) return;
+        sendEvent(method, EMChatThreadEventHelper.toJson(event));
+    }
+
     @Override
     public void unRegisterEaseListener() {
         EMClient.getInstance().chatThreadManager().removeChatThreadChangeListener(chatThreadChangeListener);
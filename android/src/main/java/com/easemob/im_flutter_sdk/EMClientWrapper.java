@@ -7,12 +7,13 @@ import java.util.ArrayList;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 
-import androidx.annotation.NonNull;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
-import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.JSONMethodCodec;
+import io.flutter.plugin.common.MethodCodec;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
 import io.flutter.plugin.common.PluginRegistry;
@@ -27,6 +28,7 @@ import com.hyphenate.chat.EMDeviceInfo;
 import com.hyphenate.exceptions.HyphenateException;
 
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -48,9 +50,24 @@ public class EMClientWrapper extends EMWrapper implements MethodCallHandler {
     private EMConnectionListener connectionListener;
 
     private EMOptions options;
+    private MethodCodec transportCodec = JSONMethodCodec.INSTANCE;
+    private boolean lazyListResults = false;
+    private boolean messageDeltas = false;
+    private long eventBatchInterval = 0;
+    private long memberEventInterval = 0;
+    private long presenceEventInterval = 0;
+    private long ackWatermarkInterval = 0;
+
+    // 当前 engine 的 channel 名 -> wrapper, 供 batch 调用转发
+    private final Map<String, EMWrapper> wrappers = new ConcurrentHashMap<>();
 
     EMClientWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName) {
         super(flutterPluginBinding, channelName);
+        if (scheduler == null) {
+            scheduler = new EMScheduler();
+        }
+        wrappers.put(channelName, this);
+        registerMethods();
     }
 
     public void sendDataToFlutter(final Map data) {
@@ -60,81 +77,28 @@ public class EMClientWrapper extends EMWrapper implements MethodCallHandler {
         post(()-> channel.invokeMethod(EMSDKMethod.onSendDataToFlutter, data));
     }
 
-    @Override
-    public void onMethodCall(MethodCall call, @NonNull Result result) {
-
-        JSONObject param = (JSONObject)call.arguments;
-        try {
-            if (EMSDKMethod.init.equals(call.method)) {
-                init(param, call.method, result);
-            }
-            else if (EMSDKMethod.createAccount.equals(call.method))
-            {
-                createAccount(param, call.method, result);
-            }
-            else if (EMSDKMethod.login.equals(call.method))
-            {
-                login(param, call.method, result);
-            }
-            else if (EMSDKMethod.logout.equals(call.method))
-            {
-                logout(param, call.method, result);
-            }
-            else if (EMSDKMethod.changeAppKey.equals(call.method))
-            {
-                changeAppKey(param, call.method, result);
-            }
-            else if (EMSDKMethod.uploadLog.equals(call.method))
-            {
-                uploadLog(param, call.method, result);
-            }
-            else if (EMSDKMethod.compressLogs.equals(call.method))
-            {
-                compressLogs(param, call.method, result);
-            }
-            else if (EMSDKMethod.getLoggedInDevicesFromServer.equals(call.method))
-            {
-                getLoggedInDevicesFromServer(param, call.method, result);
-            }
-            else if (EMSDKMethod.kickDevice.equals(call.method))
-            {
-                kickDevice(param, call.method, result);
-            }
-            else if (EMSDKMethod.kickAllDevices.equals(call.method))
-            {
-                kickAllDevices(param, call.method, result);
-            }
-            else if (EMSDKMethod.isLoggedInBefore.equals(call.method))
-            {
-                isLoggedInBefore(param, call.method, result);
-            }
-            else if (EMSDKMethod.getCurrentUser.equals(call.method))
-            {
-                getCurrentUser(param, call.method, result);
-            }
-            else if (EMSDKMethod.loginWithAgoraToken.equals(call.method))
-            {
-                loginWithAgoraToken(param, EMSDKMethod.loginWithAgoraToken, result);
-            }
-            else if (EMSDKMethod.getToken.equals(call.method))
-            {
-                getToken(param, call.method, result);
-            }
-            else if (EMSDKMethod.isConnected.equals(call.method)) {
-                isConnected(param, call.method, result);
-            }
-            else if (EMSDKMethod.renewToken.equals(call.method)){
-                renewToken(param, call.method, result);
-            } else if (EMSDKMethod.startCallback.equals(call.method)) {
-                startCallback(param, call.method, result);
-            }
-            else  {
-                super.onMethodCall(call, result);
-            }
-
-        }catch (JSONException ignored) {
-
-        }
+    private void registerMethods() {
+        registerMethod(EMSDKMethod.init, this::init);
+        registerMethod(EMSDKMethod.createAccount, this::createAccount);
+        registerMethod(EMSDKMethod.login, this::login);
+        registerMethod(EMSDKMethod.logout, this::logout);
+        registerMethod(EMSDKMethod.changeAppKey, this::changeAppKey);
+        registerMethod(EMSDKMethod.uploadLog, this::uploadLog);
+        registerMethod(EMSDKMethod.compressLogs, this::compressLogs);
+        registerMethod(EMSDKMethod.getLoggedInDevicesFromServer, this::getLoggedInDevicesFromServer);
+        registerMethod(EMSDKMethod.kickDevice, this::kickDevice);
+        registerMethod(EMSDKMethod.kickAllDevices, this::kickAllDevices);
+        registerMethod(EMSDKMethod.isLoggedInBefore, this::isLoggedInBefore);
+        registerMethod(EMSDKMethod.getCurrentUser, this::getCurrentUser);
+        registerMethod(EMSDKMethod.loginWithAgoraToken, this::loginWithAgoraToken);
+        registerMethod(EMSDKMethod.getToken, this::getToken);
+        registerMethod(EMSDKMethod.isConnected, this::isConnected);
+        registerMethod(EMSDKMethod.renewToken, this::renewToken);
+        registerMethod(EMSDKMethod.startCallback, this::startCallback);
+        registerMethod(EMSDKMethod.batch, this::batch);
+        registerMethod(EMSDKMethod.setEventFilter, this::setEventFilter);
+        registerMethod(EMSDKMethod.getMethodStats, this::getMethodStats);
+        registerMethod(EMSDKMethod.getSchedulerMetrics, this::getSchedulerMetrics);
     }
 
 
@@ -179,6 +143,8 @@ public class EMClientWrapper extends EMWrapper implements MethodCallHandler {
             @Override
             public void onSuccess() {
                 EMListenerHandle.getInstance().clearHandle();
+                EMMessageJsonCache.clear();
+                post(() -> chatManagerWrapper.messageDeltas.clear());
                 object = true;
                 super.onSuccess();
             }
@@ -308,20 +274,47 @@ public class EMClientWrapper extends EMWrapper implements MethodCallHandler {
 
     private void init(JSONObject param, String channelName, Result result) throws JSONException {
         if (options != null) {
-            onSuccess(result, channelName, null);
+            onSuccess(result, channelName, transportInfo());
             return;
         }
         options = EMOptionsHelper.fromJson(param, this.context);
         EMClient.getInstance().init(this.context, options);
         EMClient.getInstance().setDebugMode(param.getBoolean("debugModel"));
+        transportCodec = EMTransportCodec.methodCodec(
+                param.optString("transport", EMTransportCodec.JSON),
+                param.optInt("messageSchema", 0));
+        // json 编码会自己构建整棵树, 逐条转换没有意义
+        lazyListResults = transportCodec != JSONMethodCodec.INSTANCE && param.optBoolean("lazyListResults", false);
+        messageDeltas = param.optBoolean("messageDeltas", false);
+        eventBatchInterval = Math.max(0, param.optLong("eventBatchInterval", 0));
+        memberEventInterval = Math.max(0, param.optLong("memberEventInterval", 0));
+        presenceEventInterval = Math.max(0, param.optLong("presenceEventInterval", 0));
+        ackWatermarkInterval = Math.max(0, param.optLong("ackWatermarkInterval", 0));
+        EMListenerHandle.getInstance().configure(
+                param.optInt("eventQueueCapacity", EMListenerHandle.DEFAULT_CAPACITY),
+                param.optString("eventOverflowPolicy", EMListenerHandle.COALESCE));
 
         bindingManagers();
         registerEaseListener();
 
-        onSuccess(result, channelName, null);
+        onSuccess(result, channelName, transportInfo());
 
     }
 
+    // 告诉 flutter 端实际使用的编码方式，flutter 端以此为准切换 channel。
+    private Map<String, Object> transportInfo() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("transport", EMTransportCodec.transportName(transportCodec));
+        int messageSchema = EMTransportCodec.messageSchema(transportCodec);
+        if (messageSchema > 0) {
+            data.put("messageSchema", messageSchema);
+        }
+        if (messageDeltas) {
+            data.put("messageDeltas", true);
+        }
+        return data;
+    }
+
     private void renewToken(JSONObject param, String channelName, Result result) throws JSONException {
         String agoraToken = param.getString("agora_token");
         EMClient.getInstance().renewToken(agoraToken, new EMWrapperCallBack(result, channelName,null));
@@ -365,19 +358,76 @@ public class EMClientWrapper extends EMWrapper implements MethodCallHandler {
         onSuccess(result, channelName, null);
     }
 
+    // 一次往返执行多个 channel 调用, 结果按请求顺序返回
+    private void batch(JSONObject param, String channelName, Result result) throws JSONException {
+        JSONArray calls = param.getJSONArray("calls");
+        boolean sequential = param.optBoolean("sequential");
+        EMBatchCall.run(wrappers, calls, sequential, replies -> onSuccess(result, channelName, replies));
+    }
+
+    // 只影响当前 engine, 后台 isolate 可以只订阅自己需要的事件
+    private void setEventFilter(JSONObject param, String channelName, Result result) throws JSONException {
+        eventFilter.set(param.optJSONObject("filter"));
+        onSuccess(result, channelName, null);
+    }
+
+    private void getMethodStats(JSONObject param, String channelName, Result result) throws JSONException {
+        Map<String, Object> data = EMMethodStats.snapshot();
+        if (param.optBoolean("reset", false)) {
+            EMMethodStats.reset();
+        }
+        onSuccess(result, channelName, data);
+    }
+
+    private void getSchedulerMetrics(JSONObject param, String channelName, Result result) throws JSONException {
+        EMScheduler scheduler = EMWrapper.scheduler;
+        onSuccess(result, channelName, scheduler != null ? scheduler.metrics() : null);
+    }
+
     private void bindingManagers() {
-        chatManagerWrapper = new EMChatManagerWrapper(binging, "chat_manager");
-        contactManagerWrapper = new EMContactManagerWrapper(binging, "chat_contact_manager");
-        chatRoomManagerWrapper = new EMChatRoomManagerWrapper(binging, "chat_room_manager");
-        groupManagerWrapper = new EMGroupManagerWrapper(binging, "chat_group_manager");
+        chatManagerWrapper = new EMChatManagerWrapper(binging, "chat_manager", transportCodec);
+        contactManagerWrapper = new EMContactManagerWrapper(binging, "chat_contact_manager", transportCodec);
+        chatRoomManagerWrapper = new EMChatRoomManagerWrapper(binging, "chat_room_manager", transportCodec);
+        groupManagerWrapper = new EMGroupManagerWrapper(binging, "chat_group_manager", transportCodec);
         groupManagerWrapper.clientWrapper = this;
-        conversationWrapper = new EMConversationWrapper(binging, "chat_conversation");
-        pushManagerWrapper = new EMPushManagerWrapper(binging, "chat_push_manager");
-        userInfoManagerWrapper = new EMUserInfoManagerWrapper(binging, "chat_userInfo_manager");
-        presenceManagerWrapper = new EMPresenceManagerWrapper(binging, "chat_presence_manager");
-        messageWrapper = new EMMessageWrapper(binging, "chat_message");
-        chatThreadManagerWrapper = new EMChatThreadManagerWrapper(binging, "chat_thread_manager");
-        progressManager = new EMProgressManager(binging, "file_progress_manager");
+        conversationWrapper = new EMConversationWrapper(binging, "chat_conversation", transportCodec);
+        pushManagerWrapper = new EMPushManagerWrapper(binging, "chat_push_manager", transportCodec);
+        userInfoManagerWrapper = new EMUserInfoManagerWrapper(binging, "chat_userInfo_manager", transportCodec);
+        presenceManagerWrapper = new EMPresenceManagerWrapper(binging, "chat_presence_manager", transportCodec);
+        messageWrapper = new EMMessageWrapper(binging, "chat_message", transportCodec);
+        chatThreadManagerWrapper = new EMChatThreadManagerWrapper(binging, "chat_thread_manager", transportCodec);
+        progressManager = new EMProgressManager(binging, "file_progress_manager", transportCodec);
+        for (EMWrapper wrapper : new EMWrapper[]{chatManagerWrapper, contactManagerWrapper, chatRoomManagerWrapper,
+                groupManagerWrapper, conversationWrapper, pushManagerWrapper, userInfoManagerWrapper,
+                presenceManagerWrapper, messageWrapper, chatThreadManagerWrapper, progressManager}) {
+            wrappers.put(wrapper.channelName(), wrapper);
+        }
+        chatManagerWrapper.eventFilter = eventFilter;
+        chatRoomManagerWrapper.eventFilter = eventFilter;
+        groupManagerWrapper.eventFilter = eventFilter;
+        presenceManagerWrapper.eventFilter = eventFilter;
+        chatThreadManagerWrapper.eventFilter = eventFilter;
+
+        if (lazyListResults) {
+            chatManagerWrapper.lazyListResults = true;
+            contactManagerWrapper.lazyListResults = true;
+            chatRoomManagerWrapper.lazyListResults = true;
+            groupManagerWrapper.lazyListResults = true;
+        }
+        chatManagerWrapper.messageDeltas.enabled = messageDeltas;
+        if (eventBatchInterval > 0) {
+            chatManagerWrapper.enableEventBatching(eventBatchInterval);
+            groupManagerWrapper.enableEventBatching(eventBatchInterval);
+            chatRoomManagerWrapper.enableEventBatching(eventBatchInterval);
+            presenceManagerWrapper.enableEventBatching(eventBatchInterval);
+            chatThreadManagerWrapper.enableEventBatching(eventBatchInterval);
+        }
+        if (memberEventInterval > 0) {
+            groupManagerWrapper.enableMemberDeltas(memberEventInterval);
+            chatRoomManagerWrapper.enableMemberDeltas(memberEventInterval);
+        }
+        presenceManagerWrapper.setPresenceEventInterval(presenceEventInterval);
+        chatManagerWrapper.enableAckWatermarks(ackWatermarkInterval);
     }
 
     private void clearAllListener() {
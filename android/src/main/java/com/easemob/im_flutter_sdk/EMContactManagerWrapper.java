@@ -16,64 +16,38 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
-import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
 import io.flutter.plugin.common.PluginRegistry;
+import io.flutter.plugin.common.MethodCodec;
 
 public class EMContactManagerWrapper extends EMWrapper implements MethodCallHandler {
 
     private EMContactListener contactListener;
 
-    EMContactManagerWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName) {
-        super(flutterPluginBinding, channelName);
+    EMContactManagerWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName, MethodCodec codec) {
+        super(flutterPluginBinding, channelName, codec);
+        registerMethods();
         registerEaseListener();
     }
 
-    @Override
-    public void onMethodCall(MethodCall call, Result result) {
-
-        JSONObject param = (JSONObject) call.arguments;
-        try {
-            if (EMSDKMethod.addContact.equals(call.method)) {
-                addContact(param, call.method, result);
-            } else if (EMSDKMethod.deleteContact.equals(call.method)) {
-                deleteContact(param, call.method, result);
-            } else if (EMSDKMethod.getAllContactsFromServer.equals(call.method)) {
-                getAllContactsFromServer(param, call.method, result);
-            } else if (EMSDKMethod.getAllContactsFromDB.equals(call.method)) {
-                getAllContactsFromDB(param, call.method, result);
-            } else if (EMSDKMethod.addUserToBlockList.equals(call.method)) {
-                addUserToBlockList(param, call.method, result);
-            } else if (EMSDKMethod.removeUserFromBlockList.equals(call.method)) {
-                removeUserFromBlockList(param, call.method, result);
-            } else if (EMSDKMethod.getBlockListFromServer.equals(call.method)) {
-                getBlockListFromServer(param, call.method, result);
-            } else if (EMSDKMethod.getBlockListFromDB.equals(call.method)) {
-                getBlockListFromDB(param, call.method, result);
-            } else if (EMSDKMethod.acceptInvitation.equals(call.method)) {
-                acceptInvitation(param, call.method, result);
-            } else if (EMSDKMethod.declineInvitation.equals(call.method)) {
-                declineInvitation(param, call.method, result);
-            } else if (EMSDKMethod.getSelfIdsOnOtherPlatform.equals(call.method)) {
-                getSelfIdsOnOtherPlatform(param, call.method, result);
-            }else if (EMSDKMethod.getAllContacts.equals(call.method)) {
-                getAllContacts(param, call.method, result);
-            }else if (EMSDKMethod.setContactRemark.equals(call.method)) {
-                setContactRemark(param, call.method, result);
-            }else if (EMSDKMethod.getContact.equals(call.method)) {
-                getContact(param, call.method, result);
-            }else if (EMSDKMethod.fetchAllContacts.equals(call.method)) {
-                fetchAllContacts(param, call.method, result);
-            }else if (EMSDKMethod.fetchContacts.equals(call.method)) {
-                fetchContacts(param, call.method, result);
-            }
-            else {
-                super.onMethodCall(call, result);
-            }
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
+    private void registerMethods() {
+        registerMethod(EMSDKMethod.addContact, this::addContact);
+        registerMethod(EMSDKMethod.deleteContact, this::deleteContact);
+        registerMethod(EMSDKMethod.getAllContactsFromServer, this::getAllContactsFromServer);
+        registerMethod(EMSDKMethod.getAllContactsFromDB, this::getAllContactsFromDB);
+        registerMethod(EMSDKMethod.addUserToBlockList, this::addUserToBlockList);
+        registerMethod(EMSDKMethod.removeUserFromBlockList, this::removeUserFromBlockList);
+        registerMethod(EMSDKMethod.getBlockListFromServer, this::getBlockListFromServer);
+        registerMethod(EMSDKMethod.getBlockListFromDB, this::getBlockListFromDB);
+        registerMethod(EMSDKMethod.acceptInvitation, this::acceptInvitation);
+        registerMethod(EMSDKMethod.declineInvitation, this::declineInvitation);
+        registerMethod(EMSDKMethod.getSelfIdsOnOtherPlatform, this::getSelfIdsOnOtherPlatform);
+        registerMethod(EMSDKMethod.getAllContacts, this::getAllContacts);
+        registerMethod(EMSDKMethod.setContactRemark, this::setContactRemark);
+        registerMethod(EMSDKMethod.getContact, this::getContact);
+        registerMethod(EMSDKMethod.fetchAllContacts, this::fetchAllContacts);
+        registerMethod(EMSDKMethod.fetchContacts, this::fetchContacts);
     }
 
     private void addContact(JSONObject param, String channelName, Result result) throws JSONException {
@@ -244,11 +218,7 @@ public class EMContactManagerWrapper extends EMWrapper implements MethodCallHand
         EMClient.getInstance().contactManager().asyncFetchAllContactsFromServer(new EMValueWrapperCallBack<List<EMContact>>(result, channelName) {
             @Override
             public void onSuccess(List<EMContact> list){
-                List<Map> contactList = new ArrayList<>();
-                for (EMContact contact : list) {
-                    contactList.add(EMContactHelper.toJson(contact));
-                }
-                updateObject(contactList);
+                updateObject(listResult(list, EMContactHelper::toJson));
             }
         });
     }
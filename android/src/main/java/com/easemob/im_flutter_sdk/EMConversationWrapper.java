@@ -2,10 +2,10 @@ package com.easemob.im_flutter_sdk;
 import android.text.TextUtils;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
-import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
 import io.flutter.plugin.common.PluginRegistry;
+import io.flutter.plugin.common.MethodCodec;
 
 import com.hyphenate.chat.EMClient;
 import com.hyphenate.chat.EMConversation;
@@ -24,91 +24,36 @@ import java.util.Map;
 
 public class EMConversationWrapper extends EMWrapper implements MethodCallHandler{
 
-    EMConversationWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName) {
-        super(flutterPluginBinding, channelName);
-    }
-
-    @Override
-    public void onMethodCall(MethodCall call, Result result) {
+    private final EMSerialExecutor conversationExecutor = new EMSerialExecutor();
 
-        JSONObject param = (JSONObject)call.arguments;
+    EMConversationWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName, MethodCodec codec) {
+        super(flutterPluginBinding, channelName, codec);
+        registerMethods();
+    }
 
-        try { 
-            if (EMSDKMethod.getUnreadMsgCount.equals(call.method)) {
-                getUnreadMsgCount(param, call.method, result);
-            }
-            else if (EMSDKMethod.markAllMessagesAsRead.equals(call.method)) {
-                markAllMessagesAsRead(param, call.method, result);
-            }
-            else if (EMSDKMethod.markMessageAsRead.equals(call.method)) {
-                markMessageAsRead(param, call.method, result);
-            }
-            else if (EMSDKMethod.syncConversationExt.equals(call.method)){
-                syncConversationExt(param, call.method, result);
-            }
-            else if (EMSDKMethod.removeMessage.equals(call.method))
-            {
-                removeMessage(param, call.method, result);
-            }
-            else if (EMSDKMethod.deleteMessageByIds.equals(call.method))
-            {
-                deleteMessageByIds(param, call.method, result);
-            }
-            else if (EMSDKMethod.getLatestMessage.equals(call.method)) {
-                getLatestMessage(param, call.method, result);
-            }
-            else if (EMSDKMethod.getLatestMessageFromOthers.equals(call.method)) {
-                getLatestMessageFromOthers(param, call.method, result);
-            }
-            else if (EMSDKMethod.clearAllMessages.equals(call.method)) {
-                clearAllMessages(param, call.method, result);
-            }
-            else if (EMSDKMethod.deleteMessagesWithTs.equals(call.method)) {
-                deleteMessagesWithTs(param, call.method, result);
-            }
-            else if (EMSDKMethod.insertMessage.equals((call.method))) {
-                insertMessage(param, call.method, result);
-            }
-            else if (EMSDKMethod.appendMessage.equals(call.method)) {
-                appendMessage(param, call.method, result);
-            }
-            else if (EMSDKMethod.updateConversationMessage.equals(call.method)) {
-                updateConversationMessage(param, call.method, result);
-            }
-            else if (EMSDKMethod.loadMsgWithId.equals(call.method)) {
-                loadMsgWithId(param, call.method, result);
-            }
-            else if (EMSDKMethod.loadMsgWithStartId.equals(call.method)) {
-                loadMsgWithStartId(param, call.method, result);
-            }
-            else if (EMSDKMethod.loadMsgWithKeywords.equals(call.method)) {
-                loadMsgWithKeywords(param, call.method, result);
-            }
-            else if (EMSDKMethod.loadMsgWithMsgType.equals(call.method)) {
-                loadMsgWithMsgType(param, call.method, result);
-            }
-            else if (EMSDKMethod.loadMsgWithTime.equals(call.method)) {
-                loadMsgWithTime(param, call.method, result);
-            }
-            else if(EMSDKMethod.messageCount.equals(call.method)) {
-                messageCount(param, call.method, result);
-            }
-            else if (EMSDKMethod.removeMsgFromServerWithMsgList.equals(call.method)) {
-                removeMsgFromServerWithMsgList(param, call.method, result);
-            }
-            else if (EMSDKMethod.removeMsgFromServerWithTimeStamp.equals(call.method)) {
-                removeMsgFromServerWithTimeStamp(param, call.method, result);
-            }
-            else if (EMSDKMethod.pinnedMessages.equals(call.method)){
-                pinnedMessages(param, call.method, result);
-            }
-            else
-            {
-                super.onMethodCall(call, result);
-            }
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
+    private void registerMethods() {
+        registerMethod(EMSDKMethod.getUnreadMsgCount, this::getUnreadMsgCount);
+        registerMethod(EMSDKMethod.markAllMessagesAsRead, this::markAllMessagesAsRead);
+        registerMethod(EMSDKMethod.markMessageAsRead, this::markMessageAsRead);
+        registerMethod(EMSDKMethod.syncConversationExt, this::syncConversationExt);
+        registerMethod(EMSDKMethod.removeMessage, this::removeMessage);
+        registerMethod(EMSDKMethod.deleteMessageByIds, this::deleteMessageByIds);
+        registerMethod(EMSDKMethod.getLatestMessage, this::getLatestMessage);
+        registerMethod(EMSDKMethod.getLatestMessageFromOthers, this::getLatestMessageFromOthers);
+        registerMethod(EMSDKMethod.clearAllMessages, this::clearAllMessages);
+        registerMethod(EMSDKMethod.deleteMessagesWithTs, this::deleteMessagesWithTs);
+        registerMethod(EMSDKMethod.insertMessage, this::insertMessage);
+        registerMethod(EMSDKMethod.appendMessage, this::appendMessage);
+        registerMethod(EMSDKMethod.updateConversationMessage, this::updateConversationMessage);
+        registerMethod(EMSDKMethod.loadMsgWithId, this::loadMsgWithId);
+        registerMethod(EMSDKMethod.loadMsgWithStartId, this::loadMsgWithStartId);
+        registerMethod(EMSDKMethod.loadMsgWithKeywords, this::loadMsgWithKeywords);
+        registerMethod(EMSDKMethod.loadMsgWithMsgType, this::loadMsgWithMsgType);
+        registerMethod(EMSDKMethod.loadMsgWithTime, this::loadMsgWithTime);
+        registerMethod(EMSDKMethod.messageCount, this::messageCount);
+        registerMethod(EMSDKMethod.removeMsgFromServerWithMsgList, this::removeMsgFromServerWithMsgList);
+        registerMethod(EMSDKMethod.removeMsgFromServerWithTimeStamp, this::removeMsgFromServerWithTimeStamp);
+        registerMethod(EMSDKMethod.pinnedMessages, this::pinnedMessages);
     }
 
     private void getUnreadMsgCount(JSONObject params, String channelName, Result result) throws JSONException {
@@ -121,8 +66,9 @@ public class EMConversationWrapper extends EMWrapper implements MethodCallHandle
     private void markAllMessagesAsRead(JSONObject params, String channelName, Result result) throws JSONException {
         EMConversation conversation = conversationWithParam(params);
 
-        asyncRunnable(()->{
+        conversationRunnable(conversation, ()->{
             conversation.markAllMessagesAsRead();
+            EMMessageJsonCache.invalidateConversation(conversation.conversationId());
             onSuccess(result, channelName, true);
         });
     }
@@ -131,8 +77,9 @@ public class EMConversationWrapper extends EMWrapper implements MethodCallHandle
         EMConversation conversation = conversationWithParam(params);
         String msg_id = params.getString("msg_id");
 
-        asyncRunnable(()->{
+        conversationRunnable(conversation, ()->{
             conversation.markMessageAsRead(msg_id);
+            EMMessageJsonCache.invalidate(msg_id);
             onSuccess(result, channelName, true);
         });
     }
@@ -155,7 +102,7 @@ public class EMConversationWrapper extends EMWrapper implements MethodCallHandle
         EMConversation conversation = conversationWithParam(params);
         String msg_id = params.getString("msg_id");
 
-        asyncRunnable(()->{
+        conversationRunnable(conversation, ()->{
             conversation.removeMessage(msg_id);
             onSuccess(result, channelName, true);
         });
@@ -170,7 +117,7 @@ public class EMConversationWrapper extends EMWrapper implements MethodCallHandle
                 messageIds.add(array.getString(i));
             }
         }
-        asyncRunnable(()->{
+        conversationRunnable(conversation, ()->{
             for (int i = 0; i < messageIds.size(); i++) {
                 conversation.removeMessage(messageIds.get(i));
             }
@@ -199,7 +146,7 @@ public class EMConversationWrapper extends EMWrapper implements MethodCallHandle
     private void clearAllMessages(JSONObject params, String channelName, Result result) throws JSONException {
         EMConversation conversation = conversationWithParam(params);
 
-        asyncRunnable(()->{
+        conversationRunnable(conversation, ()->{
             conversation.clearAllMessages();
             onSuccess(result, channelName, true);
         });
@@ -209,7 +156,7 @@ public class EMConversationWrapper extends EMWrapper implements MethodCallHandle
         EMConversation conversation = conversationWithParam(params);
         long startTs = params.getLong("startTs");
         long endTs = params.getLong("endTs");
-        asyncRunnable(()->{
+        conversationRunnable(conversation, ()->{
             boolean success = conversation.removeMessages(startTs, endTs);
             if (success) {
                 onSuccess(result, channelName, true);
@@ -227,8 +174,9 @@ public class EMConversationWrapper extends EMWrapper implements MethodCallHandle
         JSONObject msg = params.getJSONObject("msg");
         EMMessage message = EMMessageHelper.fromJson(msg);
 
-        asyncRunnable(()->{
+        conversationRunnable(conversation, ()->{
             conversation.insertMessage(message);
+            EMMessageJsonCache.invalidate(message.getMsgId());
             onSuccess(result, channelName, true);
         });
     }
@@ -238,9 +186,10 @@ public class EMConversationWrapper extends EMWrapper implements MethodCallHandle
         JSONObject msg = params.getJSONObject("msg");
         EMMessage message = EMMessageHelper.fromJson(msg);
 
-        asyncRunnable(()->{
+        conversationRunnable(conversation, ()->{
             if (message != null) {
                 conversation.appendMessage(message);
+                EMMessageJsonCache.invalidate(message.getMsgId());
             }
             onSuccess(result, channelName, true);
         });
@@ -251,8 +200,9 @@ public class EMConversationWrapper extends EMWrapper implements MethodCallHandle
         JSONObject msg = params.getJSONObject("msg");
         EMMessage message = EMMessageHelper.fromJson(msg);
 
-        asyncRunnable(()->{
+        conversationRunnable(conversation, ()->{
             conversation.updateMessage(message);
+            EMMessageJsonCache.invalidate(message.getMsgId());
             onSuccess(result, channelName, true);
         });
     }
@@ -264,7 +214,7 @@ public class EMConversationWrapper extends EMWrapper implements MethodCallHandle
             if(msg == null) {
                 onSuccess(result, channelName, null);
             }else {
-                onSuccess(result, channelName, EMMessageHelper.toJson(msg));
+                onSuccess(result, channelName, EMMessageJsonCache.toJson(msg));
             }
         });
     }
@@ -301,11 +251,13 @@ public class EMConversationWrapper extends EMWrapper implements MethodCallHandle
         }else {
             scope = EMConversation.EMMessageSearchScope.ALL;
         }
+        EMMessageProjection projection = EMMessageProjection.fromJson(params);
         asyncRunnable(()->{
             List<EMMessage> msgList = conversation.searchMsgFromDB(keywords, timestamp, count, name, direction, scope);
+            if (isCancelled(result)) return;
             List<Map> messages = new ArrayList<>();
             for(EMMessage msg: msgList) {
-                messages.add(EMMessageHelper.toJson(msg));
+                messages.add(EMMessageHelper.toJson(msg, projection));
             }
             onSuccess(result, channelName, messages);
         });
@@ -351,12 +303,13 @@ public class EMConversationWrapper extends EMWrapper implements MethodCallHandle
         long startTime = params.getLong("startTime");
         long endTime = params.getLong("endTime");
         int count = params.getInt("count");
+        EMMessageProjection projection = EMMessageProjection.fromJson(params);
 
         asyncRunnable(()->{
             List<EMMessage> msgList = conversation.searchMsgFromDB(startTime, endTime, count);
             List<Map> messages = new ArrayList<>();
             for(EMMessage msg: msgList) {
-                messages.add(EMMessageHelper.toJson(msg));
+                messages.add(EMMessageHelper.toJson(msg, projection));
             }
             onSuccess(result, channelName, messages);
         });
@@ -396,6 +349,11 @@ public class EMConversationWrapper extends EMWrapper implements MethodCallHandle
     }
 
 
+    // 同一会话的写操作按调用顺序执行, 不同会话之间并行
+    private void conversationRunnable(EMConversation conversation, Runnable runnable) {
+        conversationExecutor.execute(conversation.conversationId(), runnable);
+    }
+
     private EMConversation conversationWithParam(JSONObject params ) throws JSONException {
         String convId = params.getString("convId");
         EMConversation.EMConversationType type = EMConversationHelper.typeFromInt(params.getInt("type"));
@@ -0,0 +1,46 @@
+package com.easemob.im_flutter_sdk;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * A list result that is already written in the standard codec format.
+ *
+ * {@link EMTransportCodec#encodeList} converts and encodes the items one by one on the thread that
+ * builds the reply, so the converted maps of the whole list never exist at once and no SDK object is
+ * read after the handler returns. Encoding the reply on the main looper only copies {@link #bytes}.
+ *
+ * The standard codec pads a double to an 8-byte boundary of the whole reply, which is unknown while
+ * the list is encoded. The offsets of the doubles are kept in {@link #alignments} and the padding is
+ * written by {@link #writeTo} at the position the list ends up at. Primitive arrays are encoded as
+ * plain lists for the same reason.
+ */
+final class EMEncodedList {
+
+    interface Converter<T> {
+        Object toJson(T item);
+    }
+
+    final byte[] bytes;
+    // 每个 double 值在 bytes 中的起始位置, 升序
+    final int[] alignments;
+
+    EMEncodedList(byte[] bytes, int[] alignments) {
+        this.bytes = bytes;
+        this.alignments = alignments;
+    }
+
+    void writeTo(ByteArrayOutputStream stream) {
+        int from = 0;
+        for (int at : alignments) {
+            stream.write(bytes, from, at - from);
+            int mod = stream.size() % 8;
+            if (mod != 0) {
+                for (int i = 0; i < 8 - mod; i++) {
+                    stream.write(0);
+                }
+            }
+            from = at;
+        }
+        stream.write(bytes, from, bytes.length - from);
+    }
+}
@@ -0,0 +1,62 @@
+package com.easemob.im_flutter_sdk;
+
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Gathers the listener events of one channel and sends them to flutter together.
+ *
+ * The first event of a window schedules a flush at the next multiple of the window, so bursts
+ * spread over several listener threads leave as one platform message per window instead of one
+ * main-looper runnable and one message per event. When the window ends the flush is queued on
+ * {@link EMMainQueue} like every other reply and event, so it shares the main looper budget and
+ * keeps its place among them. Events keep the order they were sent in. A flush holding a single event sends it as a normal method call; otherwise it sends
+ * {@link #METHOD} with the flat list {@code [method, arguments, method, arguments, ...]}, which
+ * {@code ChatMethodChannel} unpacks on the flutter side.
+ */
+final class EMEventBatcher {
+
+    static final String METHOD = "onEventBatch";
+
+    private final MethodChannel channel;
+    private final long windowMs;
+
+    private final Object lock = new Object();
+    private List<Object> pending = new ArrayList<>();
+    private boolean scheduled;
+
+    EMEventBatcher(MethodChannel channel, long windowMs) {
+        this.channel = channel;
+        this.windowMs = windowMs;
+    }
+
+    void send(String method, Object arguments) {
+        synchronized (lock) {
+            pending.add(method);
+            pending.add(arguments);
+            if (scheduled) return;
+            scheduled = true;
+        }
+        // 对齐到窗口边界, 各个 channel 的批次在同一时刻发出
+        long delay = windowMs - SystemClock.uptimeMillis() % windowMs;
+        ImFlutterSdkPlugin.handler.postDelayed(() -> EMMainQueue.post(this::flush), delay);
+    }
+
+    private void flush() {
+        List<Object> batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = new ArrayList<>();
+            scheduled = false;
+        }
+        if (batch.size() == 2) {
+            channel.invokeMethod((String) batch.get(0), batch.get(1));
+        } else {
+            channel.invokeMethod(METHOD, batch);
+        }
+    }
+}
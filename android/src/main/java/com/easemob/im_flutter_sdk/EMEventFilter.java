@@ -0,0 +1,124 @@
+package com.easemob.im_flutter_sdk;
+
+import com.hyphenate.chat.EMMessage;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The events flutter has subscribed to, set by {@code setEventFilter}.
+ *
+ * Every rule is optional and a missing one lets everything through. {@code events} lists the event
+ * names to deliver: the method name, e.g. {@code onCmdMessagesReceived}, or for chat room and group
+ * events also the {@code type}, e.g. {@code onRoomMemberJoined}. {@code conversationIds},
+ * {@code chatTypes} and {@code messageTypes} are checked on each message of a message event.
+ * Listeners ask {@link #accepts(EMMessage)} before they convert a message, so filtered messages are
+ * never serialized, and an event left without messages is not sent. Connection and contact events
+ * are always sent. One instance is shared by the wrappers of an engine, so a background isolate can
+ * subscribe to less than the UI.
+ */
+final class EMEventFilter {
+
+    private static final class Rules {
+        Set<String> events;
+        Set<String> conversationIds;
+        Set<Integer> chatTypes;
+        Set<String> messageTypes;
+    }
+
+    private volatile Rules rules;
+
+    /**
+     * Replaces the rules, null clears them.
+     */
+    void set(JSONObject json) {
+        if (json == null) {
+            rules = null;
+            return;
+        }
+        Rules r = new Rules();
+        r.events = stringSet(json.optJSONArray("events"));
+        r.conversationIds = stringSet(json.optJSONArray("conversationIds"));
+        JSONArray chatTypes = json.optJSONArray("chatTypes");
+        if (chatTypes != null) {
+            r.chatTypes = new HashSet<>();
+            for (int i = 0; i < chatTypes.length(); i++) {
+                r.chatTypes.add(chatTypes.optInt(i));
+            }
+        }
+        r.messageTypes = stringSet(json.optJSONArray("messageTypes"));
+        rules = r;
+    }
+
+    /**
+     * Whether flutter wants the event {@code method}; {@code arguments} may carry its {@code type}.
+     */
+    boolean acceptsEvent(String method, Object arguments) {
+        Rules r = rules;
+        if (r == null || r.events == null || r.events.contains(method)) return true;
+        if (arguments instanceof Map) {
+            Object type = ((Map<?, ?>) arguments).get("type");
+            return type instanceof String && r.events.contains(type);
+        }
+        return false;
+    }
+
+    boolean accepts(EMMessage message) {
+        Rules r = rules;
+        if (r == null) return true;
+        if (r.conversationIds != null && !r.conversationIds.contains(message.conversationId())) return false;
+        if (r.chatTypes != null && !r.chatTypes.contains(chatTypeToInt(message.getChatType()))) return false;
+        return r.messageTypes == null || r.messageTypes.contains(typeToString(message.getType()));
+    }
+
+    private static Set<String> stringSet(JSONArray array) {
+        if (array == null) return null;
+        Set<String> set = new HashSet<>();
+        for (int i = 0; i < array.length(); i++) {
+            set.add(array.optString(i));
+        }
+        return set;
+    }
+
+    // 与 flutter 端 chatTypeToInt 一致
+    private static int chatTypeToInt(EMMessage.ChatType type) {
+        switch (type) {
+            case GroupChat:
+                return 1;
+            case ChatRoom:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    // 与 flutter 端 messageTypeToTypeStr 一致
+    private static String typeToString(EMMessage.Type type) {
+        switch (type) {
+            case TXT:
+                return "txt";
+            case IMAGE:
+                return "img";
+            case VIDEO:
+                return "video";
+            case LOCATION:
+                return "loc";
+            case VOICE:
+                return "voice";
+            case FILE:
+                return "file";
+            case CMD:
+                return "cmd";
+            case CUSTOM:
+                return "custom";
+            case COMBINE:
+                return "combine";
+            default:
+                return "";
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.easemob.im_flutter_sdk;
+
+import com.hyphenate.EMCallBack;
+import com.hyphenate.EMError;
+import com.hyphenate.EMValueCallBack;
+import com.hyphenate.exceptions.HyphenateException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The result of an asynchronous SDK call, completed once with a value or a {@link HyphenateException}.
+ *
+ * minSdk 21 has no {@code CompletableFuture}, so this is the small subset the wrappers need. SDK
+ * callbacks complete a future through {@link #valueCallBack()} or {@link #callBack(Object)}, and a
+ * blocking SDK call runs on the scheduler through {@link #supply(Task)}. {@link #then} and
+ * {@link #thenCompose} continue on the scheduler, in the lane of the call that set them up.
+ * The deadline of a reply belongs to {@link EMCancellableRequest}; {@link #timeout(long)} is only for
+ * a future shared by several calls, such as a single flight, so it cannot stay pending forever.
+ * Whatever arrives after the first completion is dropped, so a late SDK callback cannot answer a
+ * call twice.
+ */
+final class EMFuture<T> {
+
+    interface Task<T> {
+        T call() throws HyphenateException;
+    }
+
+    interface Continuation<T, R> {
+        R apply(T value) throws HyphenateException;
+    }
+
+    interface Listener<T> {
+        void onComplete(T value, HyphenateException error);
+    }
+
+    // 请求服务器的方法默认等待这么久
+    static final long DEFAULT_TIMEOUT_MS = 60 * 1000;
+
+    // 只有请求服务器的方法默认有时限; 本地数据库操作和收发消息、文件等耗时不定的方法不设时限,
+    // 需要时由 flutter 传入 timeout
+    private static final Set<String> SERVER_METHODS = new HashSet<>(Arrays.asList(
+            EMSDKMethod.createAccount, EMSDKMethod.login, EMSDKMethod.loginWithAgoraToken,
+            EMSDKMethod.renewToken, EMSDKMethod.logout, EMSDKMethod.kickDevice, EMSDKMethod.kickAllDevices,
+            EMSDKMethod.getLoggedInDevicesFromServer,
+            EMSDKMethod.addContact, EMSDKMethod.deleteContact, EMSDKMethod.getAllContactsFromServer,
+            EMSDKMethod.addUserToBlockList, EMSDKMethod.removeUserFromBlockList,
+            EMSDKMethod.getBlockListFromServer, EMSDKMethod.acceptInvitation, EMSDKMethod.declineInvitation,
+            EMSDKMethod.getSelfIdsOnOtherPlatform, EMSDKMethod.setContactRemark,
+            EMSDKMethod.fetchAllContacts, EMSDKMethod.fetchContacts,
+            EMSDKMethod.ackMessageRead, EMSDKMethod.ackGroupMessageRead, EMSDKMethod.ackConversationRead,
+            EMSDKMethod.recallMessage, EMSDKMethod.getConversationsFromServer,
+            EMSDKMethod.fetchHistoryMessages, EMSDKMethod.fetchHistoryMessagesByOptions,
+            EMSDKMethod.asyncFetchGroupAcks, EMSDKMethod.deleteRemoteConversation,
+            EMSDKMethod.translateMessage, EMSDKMethod.fetchSupportedLanguages, EMSDKMethod.addReaction,
+            EMSDKMethod.removeReaction, EMSDKMethod.fetchReactionList, EMSDKMethod.fetchReactionDetail,
+            EMSDKMethod.reportMessage, EMSDKMethod.fetchConversationsFromServerWithPage,
+            EMSDKMethod.removeMessagesFromServerWithMsgIds, EMSDKMethod.removeMessagesFromServerWithTs,
+            EMSDKMethod.getConversationsFromServerWithCursor,
+            EMSDKMethod.getPinnedConversationsFromServerWithCursor, EMSDKMethod.pinConversation,
+            EMSDKMethod.modifyMessage, EMSDKMethod.removeMsgFromServerWithMsgList,
+            EMSDKMethod.removeMsgFromServerWithTimeStamp, EMSDKMethod.addRemoteAndLocalConversationsMark,
+            EMSDKMethod.deleteRemoteAndLocalConversationsMark, EMSDKMethod.fetchConversationsByOptions,
+            EMSDKMethod.pinMessage, EMSDKMethod.unpinMessage, EMSDKMethod.fetchPinnedMessages,
+            EMSDKMethod.joinChatRoom, EMSDKMethod.leaveChatRoom, EMSDKMethod.fetchPublicChatRoomsFromServer,
+            EMSDKMethod.fetchChatRoomInfoFromServer, EMSDKMethod.createChatRoom,
+            EMSDKMethod.destroyChatRoom, EMSDKMethod.changeChatRoomSubject,
+            EMSDKMethod.changeChatRoomDescription, EMSDKMethod.fetchChatRoomMembers,
+            EMSDKMethod.muteChatRoomMembers, EMSDKMethod.unMuteChatRoomMembers,
+            EMSDKMethod.changeChatRoomOwner, EMSDKMethod.addChatRoomAdmin, EMSDKMethod.removeChatRoomAdmin,
+            EMSDKMethod.fetchChatRoomMuteList, EMSDKMethod.removeChatRoomMembers,
+            EMSDKMethod.blockChatRoomMembers, EMSDKMethod.unBlockChatRoomMembers,
+            EMSDKMethod.fetchChatRoomBlockList, EMSDKMethod.updateChatRoomAnnouncement,
+            EMSDKMethod.fetchChatRoomAnnouncement, EMSDKMethod.addMembersToChatRoomWhiteList,
+            EMSDKMethod.removeMembersFromChatRoomWhiteList, EMSDKMethod.fetchChatRoomWhiteListFromServer,
+            EMSDKMethod.isMemberInChatRoomWhiteListFromServer, EMSDKMethod.muteAllChatRoomMembers,
+            EMSDKMethod.unMuteAllChatRoomMembers, EMSDKMethod.fetchChatRoomAttributes,
+            EMSDKMethod.setChatRoomAttributes, EMSDKMethod.removeChatRoomAttributes,
+            EMSDKMethod.getJoinedGroupsFromServer, EMSDKMethod.getPublicGroupsFromServer,
+            EMSDKMethod.createGroup, EMSDKMethod.getGroupSpecificationFromServer,
+            EMSDKMethod.getGroupMemberListFromServer, EMSDKMethod.getGroupBlockListFromServer,
+            EMSDKMethod.getGroupMuteListFromServer, EMSDKMethod.getGroupWhiteListFromServer,
+            EMSDKMethod.isMemberInWhiteListFromServer, EMSDKMethod.getGroupFileListFromServer,
+            EMSDKMethod.getGroupAnnouncementFromServer, EMSDKMethod.addMembers, EMSDKMethod.inviterUser,
+            EMSDKMethod.removeMembers, EMSDKMethod.blockMembers, EMSDKMethod.unblockMembers,
+            EMSDKMethod.updateGroupSubject, EMSDKMethod.updateDescription, EMSDKMethod.leaveGroup,
+            EMSDKMethod.destroyGroup, EMSDKMethod.blockGroup, EMSDKMethod.unblockGroup,
+            EMSDKMethod.updateGroupOwner, EMSDKMethod.addAdmin, EMSDKMethod.removeAdmin,
+            EMSDKMethod.muteMembers, EMSDKMethod.unMuteMembers, EMSDKMethod.muteAllMembers,
+            EMSDKMethod.unMuteAllMembers, EMSDKMethod.addWhiteList, EMSDKMethod.removeWhiteList,
+            EMSDKMethod.removeGroupSharedFile, EMSDKMethod.updateGroupAnnouncement,
+            EMSDKMethod.updateGroupExt, EMSDKMethod.joinPublicGroup, EMSDKMethod.requestToJoinPublicGroup,
+            EMSDKMethod.acceptJoinApplication, EMSDKMethod.declineJoinApplication,
+            EMSDKMethod.acceptInvitationFromGroup, EMSDKMethod.declineInvitationFromGroup,
+            EMSDKMethod.setMemberAttributesFromGroup, EMSDKMethod.removeMemberAttributesFromGroup,
+            EMSDKMethod.fetchMemberAttributesFromGroup, EMSDKMethod.fetchMembersAttributesFromGroup,
+            EMSDKMethod.fetchJoinedGroupCount,
+            EMSDKMethod.getImPushConfigFromServer, EMSDKMethod.updateImPushStyle,
+            EMSDKMethod.updatePushNickname, EMSDKMethod.updateHMSPushToken, EMSDKMethod.updateFCMPushToken,
+            EMSDKMethod.reportPushAction, EMSDKMethod.setConversationSilentMode,
+            EMSDKMethod.removeConversationSilentMode, EMSDKMethod.fetchConversationSilentMode,
+            EMSDKMethod.setSilentModeForAll, EMSDKMethod.fetchSilentModeForAll,
+            EMSDKMethod.fetchSilentModeForConversations, EMSDKMethod.setPreferredNotificationLanguage,
+            EMSDKMethod.fetchPreferredNotificationLanguage, EMSDKMethod.setPushTemplate,
+            EMSDKMethod.getPushTemplate,
+            EMSDKMethod.updateOwnUserInfo, EMSDKMethod.updateOwnUserInfoWithType,
+            EMSDKMethod.fetchUserInfoById, EMSDKMethod.fetchUserInfoByIdWithType,
+            EMSDKMethod.presenceWithDescription, EMSDKMethod.presenceSubscribe,
+            EMSDKMethod.presenceUnsubscribe, EMSDKMethod.fetchSubscribedMembersWithPageNum,
+            EMSDKMethod.fetchPresenceStatus,
+            EMSDKMethod.fetchChatThreadDetail, EMSDKMethod.fetchJoinedChatThreads,
+            EMSDKMethod.fetchChatThreadsWithParentId, EMSDKMethod.fetchJoinedChatThreadsWithParentId,
+            EMSDKMethod.fetchChatThreadMember, EMSDKMethod.fetchLastMessageWithChatThreads,
+            EMSDKMethod.removeMemberFromChatThread, EMSDKMethod.updateChatThreadSubject,
+            EMSDKMethod.createChatThread, EMSDKMethod.joinChatThread, EMSDKMethod.leaveChatThread,
+            EMSDKMethod.destroyChatThread));
+
+    private List<Listener<T>> listeners = new ArrayList<>(1);
+    private T value;
+    private HyphenateException error;
+    private Runnable timeout;
+
+    /**
+     * The default deadline of {@code method} in milliseconds, 0 if it has none. Only calls that wait
+     * for the server get one; a call can always set its own with a {@code timeout} parameter.
+     */
+    static long deadlineOf(String method) {
+        return SERVER_METHODS.contains(method) ? DEFAULT_TIMEOUT_MS : 0;
+    }
+
+    /**
+     * Runs {@code task} on the scheduler, in the lane of the current call. Like
+     * {@link EMWrapper#asyncRunnable}, the deadline of the call can detach the worker if it gets stuck.
+     */
+    static <T> EMFuture<T> supply(Task<T> task) {
+        EMFuture<T> future = new EMFuture<>();
+        EMScheduler.Lane lane = EMScheduler.currentLane();
+        EMCancellableRequest request = EMCancellableRequest.current();
+        Runnable runnable = () -> future.run(task);
+        EMWrapper.scheduler.execute(lane, request != null ? request.wrap(lane, runnable) : runnable);
+        return future;
+    }
+
+    static <T> EMFuture<T> completed(T value) {
+        EMFuture<T> future = new EMFuture<>();
+        future.complete(value);
+        return future;
+    }
+
+    boolean complete(T value) {
+        return settle(value, null);
+    }
+
+    boolean fail(HyphenateException error) {
+        return settle(null, error);
+    }
+
+    synchronized boolean isDone() {
+        return listeners == null;
+    }
+
+    /**
+     * Calls {@code listener} on the thread that completes the future, or right away if it is done.
+     */
+    void whenComplete(Listener<T> listener) {
+        synchronized (this) {
+            if (listeners != null) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.onComplete(value, error);
+    }
+
+    <R> EMFuture<R> then(Continuation<? super T, ? extends R> continuation) {
+        EMFuture<R> next = new EMFuture<>();
+        EMScheduler.Lane lane = EMScheduler.currentLane();
+        whenComplete((result, e) -> {
+            if (e != null) {
+                next.fail(e);
+            } else {
+                EMWrapper.scheduler.execute(lane, () -> next.run(() -> continuation.apply(result)));
+            }
+        });
+        return next;
+    }
+
+    <R> EMFuture<R> thenCompose(Continuation<? super T, EMFuture<R>> continuation) {
+        EMFuture<R> next = new EMFuture<>();
+        EMScheduler.Lane lane = EMScheduler.currentLane();
+        whenComplete((result, e) -> {
+            if (e != null) {
+                next.fail(e);
+                return;
+            }
+            EMWrapper.scheduler.execute(lane, () -> {
+                try {
+                    continuation.apply(result).whenComplete(next::settle);
+                } catch (HyphenateException ex) {
+                    next.fail(ex);
+                }
+            });
+        });
+        return next;
+    }
+
+    /**
+     * Fails the future with {@link EMError#SERVER_TIMEOUT} if it is not done within {@code ms};
+     * {@code ms <= 0} means no deadline.
+     */
+    EMFuture<T> timeout(long ms) {
+        if (ms <= 0) return this;
+        Runnable r = () -> fail(new HyphenateException(EMError.SERVER_TIMEOUT, "The request timed out"));
+        synchronized (this) {
+            if (listeners == null) return this;
+            timeout = r;
+        }
+        ImFlutterSdkPlugin.handler.postDelayed(r, ms);
+        return this;
+    }
+
+    EMValueCallBack<T> valueCallBack() {
+        return new EMValueCallBack<T>() {
+            @Override
+            public void onSuccess(T value) {
+                complete(value);
+            }
+
+            @Override
+            public void onError(int code, String desc) {
+                fail(new HyphenateException(code, desc));
+            }
+        };
+    }
+
+    /**
+     * A callback that completes the future with {@code value} on success.
+     */
+    EMCallBack callBack(T value) {
+        return new EMCallBack() {
+            @Override
+            public void onSuccess() {
+                complete(value);
+            }
+
+            @Override
+            public void onError(int code, String desc) {
+                fail(new HyphenateException(code, desc));
+            }
+
+            @Override
+            public void onProgress(int progress, String status) {}
+        };
+    }
+
+    private void run(Task<T> task) {
+        try {
+            complete(task.call());
+        } catch (HyphenateException e) {
+            fail(e);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            fail(new HyphenateException(EMError.GENERAL_ERROR, String.valueOf(e.getMessage())));
+        }
+    }
+
+    private boolean settle(T value, HyphenateException error) {
+        List<Listener<T>> pending;
+        Runnable timer;
+        synchronized (this) {
+            if (listeners == null) return false;
+            this.value = value;
+            this.error = error;
+            pending = listeners;
+            listeners = null;
+            timer = timeout;
+            timeout = null;
+        }
+        if (timer != null) {
+            ImFlutterSdkPlugin.handler.removeCallbacks(timer);
+        }
+        for (Listener<T> listener : pending) {
+            listener.onComplete(value, error);
+        }
+        return true;
+    }
+}
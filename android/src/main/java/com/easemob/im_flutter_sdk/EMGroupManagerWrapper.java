@@ -24,130 +24,85 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
+import io.flutter.plugin.common.MethodCodec;
 
 public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandler {
 
     private EMGroupChangeListener groupChangeListener;
 
+    // 同一个群同时多次获取详情时只请求一次服务器
+    private final EMSingleFlight<Map<String, Object>> groupFlights = new EMSingleFlight<>();
+
+    // 开启后成员变化按窗口合并发送, 由 EMClientWrapper 设置
+    private volatile EMMemberDeltas memberDeltas;
+
     public EMClientWrapper clientWrapper;
 
-    EMGroupManagerWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName) {
-        super(flutterPluginBinding, channelName);
+    EMGroupManagerWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName, MethodCodec codec) {
+        super(flutterPluginBinding, channelName, codec);
+        registerMethods();
         registerEaseListener();
     }
 
-    @Override
-    public void onMethodCall(MethodCall call, MethodChannel.Result result) {
-
-        JSONObject param = (JSONObject) call.arguments;
-        try {
-            if (EMSDKMethod.getGroupWithId.equals(call.method)) {
-                getGroupWithId(param, call.method, result);
-            } else if (EMSDKMethod.getJoinedGroups.equals(call.method)) {
-                getJoinedGroups(param, call.method, result);
-            } else if (EMSDKMethod.getJoinedGroupsFromServer.equals(call.method)) {
-                getJoinedGroupsFromServer(param, call.method, result);
-            } else if (EMSDKMethod.getPublicGroupsFromServer.equals(call.method)) {
-                getPublicGroupsFromServer(param, call.method, result);
-            } else if (EMSDKMethod.createGroup.equals(call.method)) {
-                createGroup(param, call.method, result);
-            } else if (EMSDKMethod.getGroupSpecificationFromServer.equals(call.method)) {
-                getGroupSpecificationFromServer(param, call.method, result);
-            } else if (EMSDKMethod.getGroupMemberListFromServer.equals(call.method)) {
-                getGroupMemberListFromServer(param, call.method, result);
-            } else if (EMSDKMethod.getGroupMuteListFromServer.equals(call.method)) {
-                getGroupMuteListFromServer(param, call.method, result);
-            } else if (EMSDKMethod.getGroupWhiteListFromServer.equals(call.method)) {
-                getGroupWhiteListFromServer(param, call.method, result);
-            } else if (EMSDKMethod.isMemberInWhiteListFromServer.equals(call.method)) {
-                isMemberInWhiteListFromServer(param, call.method, result);
-            } else if (EMSDKMethod.getGroupFileListFromServer.equals(call.method)) {
-                getGroupFileListFromServer(param, call.method, result);
-            } else if (EMSDKMethod.getGroupAnnouncementFromServer.equals(call.method)) {
-                getGroupAnnouncementFromServer(param, call.method, result);
-            } else if (EMSDKMethod.getGroupBlockListFromServer.equals(call.method)) {
-                getGroupBlockListFromServer(param, call.method, result);
-            } else if (EMSDKMethod.addMembers.equals(call.method)) {
-                addMembers(param, call.method, result);
-            } else if (EMSDKMethod.inviterUser.equals(call.method)){
-                inviterUser(param, call.method, result);
-            } else if (EMSDKMethod.removeMembers.equals(call.method)) {
-                removeMembers(param, call.method, result);
-            } else if (EMSDKMethod.blockMembers.equals(call.method)) {
-                blockMembers(param, call.method, result);
-            } else if (EMSDKMethod.unblockMembers.equals(call.method)) {
-                unblockMembers(param, call.method, result);
-            } else if (EMSDKMethod.updateGroupSubject.equals(call.method)) {
-                updateGroupSubject(param, call.method, result);
-            } else if (EMSDKMethod.updateDescription.equals(call.method)) {
-                updateDescription(param, call.method, result);
-            } else if (EMSDKMethod.leaveGroup.equals(call.method)) {
-                leaveGroup(param, call.method, result);
-            } else if (EMSDKMethod.destroyGroup.equals(call.method)) {
-                destroyGroup(param, call.method, result);
-            } else if (EMSDKMethod.blockGroup.equals(call.method)) {
-                blockGroup(param, call.method, result);
-            } else if (EMSDKMethod.unblockGroup.equals(call.method)) {
-                unblockGroup(param, call.method, result);
-            } else if (EMSDKMethod.updateGroupOwner.equals(call.method)) {
-                updateGroupOwner(param, call.method, result);
-            } else if (EMSDKMethod.addAdmin.equals(call.method)) {
-                addAdmin(param, call.method, result);
-            } else if (EMSDKMethod.removeAdmin.equals(call.method)) {
-                removeAdmin(param, call.method, result);
-            } else if (EMSDKMethod.muteMembers.equals(call.method)) {
-                muteMembers(param, call.method, result);
-            } else if (EMSDKMethod.unMuteMembers.equals(call.method)) {
-                unMuteMembers(param, call.method, result);
-            } else if (EMSDKMethod.muteAllMembers.equals(call.method)) {
-                muteAllMembers(param, call.method, result);
-            } else if (EMSDKMethod.unMuteAllMembers.equals(call.method)) {
-                unMuteAllMembers(param, call.method, result);
-            } else if (EMSDKMethod.addWhiteList.equals(call.method)) {
-                addWhiteList(param, call.method, result);
-            } else if (EMSDKMethod.removeWhiteList.equals(call.method)) {
-                removeWhiteList(param, call.method, result);
-            } else if (EMSDKMethod.uploadGroupSharedFile.equals(call.method)) {
-                uploadGroupSharedFile(param, call.method, result);
-            } else if (EMSDKMethod.downloadGroupSharedFile.equals(call.method)) {
-                downloadGroupSharedFile(param, call.method, result);
-            } else if (EMSDKMethod.removeGroupSharedFile.equals(call.method)) {
-                removeGroupSharedFile(param, call.method, result);
-            } else if (EMSDKMethod.updateGroupAnnouncement.equals(call.method)) {
-                updateGroupAnnouncement(param, call.method, result);
-            } else if (EMSDKMethod.updateGroupExt.equals(call.method)) {
-                updateGroupExt(param, call.method, result);
-            } else if (EMSDKMethod.joinPublicGroup.equals(call.method)) {
-                joinPublicGroup(param, call.method, result);
-            } else if (EMSDKMethod.requestToJoinPublicGroup.equals(call.method)) {
-                requestToJoinPublicGroup(param, call.method, result);
-            } else if (EMSDKMethod.acceptJoinApplication.equals(call.method)) {
-                acceptJoinApplication(param, call.method, result);
-            } else if (EMSDKMethod.declineJoinApplication.equals(call.method)) {
-                declineJoinApplication(param, call.method, result);
-            } else if (EMSDKMethod.acceptInvitationFromGroup.equals(call.method)) {
-                acceptInvitationFromGroup(param, call.method, result);
-            } else if (EMSDKMethod.declineInvitationFromGroup.equals(call.method)) {
-                declineInvitationFromGroup(param, call.method, result);
-            } else if (EMSDKMethod.setMemberAttributesFromGroup.equals(call.method)) {
-                setMemberAttributes(param, call.method, result);
-            } else if (EMSDKMethod.removeMemberAttributesFromGroup.equals(call.method)) {
-                removeMemberAttributes(param, call.method, result);
-            } else if (EMSDKMethod.fetchMemberAttributesFromGroup.equals(call.method)) {
-                fetchMemberAttributes(param, call.method, result);
-            } else if (EMSDKMethod.fetchMembersAttributesFromGroup.equals(call.method)) {
-                fetchMembersAttributes(param, call.method, result);
-            } else if (EMSDKMethod.fetchJoinedGroupCount.equals(call.method)) {
-                fetchJoinedGroupCount(param, call.method, result);
-            } else {
-                super.onMethodCall(call, result);
-            }
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
+    void enableMemberDeltas(long windowMs) {
+        memberDeltas = windowMs > 0
+                ? new EMMemberDeltas("onGroupMembersChanged", "groupId", null, windowMs,
+                        data -> sendEvent(EMSDKMethod.onGroupChanged, data))
+                : null;
+    }
+
+    private void registerMethods() {
+        registerMethod(EMSDKMethod.getGroupWithId, this::getGroupWithId);
+        registerMethod(EMSDKMethod.getJoinedGroups, this::getJoinedGroups);
+        registerMethod(EMSDKMethod.getJoinedGroupsFromServer, this::getJoinedGroupsFromServer);
+        registerMethod(EMSDKMethod.getPublicGroupsFromServer, this::getPublicGroupsFromServer);
+        registerMethod(EMSDKMethod.createGroup, this::createGroup);
+        registerMethod(EMSDKMethod.getGroupSpecificationFromServer, this::getGroupSpecificationFromServer);
+        registerMethod(EMSDKMethod.getGroupMemberListFromServer, this::getGroupMemberListFromServer);
+        registerMethod(EMSDKMethod.getGroupMuteListFromServer, this::getGroupMuteListFromServer);
+        registerMethod(EMSDKMethod.getGroupWhiteListFromServer, this::getGroupWhiteListFromServer);
+        registerMethod(EMSDKMethod.isMemberInWhiteListFromServer, this::isMemberInWhiteListFromServer);
+        registerMethod(EMSDKMethod.getGroupFileListFromServer, this::getGroupFileListFromServer);
+        registerMethod(EMSDKMethod.getGroupAnnouncementFromServer, this::getGroupAnnouncementFromServer);
+        registerMethod(EMSDKMethod.getGroupBlockListFromServer, this::getGroupBlockListFromServer);
+        registerMethod(EMSDKMethod.addMembers, this::addMembers);
+        registerMethod(EMSDKMethod.inviterUser, this::inviterUser);
+        registerMethod(EMSDKMethod.removeMembers, this::removeMembers);
+        registerMethod(EMSDKMethod.blockMembers, this::blockMembers);
+        registerMethod(EMSDKMethod.unblockMembers, this::unblockMembers);
+        registerMethod(EMSDKMethod.updateGroupSubject, this::updateGroupSubject);
+        registerMethod(EMSDKMethod.updateDescription, this::updateDescription);
+        registerMethod(EMSDKMethod.leaveGroup, this::leaveGroup);
+        registerMethod(EMSDKMethod.destroyGroup, this::destroyGroup);
+        registerMethod(EMSDKMethod.blockGroup, this::blockGroup);
+        registerMethod(EMSDKMethod.unblockGroup, this::unblockGroup);
+        registerMethod(EMSDKMethod.updateGroupOwner, this::updateGroupOwner);
+        registerMethod(EMSDKMethod.addAdmin, this::addAdmin);
+        registerMethod(EMSDKMethod.removeAdmin, this::removeAdmin);
+        registerMethod(EMSDKMethod.muteMembers, this::muteMembers);
+        registerMethod(EMSDKMethod.unMuteMembers, this::unMuteMembers);
+        registerMethod(EMSDKMethod.muteAllMembers, this::muteAllMembers);
+        registerMethod(EMSDKMethod.unMuteAllMembers, this::unMuteAllMembers);
+        registerMethod(EMSDKMethod.addWhiteList, this::addWhiteList);
+        registerMethod(EMSDKMethod.removeWhiteList, this::removeWhiteList);
+        registerMethod(EMSDKMethod.uploadGroupSharedFile, this::uploadGroupSharedFile);
+        registerMethod(EMSDKMethod.downloadGroupSharedFile, this::downloadGroupSharedFile);
+        registerMethod(EMSDKMethod.removeGroupSharedFile, this::removeGroupSharedFile);
+        registerMethod(EMSDKMethod.updateGroupAnnouncement, this::updateGroupAnnouncement);
+        registerMethod(EMSDKMethod.updateGroupExt, this::updateGroupExt);
+        registerMethod(EMSDKMethod.joinPublicGroup, this::joinPublicGroup);
+        registerMethod(EMSDKMethod.requestToJoinPublicGroup, this::requestToJoinPublicGroup);
+        registerMethod(EMSDKMethod.acceptJoinApplication, this::acceptJoinApplication);
+        registerMethod(EMSDKMethod.declineJoinApplication, this::declineJoinApplication);
+        registerMethod(EMSDKMethod.acceptInvitationFromGroup, this::acceptInvitationFromGroup);
+        registerMethod(EMSDKMethod.declineInvitationFromGroup, this::declineInvitationFromGroup);
+        registerMethod(EMSDKMethod.setMemberAttributesFromGroup, this::setMemberAttributes);
+        registerMethod(EMSDKMethod.removeMemberAttributesFromGroup, this::removeMemberAttributes);
+        registerMethod(EMSDKMethod.fetchMemberAttributesFromGroup, this::fetchMemberAttributes);
+        registerMethod(EMSDKMethod.fetchMembersAttributesFromGroup, this::fetchMembersAttributes);
+        registerMethod(EMSDKMethod.fetchJoinedGroupCount, this::fetchJoinedGroupCount);
     }
 
     private void getGroupWithId(JSONObject param, String channelName, Result result) throws JSONException {
@@ -165,11 +120,7 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
     private void getJoinedGroups(JSONObject param, String channelName, Result result) throws JSONException {
         asyncRunnable(() -> {
             List<EMGroup> groups = EMClient.getInstance().groupManager().getAllGroups();
-            List<Map> groupList = new ArrayList<>();
-            for (EMGroup group : groups) {
-                groupList.add(EMGroupHelper.toJson(group));
-            }
-            onSuccess(result, channelName, groupList);
+            onSuccess(result, channelName, listResult(groups, EMGroupHelper::toJson));
         });
     }
 
@@ -275,14 +226,19 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
             throws JSONException {
         String groupId = param.getString("groupId");
         boolean fetchMembers = param.getBoolean("fetchMembers");
-        asyncRunnable(() -> {
-            try {
-                EMGroup group = EMClient.getInstance().groupManager().getGroupFromServer(groupId, fetchMembers);
-                onSuccess(result, channelName, EMGroupHelper.toJson(group));
-            } catch (HyphenateException e) {
+        String key = groupId + "/" + fetchMembers;
+        boolean leader = groupFlights.join(key, (json, e) -> {
+            if (e != null) {
                 onError(result, e);
+            } else {
+                onSuccess(result, channelName, json);
             }
         });
+        if (!leader) return;
+        // 合并进来的调用也在等这个请求, 时限加在请求上, 异常和超时同样会结束它
+        EMFuture<Map<String, Object>> fetch = EMFuture.supply(() ->
+                EMGroupHelper.toJson(EMClient.getInstance().groupManager().getGroupFromServer(groupId, fetchMembers)));
+        fetch.timeout(EMFuture.deadlineOf(channelName)).whenComplete((json, e) -> groupFlights.complete(key, json, e));
     }
 
     private void getGroupMemberListFromServer(JSONObject param, String channelName, Result result)
@@ -929,45 +885,57 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
 
             @Override
             public void onWhiteListAdded(String groupId, List<String> whitelist) {
+                EMMemberDeltas deltas = memberDeltas;
+                if (deltas != null) {
+                    deltas.allowListAdded(groupId, whitelist);
+                    return;
+                }
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("type", "onGroupWhiteListAdded");
                             data.put("groupId", groupId);
                             data.put("whitelist", whitelist);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
             }
 
             @Override
             public void onWhiteListRemoved(String groupId, List<String> whitelist) {
+                EMMemberDeltas deltas = memberDeltas;
+                if (deltas != null) {
+                    deltas.allowListRemoved(groupId, whitelist);
+                    return;
+                }
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("type", "onGroupWhiteListRemoved");
                             data.put("groupId", groupId);
                             data.put("whitelist", whitelist);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
             }
 
             @Override
             public void onAllMemberMuteStateChanged(String groupId, boolean isMuted) {
-                EMListenerHandle.getInstance().addHandle(
+                flushMemberDeltas(groupId);
+                EMListenerHandle.getInstance().addHandle("group/mute/" + groupId,
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("type", "onGroupAllMemberMuteStateChanged");
                             data.put("groupId", groupId);
                             data.put("isMuted", isMuted);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
             }
 
             @Override
             public void onInvitationReceived(String groupId, String groupName, String inviter, String reason) {
+                flushMemberDeltas(groupId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
@@ -976,13 +944,14 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
                             data.put("groupName", groupName);
                             data.put("inviter", inviter);
                             data.put("reason", reason);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
             }
 
             @Override
             public void onRequestToJoinReceived(String groupId, String groupName, String applicant, String reason) {
+                flushMemberDeltas(groupId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
@@ -991,7 +960,7 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
                             data.put("groupName", groupName);
                             data.put("applicant", applicant);
                             data.put("reason", reason);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
 
@@ -999,6 +968,7 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
 
             @Override
             public void onRequestToJoinAccepted(String groupId, String groupName, String accepter) {
+                flushMemberDeltas(groupId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
@@ -1006,7 +976,7 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
                             data.put("groupId", groupId);
                             data.put("groupName", groupName);
                             data.put("accepter", accepter);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
 
@@ -1019,6 +989,7 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
 
             @Override
             public void onRequestToJoinDeclined(String groupId, String groupName, String decliner, String reason, String applicant) {
+                flushMemberDeltas(groupId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
@@ -1027,7 +998,7 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
                             data.put("applicant", applicant);
                             data.put("decliner", decliner);
                             data.put("reason", reason);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
 
@@ -1035,6 +1006,7 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
 
             @Override
             public void onInvitationAccepted(String groupId, String invitee, String reason) {
+                flushMemberDeltas(groupId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
@@ -1042,7 +1014,7 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
                             data.put("groupId", groupId);
                             data.put("invitee", invitee);
                             data.put("reason", reason);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
 
@@ -1050,6 +1022,7 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
 
             @Override
             public void onInvitationDeclined(String groupId, String invitee, String reason) {
+                flushMemberDeltas(groupId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
@@ -1057,7 +1030,7 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
                             data.put("groupId", groupId);
                             data.put("invitee", invitee);
                             data.put("reason", reason);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
 
@@ -1065,13 +1038,14 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
 
             @Override
             public void onUserRemoved(String groupId, String groupName) {
+                flushMemberDeltas(groupId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("type", "onGroupUserRemoved");
                             data.put("groupId", groupId);
                             data.put("groupName", groupName);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
 
@@ -1079,13 +1053,14 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
 
             @Override
             public void onGroupDestroyed(String groupId, String groupName) {
+                flushMemberDeltas(groupId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("type", "onGroupDestroyed");
                             data.put("groupId", groupId);
                             data.put("groupName", groupName);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
 
@@ -1093,6 +1068,7 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
 
             @Override
             public void onAutoAcceptInvitationFromGroup(String groupId, String inviter, String inviteMessage) {
+                flushMemberDeltas(groupId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
@@ -1100,7 +1076,7 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
                             data.put("groupId", groupId);
                             data.put("inviter", inviter);
                             data.put("inviteMessage", inviteMessage);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
 
@@ -1108,6 +1084,11 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
 
             @Override
             public void onMuteListAdded(String groupId, List<String> mutes, long muteExpire) {
+                EMMemberDeltas deltas = memberDeltas;
+                if (deltas != null) {
+                    deltas.muted(groupId, mutes, muteExpire);
+                    return;
+                }
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
@@ -1115,7 +1096,7 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
                             data.put("groupId", groupId);
                             data.put("mutes", mutes);
                             data.put("muteExpire", muteExpire);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
 
@@ -1123,45 +1104,53 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
 
             @Override
             public void onMuteListRemoved(String groupId, List<String> mutes) {
+                EMMemberDeltas deltas = memberDeltas;
+                if (deltas != null) {
+                    deltas.unmuted(groupId, mutes);
+                    return;
+                }
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("type", "onGroupMuteListRemoved");
                             data.put("groupId", groupId);
                             data.put("mutes", mutes);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
             }
 
             @Override
             public void onAdminAdded(String groupId, String administrator) {
+                flushMemberDeltas(groupId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("type", "onGroupAdminAdded");
                             data.put("groupId", groupId);
                             data.put("administrator", administrator);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
             }
 
             @Override
             public void onAdminRemoved(String groupId, String administrator) {
+                flushMemberDeltas(groupId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("type", "onGroupAdminRemoved");
                             data.put("groupId", groupId);
                             data.put("administrator", administrator);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
             }
 
             @Override
             public void onOwnerChanged(String groupId, String newOwner, String oldOwner) {
+                flushMemberDeltas(groupId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
@@ -1169,103 +1158,119 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
                             data.put("groupId", groupId);
                             data.put("newOwner", newOwner);
                             data.put("oldOwner", oldOwner);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
             }
 
             @Override
             public void onMemberJoined(String groupId, String member) {
+                EMMemberDeltas deltas = memberDeltas;
+                if (deltas != null) {
+                    deltas.joined(groupId, member);
+                    return;
+                }
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("type", "onGroupMemberJoined");
                             data.put("groupId", groupId);
                             data.put("member", member);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
             }
 
             @Override
             public void onMemberExited(String groupId, String member) {
+                EMMemberDeltas deltas = memberDeltas;
+                if (deltas != null) {
+                    deltas.exited(groupId, null, member);
+                    return;
+                }
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("type", "onGroupMemberExited");
                             data.put("groupId", groupId);
                             data.put("member", member);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
             }
 
             @Override
             public void onAnnouncementChanged(String groupId, String announcement) {
-                EMListenerHandle.getInstance().addHandle(
+                flushMemberDeltas(groupId);
+                EMListenerHandle.getInstance().addHandle("group/announcement/" + groupId,
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("type", "onGroupAnnouncementChanged");
                             data.put("groupId", groupId);
                             data.put("announcement", announcement);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
             }
 
             @Override
             public void onSharedFileAdded(String groupId, EMMucSharedFile sharedFile) {
+                flushMemberDeltas(groupId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("type", "onGroupSharedFileAdded");
                             data.put("groupId", groupId);
                             data.put("sharedFile", EMMucSharedFileHelper.toJson(sharedFile));
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
             }
 
             @Override
             public void onSharedFileDeleted(String groupId, String fileId) {
+                flushMemberDeltas(groupId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("type", "onGroupSharedFileDeleted");
                             data.put("groupId", groupId);
                             data.put("fileId", fileId);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
             }
 
             @Override
             public void onSpecificationChanged(EMGroup group) {
-                EMListenerHandle.getInstance().addHandle(
+                flushMemberDeltas(group.getGroupId());
+                EMListenerHandle.getInstance().addHandle("group/specification/" + group.getGroupId(),
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("type", "onGroupSpecificationDidUpdate");
                             data.put("group", EMGroupHelper.toJson(group));
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
             }
 
             @Override
             public void onStateChanged(EMGroup group, boolean isDisabled) {
-                EMListenerHandle.getInstance().addHandle(
+                flushMemberDeltas(group.getGroupId());
+                EMListenerHandle.getInstance().addHandle("group/state/" + group.getGroupId(),
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
                             data.put("type", "onGroupStateChanged");
                             data.put("groupId", group.getGroupId());
                             data.put("isDisabled", isDisabled);
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
             }
 
             @Override
             public void onGroupMemberAttributeChanged(String groupId, String userId, Map<String, String> attribute, String from) {
+                flushMemberDeltas(groupId);
                 EMListenerHandle.getInstance().addHandle(
                         ()-> {
                             Map<String, Object> data = new HashMap<>();
@@ -1278,7 +1283,7 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
                             if (attribute != null) {
                                 data.put("attributes", attribute);
                             }
-                            post(() -> channel.invokeMethod(EMSDKMethod.onGroupChanged, data));
+                            sendEvent(EMSDKMethod.onGroupChanged, data);
                         }
                 );
             }
@@ -1286,8 +1291,16 @@ public class EMGroupManagerWrapper extends EMWrapper implements MethodCallHandle
         EMClient.getInstance().groupManager().addGroupChangeListener(groupChangeListener);
     }
 
+    // 先发出这个群组待合并的成员变化, 不要排在它的其他事件之后
+    private void flushMemberDeltas(String groupId) {
+        EMMemberDeltas deltas = memberDeltas;
+        if (deltas != null) deltas.flush(groupId);
+    }
+
     @Override
     public void unRegisterEaseListener() {
         EMClient.getInstance().groupManager().removeGroupChangeListener(groupChangeListener);
+        EMMemberDeltas deltas = memberDeltas;
+        if (deltas != null) deltas.clear();
     }
 }
\ No newline at end of file
@@ -3,6 +3,8 @@ package com.easemob.im_flutter_sdk;
 import static com.hyphenate.chat.EMOptions.AreaCode.AREA_CODE_GLOB;
 
 import android.content.Context;
+import android.util.JsonReader;
+import android.util.JsonToken;
 
 import com.hyphenate.chat.EMChatRoom;
 import com.hyphenate.chat.EMChatThread;
@@ -54,11 +56,17 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 class EMOptionsHelper {
 
@@ -366,119 +374,86 @@ class EMChatRoomHelper {
     }
 }
 
+/**
+ * Optional field groups a caller asked for, see {@code MessageField} on the flutter side.
+ * Id, conversation, sender, receiver, chat type, direction and the body content are always kept,
+ * the groups below are only sent when requested.
+ */
+class EMMessageProjection {
+
+    // 顺序与 flutter 端 MessageField 一致
+    private static final String[][] GROUPS = {
+            {"localTime", "serverTime"},
+            {"status"},
+            {"hasRead", "hasReadAck", "hasDeliverAck", "needGroupAck"},
+            {"attributes"},
+            {"onlineState", "broadcast", "isContentReplaced", "isThread"},
+            {"localPath", "remotePath", "secret", "fileStatus", "thumbnailLocalPath", "thumbnailRemotePath", "thumbnailSecret"},
+            {"targetLanguages", "translations"},
+            {"operatorId", "operatorTime", "operatorCount"},
+    };
+
+    // [schema id][field index]
+    private final boolean[][] keep;
+
+    private EMMessageProjection(Set<String> dropped) {
+        keep = new boolean[EMMessageSchema.ALL.length][];
+        for (EMMessageSchema schema : EMMessageSchema.ALL) {
+            boolean[] flags = new boolean[schema.fields.length];
+            for (int i = 0; i < flags.length; i++) {
+                flags[i] = !dropped.contains(schema.fields[i]);
+            }
+            keep[schema.id] = flags;
+        }
+    }
+
+    /**
+     * Returns null when the call did not pass {@code fields}, i.e. the full message is wanted.
+     */
+    static EMMessageProjection fromJson(JSONObject params) throws JSONException {
+        if (!params.has("fields")) {
+            return null;
+        }
+        Set<String> dropped = new HashSet<>();
+        for (String[] group : GROUPS) {
+            dropped.addAll(Arrays.asList(group));
+        }
+        JSONArray ja = params.getJSONArray("fields");
+        for (int i = 0; i < ja.length(); i++) {
+            int group = ja.getInt(i);
+            if (group >= 0 && group < GROUPS.length) {
+                dropped.removeAll(Arrays.asList(GROUPS[group]));
+            }
+        }
+        return new EMMessageProjection(dropped);
+    }
+
+    /**
+     * A record of {@code schema} that only keeps the fields of the requested groups.
+     */
+    static EMMessageSchema.Record newRecord(EMMessageProjection projection, EMMessageSchema schema) {
+        return schema.newRecord(projection == null ? null : projection.keep[schema.id]);
+    }
+}
+
 class EMMessageHelper {
 
     static EMMessage fromJson(JSONObject json) throws JSONException {
-        EMMessage message = null;
-
         JSONObject bodyJson = json.getJSONObject("body");
-        String type = bodyJson.getString("type");
+        String bodyType = bodyJson.getString("type");
+        Type type = EMMessageBodyCodecs.typeOf(bodyType);
+        if (type == null) {
+            throw new JSONException("unknown message body type: " + bodyType);
+        }
+        EMMessage message;
         if (json.getString("direction").equals("send")) {
-            switch (type) {
-                case "txt": {
-                    message = EMMessage.createSendMessage(Type.TXT);
-                    message.addBody(EMMessageBodyHelper.textBodyFromJson(bodyJson));
-                }
-                    break;
-                case "img": {
-                    message = EMMessage.createSendMessage(Type.IMAGE);
-                    message.addBody(EMMessageBodyHelper.imageBodyFromJson(bodyJson));
-                }
-                    break;
-                case "loc": {
-                    message = EMMessage.createSendMessage(Type.LOCATION);
-                    message.addBody(EMMessageBodyHelper.localBodyFromJson(bodyJson));
-                }
-                    break;
-                case "video": {
-                    message = EMMessage.createSendMessage(Type.VIDEO);
-                    message.addBody(EMMessageBodyHelper.videoBodyFromJson(bodyJson));
-                }
-                    break;
-                case "voice": {
-                    message = EMMessage.createSendMessage(Type.VOICE);
-                    message.addBody(EMMessageBodyHelper.voiceBodyFromJson(bodyJson));
-                }
-                    break;
-                case "file": {
-                    message = EMMessage.createSendMessage(Type.FILE);
-                    message.addBody(EMMessageBodyHelper.fileBodyFromJson(bodyJson));
-                }
-                    break;
-                case "cmd": {
-                    message = EMMessage.createSendMessage(Type.CMD);
-                    message.addBody(EMMessageBodyHelper.cmdBodyFromJson(bodyJson));
-                }
-                    break;
-                case "custom": {
-                    message = EMMessage.createSendMessage(Type.CUSTOM);
-                    message.addBody(EMMessageBodyHelper.customBodyFromJson(bodyJson));
-                }
-                    break;
-                case "combine": {
-                    message = EMMessage.createSendMessage(Type.COMBINE);
-                    message.addBody(EMMessageBodyHelper.combineBodyFromJson(bodyJson));
-                }
-            }
-            if (message != null) {
-                message.setDirection(EMMessage.Direct.SEND);
-            }
+            message = EMMessage.createSendMessage(type);
+            message.setDirection(EMMessage.Direct.SEND);
         } else {
-            switch (type) {
-                case "txt": {
-                    message = EMMessage.createReceiveMessage(Type.TXT);
-                    message.addBody(EMMessageBodyHelper.textBodyFromJson(bodyJson));
-                    break;
-                }
-                case "img": {
-                    message = EMMessage.createReceiveMessage(Type.IMAGE);
-                    message.addBody(EMMessageBodyHelper.imageBodyFromJson(bodyJson));
-                    break;
-                }
-
-                case "loc": {
-                    message = EMMessage.createReceiveMessage(Type.LOCATION);
-                    message.addBody(EMMessageBodyHelper.localBodyFromJson(bodyJson));
-                    break;
-                }
-
-                case "video": {
-                    message = EMMessage.createReceiveMessage(Type.VIDEO);
-                    message.addBody(EMMessageBodyHelper.videoBodyFromJson(bodyJson));
-                    break;
-                }
-
-                case "voice": {
-                    message = EMMessage.createReceiveMessage(Type.VOICE);
-                    message.addBody(EMMessageBodyHelper.voiceBodyFromJson(bodyJson));
-                    break;
-                }
-                case "file": {
-                    message = EMMessage.createReceiveMessage(Type.FILE);
-                    message.addBody(EMMessageBodyHelper.fileBodyFromJson(bodyJson));
-                    break;
-                }
-                case "cmd": {
-                    message = EMMessage.createReceiveMessage(Type.CMD);
-                    message.addBody(EMMessageBodyHelper.cmdBodyFromJson(bodyJson));
-                    break;
-                }
-                case "custom": {
-                    message = EMMessage.createReceiveMessage(Type.CUSTOM);
-                    message.addBody(EMMessageBodyHelper.customBodyFromJson(bodyJson));
-                    break;
-                }
-
-                case "combine": {
-                    message = EMMessage.createReceiveMessage(Type.COMBINE);
-                    message.addBody(EMMessageBodyHelper.combineBodyFromJson(bodyJson));
-                    break;
-                }
-            }
-            if (message != null) {
-                message.setDirection(EMMessage.Direct.RECEIVE);
-            }
+            message = EMMessage.createReceiveMessage(type);
+            message.setDirection(EMMessage.Direct.RECEIVE);
         }
+        message.addBody(EMMessageBodyCodecs.get(type).fromJson(bodyJson));
 
         if (json.has("to")) {
             message.setTo(json.getString("to"));
@@ -528,15 +503,15 @@ class EMMessageHelper {
             while (iterator.hasNext()) {
                 String key = iterator.next().toString();
                 Object result = data.get(key);
-                if (result.getClass().getSimpleName().equals("Integer")) {
+                if (result instanceof Integer) {
                     message.setAttribute(key, (Integer) result);
-                } else if (result.getClass().getSimpleName().equals("Boolean")) {
+                } else if (result instanceof Boolean) {
                     message.setAttribute(key, (Boolean) result);
-                } else if (result.getClass().getSimpleName().equals("Long")) {
+                } else if (result instanceof Long) {
                     message.setAttribute(key, (Long) result);
-                } else if (result.getClass().getSimpleName().equals("JSONObject")) {
+                } else if (result instanceof JSONObject) {
                     message.setAttribute(key, (JSONObject) result);
-                } else if (result.getClass().getSimpleName().equals("JSONArray")) {
+                } else if (result instanceof JSONArray) {
                     message.setAttribute(key, (JSONArray) result);
                 } else {
                     message.setAttribute(key, data.getString(key));
@@ -557,69 +532,49 @@ class EMMessageHelper {
     }
 
     static Map<String, Object> toJson(EMMessage message) {
-        Map<String, Object> data = new HashMap<>();
-        switch (message.getType()) {
-            case TXT: {
-                data.put("body", EMMessageBodyHelper.textBodyToJson((EMTextMessageBody) message.getBody()));
-            }
-                break;
-            case IMAGE: {
-                data.put("body", EMMessageBodyHelper.imageBodyToJson((EMImageMessageBody) message.getBody()));
-            }
-                break;
-            case LOCATION: {
-                data.put("body", EMMessageBodyHelper.localBodyToJson((EMLocationMessageBody) message.getBody()));
-            }
-                break;
-            case CMD: {
-                data.put("body", EMMessageBodyHelper.cmdBodyToJson((EMCmdMessageBody) message.getBody()));
-            }
-                break;
-            case CUSTOM: {
-                data.put("body", EMMessageBodyHelper.customBodyToJson((EMCustomMessageBody) message.getBody()));
-            }
-                break;
-            case FILE: {
-                data.put("body", EMMessageBodyHelper.fileBodyToJson((EMNormalFileMessageBody) message.getBody()));
-            }
-                break;
-            case VIDEO: {
-                data.put("body", EMMessageBodyHelper.videoBodyToJson((EMVideoMessageBody) message.getBody()));
-            }
-                break;
-            case VOICE: {
-                data.put("body", EMMessageBodyHelper.voiceBodyToJson((EMVoiceMessageBody) message.getBody()));
-            }
-                break;
-            case COMBINE:{
-                data.put("body", EMMessageBodyHelper.combineBodyToJson((EMCombineMessageBody) message.getBody()));
-            }
-                break;
+        return toJson(message, null);
+    }
+
+    /**
+     * Converts {@code message}, reading only the fields {@code projection} keeps; null converts every field.
+     */
+    static Map<String, Object> toJson(EMMessage message, EMMessageProjection projection) {
+        EMMessageSchema.Record data = EMMessageProjection.newRecord(projection, EMMessageSchema.MESSAGE);
+        EMMessageBodyCodec codec = EMMessageBodyCodecs.get(message.getType());
+        if (codec != null) {
+            data.put("body", codec.toJson(message.getBody(), projection));
         }
 
-        if (message.ext().size() > 0 && null != message.ext()) {
+        if (data.wants("attributes") && null != message.ext() && message.ext().size() > 0) {
             data.put("attributes", message.ext());
         }
         data.put("from", message.getFrom());
         data.put("to", message.getTo());
-        data.put("hasReadAck", message.isAcked());
-        data.put("hasDeliverAck", message.isDelivered());
-        data.put("localTime", message.localTime());
-        data.put("serverTime", message.getMsgTime());
-        data.put("status", statusToInt(message.status()));
+        if (data.wants("hasRead")) {
+            data.put("hasReadAck", message.isAcked());
+            data.put("hasDeliverAck", message.isDelivered());
+            data.put("hasRead", !message.isUnread());
+            data.put("needGroupAck", message.isNeedGroupAck());
+        }
+        if (data.wants("localTime")) {
+            data.put("localTime", message.localTime());
+            data.put("serverTime", message.getMsgTime());
+        }
+        if (data.wants("status")) {
+            data.put("status", statusToInt(message.status()));
+        }
         data.put("chatType", chatTypeToInt(message.getChatType()));
         data.put("direction", message.direct() == EMMessage.Direct.SEND ? "send" : "rec");
         data.put("conversationId", message.conversationId());
         data.put("msgId", message.getMsgId());
-        data.put("hasRead", !message.isUnread());
-        data.put("needGroupAck", message.isNeedGroupAck());
-        data.put("onlineState", message.isOnlineState());
-        data.put("broadcast", message.isBroadcast());
-        data.put("isContentReplaced", message.isContentReplaced());
-
-        // 通过EMMessageWrapper获取
-        // data.put("groupAckCount", message.groupAckCount());
-        data.put("isThread", message.isChatThreadMessage());
+        if (data.wants("onlineState")) {
+            data.put("onlineState", message.isOnlineState());
+            data.put("broadcast", message.isBroadcast());
+            data.put("isContentReplaced", message.isContentReplaced());
+            // 通过EMMessageWrapper获取
+            // data.put("groupAckCount", message.groupAckCount());
+            data.put("isThread", message.isChatThreadMessage());
+        }
         return data;
     }
 
@@ -695,8 +650,11 @@ class EMGroupAckHelper {
 
  class EMMessageBodyHelper {
 
-    static Map<String, Object> getParentMap(EMMessageBody body){
-        Map<String, Object> data = new HashMap<>();
+    static EMMessageSchema.Record getParentMap(EMMessageBody body, EMMessageSchema schema, EMMessageProjection projection){
+        EMMessageSchema.Record data = EMMessageProjection.newRecord(projection, schema);
+        if (!data.wants("operatorId")) {
+            return data;
+        }
         if (body.operatorId() != null && body.operatorId().length() > 0) {
             data.put("operatorId", body.operatorId());
         }
@@ -724,10 +682,13 @@ class EMGroupAckHelper {
         return body;
     }
 
-    static Map<String, Object> textBodyToJson(EMTextMessageBody body) {
-        Map<String, Object> data = getParentMap(body);
+    static Map<String, Object> textBodyToJson(EMTextMessageBody body, EMMessageProjection projection) {
+        EMMessageSchema.Record data = getParentMap(body, EMMessageSchema.TXT, projection);
         data.put("content", body.getMessage());
         data.put("type", "txt");
+        if (!data.wants("translations")) {
+            return data;
+        }
         if (body.getTargetLanguages() != null) {
             data.put("targetLanguages", body.getTargetLanguages());
         }
@@ -762,8 +723,8 @@ class EMGroupAckHelper {
         return body;
     }
 
-    static Map<String, Object> localBodyToJson(EMLocationMessageBody body) {
-        Map<String, Object> data = getParentMap(body);
+    static Map<String, Object> localBodyToJson(EMLocationMessageBody body, EMMessageProjection projection) {
+        EMMessageSchema.Record data = getParentMap(body, EMMessageSchema.LOCATION, projection);
         data.put("latitude", body.getLatitude());
         data.put("longitude", body.getLongitude());
         data.put("buildingName", body.getBuildingName());
@@ -782,8 +743,8 @@ class EMGroupAckHelper {
         return body;
     }
 
-    static Map<String, Object> cmdBodyToJson(EMCmdMessageBody body) {
-        Map<String, Object> data = getParentMap(body);
+    static Map<String, Object> cmdBodyToJson(EMCmdMessageBody body, EMMessageProjection projection) {
+        EMMessageSchema.Record data = getParentMap(body, EMMessageSchema.CMD, projection);
         data.put("deliverOnlineOnly", body.isDeliverOnlineOnly());
         data.put("action", body.action());
         data.put("type", "cmd");
@@ -807,8 +768,8 @@ class EMGroupAckHelper {
         return body;
     }
 
-    static Map<String, Object> customBodyToJson(EMCustomMessageBody body) {
-        Map<String, Object> data = getParentMap(body);
+    static Map<String, Object> customBodyToJson(EMCustomMessageBody body, EMMessageProjection projection) {
+        EMMessageSchema.Record data = getParentMap(body, EMMessageSchema.CUSTOM, projection);
         data.put("event", body.event());
         data.put("params", body.getParams());
         data.put("type", "custom");
@@ -837,14 +798,16 @@ class EMGroupAckHelper {
         return body;
     }
 
-    static Map<String, Object> fileBodyToJson(EMNormalFileMessageBody body) {
-        Map<String, Object> data = getParentMap(body);
-        data.put("localPath", body.getLocalUrl());
+    static Map<String, Object> fileBodyToJson(EMNormalFileMessageBody body, EMMessageProjection projection) {
+        EMMessageSchema.Record data = getParentMap(body, EMMessageSchema.FILE, projection);
         data.put("fileSize", body.getFileSize());
         data.put("displayName", body.getFileName());
-        data.put("remotePath", body.getRemoteUrl());
-        data.put("secret", body.getSecret());
-        data.put("fileStatus", downloadStatusToInt(body.downloadStatus()));
+        if (data.wants("localPath")) {
+            data.put("localPath", body.getLocalUrl());
+            data.put("remotePath", body.getRemoteUrl());
+            data.put("secret", body.getSecret());
+            data.put("fileStatus", downloadStatusToInt(body.downloadStatus()));
+        }
         data.put("type", "file");
         return data;
     }
@@ -891,16 +854,18 @@ class EMGroupAckHelper {
         return body;
     }
 
-    static Map<String, Object> imageBodyToJson(EMImageMessageBody body) {
-        Map<String, Object> data = getParentMap(body);
-        data.put("localPath", body.getLocalUrl());
+    static Map<String, Object> imageBodyToJson(EMImageMessageBody body, EMMessageProjection projection) {
+        EMMessageSchema.Record data = getParentMap(body, EMMessageSchema.IMAGE, projection);
         data.put("displayName", body.getFileName());
-        data.put("remotePath", body.getRemoteUrl());
-        data.put("secret", body.getSecret());
-        data.put("fileStatus", downloadStatusToInt(body.downloadStatus()));
-        data.put("thumbnailLocalPath", body.thumbnailLocalPath());
-        data.put("thumbnailRemotePath", body.getThumbnailUrl());
-        data.put("thumbnailSecret", body.getThumbnailSecret());
+        if (data.wants("localPath")) {
+            data.put("localPath", body.getLocalUrl());
+            data.put("remotePath", body.getRemoteUrl());
+            data.put("secret", body.getSecret());
+            data.put("fileStatus", downloadStatusToInt(body.downloadStatus()));
+            data.put("thumbnailLocalPath", body.thumbnailLocalPath());
+            data.put("thumbnailRemotePath", body.getThumbnailUrl());
+            data.put("thumbnailSecret", body.getThumbnailSecret());
+        }
         data.put("height", body.getHeight());
         data.put("width", body.getWidth());
         data.put("sendOriginalImage", body.isSendOriginalImage());
@@ -950,19 +915,21 @@ class EMGroupAckHelper {
         return body;
     }
 
-    static Map<String, Object> videoBodyToJson(EMVideoMessageBody body) {
-        Map<String, Object> data = getParentMap(body);
-        data.put("localPath", body.getLocalUrl());
-        data.put("thumbnailLocalPath", body.getLocalThumb());
+    static Map<String, Object> videoBodyToJson(EMVideoMessageBody body, EMMessageProjection projection) {
+        EMMessageSchema.Record data = getParentMap(body, EMMessageSchema.VIDEO, projection);
         data.put("duration", body.getDuration());
-        data.put("thumbnailRemotePath", body.getThumbnailUrl());
-        data.put("thumbnailSecret", body.getThumbnailSecret());
         data.put("displayName", body.getFileName());
         data.put("height", body.getThumbnailHeight());
         data.put("width", body.getThumbnailWidth());
-        data.put("remotePath", body.getRemoteUrl());
-        data.put("fileStatus", downloadStatusToInt(body.downloadStatus()));
-        data.put("secret", body.getSecret());
+        if (data.wants("localPath")) {
+            data.put("localPath", body.getLocalUrl());
+            data.put("thumbnailLocalPath", body.getLocalThumb());
+            data.put("thumbnailRemotePath", body.getThumbnailUrl());
+            data.put("thumbnailSecret", body.getThumbnailSecret());
+            data.put("remotePath", body.getRemoteUrl());
+            data.put("fileStatus", downloadStatusToInt(body.downloadStatus()));
+            data.put("secret", body.getSecret());
+        }
         data.put("fileSize", body.getVideoFileLength());
         data.put("type", "video");
 
@@ -991,14 +958,16 @@ class EMGroupAckHelper {
         return body;
     }
 
-    static Map<String, Object> voiceBodyToJson(EMVoiceMessageBody body) {
-        Map<String, Object> data = getParentMap(body);
-        data.put("localPath", body.getLocalUrl());
+    static Map<String, Object> voiceBodyToJson(EMVoiceMessageBody body, EMMessageProjection projection) {
+        EMMessageSchema.Record data = getParentMap(body, EMMessageSchema.VOICE, projection);
         data.put("duration", body.getLength());
         data.put("displayName", body.getFileName());
-        data.put("remotePath", body.getRemoteUrl());
-        data.put("fileStatus", downloadStatusToInt(body.downloadStatus()));
-        data.put("secret", body.getSecret());
+        if (data.wants("localPath")) {
+            data.put("localPath", body.getLocalUrl());
+            data.put("remotePath", body.getRemoteUrl());
+            data.put("fileStatus", downloadStatusToInt(body.downloadStatus()));
+            data.put("secret", body.getSecret());
+        }
         data.put("type", "voice");
         data.put("fileSize", body.getFileSize());
         return data;
@@ -1031,8 +1000,8 @@ class EMGroupAckHelper {
 
          return ret;
      }
-    static Map<String, Object> combineBodyToJson(EMCombineMessageBody body) {
-        Map<String, Object> data = getParentMap(body);
+    static Map<String, Object> combineBodyToJson(EMCombineMessageBody body, EMMessageProjection projection) {
+        EMMessageSchema.Record data = getParentMap(body, EMMessageSchema.COMBINE, projection);
         if (body.getTitle() != null) {
             data.put("title", body.getTitle());
         }
@@ -1045,19 +1014,21 @@ class EMGroupAckHelper {
             data.put("compatibleText", body.getCompatibleText());
         }
 
-        if (body.getLocalUrl() != null) {
-            data.put("localPath", body.getLocalUrl());
-        }
+        if (data.wants("localPath")) {
+            if (body.getLocalUrl() != null) {
+                data.put("localPath", body.getLocalUrl());
+            }
 
-        if (body.getRemoteUrl() != null) {
-            data.put("remotePath", body.getRemoteUrl());
-        }
+            if (body.getRemoteUrl() != null) {
+                data.put("remotePath", body.getRemoteUrl());
+            }
 
-        if (body.getSecret() != null) {
-            data.put("secret", body.getSecret());
-        }
+            if (body.getSecret() != null) {
+                data.put("secret", body.getSecret());
+            }
 
-        data.put("fileStatus", downloadStatusToInt(body.downloadStatus()));
+            data.put("fileStatus", downloadStatusToInt(body.downloadStatus()));
+        }
         data.put("type", "combine");
 
         return data;
@@ -1107,17 +1078,15 @@ class EMConversationHelper {
         data.put("isThread", conversation.isChatThread());
         data.put("isPinned", conversation.isPinned());
         data.put("pinnedTime", conversation.getPinnedTime());
-        try {
-            data.put("ext", jsonStringToMap(conversation.getExtField()));
-        } catch (JSONException e) {
-
-        } finally {
-            // 不返回，每次取得时候都从原生取最新的
-//            data.put("unreadCount", conversation.getUnreadMsgCount());
-//            data.put("latestMessage", EMMessageHelper.toJson(conversation.getLastMessage()));
-//            data.put("lastReceivedMessage", EMMessageHelper.toJson(conversation.getLatestMessageFromOthers()));
-            return data;
-        }
+        Map<String, Object> ext = extToMap(conversation.conversationId(), conversation.getExtField());
+        if (ext != null) {
+            data.put("ext", ext);
+        }
+        // 不返回，每次取得时候都从原生取最新的
+//        data.put("unreadCount", conversation.getUnreadMsgCount());
+//        data.put("latestMessage", EMMessageHelper.toJson(conversation.getLastMessage()));
+//        data.put("lastReceivedMessage", EMMessageHelper.toJson(conversation.getLatestMessageFromOthers()));
+        return data;
     }
 
     static EMConversation.EMConversationType typeFromInt(int type) {
@@ -1146,42 +1115,115 @@ class EMConversationHelper {
         return 0;
     }
 
-    private static Map<String, Object> jsonStringToMap(String content) throws JSONException {
-        if (content == null)
+    // 每个会话一条, 足够覆盖一次全量会话列表; 超出后淘汰最久未用的会话
+    private static final int EXT_CACHE_SIZE = 8192;
+
+    private static final class ExtEntry {
+        final String content;
+        final Map<String, Object> map;
+
+        ExtEntry(String content, Map<String, Object> map) {
+            this.content = content;
+            this.map = map;
+        }
+    }
+
+    // 会话 ext 解析结果缓存, key 为会话 id, ext 字符串不变时复用; 返回的 map 会被多次发送, 不要修改
+    private static final Map<String, ExtEntry> extCache =
+            new LinkedHashMap<String, ExtEntry>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ExtEntry> eldest) {
+                    return size() > EXT_CACHE_SIZE;
+                }
+            };
+
+    // 空的 ext 不解析; 无法解析的 ext 也缓存为 null, 不必每次都抛异常
+    private static Map<String, Object> extToMap(String conversationId, String content) {
+        if (content == null || content.trim().isEmpty())
             return null;
-        content = content.trim();
-        Map<String, Object> result = new HashMap<>();
+        synchronized (extCache) {
+            ExtEntry cached = extCache.get(conversationId);
+            if (cached != null && cached.content.equals(content)) {
+                return cached.map;
+            }
+        }
+        Map<String, Object> result;
         try {
-            if (content.charAt(0) == '[') {
-                JSONArray jsonArray = new JSONArray(content);
-                for (int i = 0; i < jsonArray.length(); i++) {
-                    Object value = jsonArray.get(i);
-                    if (value instanceof JSONArray || value instanceof JSONObject) {
-                        result.put(i + "", jsonStringToMap(value.toString().trim()));
-                    } else {
-                        result.put(i + "", jsonArray.getString(i));
-                    }
-                }
-            } else if (content.charAt(0) == '{') {
-                JSONObject jsonObject = new JSONObject(content);
-                Iterator<String> iterator = jsonObject.keys();
-                while (iterator.hasNext()) {
-                    String key = iterator.next();
-                    Object value = jsonObject.get(key);
-                    if (value instanceof JSONArray || value instanceof JSONObject) {
-                        result.put(key, jsonStringToMap(value.toString().trim()));
-                    } else {
-                        result.put(key, value.toString().trim());
-                    }
-                }
+            result = parseExt(content);
+        } catch (JSONException e) {
+            result = null;
+        }
+        synchronized (extCache) {
+            extCache.put(conversationId, new ExtEntry(content, result));
+        }
+        return result;
+    }
+
+    // 单次流式解析, 嵌套的对象和数组不再转成字符串重新解析。
+    // 输出格式保持不变: 数组以下标为 key, 标量转为字符串, 与 flutter 端 Map<String, String> 的 ext 对应。
+    // 与原来的 org.json 解析一样宽松, 只读取第一个 json 值
+    private static Map<String, Object> parseExt(String content) throws JSONException {
+        JsonReader reader = new JsonReader(new StringReader(content));
+        reader.setLenient(true);
+        try {
+            Map<String, Object> result;
+            JsonToken token = reader.peek();
+            if (token == JsonToken.BEGIN_OBJECT) {
+                result = readExtObject(reader);
+            } else if (token == JsonToken.BEGIN_ARRAY) {
+                result = readExtArray(reader);
             } else {
-                throw new JSONException("");
+                throw new JSONException("conversation ext is not a json object or array");
             }
-        } catch (JSONException e) {
-            throw new JSONException("");
+            return result;
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JSONException("invalid conversation ext: " + e.getMessage());
+        } finally {
+            try {
+                reader.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static Map<String, Object> readExtObject(JsonReader reader) throws IOException {
+        Map<String, Object> result = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            result.put(key, readExtValue(reader));
         }
+        reader.endObject();
         return result;
     }
+
+    private static Map<String, Object> readExtArray(JsonReader reader) throws IOException {
+        Map<String, Object> result = new HashMap<>();
+        reader.beginArray();
+        int i = 0;
+        while (reader.hasNext()) {
+            result.put(String.valueOf(i++), readExtValue(reader));
+        }
+        reader.endArray();
+        return result;
+    }
+
+    private static Object readExtValue(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                return readExtObject(reader);
+            case BEGIN_ARRAY:
+                return readExtArray(reader);
+            case BOOLEAN:
+                return String.valueOf(reader.nextBoolean());
+            case NULL:
+                reader.nextNull();
+                return "null";
+            default:
+                // 数字也按原文返回
+                return reader.nextString().trim();
+        }
+    }
 }
 
 class EMDeviceInfoHelper {
@@ -1199,6 +1241,10 @@ class EMDeviceInfoHelper {
 class EMCursorResultHelper {
 
     static Map<String, Object> toJson(EMCursorResult result) {
+        return toJson(result, null);
+    }
+
+    static Map<String, Object> toJson(EMCursorResult result, EMMessageProjection projection) {
         Map<String, Object> data = new HashMap<>();
         data.put("cursor", result.getCursor());
         List<Object> jsonList = new ArrayList<>();
@@ -1206,7 +1252,7 @@ class EMCursorResultHelper {
             List list = (List) result.getData();
             for (Object obj : list) {
                 if (obj instanceof EMMessage) {
-                    jsonList.add(EMMessageHelper.toJson((EMMessage) obj));
+                    jsonList.add(EMMessageHelper.toJson((EMMessage) obj, projection));
                 }
 
                 if (obj instanceof EMGroup) {
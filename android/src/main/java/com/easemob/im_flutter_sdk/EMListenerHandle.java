@@ -1,54 +1,200 @@
 package com.easemob.im_flutter_sdk;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Buffers group, contact and chat room listener events until flutter calls {@code startCallback},
+ * then runs them in order.
+ *
+ * SDK listener threads only put an event on a lock-free {@link EMMpscQueue} and never block. If it
+ * is full, they put the event on a spill queue instead. Every event takes a sequence number when it
+ * is added, and a dedicated dispatcher thread drains both queues in one pass, ordered by that
+ * number, into its own backlog. Events of one listener thread therefore keep their order even when
+ * some went to the spill queue. The dispatcher runs them once callbacks have started. While the
+ * backlog is over {@code capacity}, the overflow policy applies:
+ * <ul>
+ *     <li>{@link #COALESCE}, the default, first drops events that a newer event with the same key
+ *     replaces, then the oldest ones;</li>
+ *     <li>{@link #DROP_OLDEST} drops the oldest events;</li>
+ *     <li>{@link #SPILL} keeps every event, so the backlog is not bounded.</li>
+ * </ul>
+ * {@link #clearHandle()} discards every event added before it.
+ */
 public class EMListenerHandle {
 
-    static private EMListenerHandle handle;
+    static final String SPILL = "spill";
+    static final String DROP_OLDEST = "dropOldest";
+    static final String COALESCE = "coalesce";
 
-    private List<Runnable> emActionHandle;
+    static final int DEFAULT_CAPACITY = 1024;
 
-    private boolean hasReady;
+    private static final Comparator<Event> BY_SEQ = (a, b) -> Long.compare(a.seq, b.seq);
+
+    private static final class Event {
+        final long seq;
+        final long epoch;
+        final String key;
+        final Runnable action;
+
+        Event(long seq, long epoch, String key, Runnable action) {
+            this.seq = seq;
+            this.epoch = epoch;
+            this.key = key;
+            this.action = action;
+        }
+    }
+
+    static private volatile EMListenerHandle handle;
+
+    private final EMMpscQueue<Event> queue = new EMMpscQueue<>(DEFAULT_CAPACITY);
+    private final ConcurrentLinkedQueue<Event> spill = new ConcurrentLinkedQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    // 只在 dispatcher 线程访问
+    private final ArrayDeque<Event> backlog = new ArrayDeque<>();
+    private final List<Event> batch = new ArrayList<>();
+
+    private volatile int capacity = DEFAULT_CAPACITY;
+    private volatile String overflowPolicy = COALESCE;
+    private volatile boolean hasReady;
+    private volatile long epoch;
+    private volatile boolean sleeping;
+    private final Thread dispatcher;
 
 
     public static EMListenerHandle getInstance() {
         if (handle == null) {
-            handle = new EMListenerHandle();
+            synchronized (EMListenerHandle.class) {
+                if (handle == null) {
+                    handle = new EMListenerHandle();
+                }
+            }
         }
         return handle;
     }
 
     private EMListenerHandle(){
-        emActionHandle = new ArrayList<>();
+        dispatcher = new Thread(this::dispatch, "em-flutter-listener");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Sets the backlog limit and the policy used past it, see the constants of this class.
+     */
+    void configure(int capacity, String overflowPolicy) {
+        this.capacity = capacity > 0 ? capacity : DEFAULT_CAPACITY;
+        this.overflowPolicy = overflowPolicy != null ? overflowPolicy : COALESCE;
+        wake();
     }
 
     void addHandle(Runnable runnable) {
-        emActionHandle.add(runnable);
-        if (hasReady) {
-            runHandle();
-        }
+        addHandle(null, runnable);
     }
 
-    void runHandle() {
-        synchronized (emActionHandle){
-            List<Runnable> tmp = emActionHandle;
-            for (Runnable action : tmp) {
-                action.run();
-            }
-            emActionHandle.clear();
+    /**
+     * Adds an event; under {@link #COALESCE}, a newer event with the same {@code key} replaces it.
+     */
+    void addHandle(String key, Runnable runnable) {
+        Event event = new Event(sequence.getAndIncrement(), epoch, key, runnable);
+        // 两个队列里的事件由 transfer 按序号合并
+        if (!spill.isEmpty() || !queue.offer(event)) {
+            spill.add(event);
+        }
+        if (sleeping) {
+            wake();
         }
     }
 
     void startCallback(){
         hasReady = true;
-        runHandle();
+        wake();
     }
 
     void clearHandle(){
         hasReady = false;
-        synchronized (emActionHandle) {
-            emActionHandle.clear();
+        epoch++;
+        wake();
+    }
+
+    private void wake() {
+        LockSupport.unpark(dispatcher);
+    }
+
+    private void dispatch() {
+        while (true) {
+            transfer();
+            if (hasReady) {
+                Event event;
+                while (hasReady && (event = backlog.pollFirst()) != null) {
+                    if (event.epoch != epoch) continue;
+                    try {
+                        event.action.run();
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                    // 执行期间新来的事件排在后面, 同时按容量裁剪
+                    transfer();
+                }
+            }
+            sleeping = true;
+            if (queue.isEmpty() && spill.isEmpty() && (!hasReady || backlog.isEmpty())) {
+                LockSupport.park(this);
+            }
+            sleeping = false;
+        }
+    }
+
+    // 把新事件按序号移到 backlog, 去掉 clearHandle 之前的事件, 超出容量时按策略处理
+    private void transfer() {
+        long current = epoch;
+        Event event;
+        // 先取 spill 再取 ring: 事件只有在 spill 为空时才进 ring, 所以比 spill 里的事件更早的
+        // ring 事件此时都已在 ring 中, 会被同一轮取到
+        boolean spilled = false;
+        while ((event = spill.poll()) != null) {
+            if (event.epoch == current) batch.add(event);
+            spilled = true;
+        }
+        while ((event = queue.poll()) != null) {
+            if (event.epoch == current) batch.add(event);
+        }
+        if (spilled) {
+            Collections.sort(batch, BY_SEQ);
+        }
+        backlog.addAll(batch);
+        batch.clear();
+        int limit = capacity;
+        if (backlog.size() <= limit) return;
+        String policy = overflowPolicy;
+        if (COALESCE.equals(policy)) {
+            coalesce();
+        }
+        if (COALESCE.equals(policy) || DROP_OLDEST.equals(policy)) {
+            while (backlog.size() > limit) {
+                backlog.pollFirst();
+            }
+        }
+    }
+
+    // 从新到旧遍历, 同一个 key 只保留最新的事件
+    private void coalesce() {
+        Set<String> seen = new HashSet<>();
+        Iterator<Event> iterator = backlog.descendingIterator();
+        while (iterator.hasNext()) {
+            Event event = iterator.next();
+            if (event.key != null && !seen.add(event.key)) {
+                iterator.remove();
+            }
         }
     }
 }
@@ -0,0 +1,53 @@
+package com.easemob.im_flutter_sdk;
+
+import android.os.SystemClock;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delivers replies and events to flutter on the main looper in batches.
+ *
+ * Every {@code post} of the wrappers and callbacks lands here instead of posting its own runnable.
+ * The first one schedules a single drain on {@link ImFlutterSdkPlugin#handler}. The drain runs the
+ * queued work in order until the queue is empty or {@link #BUDGET_MS} has passed. If work is left,
+ * it posts itself again, so a large backlog is spread over several looper turns and frames in
+ * between still get drawn.
+ */
+final class EMMainQueue {
+
+    static final long BUDGET_MS = 4;
+
+    private static final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean scheduled = new AtomicBoolean();
+    private static final Runnable drain = EMMainQueue::drain;
+
+    private EMMainQueue() {}
+
+    static void post(Runnable runnable) {
+        queue.add(runnable);
+        if (scheduled.compareAndSet(false, true)) {
+            ImFlutterSdkPlugin.handler.post(drain);
+        }
+    }
+
+    private static void drain() {
+        long deadline = SystemClock.uptimeMillis() + BUDGET_MS;
+        Runnable runnable;
+        while ((runnable = queue.poll()) != null) {
+            try {
+                runnable.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+            if (SystemClock.uptimeMillis() >= deadline) {
+                break;
+            }
+        }
+        scheduled.set(false);
+        // 超出预算或刚好有新任务进来, 留到下一轮
+        if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+            ImFlutterSdkPlugin.handler.post(drain);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.easemob.im_flutter_sdk;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges the member joined / exited, mute and allow list events of each chat room or group over a
+ * window, so a wave of changes in a large room reaches flutter as one event per room per window.
+ *
+ * Only the net change of each member is kept: a member who joins and leaves again within the window
+ * is not reported at all, one who is muted twice keeps the last expire time. The first change of a
+ * window schedules a flush on the main looper. The flush puts one event per room or group on
+ * {@link EMListenerHandle}, like the single events it replaces, with the id, {@code joined},
+ * {@code left}, {@code muted} (member to expire time), {@code unmuted}, {@code allowListAdded} and
+ * {@code allowListRemoved}. Empty lists are left out.
+ *
+ * The wrappers call {@link #flush(String)} before they forward any other event of a room or group,
+ * so pending changes never arrive after e.g. the room was destroyed or the user was removed from it.
+ * Both flushes put their events on the handle while holding the lock, so an event forwarded after
+ * them is queued after them too.
+ */
+final class EMMemberDeltas {
+
+    interface Sender {
+        void send(Map<String, Object> data);
+    }
+
+    private static final int MEMBERS = 0;
+    private static final int MUTES = 1;
+    private static final int ALLOW_LIST = 2;
+
+    // 窗口内一个成员的第一次和最后一次变化, 两者决定净变化
+    private static final class Change {
+        final boolean firstAdded;
+        boolean lastAdded;
+        long expire;
+
+        Change(boolean added) {
+            this.firstAdded = added;
+        }
+    }
+
+    private static final class Pending {
+        String name;
+        @SuppressWarnings("unchecked")
+        final Map<String, Change>[] changes = new Map[]{
+                new LinkedHashMap<>(), new LinkedHashMap<>(), new LinkedHashMap<>()};
+    }
+
+    private final String type;
+    private final String idKey;
+    private final String nameKey;
+    private final long windowMs;
+    private final Sender sender;
+
+    private final Object lock = new Object();
+    private Map<String, Pending> pending = new LinkedHashMap<>();
+    private boolean scheduled;
+
+    /**
+     * {@code nameKey} is where the room name of an exit goes, null if there is none.
+     */
+    EMMemberDeltas(String type, String idKey, String nameKey, long windowMs, Sender sender) {
+        this.type = type;
+        this.idKey = idKey;
+        this.nameKey = nameKey;
+        this.windowMs = windowMs;
+        this.sender = sender;
+    }
+
+    void joined(String id, String member) {
+        record(id, null, MEMBERS, member, true, 0);
+    }
+
+    void exited(String id, String name, String member) {
+        record(id, name, MEMBERS, member, false, 0);
+    }
+
+    void muted(String id, List<String> members, long expire) {
+        for (String member : members) {
+            record(id, null, MUTES, member, true, expire);
+        }
+    }
+
+    void unmuted(String id, List<String> members) {
+        for (String member : members) {
+            record(id, null, MUTES, member, false, 0);
+        }
+    }
+
+    void allowListAdded(String id, List<String> members) {
+        for (String member : members) {
+            record(id, null, ALLOW_LIST, member, true, 0);
+        }
+    }
+
+    void allowListRemoved(String id, List<String> members) {
+        for (String member : members) {
+            record(id, null, ALLOW_LIST, member, false, 0);
+        }
+    }
+
+    /**
+     * Sends the pending changes of {@code id} now, ahead of another event for it.
+     */
+    void flush(String id) {
+        if (id == null) return;
+        synchronized (lock) {
+            Map<String, Object> data = take(id);
+            if (data != null) {
+                EMListenerHandle.getInstance().addHandle(() -> sender.send(data));
+            }
+        }
+    }
+
+    /**
+     * Removes the pending changes of {@code id} and returns their event, null if there is no net change.
+     */
+    Map<String, Object> take(String id) {
+        Pending p;
+        synchronized (lock) {
+            p = pending.remove(id);
+        }
+        return p != null ? toJson(id, p) : null;
+    }
+
+    void clear() {
+        synchronized (lock) {
+            pending = new LinkedHashMap<>();
+        }
+    }
+
+    private void record(String id, String name, int kind, String member, boolean added, long expire) {
+        if (id == null || member == null) return;
+        synchronized (lock) {
+            Pending p = pending.get(id);
+            if (p == null) {
+                p = new Pending();
+                pending.put(id, p);
+            }
+            if (name != null) {
+                p.name = name;
+            }
+            Change change = p.changes[kind].get(member);
+            if (change == null) {
+                change = new Change(added);
+                p.changes[kind].put(member, change);
+            }
+            change.lastAdded = added;
+            change.expire = expire;
+            if (scheduled) return;
+            scheduled = true;
+        }
+        ImFlutterSdkPlugin.handler.postDelayed(this::flush, windowMs);
+    }
+
+    private void flush() {
+        synchronized (lock) {
+            Map<String, Pending> batch = pending;
+            pending = new LinkedHashMap<>();
+            scheduled = false;
+            // 在锁内入队, 之后其他事件的 flush(id) 不会排到这些变化前面
+            for (Map.Entry<String, Pending> entry : batch.entrySet()) {
+                Map<String, Object> data = toJson(entry.getKey(), entry.getValue());
+                if (data != null) {
+                    EMListenerHandle.getInstance().addHandle(() -> sender.send(data));
+                }
+            }
+        }
+    }
+
+    private Map<String, Object> toJson(String id, Pending p) {
+        List<String> joined = new ArrayList<>();
+        List<String> left = new ArrayList<>();
+        Map<String, Object> muted = new HashMap<>();
+        List<String> unmuted = new ArrayList<>();
+        List<String> allowed = new ArrayList<>();
+        List<String> disallowed = new ArrayList<>();
+        for (Map.Entry<String, Change> e : p.changes[MEMBERS].entrySet()) {
+            // 进了又退或退了又进都等于没有变化
+            Change c = e.getValue();
+            if (c.firstAdded != c.lastAdded) continue;
+            (c.lastAdded ? joined : left).add(e.getKey());
+        }
+        for (Map.Entry<String, Change> e : p.changes[MUTES].entrySet()) {
+            // 解禁后再禁言可能换了到期时间, 要报; 禁言后又解禁等于没有变化
+            Change c = e.getValue();
+            if (c.lastAdded) {
+                muted.put(e.getKey(), c.expire);
+            } else if (!c.firstAdded) {
+                unmuted.add(e.getKey());
+            }
+        }
+        for (Map.Entry<String, Change> e : p.changes[ALLOW_LIST].entrySet()) {
+            Change c = e.getValue();
+            if (c.firstAdded != c.lastAdded) continue;
+            (c.lastAdded ? allowed : disallowed).add(e.getKey());
+        }
+        if (joined.isEmpty() && left.isEmpty() && muted.isEmpty() && unmuted.isEmpty()
+                && allowed.isEmpty() && disallowed.isEmpty()) {
+            return null;
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("type", type);
+        data.put(idKey, id);
+        if (nameKey != null && p.name != null) data.put(nameKey, p.name);
+        if (!joined.isEmpty()) data.put("joined", joined);
+        if (!left.isEmpty()) data.put("left", left);
+        if (!muted.isEmpty()) data.put("muted", muted);
+        if (!unmuted.isEmpty()) data.put("unmuted", unmuted);
+        if (!allowed.isEmpty()) data.put("allowListAdded", allowed);
+        if (!disallowed.isEmpty()) data.put("allowListRemoved", disallowed);
+        return data;
+    }
+}
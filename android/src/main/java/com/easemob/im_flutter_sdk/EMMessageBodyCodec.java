@@ -0,0 +1,107 @@
+package com.easemob.im_flutter_sdk;
+
+import com.hyphenate.chat.EMMessage;
+import com.hyphenate.chat.EMMessageBody;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts one kind of message body between the flutter map and the SDK body.
+ */
+interface EMMessageBodyCodec {
+
+    EMMessageBody fromJson(JSONObject json) throws JSONException;
+
+    /**
+     * Converts {@code body}. A non null {@code projection} lists the field groups flutter asked for;
+     * a codec may skip the others, fields it still returns are sent as they are.
+     */
+    Map<String, Object> toJson(EMMessageBody body, EMMessageProjection projection);
+}
+
+/**
+ * Body codecs by {@link EMMessage.Type}, and the flutter body type name of each.
+ *
+ * The built-in types are registered with the {@link EMMessageBodyHelper} methods. {@link #register}
+ * replaces the codec of a type, e.g. a leaner one for a heavily used custom body; registration
+ * copies the tables so lookups never need a lock.
+ *
+ * This is an internal extension point of the plugin, not an API for apps: the codec sees
+ * {@link EMMessageProjection} and the schema records, which are package-private and change with
+ * the flutter side.
+ */
+final class EMMessageBodyCodecs {
+
+    interface Decoder {
+        EMMessageBody fromJson(JSONObject json) throws JSONException;
+    }
+
+    interface Encoder<T extends EMMessageBody> {
+        Map<String, Object> toJson(T body, EMMessageProjection projection);
+    }
+
+    private static volatile Map<EMMessage.Type, EMMessageBodyCodec> codecs = new EnumMap<>(EMMessage.Type.class);
+    private static volatile Map<String, EMMessage.Type> types = new HashMap<>();
+
+    static {
+        register("txt", EMMessage.Type.TXT,
+                of(EMMessageBodyHelper::textBodyFromJson, EMMessageBodyHelper::textBodyToJson));
+        register("img", EMMessage.Type.IMAGE,
+                of(EMMessageBodyHelper::imageBodyFromJson, EMMessageBodyHelper::imageBodyToJson));
+        register("loc", EMMessage.Type.LOCATION,
+                of(EMMessageBodyHelper::localBodyFromJson, EMMessageBodyHelper::localBodyToJson));
+        register("video", EMMessage.Type.VIDEO,
+                of(EMMessageBodyHelper::videoBodyFromJson, EMMessageBodyHelper::videoBodyToJson));
+        register("voice", EMMessage.Type.VOICE,
+                of(EMMessageBodyHelper::voiceBodyFromJson, EMMessageBodyHelper::voiceBodyToJson));
+        register("file", EMMessage.Type.FILE,
+                of(EMMessageBodyHelper::fileBodyFromJson, EMMessageBodyHelper::fileBodyToJson));
+        register("cmd", EMMessage.Type.CMD,
+                of(EMMessageBodyHelper::cmdBodyFromJson, EMMessageBodyHelper::cmdBodyToJson));
+        register("custom", EMMessage.Type.CUSTOM,
+                of(EMMessageBodyHelper::customBodyFromJson, EMMessageBodyHelper::customBodyToJson));
+        register("combine", EMMessage.Type.COMBINE,
+                of(EMMessageBodyHelper::combineBodyFromJson, EMMessageBodyHelper::combineBodyToJson));
+    }
+
+    private EMMessageBodyCodecs() {}
+
+    // 仅供插件内部使用
+    static synchronized void register(String name, EMMessage.Type type, EMMessageBodyCodec codec) {
+        Map<EMMessage.Type, EMMessageBodyCodec> newCodecs = new EnumMap<>(EMMessage.Type.class);
+        newCodecs.putAll(codecs);
+        newCodecs.put(type, codec);
+        Map<String, EMMessage.Type> newTypes = new HashMap<>(types);
+        newTypes.put(name, type);
+        codecs = newCodecs;
+        types = newTypes;
+    }
+
+    static EMMessageBodyCodec get(EMMessage.Type type) {
+        return codecs.get(type);
+    }
+
+    static EMMessage.Type typeOf(String name) {
+        return types.get(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T extends EMMessageBody> EMMessageBodyCodec of(Decoder decoder, Encoder<T> encoder) {
+        return new EMMessageBodyCodec() {
+            @Override
+            public EMMessageBody fromJson(JSONObject json) throws JSONException {
+                return decoder.fromJson(json);
+            }
+
+            @Override
+            public Map<String, Object> toJson(EMMessageBody body, EMMessageProjection projection) {
+                return encoder.toJson((T) body, projection);
+            }
+        };
+    }
+}
@@ -0,0 +1,89 @@
+package com.easemob.im_flutter_sdk;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tracks the last message map flutter received for each message that is being sent or downloaded,
+ * so the status events of that message only carry what changed.
+ *
+ * The reply of sendMessage, resendMessage and the download calls is the baseline. A later
+ * onMessageSuccess / onMessageError event then sends {@code msgId}, {@code localId} and a
+ * {@code delta} of the changed top-level fields (the body is diffed one level down, a removed field
+ * is sent as null) instead of the whole message. Without a baseline, e.g. when the event beats the
+ * reply or deltas were not negotiated, the full {@code message} is sent as before.
+ *
+ * Baselines and events are both handled on the main looper, so an event can never be diffed against
+ * a baseline whose reply has not been delivered yet.
+ */
+final class EMMessageDeltas {
+
+    private static final int MAX_SIZE = 256;
+
+    private static final String BODY = "body";
+
+    // 只在 flutter 端声明支持时打开, 由 EMClientWrapper 设置
+    boolean enabled;
+
+    private final Map<String, Map<String, Object>> baselines =
+            new LinkedHashMap<String, Map<String, Object>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Map<String, Object>> eldest) {
+                    return size() > MAX_SIZE;
+                }
+            };
+
+    /**
+     * Records {@code json} as the state flutter holds for {@code localId}. Main looper only.
+     */
+    void publish(String localId, Map<String, Object> json) {
+        if (!enabled || localId == null || json == null) return;
+        baselines.put(localId, json);
+    }
+
+    /**
+     * Puts either the full message or the delta against the published baseline into {@code event}.
+     * A terminal event drops the baseline, flutter drops its copy on the same event. Main looper only.
+     */
+    void fill(Map<String, Object> event, String localId, Map<String, Object> json, boolean terminal) {
+        Map<String, Object> baseline = enabled && localId != null
+                ? (terminal ? baselines.remove(localId) : baselines.get(localId))
+                : null;
+        if (baseline == null) {
+            event.put("message", json);
+            return;
+        }
+        if (!terminal) {
+            baselines.put(localId, json);
+        }
+        event.put("msgId", json.get("msgId"));
+        event.put("delta", diff(baseline, json, true));
+    }
+
+    void clear() {
+        baselines.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> diff(Map<String, Object> from, Map<String, Object> to, boolean nested) {
+        Map<String, Object> delta = new HashMap<>();
+        for (Map.Entry<String, Object> entry : to.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            Object old = from.get(key);
+            if (value == null || value.equals(old)) continue;
+            if (nested && BODY.equals(key) && old instanceof Map && value instanceof Map) {
+                delta.put(key, diff((Map<String, Object>) old, (Map<String, Object>) value, false));
+            } else {
+                delta.put(key, value);
+            }
+        }
+        for (String key : from.keySet()) {
+            if (from.get(key) != null && to.get(key) == null) {
+                delta.put(key, null);
+            }
+        }
+        return delta;
+    }
+}
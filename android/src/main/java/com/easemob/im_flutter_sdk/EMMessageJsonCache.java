@@ -0,0 +1,146 @@
+package com.easemob.im_flutter_sdk;
+
+import com.hyphenate.chat.EMFileMessageBody;
+import com.hyphenate.chat.EMImageMessageBody;
+import com.hyphenate.chat.EMMessage;
+import com.hyphenate.chat.EMMessageBody;
+import com.hyphenate.chat.EMVideoMessageBody;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of {@link EMMessageHelper#toJson(EMMessage)} results keyed by msgId.
+ *
+ * Each entry remembers a version built from the state the SDK changes in place on a message
+ * (status, ack flags, times, body instance, download status and local paths), and a lookup whose
+ * version no longer matches encodes the message again. This also catches changes the plugin never
+ * hears about, such as an automatic thumbnail download. Changes the version cannot see (edited
+ * content, attributes, recalls, removal) are dropped with {@link #invalidate(String)}, or
+ * {@link #invalidateConversation(String)} when a whole conversation changes. An encode that overlaps
+ * an invalidation is returned but not cached. So one message state is encoded once however many
+ * events and calls return it.
+ *
+ * The cached maps are shared and returned frozen, see {@link EMMessageSchema.Record#freeze()}.
+ */
+final class EMMessageJsonCache {
+
+    private static final int MAX_SIZE = 256;
+
+    private static final class Entry {
+        final String conversationId;
+        final long version;
+        final Map<String, Object> json;
+
+        Entry(String conversationId, long version, Map<String, Object> json) {
+            this.conversationId = conversationId;
+            this.version = version;
+            this.json = json;
+        }
+    }
+
+    private static final Map<String, Entry> cache = new LinkedHashMap<String, Entry>(MAX_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    // 每次失效加一, 编码期间发生过失效的结果不缓存
+    private static long invalidations;
+
+    private EMMessageJsonCache() {}
+
+    static Map<String, Object> toJson(EMMessage message) {
+        String msgId = message.getMsgId();
+        if (msgId == null) {
+            return EMMessageHelper.toJson(message);
+        }
+        // 版本在编码前取, 编码期间消息变化时下次查找会重新编码
+        long version = versionOf(message);
+        long generation;
+        synchronized (cache) {
+            Entry entry = cache.get(msgId);
+            if (entry != null && entry.version == version) {
+                return entry.json;
+            }
+            generation = invalidations;
+        }
+        Map<String, Object> json = freeze(EMMessageHelper.toJson(message));
+        synchronized (cache) {
+            if (generation == invalidations) {
+                cache.put(msgId, new Entry(message.conversationId(), version, json));
+            }
+        }
+        return json;
+    }
+
+    static void invalidate(String msgId) {
+        if (msgId == null) return;
+        synchronized (cache) {
+            invalidations++;
+            cache.remove(msgId);
+        }
+    }
+
+    static void invalidateConversation(String conversationId) {
+        if (conversationId == null) return;
+        synchronized (cache) {
+            invalidations++;
+            Iterator<Entry> it = cache.values().iterator();
+            while (it.hasNext()) {
+                if (conversationId.equals(it.next().conversationId)) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    static void clear() {
+        synchronized (cache) {
+            invalidations++;
+            cache.clear();
+        }
+    }
+
+    private static long versionOf(EMMessage message) {
+        long version = message.status().ordinal();
+        version = version * 2 + (message.isAcked() ? 1 : 0);
+        version = version * 2 + (message.isDelivered() ? 1 : 0);
+        version = version * 2 + (message.isUnread() ? 1 : 0);
+        version = version * 2 + (message.isContentReplaced() ? 1 : 0);
+        version = version * 31 + message.getMsgTime();
+        version = version * 31 + message.localTime();
+        version = version * 31 + message.ext().size();
+        EMMessageBody body = message.getBody();
+        version = version * 31 + System.identityHashCode(body);
+        if (body instanceof EMFileMessageBody) {
+            EMFileMessageBody file = (EMFileMessageBody) body;
+            version = version * 31 + file.downloadStatus().ordinal();
+            version = version * 31 + hash(file.getLocalUrl());
+        }
+        if (body instanceof EMImageMessageBody) {
+            EMImageMessageBody image = (EMImageMessageBody) body;
+            version = version * 31 + image.thumbnailDownloadStatus().ordinal();
+            version = version * 31 + hash(image.thumbnailLocalPath());
+        } else if (body instanceof EMVideoMessageBody) {
+            EMVideoMessageBody video = (EMVideoMessageBody) body;
+            version = version * 31 + video.thumbnailDownloadStatus().ordinal();
+            version = version * 31 + hash(video.getLocalThumb());
+        }
+        return version;
+    }
+
+    private static int hash(String s) {
+        return s != null ? s.hashCode() : 0;
+    }
+
+    private static Map<String, Object> freeze(Map<String, Object> json) {
+        if (json instanceof EMMessageSchema.Record) {
+            return ((EMMessageSchema.Record) json).freeze();
+        }
+        return Collections.unmodifiableMap(json);
+    }
+}
@@ -0,0 +1,254 @@
+package com.easemob.im_flutter_sdk;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Field tables for the compact message record.
+ *
+ * A message (or body) is kept as a fixed-size value array indexed by the table below instead of a
+ * {@link HashMap}. On the JSON transport a {@link Record} is just another {@code Map} and serializes
+ * with its usual key names; on the standard transport {@link EMTransportCodec} writes it as the schema
+ * id followed by the values only, so long history pages no longer repeat every key for every message.
+ *
+ * The tables are mirrored by {@code ChatMessageSchema} on the Dart side. Fields are only ever
+ * appended; removing or reordering one requires bumping {@link #VERSION}.
+ */
+final class EMMessageSchema {
+
+    static final int VERSION = 1;
+
+    private static final String OPERATOR_ID = "operatorId";
+    private static final String OPERATOR_TIME = "operatorTime";
+    private static final String OPERATOR_COUNT = "operatorCount";
+
+    static final EMMessageSchema MESSAGE = new EMMessageSchema(0, null,
+            "msgId", "conversationId", "from", "to", "localTime", "serverTime", "status", "chatType",
+            "direction", "hasRead", "hasReadAck", "hasDeliverAck", "needGroupAck", "onlineState",
+            "broadcast", "isContentReplaced", "isThread", "attributes", "body");
+
+    static final EMMessageSchema TXT = new EMMessageSchema(1, "txt",
+            OPERATOR_ID, OPERATOR_TIME, OPERATOR_COUNT,
+            "content", "targetLanguages", "translations");
+
+    static final EMMessageSchema IMAGE = new EMMessageSchema(2, "img",
+            OPERATOR_ID, OPERATOR_TIME, OPERATOR_COUNT,
+            "localPath", "displayName", "remotePath", "secret", "fileStatus", "thumbnailLocalPath",
+            "thumbnailRemotePath", "thumbnailSecret", "height", "width", "sendOriginalImage", "fileSize");
+
+    static final EMMessageSchema LOCATION = new EMMessageSchema(3, "loc",
+            OPERATOR_ID, OPERATOR_TIME, OPERATOR_COUNT,
+            "latitude", "longitude", "buildingName", "address");
+
+    static final EMMessageSchema VIDEO = new EMMessageSchema(4, "video",
+            OPERATOR_ID, OPERATOR_TIME, OPERATOR_COUNT,
+            "localPath", "thumbnailLocalPath", "duration", "thumbnailRemotePath", "thumbnailSecret",
+            "displayName", "height", "width", "remotePath", "fileStatus", "secret", "fileSize");
+
+    static final EMMessageSchema VOICE = new EMMessageSchema(5, "voice",
+            OPERATOR_ID, OPERATOR_TIME, OPERATOR_COUNT,
+            "localPath", "duration", "displayName", "remotePath", "fileStatus", "secret", "fileSize");
+
+    static final EMMessageSchema FILE = new EMMessageSchema(6, "file",
+            OPERATOR_ID, OPERATOR_TIME, OPERATOR_COUNT,
+            "localPath", "fileSize", "displayName", "remotePath", "secret", "fileStatus");
+
+    static final EMMessageSchema CMD = new EMMessageSchema(7, "cmd",
+            OPERATOR_ID, OPERATOR_TIME, OPERATOR_COUNT,
+            "deliverOnlineOnly", "action");
+
+    static final EMMessageSchema CUSTOM = new EMMessageSchema(8, "custom",
+            OPERATOR_ID, OPERATOR_TIME, OPERATOR_COUNT,
+            "event", "params");
+
+    static final EMMessageSchema COMBINE = new EMMessageSchema(9, "combine",
+            OPERATOR_ID, OPERATOR_TIME, OPERATOR_COUNT,
+            "title", "summary", "compatibleText", "localPath", "remotePath", "secret", "fileStatus");
+
+    // 下标即 schema id
+    static final EMMessageSchema[] ALL = {
+            MESSAGE, TXT, IMAGE, LOCATION, VIDEO, VOICE, FILE, CMD, CUSTOM, COMBINE
+    };
+
+    private static final String TYPE = "type";
+
+    final int id;
+    // body 的类型由 schema id 表示, 不再单独占一个字段
+    final String type;
+    final String[] fields;
+    private final Map<String, Integer> index;
+
+    private EMMessageSchema(int id, String type, String... fields) {
+        this.id = id;
+        this.type = type;
+        this.fields = fields;
+        this.index = new HashMap<>(fields.length * 2);
+        for (int i = 0; i < fields.length; i++) {
+            index.put(fields[i], i);
+        }
+    }
+
+    Record newRecord() {
+        return new Record(this, null);
+    }
+
+    /**
+     * A record that only keeps the fields whose {@code keep} flag is set, null keeps every field.
+     */
+    Record newRecord(boolean[] keep) {
+        return new Record(this, keep);
+    }
+
+    /**
+     * A {@code Map} view over a value array laid out by an {@link EMMessageSchema}.
+     * Null slots are treated as absent, matching the keys the helpers used to leave out.
+     * Puts to a field the record does not keep are ignored; helpers check {@link #wants(String)}
+     * first so a dropped field is never read from the SDK.
+     */
+    static final class Record extends AbstractMap<String, Object> {
+
+        final EMMessageSchema schema;
+        final Object[] values;
+        private final boolean[] keep;
+        private boolean frozen;
+
+        private Record(EMMessageSchema schema, boolean[] keep) {
+            this.schema = schema;
+            this.values = new Object[schema.fields.length];
+            this.keep = keep;
+        }
+
+        /**
+         * Makes this record and its body read only, for records shared by {@link EMMessageJsonCache}.
+         */
+        Record freeze() {
+            frozen = true;
+            for (Object value : values) {
+                if (value instanceof Record) ((Record) value).freeze();
+            }
+            return this;
+        }
+
+        /**
+         * Whether {@code key} is kept by this record, i.e. worth computing.
+         */
+        boolean wants(String key) {
+            if (keep == null) return true;
+            Integer i = schema.index.get(key);
+            return i != null && keep[i];
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            if (frozen) {
+                throw new UnsupportedOperationException("shared message record");
+            }
+            if (schema.type != null && TYPE.equals(key)) {
+                if (!schema.type.equals(value)) {
+                    throw new IllegalArgumentException("body type " + value + " does not match schema " + schema.type);
+                }
+                return schema.type;
+            }
+            Integer i = schema.index.get(key);
+            if (i == null) {
+                throw new IllegalArgumentException("field " + key + " is not part of message schema " + schema.id);
+            }
+            if (keep != null && !keep[i]) {
+                return null;
+            }
+            Object old = values[i];
+            values[i] = value;
+            return old;
+        }
+
+        @Override
+        public Object get(Object key) {
+            if (schema.type != null && TYPE.equals(key)) {
+                return schema.type;
+            }
+            Integer i = schema.index.get(key);
+            return i == null ? null : values[i];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Object remove(Object key) {
+            if (frozen) {
+                throw new UnsupportedOperationException("shared message record");
+            }
+            Integer i = schema.index.get(key);
+            if (i == null) {
+                return null;
+            }
+            Object old = values[i];
+            values[i] = null;
+            return old;
+        }
+
+        @Override
+        public int size() {
+            int size = schema.type != null ? 1 : 0;
+            for (Object value : values) {
+                if (value != null) size++;
+            }
+            return size;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return Record.this.size();
+                }
+            };
+        }
+
+        private final class EntryIterator implements Iterator<Entry<String, Object>> {
+            // -1 表示 body 的 type 字段
+            private int next = schema.type != null ? -1 : advance(0);
+
+            private int advance(int from) {
+                while (from < values.length && values[from] == null) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < values.length;
+            }
+
+            @Override
+            public Entry<String, Object> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Entry<String, Object> entry;
+                if (next == -1) {
+                    entry = new SimpleImmutableEntry<>(TYPE, (Object) schema.type);
+                    next = advance(0);
+                } else {
+                    entry = new SimpleImmutableEntry<>(schema.fields[next], values[next]);
+                    next = advance(next + 1);
+                }
+                return entry;
+            }
+        }
+    }
+}
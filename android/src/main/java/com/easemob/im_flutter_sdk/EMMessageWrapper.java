@@ -13,39 +13,22 @@ import java.util.List;
 import java.util.Map;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
-import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.MethodCodec;
 
 public class EMMessageWrapper extends EMWrapper implements MethodChannel.MethodCallHandler {
-    public EMMessageWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName) {
-        super(flutterPluginBinding, channelName);
+    public EMMessageWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName, MethodCodec codec) {
+        super(flutterPluginBinding, channelName, codec);
+        registerMethods();
     }
 
 
-    @Override
-    public void onMethodCall(MethodCall call, MethodChannel.Result result) {
-
-        JSONObject param = (JSONObject)call.arguments;
-
-        try {
-            if (EMSDKMethod.getReactionList.equals(call.method)) {
-                reactionList(param, call.method, result);
-            }else if (EMSDKMethod.groupAckCount.equals(call.method)){
-                getAckCount(param, call.method, result);
-            }else if (EMSDKMethod.getChatThread.equals(call.method)) {
-                getChatThread(param, call.method, result);
-            }
-            // 450
-            else if (EMSDKMethod.getPinInfo.equals(call.method)) {
-                getPinInfo(param, call.method, result);
-            }
-            else
-            {
-                super.onMethodCall(call, result);
-            }
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
+    private void registerMethods() {
+        registerMethod(EMSDKMethod.getReactionList, this::reactionList);
+        registerMethod(EMSDKMethod.groupAckCount, this::getAckCount);
+        registerMethod(EMSDKMethod.getChatThread, this::getChatThread);
+        // 450
+        registerMethod(EMSDKMethod.getPinInfo, this::getPinInfo);
     }
 
 
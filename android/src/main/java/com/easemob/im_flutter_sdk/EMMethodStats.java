@@ -0,0 +1,127 @@
+package com.easemob.im_flutter_sdk;
+
+import android.os.SystemClock;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Call counters of one channel method, kept next to its handler in the {@link EMWrapper} registry.
+ *
+ * A call is timed from dispatch until its reply is handed to flutter, so asynchronous methods are
+ * measured end to end. A reply carrying {@code error}, a {@code Result.error} and a handler that
+ * threw all count as errors. Every counter of every wrapper is read by flutter through
+ * {@code getMethodStats}, see {@link #snapshot()}.
+ */
+final class EMMethodStats {
+
+    private static final Map<String, EMMethodStats> all = new ConcurrentHashMap<>();
+
+    final String channel;
+    final String method;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong totalMs = new AtomicLong();
+    private final AtomicLong maxMs = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    private EMMethodStats(String channel, String method) {
+        this.channel = channel;
+        this.method = method;
+    }
+
+    static EMMethodStats of(String channel, String method) {
+        String key = channel + "/" + method;
+        EMMethodStats stats = all.get(key);
+        if (stats == null) {
+            all.putIfAbsent(key, new EMMethodStats(channel, method));
+            stats = all.get(key);
+        }
+        return stats;
+    }
+
+    /**
+     * Counters of every method that has been called, keyed by {@code channel/method}. Each value has
+     * {@code calls}, {@code errors}, {@code totalMs}, {@code maxMs} and {@code timeouts}.
+     */
+    static Map<String, Object> snapshot() {
+        Map<String, Object> data = new HashMap<>();
+        for (Map.Entry<String, EMMethodStats> entry : all.entrySet()) {
+            EMMethodStats stats = entry.getValue();
+            if (stats.calls.get() == 0) continue;
+            Map<String, Object> item = new HashMap<>();
+            item.put("calls", stats.calls.get());
+            item.put("errors", stats.errors.get());
+            item.put("totalMs", stats.totalMs.get());
+            item.put("maxMs", stats.maxMs.get());
+            item.put("timeouts", stats.timeouts.get());
+            data.put(entry.getKey(), item);
+        }
+        return data;
+    }
+
+    static void reset() {
+        for (EMMethodStats stats : all.values()) {
+            stats.calls.set(0);
+            stats.errors.set(0);
+            stats.totalMs.set(0);
+            stats.maxMs.set(0);
+            stats.timeouts.set(0);
+        }
+    }
+
+    long start() {
+        calls.incrementAndGet();
+        return SystemClock.elapsedRealtime();
+    }
+
+    // 超时的调用同时也算一次错误, 由回复计入
+    void timeout() {
+        timeouts.incrementAndGet();
+    }
+
+    void finish(long start, boolean error) {
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        if (error) errors.incrementAndGet();
+        totalMs.addAndGet(elapsed);
+        long max;
+        while (elapsed > (max = maxMs.get())) {
+            if (maxMs.compareAndSet(max, elapsed)) break;
+        }
+    }
+
+    /**
+     * Wraps {@code result} so the first reply finishes this call. Later replies, such as a timeout
+     * racing the SDK callback, are dropped instead of answering flutter twice.
+     */
+    MethodChannel.Result track(MethodChannel.Result result, long start) {
+        AtomicBoolean replied = new AtomicBoolean();
+        return new MethodChannel.Result() {
+            @Override
+            public void success(Object data) {
+                if (!replied.compareAndSet(false, true)) return;
+                finish(start, data instanceof Map && ((Map<?, ?>) data).containsKey("error"));
+                result.success(data);
+            }
+
+            @Override
+            public void error(String errorCode, String errorMessage, Object errorDetails) {
+                if (!replied.compareAndSet(false, true)) return;
+                finish(start, true);
+                result.error(errorCode, errorMessage, errorDetails);
+            }
+
+            @Override
+            public void notImplemented() {
+                if (!replied.compareAndSet(false, true)) return;
+                finish(start, true);
+                result.notImplemented();
+            }
+        };
+    }
+}
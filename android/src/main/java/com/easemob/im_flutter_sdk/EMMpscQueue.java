@@ -0,0 +1,69 @@
+package com.easemob.im_flutter_sdk;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded lock-free queue for many producers and one consumer.
+ *
+ * Producers claim a slot by a CAS on the tail index and then publish the element into it. The
+ * consumer is the only thread that reads slots and moves the head. An element whose slot is claimed
+ * but not yet published is waited for by the consumer only, so {@link #offer} never blocks. It
+ * returns false when the queue is full.
+ */
+final class EMMpscQueue<E> {
+
+    private final AtomicReferenceArray<E> buffer;
+    private final int mask;
+    private final int capacity;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    EMMpscQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.capacity = size;
+    }
+
+    boolean offer(E e) {
+        long limit = consumerIndex.get() + capacity;
+        long index;
+        do {
+            index = producerIndex.get();
+            if (index >= limit) {
+                limit = consumerIndex.get() + capacity;
+                if (index >= limit) {
+                    return false;
+                }
+            }
+        } while (!producerIndex.compareAndSet(index, index + 1));
+        buffer.lazySet((int) (index & mask), e);
+        return true;
+    }
+
+    /**
+     * Consumer thread only.
+     */
+    E poll() {
+        long index = consumerIndex.get();
+        int offset = (int) (index & mask);
+        E e = buffer.get(offset);
+        if (e == null) {
+            if (index == producerIndex.get()) {
+                return null;
+            }
+            // 生产者已占位, 元素马上就会写入
+            do {
+                e = buffer.get(offset);
+            } while (e == null);
+        }
+        buffer.lazySet(offset, null);
+        consumerIndex.lazySet(index + 1);
+        return e;
+    }
+
+    boolean isEmpty() {
+        return consumerIndex.get() == producerIndex.get();
+    }
+}
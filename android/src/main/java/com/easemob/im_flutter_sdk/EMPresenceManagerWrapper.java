@@ -1,5 +1,6 @@
 package com.easemob.im_flutter_sdk;
 
+import com.hyphenate.EMConnectionListener;
 import com.hyphenate.EMContactListener;
 import com.hyphenate.EMPresenceListener;
 import com.hyphenate.chat.EMClient;
@@ -12,53 +13,49 @@ import org.json.JSONObject;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
-import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
-import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
+import io.flutter.plugin.common.MethodCodec;
 
 public class EMPresenceManagerWrapper  extends EMWrapper implements MethodChannel.MethodCallHandler {
 
     private EMPresenceListener presenceListener;
+    private EMConnectionListener connectionListener;
 
-    EMPresenceManagerWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName) {
-        super(flutterPluginBinding, channelName);
+    // 订阅用户的最新状态, 订阅有效时直接回答 fetchPresenceStatus
+    private final EMPresenceStore presenceStore = new EMPresenceStore(this::sendPresences);
+
+    EMPresenceManagerWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName, MethodCodec codec) {
+        super(flutterPluginBinding, channelName, codec);
+        registerMethods();
         registerEaseListener();
     }
 
-    @Override
-    public void onMethodCall(MethodCall call, MethodChannel.Result result) {
-        JSONObject param = (JSONObject) call.arguments;
-        try {
-            if (EMSDKMethod.presenceWithDescription.equals(call.method)) {
-                publishPresenceWithDescription(param, call.method, result);
-            } else if (EMSDKMethod.presenceSubscribe.equals(call.method)) {
-                subscribe(param, call.method, result);
-            } else if (EMSDKMethod.presenceUnsubscribe.equals(call.method)) {
-                unsubscribe(param, call.method, result);
-            } else if (EMSDKMethod.fetchPresenceStatus.equals(call.method)) {
-                fetchPresenceStatus(param, call.method, result);
-            } else if (EMSDKMethod.fetchSubscribedMembersWithPageNum.equals(call.method)) {
-                fetchSubscribedMembersWithPageNum(param, call.method, result);
-            }
-            else {
-                super.onMethodCall(call, result);
-            }
-        } catch (JSONException e) {
-            super.onMethodCall(call, result);
-        }
+    void setPresenceEventInterval(long windowMs) {
+        presenceStore.setWindow(windowMs);
+    }
+
+    private void registerMethods() {
+        registerMethod(EMSDKMethod.presenceWithDescription, this::publishPresenceWithDescription);
+        registerMethod(EMSDKMethod.presenceSubscribe, this::subscribe);
+        registerMethod(EMSDKMethod.presenceUnsubscribe, this::unsubscribe);
+        registerMethod(EMSDKMethod.fetchPresenceStatus, this::fetchPresenceStatus);
+        registerMethod(EMSDKMethod.fetchSubscribedMembersWithPageNum, this::fetchSubscribedMembersWithPageNum);
     }
 
     private void publishPresenceWithDescription(JSONObject params, String channelName, Result result) throws JSONException {
         String desc = params.getString("desc");
-        EMClient.getInstance().presenceManager().publishPresence(desc, new EMWrapperCallBack(result, channelName, true));
+        EMFuture<Boolean> future = new EMFuture<>();
+        EMClient.getInstance().presenceManager().publishPresence(desc, future.callBack(true));
+        reply(result, channelName, future);
     }
 
     private void subscribe(JSONObject params, String channelName, Result result) throws JSONException {
@@ -74,18 +71,13 @@ public class EMPresenceManagerWrapper  extends EMWrapper implements MethodChanne
             expiry = params.getInt("expiry");
         }
 
-        EMValueWrapperCallBack<List<EMPresence>> callBack = new EMValueWrapperCallBack<List<EMPresence>>(result, channelName) {
-            @Override
-            public void onSuccess(List<EMPresence> object) {
-                List<Map> list = new ArrayList<>();
-                for (EMPresence presence: object) {
-                    list.add(EMPresenceHelper.toJson(presence));
-                }
-                super.updateObject(list);
-            }
-        };
-
-        EMClient.getInstance().presenceManager().subscribePresences(members, expiry, callBack);
+        long expirySeconds = expiry;
+        EMFuture<List<EMPresence>> future = new EMFuture<>();
+        EMClient.getInstance().presenceManager().subscribePresences(members, expiry, future.valueCallBack());
+        reply(result, channelName, future.then(presences -> {
+            presenceStore.subscribed(members, expirySeconds, presences);
+            return toJsonList(presences);
+        }));
     }
 
     private void unsubscribe(JSONObject params, String channelName, Result result) throws JSONException {
@@ -96,18 +88,20 @@ public class EMPresenceManagerWrapper  extends EMWrapper implements MethodChanne
                 members.add(array.getString(i));
             }
         }
-        EMClient.getInstance().presenceManager().unsubscribePresences(members, new EMWrapperCallBack(result, channelName, null));
+        EMFuture<Object> future = new EMFuture<>();
+        EMClient.getInstance().presenceManager().unsubscribePresences(members, future.callBack(null));
+        future.whenComplete((value, e) -> {
+            if (e == null) presenceStore.unsubscribed(members);
+        });
+        reply(result, channelName, future);
     }
 
     private void fetchSubscribedMembersWithPageNum(JSONObject params, String channelName, Result result) throws JSONException {
         int pageSize = params.getInt("pageSize");
         int pageNum = params.getInt("pageNum");
-        EMClient.getInstance().presenceManager().fetchSubscribedMembers(pageNum, pageSize, new EMValueWrapperCallBack<List<String>>(result ,channelName){
-            @Override
-            public void onSuccess(List<String> object) {
-                super.onSuccess(object);
-            }
-        });
+        EMFuture<List<String>> future = new EMFuture<>();
+        EMClient.getInstance().presenceManager().fetchSubscribedMembers(pageNum, pageSize, future.valueCallBack());
+        reply(result, channelName, future);
     }
 
     private void fetchPresenceStatus(JSONObject params, String channelName, Result result) throws JSONException {
@@ -118,38 +112,92 @@ public class EMPresenceManagerWrapper  extends EMWrapper implements MethodChanne
                 members.add(array.getString(i));
             }
         }
-        EMClient.getInstance().presenceManager().fetchPresenceStatus(members, new EMValueWrapperCallBack<List<EMPresence>>(result, channelName){
-            @Override
-            public void onSuccess(List<EMPresence> object) {
-                List<Map> list = new ArrayList<>();
-                for (EMPresence presence: object) {
-                    list.add(EMPresenceHelper.toJson(presence));
+        Map<String, EMPresence> cached = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String member : members) {
+            EMPresence presence = presenceStore.cached(member);
+            if (presence != null) {
+                cached.put(member, presence);
+            } else {
+                missing.add(member);
+            }
+        }
+        if (missing.isEmpty()) {
+            reply(result, channelName, EMFuture.completed(cached).then(found -> toJsonList(inOrder(members, found))));
+            return;
+        }
+        EMFuture<List<EMPresence>> future = new EMFuture<>();
+        EMClient.getInstance().presenceManager().fetchPresenceStatus(missing, future.valueCallBack());
+        reply(result, channelName, future.then(presences -> {
+            presenceStore.fetched(presences);
+            Map<String, EMPresence> found = new HashMap<>(cached);
+            if (presences != null) {
+                for (EMPresence presence : presences) {
+                    found.put(presence.getPublisher(), presence);
                 }
-                super.updateObject(list);
             }
-        });
+            return toJsonList(inOrder(members, found));
+        }));
+    }
+
+    // 缓存和服务器的结果按 members 的顺序合并, 不在 members 里的放在最后
+    private static List<EMPresence> inOrder(List<String> members, Map<String, EMPresence> found) {
+        Map<String, EMPresence> rest = new LinkedHashMap<>(found);
+        List<EMPresence> list = new ArrayList<>();
+        for (String member : members) {
+            EMPresence presence = rest.remove(member);
+            if (presence != null) {
+                list.add(presence);
+            }
+        }
+        list.addAll(rest.values());
+        return list;
     }
+
+    private static List<Map> toJsonList(List<EMPresence> presences) {
+        List<Map> list = new ArrayList<>();
+        for (EMPresence presence: presences) {
+            list.add(EMPresenceHelper.toJson(presence));
+        }
+        return list;
+    }
+
     private void registerEaseListener() {
 
         if (presenceListener != null) {
             EMClient.getInstance().presenceManager().removeListener(presenceListener);
         }
 
-        presenceListener = presences -> {
-            Map<String, Object> data = new HashMap<>();
-            List<Map> list = new ArrayList<>();
-            for (EMPresence presence: presences) {
-                list.add(EMPresenceHelper.toJson(presence));
-            }
-            data.put("presences", list);
+        presenceListener = presenceStore::update;
+        EMClient.getInstance().presenceManager().addListener(presenceListener);
 
-            post(() -> channel.invokeMethod(EMSDKMethod.onPresenceStatusChanged, data));
+        if (connectionListener != null) {
+            EMClient.getInstance().removeConnectionListener(connectionListener);
+        }
+        // 断线期间的变化不会推送, 缓存不再可信
+        connectionListener = new EMConnectionListener() {
+            @Override
+            public void onConnected() {}
+
+            @Override
+            public void onDisconnected(int errorCode) {
+                presenceStore.clear();
+            }
         };
-        EMClient.getInstance().presenceManager().addListener(presenceListener);
+        EMClient.getInstance().addConnectionListener(connectionListener);
+    }
+
+    private void sendPresences(List<EMPresence> presences) {
+        if (!eventFilter.acceptsEvent(EMSDKMethod.onPresenceStatusChanged, null)) return;
+        Map<String, Object> data = new HashMap<>();
+        data.put("presences", toJsonList(presences));
+        sendEvent(EMSDKMethod.onPresenceStatusChanged, data);
     }
 
     @Override
     public void unRegisterEaseListener(){
         EMClient.getInstance().presenceManager().removeListener(presenceListener);
+        EMClient.getInstance().removeConnectionListener(connectionListener);
+        presenceStore.clear();
     }
 }
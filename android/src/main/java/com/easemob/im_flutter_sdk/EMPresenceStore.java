@@ -0,0 +1,155 @@
+package com.easemob.im_flutter_sdk;
+
+import android.os.SystemClock;
+
+import com.hyphenate.chat.EMPresence;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The latest presence of each subscribed user, kept up to date by the presence listener.
+ *
+ * While a subscription is valid the SDK pushes every change, so {@link #cached(String)} can answer
+ * {@code fetchPresenceStatus} without the server. The store forgets everything when the connection
+ * drops, since changes made while offline are never pushed.
+ *
+ * Listener updates that repeat the cached value are dropped. With a window set, the first update
+ * schedules a flush, and a user who changes several times within the window is only sent once, with
+ * the latest presence. Windows are converted and sent off the main looper one after another, so they
+ * reach flutter in the order they were flushed.
+ */
+final class EMPresenceStore {
+
+    interface Sender {
+        void send(List<EMPresence> presences);
+    }
+
+    private final Sender sender;
+    private volatile long windowMs;
+    // 各个窗口依次发送, 后一个窗口不会先于前一个到达 flutter
+    private final EMSerialExecutor sends = new EMSerialExecutor();
+
+    private final Map<String, EMPresence> latest = new HashMap<>();
+    // 订阅到期时间, SystemClock.elapsedRealtime
+    private final Map<String, Long> subscribedUntil = new HashMap<>();
+    private Map<String, EMPresence> dirty = new LinkedHashMap<>();
+    private boolean scheduled;
+
+    EMPresenceStore(Sender sender) {
+        this.sender = sender;
+    }
+
+    void setWindow(long windowMs) {
+        this.windowMs = Math.max(0, windowMs);
+    }
+
+    synchronized void subscribed(List<String> members, long expirySeconds, List<EMPresence> presences) {
+        long until = SystemClock.elapsedRealtime() + expirySeconds * 1000;
+        for (String member : members) {
+            subscribedUntil.put(member, until);
+        }
+        put(presences);
+    }
+
+    synchronized void unsubscribed(List<String> members) {
+        for (String member : members) {
+            subscribedUntil.remove(member);
+            latest.remove(member);
+        }
+    }
+
+    /**
+     * The cached presence of {@code member}, or null if it is unknown or its subscription has expired.
+     */
+    synchronized EMPresence cached(String member) {
+        Long until = subscribedUntil.get(member);
+        if (until == null || until <= SystemClock.elapsedRealtime()) {
+            subscribedUntil.remove(member);
+            latest.remove(member);
+            return null;
+        }
+        return latest.get(member);
+    }
+
+    /**
+     * Keeps presences fetched from the server for subscribed users.
+     */
+    synchronized void fetched(List<EMPresence> presences) {
+        put(presences);
+    }
+
+    void update(List<EMPresence> presences) {
+        long window = windowMs;
+        List<EMPresence> changed = new ArrayList<>();
+        synchronized (this) {
+            for (EMPresence presence : presences) {
+                EMPresence old = latest.get(presence.getPublisher());
+                if (old != null && same(old, presence)) continue;
+                if (subscribedUntil.containsKey(presence.getPublisher())) {
+                    latest.put(presence.getPublisher(), presence);
+                }
+                changed.add(presence);
+            }
+            if (changed.isEmpty()) return;
+            if (window > 0) {
+                for (EMPresence presence : changed) {
+                    // 重新放入, 按最后一次变化排序
+                    dirty.remove(presence.getPublisher());
+                    dirty.put(presence.getPublisher(), presence);
+                }
+                if (scheduled) return;
+                scheduled = true;
+            }
+        }
+        if (window > 0) {
+            ImFlutterSdkPlugin.handler.postDelayed(this::flush, window);
+        } else {
+            sender.send(changed);
+        }
+    }
+
+    synchronized void clear() {
+        latest.clear();
+        subscribedUntil.clear();
+    }
+
+    private void flush() {
+        List<EMPresence> batch;
+        synchronized (this) {
+            batch = new ArrayList<>(dirty.values());
+            dirty = new LinkedHashMap<>();
+            scheduled = false;
+        }
+        if (!batch.isEmpty()) {
+            // 转换放到后台, 不占用主线程
+            sends.execute("presences", () -> sender.send(batch));
+        }
+    }
+
+    // 只保留订阅中的用户, 并且不用较旧的结果覆盖推送来的新状态
+    private void put(List<EMPresence> presences) {
+        if (presences == null) return;
+        for (EMPresence presence : presences) {
+            String publisher = presence.getPublisher();
+            if (!subscribedUntil.containsKey(publisher)) continue;
+            EMPresence old = latest.get(publisher);
+            if (old == null || old.getLatestTime() <= presence.getLatestTime()) {
+                latest.put(publisher, presence);
+            }
+        }
+    }
+
+    private static boolean same(EMPresence a, EMPresence b) {
+        return a.getLatestTime() == b.getLatestTime()
+                && equals(a.getExt(), b.getExt())
+                && equals(a.getStatusList(), b.getStatusList());
+    }
+
+    private static boolean equals(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
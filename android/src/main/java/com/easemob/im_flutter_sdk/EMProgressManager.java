@@ -9,11 +9,12 @@ import java.util.Map;
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
 import io.flutter.plugin.common.JSONMethodCodec;
 import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.MethodCodec;
 
 public class EMProgressManager extends EMWrapper implements MethodChannel.MethodCallHandler {
 
-    public EMProgressManager(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName) {
-        super(flutterPluginBinding, channelName);
+    public EMProgressManager(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName, MethodCodec codec) {
+        super(flutterPluginBinding, channelName, codec);
     }
 
     public void sendDownloadProgressToFlutter(String fileId, int progress){
@@ -22,79 +22,37 @@ import java.util.List;
 import java.util.Map;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
-import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
 import io.flutter.plugin.common.PluginRegistry;
+import io.flutter.plugin.common.MethodCodec;
 
 
 public class EMPushManagerWrapper extends EMWrapper implements MethodCallHandler {
 
-    EMPushManagerWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName) {
-        super(flutterPluginBinding, channelName);
-    }
-
-    @Override
-    public void onMethodCall(MethodCall call, Result result) {
-        JSONObject param = (JSONObject)call.arguments;
-        try {
-            if (EMSDKMethod.getImPushConfig.equals(call.method)) {
-                getImPushConfig(param, call.method, result);
-            }
-            else if(EMSDKMethod.getImPushConfigFromServer.equals(call.method)){
-                getImPushConfigFromServer(param, call.method, result);
-            }
-            else if(EMSDKMethod.updatePushNickname.equals(call.method)){
-                updatePushNickname(param, call.method, result);
-            }
-            else if(EMSDKMethod.updateImPushStyle.equals(call.method)){
-                updateImPushStyle(param, call.method, result);
-            }
-            else if(EMSDKMethod.updateHMSPushToken.equals(call.method)){
-                updateHMSPushToken(param, call.method, result);
-            }
-            else if(EMSDKMethod.updateFCMPushToken.equals(call.method)){
-                updateFCMPushToken(param, call.method, result);
-            }
-            else if (EMSDKMethod.reportPushAction.equals(call.method)) {
-                reportPushAction(param, call.method, result);
-            }
-            else if (EMSDKMethod.setConversationSilentMode.equals(call.method)) {
-                setConversationSilentMode(param, call.method, result);
-            }
-            else if (EMSDKMethod.removeConversationSilentMode.equals(call.method)) {
-                removeConversationSilentMode(param, call.method, result);
-            }
-            else if (EMSDKMethod.fetchConversationSilentMode.equals(call.method)) {
-                fetchConversationSilentMode(param, call.method, result);
-            }
-            else if (EMSDKMethod.setSilentModeForAll.equals(call.method)) {
-                setSilentModeForAll(param, call.method, result);
-            }
-            else if (EMSDKMethod.fetchSilentModeForAll.equals(call.method)) {
-                fetchSilentModeForAll(param, call.method, result);
-            }
-            else if (EMSDKMethod.fetchSilentModeForConversations.equals(call.method)) {
-                fetchSilentModeForConversations(param, call.method, result);
-            }
-            else if (EMSDKMethod.setPreferredNotificationLanguage.equals(call.method)) {
-                setPreferredNotificationLanguage(param, call.method, result);
-            }
-            else if (EMSDKMethod.fetchPreferredNotificationLanguage.equals(call.method)) {
-                fetchPreferredNotificationLanguage(param, call.method, result);
-            }
-            else if (EMSDKMethod.getPushTemplate.equals(call.method)) {
-                getPushTemplate(param, call.method, result);
-            }
-            else if (EMSDKMethod.setPushTemplate.equals(call.method)) {
-                setPushTemplate(param, call.method, result);
-            }
-            else {
-                super.onMethodCall(call, result);
-            }
-        }catch (JSONException e) {
-
-        }
+    EMPushManagerWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName, MethodCodec codec) {
+        super(flutterPluginBinding, channelName, codec);
+        registerMethods();
+    }
+
+    private void registerMethods() {
+        registerMethod(EMSDKMethod.getImPushConfig, this::getImPushConfig);
+        registerMethod(EMSDKMethod.getImPushConfigFromServer, this::getImPushConfigFromServer);
+        registerMethod(EMSDKMethod.updatePushNickname, this::updatePushNickname);
+        registerMethod(EMSDKMethod.updateImPushStyle, this::updateImPushStyle);
+        registerMethod(EMSDKMethod.updateHMSPushToken, this::updateHMSPushToken);
+        registerMethod(EMSDKMethod.updateFCMPushToken, this::updateFCMPushToken);
+        registerMethod(EMSDKMethod.reportPushAction, this::reportPushAction);
+        registerMethod(EMSDKMethod.setConversationSilentMode, this::setConversationSilentMode);
+        registerMethod(EMSDKMethod.removeConversationSilentMode, this::removeConversationSilentMode);
+        registerMethod(EMSDKMethod.fetchConversationSilentMode, this::fetchConversationSilentMode);
+        registerMethod(EMSDKMethod.setSilentModeForAll, this::setSilentModeForAll);
+        registerMethod(EMSDKMethod.fetchSilentModeForAll, this::fetchSilentModeForAll);
+        registerMethod(EMSDKMethod.fetchSilentModeForConversations, this::fetchSilentModeForConversations);
+        registerMethod(EMSDKMethod.setPreferredNotificationLanguage, this::setPreferredNotificationLanguage);
+        registerMethod(EMSDKMethod.fetchPreferredNotificationLanguage, this::fetchPreferredNotificationLanguage);
+        registerMethod(EMSDKMethod.getPushTemplate, this::getPushTemplate);
+        registerMethod(EMSDKMethod.setPushTemplate, this::setPushTemplate);
     }
 
     private void getImPushConfig(JSONObject params, String channelName,  Result result) throws JSONException {
@@ -20,6 +20,10 @@ public class EMSDKMethod {
     static final String getCurrentUser = "getCurrentUser";
     static final String isLoggedInBefore = "isLoggedInBefore";
     static final String isConnected = "isConnected";
+    static final String batch = "batch";
+    static final String setEventFilter = "setEventFilter";
+    static final String getMethodStats = "getMethodStats";
+    static final String getSchedulerMetrics = "getSchedulerMetrics";
 
     static final String onConnected = "onConnected";
     static final String onDisconnected = "onDisconnected";
@@ -62,6 +66,7 @@ public class EMSDKMethod {
 
     /// EMChatManager methods
     static final String sendMessage = "sendMessage";
+    static final String cancelRequest = "cancelRequest";
     static final String resendMessage = "resendMessage";
     static final String ackMessageRead = "ackMessageRead";
     static final String ackGroupMessageRead = "ackGroupMessageRead";
@@ -112,6 +117,7 @@ public class EMSDKMethod {
     static final String onGroupMessageRead = "onGroupMessageRead";
     static final String onReadAckForGroupMessageUpdated = "onReadAckForGroupMessageUpdated";
     static final String onMessagesDelivered = "onMessagesDelivered";
+    static final String onAckWatermarks = "onAckWatermarks";
     static final String onMessagesRecalled = "onMessagesRecalled";
 
     static final String onConversationUpdate = "onConversationUpdate";
@@ -0,0 +1,289 @@
+package com.easemob.im_flutter_sdk;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The worker pool behind {@link EMWrapper#asyncRunnable(Runnable)}, shared by every wrapper and
+ * created by {@link EMClientWrapper}.
+ *
+ * Work is queued on one of three lanes. Idle workers always take {@link Lane#INTERACTIVE} first,
+ * then {@link Lane#NORMAL}, then {@link Lane#BULK}. At most {@code maxWorkers} threads exist. One of
+ * them is kept for interactive work, and bulk work may use at most a quarter of them, so a sync
+ * storm or a large import cannot hold up a getConversation. Workers start on demand and stop after
+ * a minute idle.
+ *
+ * Each lane has a queue capacity. {@link EMWrapper} checks {@link #isSaturated(Lane)} before
+ * dispatching a call and answers a full lane with an error, counted by {@link #reject(Lane)},
+ * instead of queueing without bound. Bulk work is served by fewer workers and arrives in bursts,
+ * e.g. one history fetch per conversation after login, so its queue is the deepest.
+ * {@link #metrics()} reports the queue depth, peak, rejections and active workers of each lane;
+ * flutter reads it through {@code getSchedulerMetrics}.
+ *
+ * A call whose deadline expires while its task is stuck in a synchronous SDK method gives its
+ * worker up through {@link #detach}. The worker stops counting against the pool, a replacement
+ * starts if work is queued, and the stuck thread exits once the SDK returns.
+ */
+final class EMScheduler {
+
+    enum Lane {
+        INTERACTIVE, NORMAL, BULK
+    }
+
+    // 本地读取, 界面直接等待结果
+    private static final Set<String> INTERACTIVE_METHODS = new HashSet<>(Arrays.asList(
+            EMSDKMethod.getConversation, EMSDKMethod.getThreadConversation, EMSDKMethod.getMessage,
+            EMSDKMethod.getUnreadMessageCount, EMSDKMethod.getUnreadMsgCount, EMSDKMethod.loadMsgWithId,
+            EMSDKMethod.getLatestMessage, EMSDKMethod.getLatestMessageFromOthers, EMSDKMethod.messageCount,
+            EMSDKMethod.markMessageAsRead, EMSDKMethod.markAllMessagesAsRead, EMSDKMethod.getGroupWithId,
+            EMSDKMethod.getChatRoom, EMSDKMethod.getPinInfo, EMSDKMethod.isConnected,
+            EMSDKMethod.getCurrentUser, EMSDKMethod.getToken, EMSDKMethod.cancelRequest,
+            EMSDKMethod.getMethodStats, EMSDKMethod.getSchedulerMetrics));
+
+    // 大批量读写, 可以慢一点完成
+    private static final Set<String> BULK_METHODS = new HashSet<>(Arrays.asList(
+            EMSDKMethod.importMessages, EMSDKMethod.deleteAllMessageAndConversation,
+            EMSDKMethod.loadAllConversations, EMSDKMethod.searchChatMsgFromDB,
+            EMSDKMethod.fetchHistoryMessages, EMSDKMethod.fetchHistoryMessagesByOptions,
+            EMSDKMethod.getConversationsFromServer, EMSDKMethod.fetchConversationsFromServerWithPage,
+            EMSDKMethod.deleteMessagesBeforeTimestamp, EMSDKMethod.uploadLog, EMSDKMethod.compressLogs,
+            EMSDKMethod.uploadGroupSharedFile, EMSDKMethod.downloadGroupSharedFile,
+            EMSDKMethod.getJoinedGroupsFromServer, EMSDKMethod.fetchAllContacts,
+            EMSDKMethod.getAllContactsFromServer, EMSDKMethod.fetchPublicChatRoomsFromServer));
+
+    private static final long KEEP_ALIVE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    // 工作线程把当前任务的 lane 留给它提交的后续任务
+    private static final ThreadLocal<Lane> currentLane = new ThreadLocal<>();
+
+    private final int maxWorkers;
+    private final int maxBulkWorkers;
+    private final int[] capacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final ArrayDeque<Runnable>[] queues;
+    private final int[] active = new int[Lane.values().length];
+    private final int[] peak = new int[Lane.values().length];
+    private final long[] submitted = new long[Lane.values().length];
+    private final long[] rejected = new long[Lane.values().length];
+    // 工作线程 -> 正在执行的任务
+    private final Map<Thread, Runnable> running = new HashMap<>();
+    private final Set<Thread> detached = new HashSet<>();
+    private int workers;
+    private int idleWorkers;
+    private int nextWorkerId;
+
+    EMScheduler() {
+        this(Math.max(4, Runtime.getRuntime().availableProcessors() * 2), 256, 256, 1024);
+    }
+
+    @SuppressWarnings("unchecked")
+    EMScheduler(int maxWorkers, int interactiveCapacity, int normalCapacity, int bulkCapacity) {
+        this.maxWorkers = Math.max(2, maxWorkers);
+        this.maxBulkWorkers = Math.max(1, this.maxWorkers / 4);
+        this.capacity = new int[]{interactiveCapacity, normalCapacity, bulkCapacity};
+        this.queues = new ArrayDeque[Lane.values().length];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ArrayDeque<>();
+        }
+    }
+
+    static Lane laneOf(String method) {
+        if (INTERACTIVE_METHODS.contains(method)) return Lane.INTERACTIVE;
+        if (BULK_METHODS.contains(method)) return Lane.BULK;
+        return Lane.NORMAL;
+    }
+
+    /**
+     * The lane of the call being dispatched or run on this thread, {@link Lane#NORMAL} otherwise.
+     */
+    static Lane currentLane() {
+        Lane lane = currentLane.get();
+        return lane != null ? lane : Lane.NORMAL;
+    }
+
+    static void setCurrentLane(Lane lane) {
+        if (lane == null) {
+            currentLane.remove();
+        } else {
+            currentLane.set(lane);
+        }
+    }
+
+    boolean isSaturated(Lane lane) {
+        lock.lock();
+        try {
+            return queues[lane.ordinal()].size() >= capacity[lane.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Counts a call that was answered with an error because {@code lane} was saturated.
+     */
+    void reject(Lane lane) {
+        lock.lock();
+        try {
+            rejected[lane.ordinal()]++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void execute(Lane lane, Runnable task) {
+        int i = lane.ordinal();
+        String workerName = null;
+        lock.lock();
+        try {
+            queues[i].addLast(task);
+            submitted[i]++;
+            peak[i] = Math.max(peak[i], queues[i].size());
+            if (idleWorkers == 0 && workers < maxWorkers) {
+                workerName = addWorkerLocked();
+            } else {
+                available.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (workerName != null) {
+            new Thread(this::work, workerName).start();
+        }
+    }
+
+    /**
+     * Releases the slot of {@code worker} if it is still running {@code task}. At most
+     * {@code maxWorkers} threads are detached at a time, past that the call keeps its slot.
+     */
+    void detach(Thread worker, Runnable task, Lane lane) {
+        String workerName = null;
+        lock.lock();
+        try {
+            if (running.get(worker) != task || detached.size() >= maxWorkers || !detached.add(worker)) {
+                return;
+            }
+            workers--;
+            active[lane.ordinal()]--;
+            boolean queued = false;
+            for (ArrayDeque<Runnable> queue : queues) {
+                queued |= !queue.isEmpty();
+            }
+            if (queued && idleWorkers == 0) {
+                workerName = addWorkerLocked();
+            } else if (queued) {
+                // 空闲线程可能因为名额已满在等待, 唤醒它
+                available.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (workerName != null) {
+            new Thread(this::work, workerName).start();
+        }
+    }
+
+    // 调用时已持有 lock
+    private String addWorkerLocked() {
+        workers++;
+        return "em-flutter-worker-" + nextWorkerId++;
+    }
+
+    Map<String, Object> metrics() {
+        Map<String, Object> data = new HashMap<>();
+        lock.lock();
+        try {
+            for (Lane lane : Lane.values()) {
+                int i = lane.ordinal();
+                Map<String, Object> item = new HashMap<>();
+                item.put("queued", queues[i].size());
+                item.put("capacity", capacity[i]);
+                item.put("peak", peak[i]);
+                item.put("active", active[i]);
+                item.put("submitted", submitted[i]);
+                item.put("rejected", rejected[i]);
+                data.put(lane.name().toLowerCase(Locale.ROOT), item);
+            }
+            data.put("workers", workers);
+            data.put("detached", detached.size());
+            data.put("maxWorkers", maxWorkers);
+        } finally {
+            lock.unlock();
+        }
+        return data;
+    }
+
+    private void work() {
+        Lane lane = null;
+        while (true) {
+            Runnable task;
+            lock.lock();
+            try {
+                if (lane != null) {
+                    running.remove(Thread.currentThread());
+                    // 超时后已经让出名额, 直接退出
+                    if (detached.remove(Thread.currentThread())) {
+                        return;
+                    }
+                    active[lane.ordinal()]--;
+                }
+                long wait = KEEP_ALIVE_NANOS;
+                while ((lane = nextLane()) == null) {
+                    if (wait <= 0) {
+                        workers--;
+                        return;
+                    }
+                    idleWorkers++;
+                    try {
+                        wait = available.awaitNanos(wait);
+                    } catch (InterruptedException e) {
+                        wait = 0;
+                    } finally {
+                        idleWorkers--;
+                    }
+                }
+                task = queues[lane.ordinal()].pollFirst();
+                active[lane.ordinal()]++;
+                running.put(Thread.currentThread(), task);
+            } finally {
+                lock.unlock();
+            }
+            currentLane.set(lane);
+            try {
+                task.run();
+            } catch (Throwable e) {
+                e.printStackTrace();
+            } finally {
+                currentLane.remove();
+            }
+        }
+    }
+
+    // 调用时已持有 lock
+    private Lane nextLane() {
+        if (!queues[Lane.INTERACTIVE.ordinal()].isEmpty()) {
+            return Lane.INTERACTIVE;
+        }
+        int busy = active[Lane.NORMAL.ordinal()] + active[Lane.BULK.ordinal()];
+        // 至少留一个线程给 interactive
+        if (busy >= maxWorkers - 1) {
+            return null;
+        }
+        if (!queues[Lane.NORMAL.ordinal()].isEmpty()) {
+            return Lane.NORMAL;
+        }
+        if (!queues[Lane.BULK.ordinal()].isEmpty() && active[Lane.BULK.ordinal()] < maxBulkWorkers) {
+            return Lane.BULK;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,48 @@
+package com.easemob.im_flutter_sdk;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs tasks one at a time per key on the shared {@link EMScheduler}.
+ *
+ * Each key with pending work has its own chain: the map keeps the future of the last task
+ * submitted for it, and a new task is handed to the scheduler only once that future completes.
+ * Tasks of the same key run strictly in submission order, tasks of different keys never wait for
+ * each other, and the key leaves the map when its last task finishes. Tasks are wrapped like
+ * {@link EMWrapper#asyncRunnable}, so the deadline of the call still detaches a stuck worker, and a
+ * task whose call was cancelled or timed out before it started is skipped.
+ */
+final class EMSerialExecutor {
+
+    private final Map<String, EMFuture<Void>> tails = new HashMap<>();
+
+    void execute(String key, Runnable task) {
+        EMScheduler.Lane lane = EMScheduler.currentLane();
+        EMCancellableRequest request = EMCancellableRequest.current();
+        EMFuture<Void> done = new EMFuture<>();
+        Runnable run = () -> {
+            try {
+                if (request == null || !EMCancellableRequest.isCancelled(request)) {
+                    task.run();
+                }
+            } finally {
+                synchronized (tails) {
+                    if (tails.get(key) == done) tails.remove(key);
+                }
+                done.complete(null);
+            }
+        };
+        Runnable wrapped = request != null ? request.wrap(lane, run) : run;
+        EMFuture<Void> previous;
+        synchronized (tails) {
+            previous = tails.put(key, done);
+        }
+        if (previous == null) {
+            EMWrapper.scheduler.execute(lane, wrapped);
+        } else {
+            // 前一个任务结束后再提交, 不占用等待中的线程
+            previous.whenComplete((value, e) -> EMWrapper.scheduler.execute(lane, wrapped));
+        }
+    }
+}
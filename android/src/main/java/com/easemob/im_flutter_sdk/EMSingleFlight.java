@@ -0,0 +1,54 @@
+package com.easemob.im_flutter_sdk;
+
+import com.hyphenate.exceptions.HyphenateException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares one in-flight server call between concurrent identical requests.
+ *
+ * The first caller of {@link #join} for a key becomes the leader. It runs the call and hands the
+ * encoded result, or the error, to {@link #complete}. Callers that join the same key before then do
+ * not start a call of their own. They get the same result object, so the server is hit and the
+ * result is converted only once. Once a key completes, it is forgotten, and the next caller starts
+ * a fresh call, so nothing is cached.
+ */
+final class EMSingleFlight<T> {
+
+    interface Callback<T> {
+        void onComplete(T value, HyphenateException error);
+    }
+
+    private final Map<String, List<Callback<T>>> inFlight = new HashMap<>();
+
+    /**
+     * Adds {@code callback} to the call for {@code key}; returns true if the caller must start it.
+     */
+    boolean join(String key, Callback<T> callback) {
+        synchronized (inFlight) {
+            List<Callback<T>> callbacks = inFlight.get(key);
+            if (callbacks != null) {
+                callbacks.add(callback);
+                return false;
+            }
+            callbacks = new ArrayList<>();
+            callbacks.add(callback);
+            inFlight.put(key, callbacks);
+            return true;
+        }
+    }
+
+    void complete(String key, T value, HyphenateException error) {
+        List<Callback<T>> callbacks;
+        synchronized (inFlight) {
+            callbacks = inFlight.remove(key);
+        }
+        if (callbacks == null) return;
+        for (Callback<T> callback : callbacks) {
+            callback.onComplete(value, error);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.easemob.im_flutter_sdk;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import io.flutter.plugin.common.JSONMethodCodec;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodCodec;
+import io.flutter.plugin.common.StandardMessageCodec;
+import io.flutter.plugin.common.StandardMethodCodec;
+
+/**
+ * Binary transport for the manager channels.
+ *
+ * The helpers still build {@code Map}/{@code List} graphs, and message attributes may hold
+ * {@link JSONObject}/{@link JSONArray} values, so those are written as their standard
+ * counterparts here. Incoming arguments are turned back into {@link JSONObject} by
+ * {@link #normalize(MethodCall)} so the wrappers keep a single parameter type whatever the transport.
+ *
+ * When the Dart side announces a matching {@link EMMessageSchema#VERSION}, message records are written
+ * as {@link #SCHEMA_RECORD}: schema id, value count, then the values in table order.
+ */
+class EMTransportCodec extends StandardMessageCodec {
+
+    static final String JSON = "json";
+    static final String STANDARD = "standard";
+
+    // StandardMessageCodec 自带类型只用到 15, 128 以上留给自定义类型
+    static final byte SCHEMA_RECORD = (byte) 128;
+    // 与 StandardMessageCodec 的 DOUBLE, LIST 一致
+    private static final byte DOUBLE = 6;
+    private static final byte LIST = 12;
+
+    static final EMTransportCodec INSTANCE = new EMTransportCodec(false, false);
+    static final EMTransportCodec COMPACT_INSTANCE = new EMTransportCodec(true, false);
+    static final MethodCodec STANDARD_METHOD_CODEC = new StandardMethodCodec(INSTANCE);
+    static final MethodCodec COMPACT_METHOD_CODEC = new StandardMethodCodec(COMPACT_INSTANCE);
+
+    private final boolean compactMessages;
+    // 预先编码时记录 double 的位置, 不写对齐, 拼接到回包时再按实际偏移补齐; 为 null 表示直接编码
+    private final List<Integer> alignments;
+
+    private EMTransportCodec(boolean compactMessages, boolean preEncode) {
+        this.compactMessages = compactMessages;
+        this.alignments = preEncode ? new ArrayList<Integer>() : null;
+    }
+
+    static MethodCodec methodCodec(String transport, int messageSchema) {
+        if (!STANDARD.equals(transport)) {
+            return JSONMethodCodec.INSTANCE;
+        }
+        return messageSchema == EMMessageSchema.VERSION ? COMPACT_METHOD_CODEC : STANDARD_METHOD_CODEC;
+    }
+
+    static String transportName(MethodCodec codec) {
+        return codec == JSONMethodCodec.INSTANCE ? JSON : STANDARD;
+    }
+
+    static int messageSchema(MethodCodec codec) {
+        return codec == COMPACT_METHOD_CODEC ? EMMessageSchema.VERSION : 0;
+    }
+
+    /**
+     * Converts and encodes {@code list} for a reply on a channel using {@code codec}, or returns null
+     * when the channel does not use the standard codec.
+     */
+    static <T> EMEncodedList encodeList(MethodCodec codec, List<T> list, EMEncodedList.Converter<T> converter) {
+        EMTransportCodec encoder;
+        if (codec == COMPACT_METHOD_CODEC) {
+            encoder = new EMTransportCodec(true, true);
+        } else if (codec == STANDARD_METHOD_CODEC) {
+            encoder = new EMTransportCodec(false, true);
+        } else {
+            return null;
+        }
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(LIST);
+        writeSize(stream, list.size());
+        for (T item : list) {
+            encoder.writeValue(stream, converter.toJson(item));
+        }
+        int[] alignments = new int[encoder.alignments.size()];
+        for (int i = 0; i < alignments.length; i++) {
+            alignments[i] = encoder.alignments.get(i);
+        }
+        return new EMEncodedList(stream.toByteArray(), alignments);
+    }
+
+    /**
+     * Reads {@code list} back into plain values, for a reply that goes out on a channel other than the
+     * one it was encoded for. Message records come back as {@link EMMessageSchema.Record} maps.
+     */
+    static Object decodeList(EMEncodedList list) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        list.writeTo(stream);
+        return INSTANCE.decodeMessage(ByteBuffer.wrap(stream.toByteArray()));
+    }
+
+    static MethodCall normalize(MethodCall call) {
+        if (call.arguments instanceof Map) {
+            return new MethodCall(call.method, new JSONObject((Map) call.arguments));
+        }
+        return call;
+    }
+
+    @Override
+    protected void writeValue(ByteArrayOutputStream stream, Object value) {
+        if (value instanceof EMEncodedList) {
+            ((EMEncodedList) value).writeTo(stream);
+        } else if (alignments != null && (value instanceof Double || value instanceof Float)) {
+            stream.write(DOUBLE);
+            alignments.add(stream.size());
+            writeDouble(stream, ((Number) value).doubleValue());
+        } else if (alignments != null && value != null && value.getClass().isArray()
+                && value.getClass().getComponentType().isPrimitive()) {
+            List<Object> list = new ArrayList<>();
+            for (int i = 0; i < Array.getLength(value); i++) {
+                list.add(Array.get(value, i));
+            }
+            super.writeValue(stream, list);
+        } else if (compactMessages && value instanceof EMMessageSchema.Record) {
+            EMMessageSchema.Record record = (EMMessageSchema.Record) value;
+            stream.write(SCHEMA_RECORD);
+            stream.write(record.schema.id);
+            writeSize(stream, record.values.length);
+            for (Object item : record.values) {
+                writeValue(stream, item);
+            }
+        } else if (value == JSONObject.NULL) {
+            super.writeValue(stream, null);
+        } else if (value instanceof JSONObject) {
+            super.writeValue(stream, toMap((JSONObject) value));
+        } else if (value instanceof JSONArray) {
+            super.writeValue(stream, toList((JSONArray) value));
+        } else if (value instanceof Object[]) {
+            super.writeValue(stream, Arrays.asList((Object[]) value));
+        } else if (value instanceof Collection && !(value instanceof List)) {
+            super.writeValue(stream, new ArrayList<>((Collection<?>) value));
+        } else {
+            super.writeValue(stream, value);
+        }
+    }
+
+    @Override
+    protected Object readValueOfType(byte type, ByteBuffer buffer) {
+        if (type != SCHEMA_RECORD) {
+            return super.readValueOfType(type, buffer);
+        }
+        EMMessageSchema.Record record = EMMessageSchema.ALL[buffer.get()].newRecord();
+        int size = readSize(buffer);
+        for (int i = 0; i < size; i++) {
+            record.values[i] = readValue(buffer);
+        }
+        return record;
+    }
+
+    private static Map<String, Object> toMap(JSONObject json) {
+        Map<String, Object> map = new HashMap<>();
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            map.put(key, json.opt(key));
+        }
+        return map;
+    }
+
+    private static List<Object> toList(JSONArray json) {
+        List<Object> list = new ArrayList<>(json.length());
+        for (int i = 0; i < json.length(); i++) {
+            list.add(json.opt(i));
+        }
+        return list;
+    }
+}
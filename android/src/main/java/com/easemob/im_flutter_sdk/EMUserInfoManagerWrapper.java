@@ -1,7 +1,9 @@
 package com.easemob.im_flutter_sdk;
 
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.hyphenate.EMError;
@@ -15,35 +17,26 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
-import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
+import io.flutter.plugin.common.MethodCodec;
 
 
 public class EMUserInfoManagerWrapper extends EMWrapper implements MethodCallHandler {
 
-    EMUserInfoManagerWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName) {
-        super(flutterPluginBinding, channelName);
+    // 并发获取重叠的用户属性时, 同一个 userId 只请求一次服务器
+    private final EMSingleFlight<Map<String, Object>> userFlights = new EMSingleFlight<>();
+
+    EMUserInfoManagerWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName, MethodCodec codec) {
+        super(flutterPluginBinding, channelName, codec);
+        registerMethods();
     }
 
-    @Override
-    public void onMethodCall(MethodCall call, Result result) {
-        JSONObject param = (JSONObject) call.arguments;
-        try {
-            if (EMSDKMethod.updateOwnUserInfo.equals(call.method)) {
-                updateOwnUserInfo(param, call.method, result);
-            } else if (EMSDKMethod.updateOwnUserInfoWithType.equals(call.method)) {
-                updateOwnUserInfoWithType(param, call.method, result);
-            }else if (EMSDKMethod.fetchUserInfoById.equals(call.method)) {
-                fetchUserInfoByUserId(param, call.method, result);
-            }else if (EMSDKMethod.fetchUserInfoByIdWithType.equals(call.method)) {
-                fetchUserInfoByIdWithType(param, call.method, result);
-            } else {
-                super.onMethodCall(call, result);
-            }
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
+    private void registerMethods() {
+        registerMethod(EMSDKMethod.updateOwnUserInfo, this::updateOwnUserInfo);
+        registerMethod(EMSDKMethod.updateOwnUserInfoWithType, this::updateOwnUserInfoWithType);
+        registerMethod(EMSDKMethod.fetchUserInfoById, this::fetchUserInfoByUserId);
+        registerMethod(EMSDKMethod.fetchUserInfoByIdWithType, this::fetchUserInfoByIdWithType);
     }
 
     private void updateOwnUserInfo(JSONObject params, String channelName, Result result) throws JSONException {
@@ -56,23 +49,9 @@ public class EMUserInfoManagerWrapper extends EMWrapper implements MethodCallHan
 
         EMUserInfo userInfo = EMUserInfoHelper.fromJson(params);
         userInfo.setUserId(username);
-        asyncRunnable(() -> {
-
-            EMValueWrapperCallBack<String> callBack = new EMValueWrapperCallBack<String>(result, channelName){
-                @Override
-                public void onSuccess(final String object) {
-                    updateObject(EMUserInfoHelper.toJson(userInfo));
-                }
-
-                @Override
-                public void onError(final int code, final String desc) {
-                    super.onError(code, desc);
-                }
-            };
-
-            EMClient.getInstance().userInfoManager().updateOwnInfo(userInfo, callBack);
-        });
-
+        EMFuture<String> future = new EMFuture<>();
+        asyncRunnable(() -> EMClient.getInstance().userInfoManager().updateOwnInfo(userInfo, future.valueCallBack()));
+        reply(result, channelName, future.then(object -> EMUserInfoHelper.toJson(userInfo)));
     }
 
 
@@ -81,31 +60,20 @@ public class EMUserInfoManagerWrapper extends EMWrapper implements MethodCallHan
         String userInfoTypeValue = params.getString("userInfoValue");
         EMUserInfo.EMUserInfoType userInfoType = getUserInfoTypeFromInt(userInfoTypeInt);
 
-         asyncRunnable(()->{
-
-             EMValueWrapperCallBack<String> callBack = new EMValueWrapperCallBack<String>(result, channelName){
-                 @Override
-                 public void onSuccess(final String object) {
-
-                     if(object != null && object.length() > 0) {
-                         JSONObject obj = null;
-                         try {
-                             obj = new JSONObject(object);
-                     String userId = EMClient.getInstance().getCurrentUser();
-                             obj.put("userId", userId);
-                             EMUserInfo userInfo = EMUserInfoHelper.fromJson(obj);
-                             updateObject(EMUserInfoHelper.toJson(userInfo));
-
-                     } catch (JSONException e) {
-                         e.printStackTrace();
-                     }
-                 }
-                 }
-             };
-
-             EMClient.getInstance().userInfoManager().updateOwnInfoByAttribute(userInfoType,userInfoTypeValue,callBack);
-
-         });
+        EMFuture<String> future = new EMFuture<>();
+        asyncRunnable(() -> EMClient.getInstance().userInfoManager().updateOwnInfoByAttribute(userInfoType, userInfoTypeValue, future.valueCallBack()));
+        reply(result, channelName, future.then(object -> {
+            if (object == null || object.length() == 0) {
+                return null;
+            }
+            try {
+                JSONObject obj = new JSONObject(object);
+                obj.put("userId", EMClient.getInstance().getCurrentUser());
+                return EMUserInfoHelper.toJson(EMUserInfoHelper.fromJson(obj));
+            } catch (JSONException e) {
+                throw new HyphenateException(EMError.GENERAL_ERROR, e.getMessage());
+            }
+        }));
     }
 
 
@@ -116,17 +84,45 @@ public class EMUserInfoManagerWrapper extends EMWrapper implements MethodCallHan
             userIds[i] = (String) userIdArray.get(i);
         }
 
-        asyncRunnable(()->{
-            EMValueWrapperCallBack<Map<String,EMUserInfo>> callBack = new EMValueWrapperCallBack<Map<String,EMUserInfo>>(result, channelName) {
-                @Override
-                public void onSuccess(Map<String,EMUserInfo> object) {
-                    final Map<String,Map> rMap = generateMapFromMap(object);
-                    updateObject(rMap);
+        // 每个 userId 单独合并, 只向服务器请求当前没有在途请求的 id
+        Map<String, Map> rMap = new HashMap<>();
+        int[] remaining = {userIds.length};
+        boolean[] failed = {false};
+        List<String> missing = new ArrayList<>();
+        for (String userId : userIds) {
+            boolean leader = userFlights.join(userId, (json, e) -> {
+                synchronized (rMap) {
+                    if (failed[0]) return;
+                    if (e != null) {
+                        failed[0] = true;
+                        onError(result, e);
+                        return;
+                    }
+                    if (json != null) {
+                        rMap.put(userId, json);
+                    }
+                    if (--remaining[0] > 0) return;
                 }
-            };
-
-            EMClient.getInstance().userInfoManager().fetchUserInfoByUserId(userIds, callBack);
+                onSuccess(result, channelName, rMap);
+            });
+            if (leader) {
+                missing.add(userId);
+            }
+        }
+        if (userIds.length == 0) {
+            onSuccess(result, channelName, rMap);
+        }
+        if (missing.isEmpty()) return;
+
+        // 合并进来的调用也在等这个请求, 时限加在请求上
+        EMFuture<Map<String, EMUserInfo>> fetch = new EMFuture<>();
+        fetch.timeout(EMFuture.deadlineOf(channelName)).whenComplete((object, e) -> {
+            for (String userId : missing) {
+                EMUserInfo userInfo = object != null ? object.get(userId) : null;
+                userFlights.complete(userId, userInfo != null ? EMUserInfoHelper.toJson(userInfo) : null, e);
+            }
         });
+        asyncRunnable(() -> EMClient.getInstance().userInfoManager().fetchUserInfoByUserId(missing.toArray(new String[0]), fetch.valueCallBack()));
     }
     
 
@@ -145,18 +141,9 @@ public class EMUserInfoManagerWrapper extends EMWrapper implements MethodCallHan
             infoTypes[i] = infoType;
         }
 
-        asyncRunnable(()->{
-            EMValueWrapperCallBack<Map<String,EMUserInfo>> callBack = new EMValueWrapperCallBack<Map<String,EMUserInfo>>(result, channelName) {
-                @Override
-                public void onSuccess(Map<String,EMUserInfo> object) {
-                    final Map<String,Map> rMap = generateMapFromMap(object);
-                    updateObject(rMap);
-                }
-            };
-
-            EMClient.getInstance().userInfoManager().fetchUserInfoByAttribute(userIds, infoTypes, callBack);
-        });
-
+        EMFuture<Map<String, EMUserInfo>> future = new EMFuture<>();
+        asyncRunnable(() -> EMClient.getInstance().userInfoManager().fetchUserInfoByAttribute(userIds, infoTypes, future.valueCallBack()));
+        reply(result, channelName, future.then(this::generateMapFromMap));
     }
 
 
@@ -2,19 +2,25 @@ package com.easemob.im_flutter_sdk;
 
 import android.content.Context;
 
+import com.hyphenate.EMError;
 import com.hyphenate.exceptions.HyphenateException;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import androidx.annotation.NonNull;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
+import io.flutter.plugin.common.BinaryMessenger;
 import io.flutter.plugin.common.JSONMethodCodec;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.MethodCodec;
 import io.flutter.plugin.common.PluginRegistry;
 
 
@@ -23,29 +29,111 @@ public class EMWrapper implements MethodChannel.MethodCallHandler {
 
   private static final String CHANNEL_PREFIX = "com.chat.im/";
 
-  private final ExecutorService cachedThreadPool = Executors.newCachedThreadPool();
+  // 所有 wrapper 共用一个有界线程池, 由 EMClientWrapper 创建
+  static volatile EMScheduler scheduler;
+
+  interface MethodHandler {
+    void handle(JSONObject params, String channelName, MethodChannel.Result result) throws JSONException;
+  }
+
+  private static final class Registration {
+    final MethodHandler handler;
+    final EMMethodStats stats;
+    final EMScheduler.Lane lane;
 
+    Registration(MethodHandler handler, EMMethodStats stats, EMScheduler.Lane lane) {
+      this.handler = handler;
+      this.stats = stats;
+      this.lane = lane;
+    }
+  }
+
+  // 方法名 -> 处理函数, 各个 wrapper 在构造时注册, 之后只读
+  private final Map<String, Registration> methods = new HashMap<>();
+  private final String channelName;
+
+  // chat_client 的 init 在主线程处理, SDK 初始化与注册 channel 都留在主线程
   public EMWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName) {
+    this(flutterPluginBinding, channelName, JSONMethodCodec.INSTANCE, false);
+  }
+
+  public EMWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName, MethodCodec codec) {
+    this(flutterPluginBinding, channelName, codec, true);
+  }
+
+  private EMWrapper(FlutterPlugin.FlutterPluginBinding flutterPluginBinding, String channelName, MethodCodec codec, boolean background) {
     this.context = flutterPluginBinding.getApplicationContext();
     this.binging = flutterPluginBinding;
-    this.channel = new MethodChannel(flutterPluginBinding.getBinaryMessenger(), CHANNEL_PREFIX + channelName, JSONMethodCodec.INSTANCE);
-    channel.setMethodCallHandler(this);
+    this.codec = codec;
+    this.channelName = channelName;
+    BinaryMessenger messenger = flutterPluginBinding.getBinaryMessenger();
+    this.channel = background
+            ? backgroundChannel(messenger, CHANNEL_PREFIX + channelName, codec)
+            : new MethodChannel(messenger, CHANNEL_PREFIX + channelName, codec);
+    channel.setMethodCallHandler((call, result) -> onMethodCall(EMTransportCodec.normalize(call), result));
+  }
+
+  String channelName() {
+    return channelName;
+  }
+
+  /**
+   * A channel whose calls are decoded and dispatched on a serial background task queue, so parameter
+   * parsing never runs on the main looper. Replies and events still go through {@link #post}.
+   * Engines without task queues (before flutter 2.8, or a messenger that does not support them)
+   * get a plain main-thread channel; the lookup is reflective so the plugin still compiles there.
+   */
+  private static MethodChannel backgroundChannel(BinaryMessenger messenger, String name, MethodCodec codec) {
+    try {
+      Object taskQueue = BinaryMessenger.class.getMethod("makeBackgroundTaskQueue").invoke(messenger);
+      Class<?> taskQueueClass = Class.forName("io.flutter.plugin.common.BinaryMessenger$TaskQueue");
+      return MethodChannel.class
+              .getConstructor(BinaryMessenger.class, String.class, MethodCodec.class, taskQueueClass)
+              .newInstance(messenger, name, codec, taskQueue);
+    } catch (Exception e) {
+      return new MethodChannel(messenger, name, codec);
+    }
   }
 
   public Context context;
   public FlutterPlugin.FlutterPluginBinding binging;
   public MethodChannel channel;
+  public MethodCodec codec;
+  // 大列表结果在编码时逐条转换, 只在 standard 编码下由 EMClientWrapper 打开
+  public boolean lazyListResults;
+  // 监听事件按窗口合并后发送, 由 EMClientWrapper 打开
+  private EMEventBatcher eventBatcher;
+  // flutter 订阅的事件, 同一个 engine 的 wrapper 共用, 由 EMClientWrapper 设置
+  EMEventFilter eventFilter = new EMEventFilter();
 
 
   public void post(Runnable runnable) {
-    ImFlutterSdkPlugin.handler.post(runnable);
+    EMMainQueue.post(runnable);
+  }
+
+  public void enableEventBatching(long windowMs) {
+    eventBatcher = windowMs > 0 ? new EMEventBatcher(channel, windowMs) : null;
+  }
+
+  public void sendEvent(String method, Object arguments) {
+    if (!eventFilter.acceptsEvent(method, arguments)) return;
+    EMEventBatcher batcher = eventBatcher;
+    if (batcher != null) {
+      batcher.send(method, arguments);
+    } else {
+      post(() -> channel.invokeMethod(method, arguments));
+    }
   }
 
   public void asyncRunnable(Runnable runnable) {
-    cachedThreadPool.execute(runnable);
+    EMScheduler.Lane lane = EMScheduler.currentLane();
+    // 有时限的调用记下执行它的线程, 超时后把线程让出来
+    EMCancellableRequest request = EMCancellableRequest.current();
+    scheduler.execute(lane, request != null ? request.wrap(lane, runnable) : runnable);
   }
 
   public void onSuccess(MethodChannel.Result result, String channelName, Object object) {
+    if (isCancelled(result)) return;
     post(()-> {
       Map<String, Object> data = new HashMap<>();
       if (object != null) {
@@ -55,9 +143,39 @@ public class EMWrapper implements MethodChannel.MethodCallHandler {
     });
   }
 
+  // future 完成后回复 flutter, 时限由 EMCancellableRequest 负责
+  public <T> void reply(MethodChannel.Result result, String channelName, EMFuture<T> future) {
+    future.whenComplete((value, e) -> {
+      if (e != null) {
+        onError(result, e);
+      } else {
+        onSuccess(result, channelName, value);
+      }
+    });
+  }
+
+  // 调用已被 flutter 取消, 结果不必再转换和发送
+  public boolean isCancelled(MethodChannel.Result result) {
+    return EMCancellableRequest.isCancelled(result);
+  }
+
+  // 开启 lazyListResults 时在当前(工作)线程逐条转换并编码, 主线程只拷贝字节
+  public <T> Object listResult(List<T> list, EMEncodedList.Converter<T> converter) {
+    if (lazyListResults) {
+      EMEncodedList encoded = EMTransportCodec.encodeList(codec, list, converter);
+      if (encoded != null) return encoded;
+    }
+    List<Object> result = new ArrayList<>(list.size());
+    for (T item : list) {
+      result.add(converter.toJson(item));
+    }
+    return result;
+  }
+
   public void unRegisterEaseListener() {}
 
   public void onError(MethodChannel.Result result, HyphenateException e) {
+    if (isCancelled(result)) return;
     post(()-> {
       Map<String, Object> data = new HashMap<>();
         data.put("error", HyphenateExceptionHelper.toJson(e));
@@ -65,8 +183,49 @@ public class EMWrapper implements MethodChannel.MethodCallHandler {
     });
   }
 
+  protected void registerMethod(String method, MethodHandler handler) {
+    methods.put(method, new Registration(handler, EMMethodStats.of(channelName, method), EMScheduler.laneOf(method)));
+  }
+
   @Override
   public void onMethodCall(MethodCall call, MethodChannel.Result result) {
-    result.notImplemented();
+    Registration registration = methods.get(call.method);
+    if (registration == null) {
+      result.notImplemented();
+      return;
+    }
+    long start = registration.stats.start();
+    MethodChannel.Result tracked = registration.stats.track(result, start);
+    EMScheduler scheduler = EMWrapper.scheduler;
+    if (scheduler != null && scheduler.isSaturated(registration.lane)) {
+      scheduler.reject(registration.lane);
+      onError(tracked, new HyphenateException(EMError.GENERAL_ERROR, "Too many pending requests, try again later"));
+      return;
+    }
+    JSONObject params = (JSONObject) call.arguments;
+    // 带 requestId 的调用可以被 cancelRequest 取消
+    String requestId = params != null ? params.optString("requestId", null) : null;
+    // flutter 传入的 timeout 优先, 否则使用方法默认的时限
+    long timeout = params != null ? params.optLong("timeout") : 0;
+    if (timeout <= 0) {
+      timeout = EMFuture.deadlineOf(call.method);
+    }
+    EMCancellableRequest request = requestId != null || timeout > 0
+            ? EMCancellableRequest.register(requestId, timeout, tracked, registration.stats)
+            : null;
+    MethodChannel.Result reply = request != null ? request : tracked;
+    // handler 里的 asyncRunnable 使用这个方法的 lane
+    EMScheduler.setCurrentLane(registration.lane);
+    EMCancellableRequest.setCurrent(request);
+    try {
+      registration.handler.handle(params, call.method, reply);
+    } catch (JSONException e) {
+      e.printStackTrace();
+      // 参数有误, 直接回复错误, 不要等到超时
+      onError(reply, new HyphenateException(EMError.GENERAL_ERROR, String.valueOf(e.getMessage())));
+    } finally {
+      EMScheduler.setCurrentLane(null);
+      EMCancellableRequest.setCurrent(null);
+    }
   }
 }
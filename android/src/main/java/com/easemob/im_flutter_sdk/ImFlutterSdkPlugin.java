@@ -54,35 +54,36 @@ class EMWrapperCallBack implements EMCallBack {
         this.result = result;
         this.channelName = channelName;
         this.object = object;
+        // 只有第一次回调生效, 时限由 EMCancellableRequest 负责
+        reply.whenComplete((value, e) -> post(() -> {
+            Map<String, Object> data = new HashMap<>();
+            if (e != null) {
+                data.put("error", HyphenateExceptionHelper.toJson(e));
+                EMLog.e("callback", e.getDescription());
+            } else if (value != null) {
+                data.put(channelName, value);
+            }
+            result.success(data);
+        }));
     }
 
     Result result;
     String channelName;
     Object object;
+    private final EMFuture<Object> reply = new EMFuture<>();
 
     void post(Runnable runnable) {
-        ImFlutterSdkPlugin.handler.post(runnable);
+        EMMainQueue.post(runnable);
     }
 
     @Override
     public void onSuccess() {
-        post(() -> {
-            Map<String, Object> data = new HashMap<>();
-            if (object != null) {
-                data.put(channelName, object);
-            }
-            result.success(data);
-        });
+        reply.complete(object);
     }
 
     @Override
     public void onError(int code, String desc) {
-        post(() -> {
-            Map<String, Object> data = new HashMap<>();
-            data.put("error", EMErrorHelper.toJson(code, desc));
-            EMLog.e("callback", desc);
-            result.success(data);
-        });
+        reply.fail(new HyphenateException(code, desc));
     }
 
     @Override
@@ -124,13 +125,28 @@ class EMValueWrapperCallBack<T> implements EMValueCallBack<T> {
     {
         this.result = result;
         this.channelName = channelName;
+        // 只有第一次回调生效, 时限由 EMCancellableRequest 负责
+        reply.whenComplete((value, e) -> {
+            if (isCancelled()) return;
+            post(() -> {
+                Map<String, Object> data = new HashMap<>();
+                if (e != null) {
+                    data.put("error", HyphenateExceptionHelper.toJson(e));
+                    EMLog.e("callback", "onError");
+                } else if (value != null) {
+                    data.put(channelName, value);
+                }
+                result.success(data);
+            });
+        });
     }
 
     private MethodChannel.Result result;
     private String channelName;
+    private final EMFuture<Object> reply = new EMFuture<>();
 
     public void post(Runnable runnable) {
-        ImFlutterSdkPlugin.handler.post(runnable);
+        EMMainQueue.post(runnable);
     }
 
     @Override
@@ -140,21 +156,15 @@ class EMValueWrapperCallBack<T> implements EMValueCallBack<T> {
 
     @Override
     public void onError(int code, String desc) {
-        post(() -> {
-            Map<String, Object> data = new HashMap<>();
-            data.put("error", EMErrorHelper.toJson(code, desc));
-            EMLog.e("callback", "onError");
-            result.success(data);
-        });
+        reply.fail(new HyphenateException(code, desc));
+    }
+
+    // 调用已被 flutter 取消时不再转换结果
+    boolean isCancelled() {
+        return EMCancellableRequest.isCancelled(result);
     }
 
     public void updateObject(Object object) {
-        post(()-> {
-            Map<String, Object> data = new HashMap<>();
-            if (object != null) {
-                data.put(channelName, object);
-            }
-            result.success(data);
-        });
+        reply.complete(isCancelled() ? null : object);
     }
 }
\ No newline at end of file
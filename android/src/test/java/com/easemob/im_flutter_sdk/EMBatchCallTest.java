@@ -0,0 +1,96 @@
+package com.easemob.im_flutter_sdk;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.flutter.plugin.common.MethodChannel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EMBatchCallTest {
+
+    private static final String CHANNEL = "chat_manager";
+
+    private EMScheduler previous;
+    private final List<Thread> dispatchThreads = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, MethodChannel.MethodCallHandler> wrappers = new HashMap<>();
+
+    @Before
+    public void setUp() {
+        previous = EMWrapper.scheduler;
+        EMWrapper.scheduler = new EMScheduler(2, 16, 16, 16);
+        // 与开启 lazyListResults 的 wrapper 一样, 回复里是预编码的列表
+        wrappers.put(CHANNEL, (call, result) -> {
+            dispatchThreads.add(Thread.currentThread());
+            Map<String, Object> data = new HashMap<>();
+            data.put(CHANNEL, EMTransportCodec.encodeList(EMTransportCodec.STANDARD_METHOD_CODEC,
+                    Arrays.asList(1, 2), EMBatchCallTest::conversation));
+            result.success(data);
+        });
+    }
+
+    @After
+    public void tearDown() {
+        EMWrapper.scheduler = previous;
+    }
+
+    private static Map<String, Object> conversation(int i) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("convId", "c" + i);
+        map.put("unreadCount", i);
+        map.put("weight", i + 0.5);
+        return map;
+    }
+
+    private List<Object> runBatch(boolean sequential, int count) throws Exception {
+        JSONArray calls = new JSONArray();
+        for (int i = 0; i < count; i++) {
+            calls.put(new JSONObject()
+                    .put("channel", CHANNEL)
+                    .put("method", "loadAllConversations")
+                    .put("params", new JSONObject()));
+        }
+        AtomicReference<List<Object>> replies = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        EMBatchCall.run(wrappers, calls, sequential, list -> {
+            replies.set(list);
+            done.countDown();
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        return replies.get();
+    }
+
+    @Test
+    public void lazyListRepliesComeBackAsPlainLists() throws Exception {
+        Map<String, Object> expected = new HashMap<>();
+        expected.put(CHANNEL, Arrays.asList(conversation(1), conversation(2)));
+        for (boolean sequential : new boolean[]{false, true}) {
+            assertEquals(Arrays.asList(expected, expected), runBatch(sequential, 2));
+        }
+    }
+
+    @Test
+    public void everyCallIsDispatchedFromTheScheduler() throws Exception {
+        runBatch(true, 3);
+        runBatch(false, 3);
+        assertEquals(6, dispatchThreads.size());
+        for (Thread thread : dispatchThreads) {
+            assertFalse(thread == Thread.currentThread());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.easemob.im_flutter_sdk;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.flutter.plugin.common.MethodChannel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EMCancellableRequestTest {
+
+    private static final class RecordingResult implements MethodChannel.Result {
+        final List<Object> replies = new ArrayList<>();
+
+        @Override
+        public void success(Object result) {
+            replies.add(result);
+        }
+
+        @Override
+        public void error(String errorCode, String errorMessage, Object errorDetails) {
+            replies.add(errorCode);
+        }
+
+        @Override
+        public void notImplemented() {
+            replies.add(null);
+        }
+    }
+
+    private static EMMethodStats stats(String method) {
+        return EMMethodStats.of("test", method);
+    }
+
+    @Test
+    public void cancelsAPendingFetch() {
+        RecordingResult fetch = new RecordingResult();
+        EMCancellableRequest request = EMCancellableRequest.register("fetch-1", 0, fetch, stats(EMSDKMethod.fetchHistoryMessages));
+
+        // cancelRequest 本身也有时限, 但不带 requestId
+        RecordingResult cancel = new RecordingResult();
+        EMCancellableRequest.register(null, EMFuture.DEFAULT_TIMEOUT_MS, cancel, stats(EMSDKMethod.cancelRequest));
+
+        assertTrue(EMCancellableRequest.cancel("fetch-1"));
+        assertTrue(EMCancellableRequest.isCancelled(request));
+        assertFalse(EMCancellableRequest.cancel("fetch-1"));
+
+        // SDK 稍后返回的结果不再回复
+        request.success("late");
+        assertEquals(0, fetch.replies.size());
+    }
+
+    @Test
+    public void answeredCallCannotBeCancelled() {
+        RecordingResult fetch = new RecordingResult();
+        EMCancellableRequest request = EMCancellableRequest.register("fetch-2", 0, fetch, stats(EMSDKMethod.fetchHistoryMessages));
+        request.success("page");
+
+        assertFalse(EMCancellableRequest.cancel("fetch-2"));
+        assertFalse(EMCancellableRequest.isCancelled(request));
+        assertEquals(1, fetch.replies.size());
+    }
+
+    @Test
+    public void unknownRequestIsNotCancelled() {
+        assertFalse(EMCancellableRequest.cancel("missing"));
+    }
+}
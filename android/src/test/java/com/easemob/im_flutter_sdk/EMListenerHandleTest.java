@@ -0,0 +1,74 @@
+package com.easemob.im_flutter_sdk;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EMListenerHandleTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int PER_PRODUCER = 50_000;
+
+    @After
+    public void tearDown() {
+        EMListenerHandle handle = EMListenerHandle.getInstance();
+        handle.clearHandle();
+        handle.configure(0, null);
+    }
+
+    @Test
+    public void eventsOfOneThreadKeepTheirOrderPastTheRing() throws InterruptedException {
+        EMListenerHandle handle = EMListenerHandle.getInstance();
+        // 事件远多于 ring 的容量, 一部分会进入 spill
+        handle.configure(PRODUCERS * PER_PRODUCER, EMListenerHandle.SPILL);
+        int[] next = new int[PRODUCERS];
+        AtomicInteger outOfOrder = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(PRODUCERS * PER_PRODUCER);
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            producers[p] = new Thread(() -> {
+                for (int i = 0; i < PER_PRODUCER; i++) {
+                    int value = i;
+                    handle.addHandle(() -> {
+                        // 只在 dispatcher 线程执行
+                        if (next[producer] != value) outOfOrder.incrementAndGet();
+                        next[producer]++;
+                        done.countDown();
+                    });
+                }
+            });
+            producers[p].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        handle.startCallback();
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(0, outOfOrder.get());
+    }
+
+    @Test
+    public void dropOldestKeepsTheNewestEvents() throws InterruptedException {
+        EMListenerHandle handle = EMListenerHandle.getInstance();
+        handle.configure(10, EMListenerHandle.DROP_OLDEST);
+        AtomicInteger first = new AtomicInteger(-1);
+        CountDownLatch done = new CountDownLatch(10);
+        for (int i = 0; i < 100; i++) {
+            int value = i;
+            handle.addHandle(() -> {
+                first.compareAndSet(-1, value);
+                done.countDown();
+            });
+        }
+        handle.startCallback();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(90, first.get());
+    }
+}
@@ -0,0 +1,118 @@
+package com.easemob.im_flutter_sdk;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EMMemberDeltasTest {
+
+    private static final String ROOM = "room";
+
+    private final List<Object> sent = Collections.synchronizedList(new ArrayList<>());
+
+    private final EMMemberDeltas deltas = new EMMemberDeltas("onRoomMembersChanged", "roomId", "roomName",
+            60_000, sent::add);
+
+    @After
+    public void tearDown() {
+        EMListenerHandle.getInstance().clearHandle();
+    }
+
+    @Test
+    public void joinAndLeaveWithinAWindowCancelOut() {
+        deltas.joined(ROOM, "a");
+        deltas.exited(ROOM, "name", "a");
+        deltas.exited(ROOM, "name", "b");
+        deltas.joined(ROOM, "b");
+        assertNull(deltas.take(ROOM));
+    }
+
+    @Test
+    public void netJoinsAndExitsAreReported() {
+        deltas.joined(ROOM, "a");
+        deltas.exited(ROOM, "name", "b");
+        deltas.joined(ROOM, "c");
+        deltas.exited(ROOM, "name", "c");
+        deltas.joined(ROOM, "c");
+
+        Map<String, Object> data = deltas.take(ROOM);
+        assertEquals("onRoomMembersChanged", data.get("type"));
+        assertEquals(ROOM, data.get("roomId"));
+        assertEquals("name", data.get("roomName"));
+        assertEquals(Arrays.asList("a", "c"), data.get("joined"));
+        assertEquals(Collections.singletonList("b"), data.get("left"));
+        assertFalse(data.containsKey("muted"));
+        assertFalse(data.containsKey("unmuted"));
+    }
+
+    @Test
+    public void mutesKeepTheLastExpireTime() {
+        deltas.muted(ROOM, Arrays.asList("a", "b"), 100);
+        deltas.muted(ROOM, Collections.singletonList("a"), 200);
+        // 禁言后又解禁等于没有变化
+        deltas.unmuted(ROOM, Collections.singletonList("b"));
+        // 解禁后再禁言要报新的到期时间
+        deltas.unmuted(ROOM, Collections.singletonList("c"));
+        deltas.muted(ROOM, Collections.singletonList("c"), 300);
+        deltas.unmuted(ROOM, Collections.singletonList("d"));
+
+        Map<String, Object> data = deltas.take(ROOM);
+        Map<?, ?> muted = (Map<?, ?>) data.get("muted");
+        assertEquals(2, muted.size());
+        assertEquals(200L, muted.get("a"));
+        assertEquals(300L, muted.get("c"));
+        assertEquals(Collections.singletonList("d"), data.get("unmuted"));
+    }
+
+    @Test
+    public void allowListChangesCancelOut() {
+        deltas.allowListAdded(ROOM, Arrays.asList("a", "b"));
+        deltas.allowListRemoved(ROOM, Collections.singletonList("a"));
+        deltas.allowListRemoved(ROOM, Collections.singletonList("c"));
+
+        Map<String, Object> data = deltas.take(ROOM);
+        assertEquals(Collections.singletonList("b"), data.get("allowListAdded"));
+        assertEquals(Collections.singletonList("c"), data.get("allowListRemoved"));
+    }
+
+    @Test
+    public void takeForgetsTheRoom() {
+        deltas.joined(ROOM, "a");
+        deltas.joined("other", "b");
+        assertEquals(Collections.singletonList("a"), deltas.take(ROOM).get("joined"));
+        assertNull(deltas.take(ROOM));
+        assertEquals(Collections.singletonList("b"), deltas.take("other").get("joined"));
+    }
+
+    @Test
+    public void flushQueuesPendingChangesBeforeTheNextEvent() throws InterruptedException {
+        EMListenerHandle handle = EMListenerHandle.getInstance();
+        CountDownLatch done = new CountDownLatch(1);
+        deltas.joined(ROOM, "a");
+        // 房间销毁前先发出待合并的成员变化
+        deltas.flush(ROOM);
+        handle.addHandle(() -> {
+            sent.add("destroyed");
+            done.countDown();
+        });
+        handle.startCallback();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertEquals(2, sent.size());
+        assertEquals(Collections.singletonList("a"), ((Map<?, ?>) sent.get(0)).get("joined"));
+        assertEquals("destroyed", sent.get(1));
+        assertNull(deltas.take(ROOM));
+    }
+}
@@ -0,0 +1,83 @@
+package com.easemob.im_flutter_sdk;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EMMpscQueueTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int PER_PRODUCER = 100_000;
+
+    @Test
+    public void offerFailsWhenFull() {
+        EMMpscQueue<Integer> queue = new EMMpscQueue<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+        assertEquals(Integer.valueOf(0), queue.poll());
+        assertTrue(queue.offer(4));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(Integer.valueOf(i), queue.poll());
+        }
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void concurrentProducersLoseNothingAndKeepTheirOrder() throws InterruptedException {
+        EMMpscQueue<long[]> queue = new EMMpscQueue<>(64);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            long producer = p;
+            producers[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long i = 0; i < PER_PRODUCER; i++) {
+                    long[] item = {producer, i};
+                    // 队列满时自旋, 等消费者腾出位置
+                    while (!queue.offer(item)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            producers[p].start();
+        }
+        start.countDown();
+
+        long[] next = new long[PRODUCERS];
+        long received = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (received < (long) PRODUCERS * PER_PRODUCER) {
+            long[] item = queue.poll();
+            if (item == null) {
+                assertTrue("timed out", System.nanoTime() < deadline);
+                Thread.yield();
+                continue;
+            }
+            // 同一个生产者的元素按写入顺序出队, 不丢也不重复
+            assertEquals(next[(int) item[0]], item[1]);
+            next[(int) item[0]]++;
+            received++;
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        for (long count : next) {
+            assertEquals(PER_PRODUCER, count);
+        }
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,175 @@
+package com.easemob.im_flutter_sdk;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EMSchedulerTest {
+
+    private static final long WAIT_SECONDS = 5;
+
+    @Test
+    public void laneOfMethod() {
+        assertEquals(EMScheduler.Lane.INTERACTIVE, EMScheduler.laneOf(EMSDKMethod.getConversation));
+        assertEquals(EMScheduler.Lane.INTERACTIVE, EMScheduler.laneOf(EMSDKMethod.cancelRequest));
+        assertEquals(EMScheduler.Lane.BULK, EMScheduler.laneOf(EMSDKMethod.importMessages));
+        assertEquals(EMScheduler.Lane.BULK, EMScheduler.laneOf(EMSDKMethod.fetchHistoryMessages));
+        assertEquals(EMScheduler.Lane.NORMAL, EMScheduler.laneOf(EMSDKMethod.sendMessage));
+    }
+
+    @Test
+    public void currentLaneDefaultsToNormal() {
+        assertEquals(EMScheduler.Lane.NORMAL, EMScheduler.currentLane());
+        EMScheduler.setCurrentLane(EMScheduler.Lane.BULK);
+        try {
+            assertEquals(EMScheduler.Lane.BULK, EMScheduler.currentLane());
+        } finally {
+            EMScheduler.setCurrentLane(null);
+        }
+        assertEquals(EMScheduler.Lane.NORMAL, EMScheduler.currentLane());
+    }
+
+    @Test
+    public void queuedWorkRunsInLaneOrder() throws InterruptedException {
+        EMScheduler scheduler = new EMScheduler(2, 16, 16, 16);
+        CountDownLatch interactiveBlocker = new CountDownLatch(1);
+        CountDownLatch normalBlocker = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        scheduler.execute(EMScheduler.Lane.INTERACTIVE, block(started, interactiveBlocker));
+        scheduler.execute(EMScheduler.Lane.NORMAL, block(started, normalBlocker));
+        assertTrue(started.await(WAIT_SECONDS, TimeUnit.SECONDS));
+
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+        scheduler.execute(EMScheduler.Lane.BULK, record(order, "bulk", done));
+        scheduler.execute(EMScheduler.Lane.NORMAL, record(order, "normal", done));
+        scheduler.execute(EMScheduler.Lane.INTERACTIVE, record(order, "interactive", done));
+
+        interactiveBlocker.countDown();
+        normalBlocker.countDown();
+        assertTrue(done.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("interactive", "normal", "bulk"), order);
+    }
+
+    @Test
+    public void oneWorkerIsKeptForInteractiveWork() throws InterruptedException {
+        EMScheduler scheduler = new EMScheduler(2, 16, 16, 16);
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        scheduler.execute(EMScheduler.Lane.NORMAL, block(started, blocker));
+        assertTrue(started.await(WAIT_SECONDS, TimeUnit.SECONDS));
+
+        CountDownLatch normalDone = new CountDownLatch(1);
+        CountDownLatch interactiveDone = new CountDownLatch(1);
+        scheduler.execute(EMScheduler.Lane.NORMAL, normalDone::countDown);
+        scheduler.execute(EMScheduler.Lane.INTERACTIVE, interactiveDone::countDown);
+
+        assertTrue(interactiveDone.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        // 另一个线程留给 interactive, 第二个 normal 任务要等第一个完成
+        assertFalse(normalDone.await(200, TimeUnit.MILLISECONDS));
+        blocker.countDown();
+        assertTrue(normalDone.await(WAIT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void onlyRealRejectionsAreCounted() throws InterruptedException {
+        EMScheduler scheduler = new EMScheduler(2, 16, 16, 1);
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        scheduler.execute(EMScheduler.Lane.BULK, block(started, blocker));
+        assertTrue(started.await(WAIT_SECONDS, TimeUnit.SECONDS));
+
+        assertFalse(scheduler.isSaturated(EMScheduler.Lane.BULK));
+        scheduler.execute(EMScheduler.Lane.BULK, () -> {});
+        assertTrue(scheduler.isSaturated(EMScheduler.Lane.BULK));
+        assertTrue(scheduler.isSaturated(EMScheduler.Lane.BULK));
+        assertEquals(0L, lane(scheduler, "bulk").get("rejected"));
+
+        scheduler.reject(EMScheduler.Lane.BULK);
+        assertEquals(1L, lane(scheduler, "bulk").get("rejected"));
+        assertEquals(1, lane(scheduler, "bulk").get("queued"));
+        blocker.countDown();
+    }
+
+    @Test
+    public void detachReleasesTheSlotOfAStuckTask() throws InterruptedException {
+        EMScheduler scheduler = new EMScheduler(2, 16, 16, 16);
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicReference<Thread> worker = new AtomicReference<>();
+        Runnable stuck = () -> {
+            worker.set(Thread.currentThread());
+            started.countDown();
+            await(blocker);
+        };
+        scheduler.execute(EMScheduler.Lane.NORMAL, stuck);
+        assertTrue(started.await(WAIT_SECONDS, TimeUnit.SECONDS));
+
+        CountDownLatch queuedDone = new CountDownLatch(1);
+        scheduler.execute(EMScheduler.Lane.NORMAL, queuedDone::countDown);
+        assertFalse(queuedDone.await(200, TimeUnit.MILLISECONDS));
+
+        scheduler.detach(worker.get(), stuck, EMScheduler.Lane.NORMAL);
+        assertTrue(queuedDone.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, scheduler.metrics().get("detached"));
+
+        blocker.countDown();
+        worker.get().join(TimeUnit.SECONDS.toMillis(WAIT_SECONDS));
+        assertFalse(worker.get().isAlive());
+        assertEquals(0, scheduler.metrics().get("detached"));
+    }
+
+    @Test
+    public void detachIgnoresAFinishedTask() throws InterruptedException {
+        EMScheduler scheduler = new EMScheduler(2, 16, 16, 16);
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<Thread> worker = new AtomicReference<>();
+        Runnable task = () -> {
+            worker.set(Thread.currentThread());
+            done.countDown();
+        };
+        scheduler.execute(EMScheduler.Lane.NORMAL, task);
+        assertTrue(done.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        Thread.sleep(50);
+
+        scheduler.detach(worker.get(), task, EMScheduler.Lane.NORMAL);
+        assertEquals(0, scheduler.metrics().get("detached"));
+    }
+
+    private static Runnable block(CountDownLatch started, CountDownLatch blocker) {
+        return () -> {
+            started.countDown();
+            await(blocker);
+        };
+    }
+
+    private static Runnable record(List<String> order, String name, CountDownLatch done) {
+        return () -> {
+            order.add(name);
+            done.countDown();
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> lane(EMScheduler scheduler, String name) {
+        return (Map<String, Object>) scheduler.metrics().get(name);
+    }
+}
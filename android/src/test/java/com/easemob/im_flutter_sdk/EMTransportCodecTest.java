@@ -0,0 +1,61 @@
+package com.easemob.im_flutter_sdk;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class EMTransportCodecTest {
+
+    private static Map<String, Object> item(int i) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("name", "item" + i);
+        map.put("progress", i + 0.5);
+        map.put("ratio", (float) i);
+        map.put("sizes", new int[]{i, i + 1});
+        return map;
+    }
+
+    private static Object decode(Object value) {
+        ByteBuffer buffer = EMTransportCodec.INSTANCE.encodeMessage(value);
+        buffer.flip();
+        return EMTransportCodec.INSTANCE.decodeMessage(buffer);
+    }
+
+    @Test
+    public void encodedListKeepsDoublesAlignedAtAnyOffset() {
+        List<Integer> source = Arrays.asList(0, 1, 2);
+        List<Object> expected = new ArrayList<>();
+        for (int i : source) {
+            Map<String, Object> map = item(i);
+            map.put("ratio", (double) i);
+            map.put("sizes", Arrays.asList(i, i + 1));
+            expected.add(map);
+        }
+        for (int shift = 0; shift < 8; shift++) {
+            String prefix = new String(new char[shift]).replace('\0', 'x');
+            EMEncodedList encoded = EMTransportCodec.encodeList(EMTransportCodec.STANDARD_METHOD_CODEC,
+                    source, EMTransportCodecTest::item);
+            assertEquals(Arrays.asList(prefix, expected, 1.25), decode(Arrays.asList(prefix, encoded, 1.25)));
+        }
+    }
+
+    @Test
+    public void decodeListRestoresMessageRecords() {
+        EMMessageSchema.Record body = EMMessageSchema.TXT.newRecord();
+        body.put("content", "hi");
+        EMMessageSchema.Record message = EMMessageSchema.MESSAGE.newRecord();
+        message.put("msgId", "m1");
+        message.put("localTime", 1700000000000L);
+        message.put("body", body);
+        EMEncodedList encoded = EMTransportCodec.encodeList(EMTransportCodec.COMPACT_METHOD_CODEC,
+                Arrays.asList(message), item -> item);
+        assertEquals(Arrays.asList(message), EMTransportCodec.decodeList(encoded));
+    }
+}
@@ -40,6 +40,12 @@ export 'src/models/chat_download_callback.dart';
 export 'src/models/chat_message_reaction.dart';
 export 'src/models/chat_thread.dart';
 export 'src/models/chat_silent_mode.dart';
+export 'src/models/chat_batch_call.dart';
+export 'src/models/chat_member_changes.dart';
+export 'src/models/chat_event_filter.dart';
+export 'src/models/chat_ack_watermark.dart';
+export 'src/models/chat_method_stats.dart';
+export 'src/models/chat_scheduler_metrics.dart';
 export 'src/event_handler/manager_event_handler.dart';
 export 'src/tools/chat_area_code.dart';
 export 'src/models/conversation_fetch_options.dart';
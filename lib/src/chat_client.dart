@@ -1,6 +1,7 @@
 // ignore_for_file: deprecated_member_use_from_same_package
 
 import 'dart:async';
+import 'dart:io';
 
 import 'package:flutter/services.dart';
 import 'internal/inner_headers.dart';
@@ -391,7 +392,12 @@ class ChatClient {
   Future<void> init(ChatOptions options) async {
     _options = options;
     EMLog.v('init: $options');
-    await ClientChannel.invokeMethod(ChatMethodKeys.init, options.toJson());
+    Map result =
+        await ClientChannel.invokeMethod(ChatMethodKeys.init, options.toJson());
+    Map? info = result[ChatMethodKeys.init];
+    ChatMethodChannel.applyTransport(info?['transport']);
+    MessageCallBackManager.getInstance.deltasEnabled =
+        info?['messageDeltas'] == true;
     _currentUserId = await getCurrentUserId();
   }
 
@@ -878,6 +884,239 @@ class ChatClient {
     }
   }
 
+  /// ~english
+  /// Runs several channel calls in one round trip to the native side.
+  ///
+  /// Each call is handled natively exactly as if it had been sent on its own channel. By default the calls run in parallel; set [sequential] to start each call only after the previous one has finished.
+  ///
+  /// Only Android runs a batch in one round trip. On other platforms the calls are sent one by one on their own channels, with the same replies.
+  ///
+  /// Param [calls] The calls to run. See [ChatBatchCall].
+  ///
+  /// Param [sequential] Whether to run the calls one after another.
+  ///
+  /// **Return** The reply of each call, in the order of [calls]. Check each one with [ChatError.hasErrorFromResult] and read its value under the method name.
+  ///
+  /// **Throws** A description of the exception. See [ChatError].
+  /// ~end
+  ///
+  /// ~chinese
+  /// 一次往返执行多个 channel 调用。
+  ///
+  /// 每个调用在原生端的处理与单独调用时完全相同。默认并行执行；[sequential] 为 `true` 时前一个调用完成后才开始下一个。
+  ///
+  /// 仅 Android 支持一次往返执行，其他平台在各自的 channel 上逐个发送调用，返回结果相同。
+  ///
+  /// Param [calls] 要执行的调用，详见 [ChatBatchCall]。
+  ///
+  /// Param [sequential] 是否按顺序逐个执行。
+  ///
+  /// **Return** 各个调用的返回结果，顺序与 [calls] 相同。可用 [ChatError.hasErrorFromResult] 检查每个结果，结果值在方法名对应的 key 下。
+  ///
+  /// **Throws**  如果有异常会在这里抛出，包含错误码和错误描述，详见 [ChatError]。
+  /// ~end
+  Future<List<Map>> batch(
+    List<ChatBatchCall> calls, {
+    bool sequential = false,
+  }) async {
+    if (!Platform.isAndroid) {
+      return _batchOneByOne(calls, sequential);
+    }
+    Map req = {
+      'calls': calls.map((e) => e.toJson()).toList(),
+      'sequential': sequential,
+    };
+    Map result = await ClientChannel.invokeMethod(ChatMethodKeys.batch, req);
+    try {
+      ChatError.hasErrorFromResult(result);
+      List<Map> list = [];
+      result[ChatMethodKeys.batch]?.forEach((reply) {
+        Map data = reply ?? {};
+        if (list.length < calls.length) {
+          MessageCallBackManager.getInstance
+              .publishBatchReply(calls[list.length], data);
+        }
+        list.add(data);
+      });
+      return list;
+    } on ChatError catch (e) {
+      throw e;
+    }
+  }
+
+  // 原生端没有 batch 的平台, 在各自的 channel 上逐个调用, 失败的调用与 Android 一样回复 error
+  Future<List<Map>> _batchOneByOne(
+    List<ChatBatchCall> calls,
+    bool sequential,
+  ) async {
+    Future<Map> invoke(ChatBatchCall call) async {
+      Map data;
+      try {
+        data = await ChatMethodChannel('$channelPrefix/${call.channel}')
+                .invokeMethod(call.method, call.params) ??
+            {};
+      } on MissingPluginException {
+        data = {
+          'error': {
+            'code': 1,
+            'description': 'Not implemented: ${call.channel}/${call.method}'
+          }
+        };
+      } on PlatformException catch (e) {
+        data = {
+          'error': {'code': 1, 'description': e.message ?? e.code}
+        };
+      }
+      MessageCallBackManager.getInstance.publishBatchReply(call, data);
+      return data;
+    }
+
+    if (!sequential) {
+      return Future.wait(calls.map(invoke));
+    }
+    List<Map> list = [];
+    for (var call in calls) {
+      list.add(await invoke(call));
+    }
+    return list;
+  }
+
+  /// ~english
+  /// Sets which message, group, chat room, presence and thread events the native side sends to this Flutter engine.
+  ///
+  /// Events that do not pass [filter] are dropped on the native side before they are converted, so they cost nothing on either side. This is useful for a background isolate that only handles some events, for example only cmd messages. The filter applies to all event handlers of this engine and does not affect other engines. Connection and contact events are always sent. Android only; other platforms keep sending all events.
+  ///
+  /// Param [filter] The events to send, `null` to send all events. See [ChatEventFilter].
+  ///
+  /// **Throws** A description of the exception. See [ChatError].
+  /// ~end
+  ///
+  /// ~chinese
+  /// 设置原生端向当前 Flutter engine 发送哪些消息、群组、聊天室、在线状态和子区事件。
+  ///
+  /// 不满足 [filter] 的事件在原生端转换之前就被丢弃，两端都不会有额外开销。适用于只处理部分事件的后台 isolate，如只处理命令消息。过滤条件对当前 engine 的所有事件监听生效，不影响其他 engine。连接和联系人事件总是会发送。仅支持 Android，其他平台仍发送所有事件。
+  ///
+  /// Param [filter] 要发送的事件，`null` 表示发送所有事件。详见 [ChatEventFilter]。
+  ///
+  /// **Throws**  如果有异常会在这里抛出，包含错误码和错误描述，详见 [ChatError]。
+  /// ~end
+  Future<void> setEventFilter(ChatEventFilter? filter) async {
+    if (!Platform.isAndroid) return;
+    Map req = {};
+    req.putIfNotNull('filter', filter?.toJson());
+    Map result =
+        await ClientChannel.invokeMethod(ChatMethodKeys.setEventFilter, req);
+    try {
+      ChatError.hasErrorFromResult(result);
+    } on ChatError catch (e) {
+      throw e;
+    }
+  }
+
+  /// ~english
+  /// Gets the call counters of the native methods.
+  ///
+  /// Every method call sent to the native side is counted from dispatch until its reply, so asynchronous methods are measured end to end. Only methods that have been called are returned. Android only; other platforms return an empty map.
+  ///
+  /// Param [reset] Whether to reset all counters after reading them.
+  ///
+  /// **Return** The counters keyed by `channel/method`, for example `chat_manager/sendMessage`. See [ChatMethodStats].
+  ///
+  /// **Throws** A description of the exception. See [ChatError].
+  /// ~end
+  ///
+  /// ~chinese
+  /// 获取原生方法的调用统计。
+  ///
+  /// 发往原生端的每个方法调用从分发开始计时，直到返回结果，异步方法按完整耗时统计。只返回被调用过的方法。仅支持 Android，其他平台返回空 map。
+  ///
+  /// Param [reset] 读取后是否清零所有统计。
+  ///
+  /// **Return** 以 `channel/method` 为 key 的统计，如 `chat_manager/sendMessage`。详见 [ChatMethodStats]。
+  ///
+  /// **Throws**  如果有异常会在这里抛出，包含错误码和错误描述，详见 [ChatError]。
+  /// ~end
+  Future<Map<String, ChatMethodStats>> getMethodStats({bool reset = false}) async {
+    if (!Platform.isAndroid) return {};
+    Map result = await ClientChannel.invokeMethod(
+        ChatMethodKeys.getMethodStats, {'reset': reset});
+    try {
+      ChatError.hasErrorFromResult(result);
+      Map<String, ChatMethodStats> ret = {};
+      (result[ChatMethodKeys.getMethodStats] as Map?)?.forEach((key, value) {
+        ret[key] = ChatMethodStats.fromJson(value);
+      });
+      return ret;
+    } on ChatError catch (e) {
+      throw e;
+    }
+  }
+
+  /// ~english
+  /// Gets the state of the native worker pool that runs the SDK calls.
+  ///
+  /// Shows how deep the queue of each lane is and how many calls were rejected because a queue was full. Android only; other platforms return `null`.
+  ///
+  /// **Return** The pool state, or `null` before [init]. See [ChatSchedulerMetrics].
+  ///
+  /// **Throws** A description of the exception. See [ChatError].
+  /// ~end
+  ///
+  /// ~chinese
+  /// 获取执行 SDK 调用的原生工作线程池的状态。
+  ///
+  /// 包括各个队列的深度以及因队列已满被拒绝的调用数。仅支持 Android，其他平台返回 `null`。
+  ///
+  /// **Return** 线程池状态，[init] 之前为 `null`。详见 [ChatSchedulerMetrics]。
+  ///
+  /// **Throws**  如果有异常会在这里抛出，包含错误码和错误描述，详见 [ChatError]。
+  /// ~end
+  Future<ChatSchedulerMetrics?> getSchedulerMetrics() async {
+    if (!Platform.isAndroid) return null;
+    Map result =
+        await ClientChannel.invokeMethod(ChatMethodKeys.getSchedulerMetrics);
+    try {
+      ChatError.hasErrorFromResult(result);
+      Map? data = result[ChatMethodKeys.getSchedulerMetrics];
+      return data != null ? ChatSchedulerMetrics.fromJson(data) : null;
+    } on ChatError catch (e) {
+      throw e;
+    }
+  }
+
+  /// ~english
+  /// Runs [action] with a deadline on every SDK call it makes.
+  ///
+  /// Each call that [action] sends to the native side, including calls made after an `await`, carries [timeout]. The native side answers a call that is still running when its timeout expires with a [ChatError] and drops its late result. Calls made outside [action] have no deadline on local operations, and calls that wait for the server time out after 60 seconds by default.
+  ///
+  /// Param [timeout] The deadline of each call.
+  ///
+  /// Param [action] The code that makes the calls.
+  ///
+  /// **Return** The result of [action].
+  /// ~end
+  ///
+  /// ~chinese
+  /// 为 [action] 中的每个 SDK 调用设置超时时间。
+  ///
+  /// [action] 发往原生端的每个调用（包括 `await` 之后的调用）都带有 [timeout]。超时仍未完成的调用会由原生端返回 [ChatError]，之后到达的结果被丢弃。在 [action] 之外的调用中，本地操作不设超时，请求服务器的调用默认 60 秒超时。
+  ///
+  /// Param [timeout] 每个调用的超时时间。
+  ///
+  /// Param [action] 发起调用的代码。
+  ///
+  /// **Return** [action] 的返回值。
+  /// ~end
+  Future<T> runWithTimeout<T>(
+    Duration timeout,
+    Future<T> Function() action,
+  ) {
+    return runZoned(
+      action,
+      zoneValues: {ChatMethodChannel.timeoutKey: timeout},
+    );
+  }
+
   Future<void> _onConnected() async {
     for (var handler in _connectionEventHandler.values) {
       handler.onConnected?.call();
@@ -1128,5 +1367,6 @@ class ChatClient {
   void _clearAllInfo() {
     _currentUserId = null;
     _userInfoManager.clearUserInfoCache();
+    MessageCallBackManager.getInstance.clearSnapshots();
   }
 }
@@ -15,8 +15,8 @@ import 'internal/inner_headers.dart';
 /// ~end
 class ChatContactManager {
   static const _channelPrefix = 'com.chat.im';
-  static const MethodChannel _channel = const MethodChannel(
-      '$_channelPrefix/chat_contact_manager', JSONMethodCodec());
+  static final ChatMethodChannel _channel =
+      ChatMethodChannel('$_channelPrefix/chat_contact_manager');
 
   ChatContactManager() {
     _channel.setMethodCallHandler((MethodCall call) async {
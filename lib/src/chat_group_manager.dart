@@ -13,8 +13,8 @@ import 'internal/inner_headers.dart';
 /// ~end
 class ChatGroupManager {
   static const _channelPrefix = 'com.chat.im';
-  static const MethodChannel _channel = const MethodChannel(
-      '$_channelPrefix/chat_group_manager', JSONMethodCodec());
+  static final ChatMethodChannel _channel =
+      ChatMethodChannel('$_channelPrefix/chat_group_manager');
 
   final Map<String, ChatGroupEventHandler> _eventHandlesMap = {};
 
@@ -2214,7 +2214,44 @@ class ChatGroupManager {
             attributes,
             operatorId,
           );
+          break;
+        case ChatGroupChangeEvent.ON_MEMBERS_CHANGED:
+          String groupId = map["groupId"];
+          ChatMemberChanges changes = ChatMemberChanges.fromJson(map);
+          if (element.onMembersChangedFromGroup != null) {
+            element.onMembersChangedFromGroup!.call(groupId, changes);
+          } else {
+            _forwardMemberChanges(element, groupId, changes);
+          }
+          break;
       }
     });
   }
+
+  // 没有设置 onMembersChangedFromGroup 时拆成单个成员的回调
+  void _forwardMemberChanges(
+    ChatGroupEventHandler element,
+    String groupId,
+    ChatMemberChanges changes,
+  ) {
+    for (var member in changes.joined) {
+      element.onMemberJoinedFromGroup?.call(groupId, member);
+    }
+    for (var member in changes.left) {
+      element.onMemberExitedFromGroup?.call(groupId, member);
+    }
+    changes.mutedByExpireTime.forEach((expire, mutes) {
+      element.onMuteListAddedFromGroup?.call(groupId, mutes, expire);
+    });
+    if (changes.unmuted.isNotEmpty) {
+      element.onMuteListRemovedFromGroup?.call(groupId, changes.unmuted);
+    }
+    if (changes.allowListAdded.isNotEmpty) {
+      element.onAllowListAddedFromGroup?.call(groupId, changes.allowListAdded);
+    }
+    if (changes.allowListRemoved.isNotEmpty) {
+      element.onAllowListRemovedFromGroup
+          ?.call(groupId, changes.allowListRemoved);
+    }
+  }
 }
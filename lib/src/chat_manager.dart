@@ -1,6 +1,7 @@
 // ignore_for_file: deprecated_member_use_from_same_package
 
 import "dart:async";
+import 'dart:io';
 
 import 'package:flutter/services.dart';
 import 'package:agora_chat_sdk/agora_chat_sdk.dart';
@@ -47,6 +48,8 @@ class ChatManager {
         return _onReadAckForGroupMessageUpdated(call.arguments);
       } else if (call.method == ChatMethodKeys.onMessagesDelivered) {
         return _onMessagesDelivered(call.arguments);
+      } else if (call.method == ChatMethodKeys.onAckWatermarks) {
+        return _onAckWatermarks(call.arguments);
       } else if (call.method == ChatMethodKeys.onMessagesRecalled) {
         return _onMessagesRecalled(call.arguments);
       } else if (call.method == ChatMethodKeys.onConversationUpdate) {
@@ -160,10 +163,13 @@ class ChatManager {
   /// ~end
   Future<ChatMessage> sendMessage(ChatMessage message) async {
     message.status = MessageStatus.PROGRESS;
+    String localId = message.msgId;
     Map result = await ChatChannel.invokeMethod(
         ChatMethodKeys.sendMessage, message.toJson());
     try {
       ChatError.hasErrorFromResult(result);
+      MessageCallBackManager.getInstance
+          .publishMessage(localId, result[ChatMethodKeys.sendMessage]);
       ChatMessage msg =
           ChatMessage.fromJson(result[ChatMethodKeys.sendMessage]);
       message.from = msg.from;
@@ -171,6 +177,7 @@ class ChatManager {
       message.status = msg.status;
       return message;
     } on ChatError catch (e) {
+      MessageCallBackManager.getInstance.discardMessage(localId);
       throw e;
     }
   }
@@ -190,10 +197,13 @@ class ChatManager {
   /// ~end
   Future<ChatMessage> resendMessage(ChatMessage message) async {
     message.status = MessageStatus.PROGRESS;
+    String localId = message.msgId;
     Map result = await ChatChannel.invokeMethod(
         ChatMethodKeys.resendMessage, message.toJson());
     try {
       ChatError.hasErrorFromResult(result);
+      MessageCallBackManager.getInstance
+          .publishMessage(localId, result[ChatMethodKeys.resendMessage]);
       ChatMessage msg =
           ChatMessage.fromJson(result[ChatMethodKeys.resendMessage]);
       message.from = msg.from;
@@ -201,6 +211,7 @@ class ChatManager {
       message.status = msg.status;
       return message;
     } on ChatError catch (e) {
+      MessageCallBackManager.getInstance.discardMessage(localId);
       throw e;
     }
   }
@@ -586,29 +597,119 @@ class ChatManager {
   ///
   /// Before importing, ensure that the sender or receiver of the message is the current user.
   ///
-  /// For each method call, we recommends to import less than 1,000 messages.
+  /// The messages are serialized and imported in chunks of [chunkSize], so large imports do not build one huge request. [messages] is only iterated chunk by chunk, so a lazy iterable is never held in memory as a whole. See [importMessageStream] to import from a stream.
   ///
-  /// Param [messages] The message list.
+  /// Param [messages] The messages to import.
   ///
-  /// **Throws** A description of the exception. See [ChatError].
+  /// Param [chunkSize] The number of messages sent to the native side per call. It must be greater than 0. We recommend a value of less than 1,000.
+  ///
+  /// Param [onProgress] The callback invoked after each chunk with the number of imported messages and the total. The total is `-1` unless [messages] is a [List].
+  ///
+  /// Param [isCancelled] Checked before each chunk. If it returns `true`, the import stops and the chunks already imported stay in the database.
+  ///
+  /// **Throws** An [ArgumentError] if [chunkSize] is not greater than 0, or a description of the exception. See [ChatError].
   /// ~end
   ///
   /// ~chinese
   /// 将消息导入本地数据库。
   ///
   /// 只能将当前用户发送或接收的消息导入本地数据库。
-  /// 已经对函数做过速度优化，推荐一次导入 1,000 条以内的数据。
+  /// 消息按 [chunkSize] 分批序列化并导入，大批量导入时不会一次性构造整个请求。[messages] 按批遍历，惰性的 Iterable 不会整体驻留内存。从 Stream 导入请使用 [importMessageStream]。
   ///
   /// Param [messages] 需要导入数据库的消息。
   ///
-  /// **Throws**  如果有异常会在这里抛出，包含错误码和错误描述，详见 [ChatError]。
+  /// Param [chunkSize] 每次调用原生导入的消息条数，须大于 0，推荐 1,000 条以内。
+  ///
+  /// Param [onProgress] 每批导入完成后的回调，参数为已导入条数和总条数。[messages] 不是 [List] 时总条数为 `-1`。
+  ///
+  /// Param [isCancelled] 每批导入前检查，返回 `true` 时停止导入，已导入的批次会保留在数据库中。
+  ///
+  /// **Throws**  [chunkSize] 不大于 0 时抛出 [ArgumentError]；其他异常包含错误码和错误描述，详见 [ChatError]。
   /// ~end
-  Future<void> importMessages(List<ChatMessage> messages) async {
-    List<Map> list = [];
-    messages.forEach((element) {
-      list.add(element.toJson());
-    });
-    Map req = {"messages": list};
+  Future<void> importMessages(
+    Iterable<ChatMessage> messages, {
+    int chunkSize = 1000,
+    void Function(int imported, int total)? onProgress,
+    bool Function()? isCancelled,
+  }) async {
+    _checkChunkSize(chunkSize);
+    int total = messages is List ? messages.length : -1;
+    int imported = 0;
+    List<Map> chunk = [];
+    for (var message in messages) {
+      chunk.add(message.toJson());
+      if (chunk.length < chunkSize) continue;
+      if (isCancelled?.call() == true) return;
+      imported += await _importChunk(chunk);
+      chunk = [];
+      onProgress?.call(imported, total);
+    }
+    if (chunk.isEmpty || isCancelled?.call() == true) return;
+    imported += await _importChunk(chunk);
+    onProgress?.call(imported, total);
+  }
+
+  /// ~english
+  /// Imports messages from a stream to the local database.
+  ///
+  /// Works like [importMessages], but the messages can be produced while importing, for example read from a file page by page. At most [chunkSize] messages are buffered at a time.
+  ///
+  /// Param [messages] The messages to import.
+  ///
+  /// Param [chunkSize] The number of messages sent to the native side per call. It must be greater than 0. We recommend a value of less than 1,000.
+  ///
+  /// Param [onProgress] The callback invoked after each chunk with the number of imported messages.
+  ///
+  /// Param [isCancelled] Checked before each chunk. If it returns `true`, the stream is cancelled, the import stops and the chunks already imported stay in the database.
+  ///
+  /// **Throws** An [ArgumentError] if [chunkSize] is not greater than 0, or a description of the exception. See [ChatError].
+  /// ~end
+  ///
+  /// ~chinese
+  /// 从 Stream 将消息导入本地数据库。
+  ///
+  /// 与 [importMessages] 相同，但消息可以边导入边产生，例如分页从文件读取。同一时间最多缓存 [chunkSize] 条消息。
+  ///
+  /// Param [messages] 需要导入数据库的消息。
+  ///
+  /// Param [chunkSize] 每次调用原生导入的消息条数，须大于 0，推荐 1,000 条以内。
+  ///
+  /// Param [onProgress] 每批导入完成后的回调，参数为已导入条数。
+  ///
+  /// Param [isCancelled] 每批导入前检查，返回 `true` 时取消 Stream 并停止导入，已导入的批次会保留在数据库中。
+  ///
+  /// **Throws**  [chunkSize] 不大于 0 时抛出 [ArgumentError]；其他异常包含错误码和错误描述，详见 [ChatError]。
+  /// ~end
+  Future<void> importMessageStream(
+    Stream<ChatMessage> messages, {
+    int chunkSize = 1000,
+    void Function(int imported)? onProgress,
+    bool Function()? isCancelled,
+  }) async {
+    _checkChunkSize(chunkSize);
+    int imported = 0;
+    List<Map> chunk = [];
+    await for (var message in messages) {
+      chunk.add(message.toJson());
+      if (chunk.length < chunkSize) continue;
+      if (isCancelled?.call() == true) return;
+      imported += await _importChunk(chunk);
+      chunk = [];
+      onProgress?.call(imported);
+    }
+    if (chunk.isEmpty || isCancelled?.call() == true) return;
+    imported += await _importChunk(chunk);
+    onProgress?.call(imported);
+  }
+
+  void _checkChunkSize(int chunkSize) {
+    if (chunkSize <= 0) {
+      throw ArgumentError.value(chunkSize, 'chunkSize', 'must be greater than 0');
+    }
+  }
+
+  Future<int> _importChunk(List<Map> chunk) async {
+    Map req = {"messages": chunk};
     Map result =
         await ChatChannel.invokeMethod(ChatMethodKeys.importMessages, req);
     try {
@@ -616,6 +717,7 @@ class ChatManager {
     } on ChatError catch (e) {
       throw e;
     }
+    return chunk.length;
   }
 
   /// ~english
@@ -642,7 +744,10 @@ class ChatManager {
         ChatMethodKeys.downloadAttachment, {"message": message.toJson()});
     try {
       ChatError.hasErrorFromResult(result);
+      MessageCallBackManager.getInstance
+          .publishMessage(message.msgId, result[ChatMethodKeys.downloadAttachment]);
     } on ChatError catch (e) {
+      MessageCallBackManager.getInstance.discardMessage(message.msgId);
       throw e;
     }
   }
@@ -667,7 +772,10 @@ class ChatManager {
         ChatMethodKeys.downloadThumbnail, {"message": message.toJson()});
     try {
       ChatError.hasErrorFromResult(result);
+      MessageCallBackManager.getInstance
+          .publishMessage(message.msgId, result[ChatMethodKeys.downloadThumbnail]);
     } on ChatError catch (e) {
+      MessageCallBackManager.getInstance.discardMessage(message.msgId);
       throw e;
     }
   }
@@ -697,7 +805,10 @@ class ChatManager {
         {"message": message.toJson()});
     try {
       ChatError.hasErrorFromResult(result);
+      MessageCallBackManager.getInstance
+          .publishMessage(message.msgId, result[ChatMethodKeys.downloadMessageAttachmentInCombine]);
     } on ChatError catch (e) {
+      MessageCallBackManager.getInstance.discardMessage(message.msgId);
       throw e;
     }
   }
@@ -723,7 +834,10 @@ class ChatManager {
         {"message": message.toJson()});
     try {
       ChatError.hasErrorFromResult(result);
+      MessageCallBackManager.getInstance
+          .publishMessage(message.msgId, result[ChatMethodKeys.downloadMessageThumbnailInCombine]);
     } on ChatError catch (e) {
+      MessageCallBackManager.getInstance.discardMessage(message.msgId);
       throw e;
     }
   }
@@ -769,6 +883,8 @@ class ChatManager {
   ///
   /// To use this function, you need to contact our business manager to activate it. After this function is activated, users can pull 10 conversations within 7 days by default (each conversation contains the latest historical message). If you want to adjust the number of conversations or time limit, please contact our business manager.
   ///
+  /// Param [requestId] An ID of your choice for this call. Pass it to [ChatManager.cancelRequest] to cancel the call. Only Android supports cancellation.
+  ///
   /// **Return** The conversation list of the current user.
   ///
   /// **Throws** A description of the exception. See [ChatError].
@@ -779,13 +895,18 @@ class ChatManager {
   ///
   /// 该功能需联系商务开通，开通后，用户默认可拉取 7 天内的 10 个会话（每个会话包含最新一条历史消息），如需调整会话数量或时间限制请联系商务经理。
   ///
+  /// Param [requestId] 调用方指定的请求 ID，可传给 [ChatManager.cancelRequest] 取消该调用，仅 Android 支持取消。
+  ///
   /// **Return** 返回获取的会话列表。
   ///
   /// **Throws**  如果有异常会在这里抛出，包含错误码和错误描述，详见 [ChatError]。
   /// ~end
-  Future<List<ChatConversation>> getConversationsFromServer() async {
+  Future<List<ChatConversation>> getConversationsFromServer(
+      {String? requestId}) async {
+    Map req = {};
+    req.putIfNotNull('requestId', requestId);
     Map result = await ChatChannel.invokeMethod(
-        ChatMethodKeys.getConversationsFromServer);
+        ChatMethodKeys.getConversationsFromServer, req);
     try {
       ChatError.hasErrorFromResult(result);
       List<ChatConversation> conversationList = [];
@@ -1102,6 +1223,11 @@ class ChatManager {
   /// Param [cursor] The cursor position from which to start querying data.
   ///
   /// Param [pageSize] The number of messages that you expect to get on each page. The value range is [1,50].
+  ///
+  /// Param [fields] The optional field groups to return. See [MessageField]. If not set, the full messages are returned.
+  ///
+  /// Param [requestId] An ID of your choice for this call. Pass it to [ChatManager.cancelRequest] to cancel the call. Only Android supports cancellation.
+  ///
   /// ~end
   ///
   /// ~chinese
@@ -1116,6 +1242,11 @@ class ChatManager {
   /// Param [cursor] 查询的起始游标位置。
   ///
   /// Param [pageSize] 每页期望获取的消息条数。取值范围为 [1,50]。
+  ///
+  /// Param [fields] 需要返回的可选字段分组，详见 [MessageField]。不传则返回完整消息。
+  ///
+  /// Param [requestId] 调用方指定的请求 ID，可传给 [ChatManager.cancelRequest] 取消该调用，仅 Android 支持取消。
+  ///
   /// ~end
   Future<ChatCursorResult<ChatMessage>> fetchHistoryMessagesByOption(
     String conversationId,
@@ -1123,6 +1254,8 @@ class ChatManager {
     FetchMessageOptions? options,
     String? cursor,
     int pageSize = 50,
+    List<MessageField>? fields,
+    String? requestId,
   }) async {
     Map req = Map();
     req.putIfNotNull('convId', conversationId);
@@ -1130,6 +1263,8 @@ class ChatManager {
     req.putIfNotNull('pageSize', pageSize);
     req.putIfNotNull('cursor', cursor);
     req.putIfNotNull('options', options?.toJson());
+    req.putIfNotNull('fields', fields?.map((e) => e.index).toList());
+    req.putIfNotNull('requestId', requestId);
     Map result = await ChatChannel.invokeMethod(
         ChatMethodKeys.fetchHistoryMessagesByOptions, req);
     try {
@@ -1163,6 +1298,10 @@ class ChatManager {
   /// `ChatSearchDirection.Up`: Gets the messages loaded before the timestamp of the specified message ID.
   /// `ChatSearchDirection.Down`: Gets the messages loaded after the timestamp of the specified message ID.
   ///
+  /// Param [fields] The optional field groups to return. See [MessageField]. If not set, the full messages are returned.
+  ///
+  /// Param [requestId] An ID of your choice for this call. Pass it to [ChatManager.cancelRequest] to cancel the call. Only Android supports cancellation.
+  ///
   /// **Returns** The list of retrieved messages.
   ///
   /// **Throws** A description of the exception. See [ChatError].
@@ -1185,6 +1324,10 @@ class ChatManager {
   ///
   /// Param [direction] 消息搜索方向。
   ///
+  /// Param [fields] 需要返回的可选字段分组，详见 [MessageField]。不传则返回完整消息。
+  ///
+  /// Param [requestId] 调用方指定的请求 ID，可传给 [ChatManager.cancelRequest] 取消该调用，仅 Android 支持取消。
+  ///
   /// **Return** 消息列表。
   ///
   /// **Throws**  如果有异常会在这里抛出，包含错误码和错误描述，详见 [ChatError]。
@@ -1196,6 +1339,8 @@ class ChatManager {
     int count = 20,
     MessageSearchScope searchScope = MessageSearchScope.All,
     ChatSearchDirection direction = ChatSearchDirection.Up,
+    List<MessageField>? fields,
+    String? requestId,
   }) async {
     Map req = Map();
     req["keywords"] = keywords;
@@ -1204,6 +1349,8 @@ class ChatManager {
     req['searchScope'] = MessageSearchScope.values.indexOf(searchScope);
     req['direction'] = direction == ChatSearchDirection.Up ? "up" : "down";
     req.putIfNotNull("sender", sender);
+    req.putIfNotNull('fields', fields?.map((e) => e.index).toList());
+    req.putIfNotNull('requestId', requestId);
 
     Map result =
         await ChatChannel.invokeMethod(ChatMethodKeys.searchChatMsgFromDB, req);
@@ -1868,6 +2015,8 @@ class ChatManager {
   ///
   /// Param [message] The combined message.
   ///
+  /// Param [requestId] An ID of your choice for this call. Pass it to [ChatManager.cancelRequest] to cancel the call. Only Android supports cancellation.
+  ///
   /// **Return** The list of original messages included in the combined message.
   ///
   /// **Throws** A description of the exception. See [ChatError].
@@ -1878,16 +2027,20 @@ class ChatManager {
   ///
   /// Param [message] 合并消息。
   ///
+  /// Param [requestId] 调用方指定的请求 ID，可传给 [ChatManager.cancelRequest] 取消该调用，仅 Android 支持取消。
+  ///
   /// **Return** 合并消息包含的原始消息列表。
   ///
   /// **Throws**  如果有异常会在这里抛出，包含错误码和错误描述，详见 [ChatError]。
   /// ~end
   Future<List<ChatMessage>> fetchCombineMessageDetail({
     required ChatMessage message,
+    String? requestId,
   }) async {
     Map map = {
       'message': message.toJson(),
     };
+    map.putIfNotNull('requestId', requestId);
 
     Map result = await ChatChannel.invokeMethod(
       ChatMethodKeys.downloadAndParseCombineMessage,
@@ -1907,6 +2060,42 @@ class ChatManager {
     }
   }
 
+  /// ~english
+  /// Cancels a call that was started with [requestId].
+  ///
+  /// The call fails at once with a [ChatError]. Work the SDK cannot stop still finishes in the background, but its result is neither converted nor sent back.
+  ///
+  /// Only Android supports cancellation. On other platforms [requestId] is ignored, the call always runs to completion, and this method returns `false`.
+  ///
+  /// Param [requestId] The ID passed to the call, e.g. to [fetchHistoryMessagesByOption] or [loadMessagesWithKeyword].
+  ///
+  /// **Return** Whether a pending call was found and cancelled.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 取消以 [requestId] 发起的调用。
+  ///
+  /// 该调用会立即以 [ChatError] 失败。SDK 无法中止的工作仍会在后台完成，但其结果不会再转换和返回。
+  ///
+  /// 仅 Android 支持取消。其他平台会忽略 [requestId]，调用总会执行完毕，该方法返回 `false`。
+  ///
+  /// Param [requestId] 发起调用时传入的 ID，例如 [fetchHistoryMessagesByOption] 或 [loadMessagesWithKeyword]。
+  ///
+  /// **Return** 是否找到并取消了尚未完成的调用。
+  /// ~end
+  Future<bool> cancelRequest(String requestId) async {
+    if (!Platform.isAndroid) return false;
+    // `requestId` would register this call itself as cancellable.
+    Map result = await ChatChannel.invokeMethod(
+        ChatMethodKeys.cancelRequest, {'targetRequestId': requestId});
+    try {
+      ChatError.hasErrorFromResult(result);
+      return result[ChatMethodKeys.cancelRequest] == true;
+    } on ChatError catch (e) {
+      throw e;
+    }
+  }
+
   ///
   /// ~english
   /// This method marks conversations both locally and on the server.
@@ -2227,6 +2416,17 @@ class ChatManager {
     }
   }
 
+  Future<void> _onAckWatermarks(List watermarks) async {
+    List<ChatAckWatermark> list = [];
+    for (var watermark in watermarks) {
+      list.add(ChatAckWatermark.fromJson(watermark));
+    }
+
+    for (var item in _eventHandlesMap.values) {
+      item.onAckWatermarks?.call(list);
+    }
+  }
+
   Future<void> _onMessagesRecalled(List messages) async {
     List<ChatMessage> list = [];
     for (var message in messages) {
@@ -2352,9 +2552,19 @@ class ChatMessageEvent {
 
 class MessageCallBackManager {
   static const _channelPrefix = 'com.chat.im';
-  static const MethodChannel _emMessageChannel =
-      const MethodChannel('$_channelPrefix/chat_message', JSONMethodCodec());
+  static final ChatMethodChannel _emMessageChannel =
+      ChatMethodChannel('$_channelPrefix/chat_message');
   Map<String, ChatMessageEvent> cacheHandleMap = {};
+
+  /// Whether the native side sends only the changed fields of a message in
+  /// its status events, decided by the `init` reply.
+  bool deltasEnabled = false;
+
+  // 与 native 端 EMMessageDeltas 的上限一致, 超出后丢弃最早的快照
+  static const int _maxSnapshots = 256;
+
+  // 发送/下载中的消息在 native 端最后一次返回的内容, 与只带变化字段的事件合并
+  final Map<String, Map<String, dynamic>> _snapshots = {};
   static MessageCallBackManager? _instance;
   static MessageCallBackManager get getInstance =>
       _instance = _instance ?? MessageCallBackManager._internal();
@@ -2364,16 +2574,21 @@ class MessageCallBackManager {
       Map<String, dynamic> argMap = call.arguments;
       String? localId = argMap['localId'];
       if (localId == null) return;
-      cacheHandleMap.forEach((key, value) {
-        if (call.method == ChatMethodKeys.onMessageProgressUpdate) {
-          int progress = argMap["progress"];
+      if (call.method == ChatMethodKeys.onMessageProgressUpdate) {
+        int progress = argMap["progress"];
+        cacheHandleMap.forEach((key, value) {
           value.onProgress?.call(localId, progress);
-        } else if (call.method == ChatMethodKeys.onMessageError) {
-          ChatMessage msg = ChatMessage.fromJson(argMap['message']);
+        });
+        return null;
+      }
+
+      final ChatMessage? msg = await _messageFromEvent(localId, argMap);
+      if (msg == null) return null;
+      cacheHandleMap.forEach((key, value) {
+        if (call.method == ChatMethodKeys.onMessageError) {
           ChatError err = ChatError.fromJson(argMap['error']);
           value.onError?.call(localId, msg, err);
         } else if (call.method == ChatMethodKeys.onMessageSuccess) {
-          ChatMessage msg = ChatMessage.fromJson(argMap['message']);
           value.onSuccess?.call(localId, msg);
         }
       });
@@ -2382,6 +2597,84 @@ class MessageCallBackManager {
     });
   }
 
+  /// Keeps [json], the message the native side returned for [localId], as the
+  /// base the next status event of that message is applied to.
+  void publishMessage(String localId, Map? json) {
+    if (!deltasEnabled || json == null) return;
+    _snapshots.remove(localId);
+    _snapshots[localId] = Map<String, dynamic>.from(json);
+    // 没有收到最终事件的快照不会一直保留
+    while (_snapshots.length > _maxSnapshots) {
+      _snapshots.remove(_snapshots.keys.first);
+    }
+  }
+
+  /// Drops the snapshot of [localId] after its call failed or was cancelled.
+  void discardMessage(String localId) {
+    _snapshots.remove(localId);
+  }
+
+  // 与单独调用时一样, 批量调用中发送和下载的返回结果也作为快照
+  static const Map<String, String> _publishingMethods = {
+    ChatMethodKeys.sendMessage: 'msgId',
+    ChatMethodKeys.resendMessage: 'msgId',
+    ChatMethodKeys.downloadAttachment: 'message',
+    ChatMethodKeys.downloadThumbnail: 'message',
+    ChatMethodKeys.downloadMessageAttachmentInCombine: 'message',
+    ChatMethodKeys.downloadMessageThumbnailInCombine: 'message',
+  };
+
+  /// Publishes the reply of a [ChatClient.batch] call like the method does when it is called on its own.
+  void publishBatchReply(ChatBatchCall call, Map reply) {
+    String? key = _publishingMethods[call.method];
+    if (key == null || call.params == null) return;
+    String? localId = key == 'msgId'
+        ? call.params!['msgId']
+        : (call.params!['message'] as Map?)?['msgId'];
+    if (localId == null) return;
+    if (reply['error'] != null) {
+      discardMessage(localId);
+    } else {
+      publishMessage(localId, reply[call.method]);
+    }
+  }
+
+  // 成功和失败都是最终状态, 用过的快照随之删除
+  Future<ChatMessage?> _messageFromEvent(
+      String localId, Map<String, dynamic> argMap) async {
+    Map<String, dynamic>? snapshot = _snapshots.remove(localId);
+    Map? delta = argMap['delta'];
+    if (delta == null) {
+      return ChatMessage.fromJson(argMap['message']);
+    }
+    if (snapshot == null) {
+      // 没有快照时向 native 取完整消息
+      try {
+        return await ChatClient.getInstance.chatManager
+            .loadMessage(argMap['msgId'] ?? localId);
+      } on ChatError {
+        return null;
+      }
+    }
+    return ChatMessage.fromJson(_applyDelta(snapshot, delta, true));
+  }
+
+  static Map<String, dynamic> _applyDelta(
+      Map<String, dynamic> snapshot, Map delta, bool nested) {
+    Map<String, dynamic> result = Map<String, dynamic>.from(snapshot);
+    delta.forEach((key, value) {
+      if (value == null) {
+        result.remove(key);
+      } else if (nested && key == 'body' && value is Map && result[key] is Map) {
+        result[key] = _applyDelta(
+            Map<String, dynamic>.from(result[key]), value, false);
+      } else {
+        result[key] = value;
+      }
+    });
+    return result;
+  }
+
   void addMessageEvent(String key, ChatMessageEvent event) {
     cacheHandleMap[key] = event;
   }
@@ -2395,4 +2688,8 @@ class MessageCallBackManager {
   void clearAllMessageEvents() {
     cacheHandleMap.clear();
   }
+
+  void clearSnapshots() {
+    _snapshots.clear();
+  }
 }
@@ -12,8 +12,8 @@ import 'internal/inner_headers.dart';
 /// ~end
 class ChatPresenceManager {
   static const _channelPrefix = 'com.chat.im';
-  static const MethodChannel _channel = const MethodChannel(
-      '$_channelPrefix/chat_presence_manager', JSONMethodCodec());
+  static final ChatMethodChannel _channel =
+      ChatMethodChannel('$_channelPrefix/chat_presence_manager');
 
   final Map<String, ChatPresenceEventHandler> _eventHandlesMap = {};
 
@@ -240,6 +240,8 @@ class ChatPresenceManager {
   /// ~english
   /// Gets the current presence state of users.
   ///
+  /// Users whose presence you have subscribed to are answered from the presence the native side keeps up to date, without a server request, while the subscription is valid.
+  ///
   /// Param [members] The array of IDs of users whose current presence state you want to check.
   ///
   /// **Return** Which contains the users whose presence state you have subscribed to.
@@ -250,6 +252,8 @@ class ChatPresenceManager {
   /// ~chinese
   /// 查询指定用户的当前在线状态。
   ///
+  /// 订阅有效期内的用户直接使用原生端持续更新的状态，不请求服务器。
+  ///
   /// Param [members] 用户 ID 数组，指定要查询哪些用户的在线状态。
   ///
   /// **Return** 被订阅用户的当前状态。
@@ -30,8 +30,8 @@ import 'internal/inner_headers.dart';
 /// ~end
 class ChatRoomManager {
   static const _channelPrefix = 'com.chat.im';
-  static const MethodChannel _channel = const MethodChannel(
-      '$_channelPrefix/chat_room_manager', JSONMethodCodec());
+  static final ChatMethodChannel _channel =
+      ChatMethodChannel('$_channelPrefix/chat_room_manager');
 
   ChatRoomManager() {
     _channel.setMethodCallHandler((MethodCall call) async {
@@ -152,10 +152,48 @@ class ChatRoomManager {
             fromId,
           );
           break;
+        case ChatRoomEvent.ON_MEMBERS_CHANGED:
+          String roomId = event['roomId'];
+          String? roomName = event['roomName'];
+          ChatMemberChanges changes = ChatMemberChanges.fromJson(event);
+          if (item.onMembersChangedFromChatRoom != null) {
+            item.onMembersChangedFromChatRoom!.call(roomId, roomName, changes);
+          } else {
+            _forwardMemberChanges(item, roomId, roomName, changes);
+          }
+          break;
       }
     }
   }
 
+  // 没有设置 onMembersChangedFromChatRoom 时拆成单个成员的回调
+  void _forwardMemberChanges(
+    ChatRoomEventHandler item,
+    String roomId,
+    String? roomName,
+    ChatMemberChanges changes,
+  ) {
+    for (var member in changes.joined) {
+      item.onMemberJoinedFromChatRoom?.call(roomId, member);
+    }
+    for (var member in changes.left) {
+      item.onMemberExitedFromChatRoom?.call(roomId, roomName, member);
+    }
+    changes.mutedByExpireTime.forEach((expire, mutes) {
+      item.onMuteListAddedFromChatRoom?.call(roomId, mutes, expire.toString());
+    });
+    if (changes.unmuted.isNotEmpty) {
+      item.onMuteListRemovedFromChatRoom?.call(roomId, changes.unmuted);
+    }
+    if (changes.allowListAdded.isNotEmpty) {
+      item.onAllowListAddedFromChatRoom?.call(roomId, changes.allowListAdded);
+    }
+    if (changes.allowListRemoved.isNotEmpty) {
+      item.onAllowListRemovedFromChatRoom
+          ?.call(roomId, changes.allowListRemoved);
+    }
+  }
+
   /// ~english
   /// Adds the room event handler. After calling this method, you can handle for new room event when they arrive.
   ///
@@ -12,8 +12,8 @@ import 'internal/inner_headers.dart';
 /// ~end
 class ChatThreadManager {
   static const _channelPrefix = 'com.chat.im';
-  static const MethodChannel _channel = const MethodChannel(
-      '$_channelPrefix/chat_thread_manager', JSONMethodCodec());
+  static final ChatMethodChannel _channel =
+      ChatMethodChannel('$_channelPrefix/chat_thread_manager');
 
   final Map<String, ChatThreadEventHandler> _eventHandlesMap = {};
 
@@ -14,8 +14,8 @@ import 'internal/inner_headers.dart';
 /// ~end
 class ChatUserInfoManager {
   static const _channelPrefix = 'com.chat.im';
-  static const MethodChannel _channel = const MethodChannel(
-      '$_channelPrefix/chat_userInfo_manager', JSONMethodCodec());
+  static final ChatMethodChannel _channel =
+      ChatMethodChannel('$_channelPrefix/chat_userInfo_manager');
 
   // The map of effective contacts.
   Map<String, ChatUserInfo> _effectiveUserInfoMap = Map();
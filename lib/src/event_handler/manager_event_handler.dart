@@ -447,6 +447,19 @@ class ChatEventHandler {
   /// ~end
   final void Function(List<ChatMessage> messages)? onMessagesDelivered;
 
+  /// ~english
+  /// Occurs with the read and delivery acks of each conversation when [ChatOptions.ackWatermarkInterval] is set.
+  ///
+  /// In this mode [onMessagesRead] and [onMessagesDelivered] are not called.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 设置了 [ChatOptions.ackWatermarkInterval] 时，按会话通知已读和送达回执的回调。
+  ///
+  /// 此时不会回调 [onMessagesRead] 和 [onMessagesDelivered]。
+  /// ~end
+  final void Function(List<ChatAckWatermark> watermarks)? onAckWatermarks;
+
   /// ~english
   /// Occurs when a received message is recalled.
   /// ~end
@@ -541,6 +554,8 @@ class ChatEventHandler {
   ///
   /// Param [onMessagesDelivered] Occurs when a delivery receipt is received.
   ///
+  /// Param [onAckWatermarks] Occurs with the read and delivery acks of each conversation when [ChatOptions.ackWatermarkInterval] is set.
+  ///
   /// Param [onMessagesRecalled] Occurs when a received message is recalled.
   ///
   /// Param [onConversationsUpdate] Occurs when a conversation is updated.
@@ -569,6 +584,8 @@ class ChatEventHandler {
   ///
   /// Param [onMessagesDelivered] 收到消息已送达回执的回调。
   ///
+  /// Param [onAckWatermarks] 设置了 [ChatOptions.ackWatermarkInterval] 时，按会话通知已读和送达回执的回调。
+  ///
   /// Param [onMessagesRecalled] 已收到的消息被撤回的回调。
   ///
   /// Param [onConversationsUpdate] 会话更新事件回调。
@@ -588,6 +605,7 @@ class ChatEventHandler {
     this.onGroupMessageRead,
     this.onReadAckForGroupMessageUpdated,
     this.onMessagesDelivered,
+    this.onAckWatermarks,
     this.onMessagesRecalled,
     this.onConversationsUpdate,
     this.onConversationRead,
@@ -732,6 +750,23 @@ class ChatRoomEventHandler {
   final void Function(String roomId, String participant)?
       onMemberJoinedFromChatRoom;
 
+  /// ~english
+  /// Occurs once per [ChatOptions.memberEventInterval] with the net member join, exit, mute and allowlist changes of the chat room.
+  ///
+  /// Only used when [ChatOptions.memberEventInterval] is set. If it is not set on this handler, the changes are passed to the single member callbacks instead.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 每个 [ChatOptions.memberEventInterval] 回调一次聊天室成员加入、退出、禁言和白名单的净变化。
+  ///
+  /// 仅在设置了 [ChatOptions.memberEventInterval] 时使用。未设置此回调时，变化会分别通过单个成员的回调通知。
+  /// ~end
+  final void Function(
+    String roomId,
+    String? roomName,
+    ChatMemberChanges changes,
+  )? onMembersChangedFromChatRoom;
+
   /// ~english
   /// Occurs when a chat room member(s) is/are added to mute list.
   /// ~end
@@ -840,6 +875,8 @@ class ChatRoomEventHandler {
   ///
   /// Param [onMemberJoinedFromChatRoom] A user joins the chat room.
   ///
+  /// Param [onMembersChangedFromChatRoom] The net member changes of the chat room within one [ChatOptions.memberEventInterval].
+  ///
   /// Param [onMuteListAddedFromChatRoom] The chat room member(s) is/are added to mute list.
   ///
   /// Param [onMuteListRemovedFromChatRoom] The chat room member(s) is/are removed from mute list.
@@ -876,6 +913,8 @@ class ChatRoomEventHandler {
   ///
   /// Param [onMemberJoinedFromChatRoom] 聊天室加入新成员回调。
   ///
+  /// Param [onMembersChangedFromChatRoom] 一个 [ChatOptions.memberEventInterval] 内聊天室成员的净变化。
+  ///
   /// Param [onMuteListAddedFromChatRoom] 有成员被禁言回调。
   ///
   /// Param [onMuteListRemovedFromChatRoom] 有成员从禁言列表中移除回调。
@@ -900,6 +939,7 @@ class ChatRoomEventHandler {
     this.onChatRoomDestroyed,
     this.onMemberExitedFromChatRoom,
     this.onMemberJoinedFromChatRoom,
+    this.onMembersChangedFromChatRoom,
     this.onMuteListAddedFromChatRoom,
     this.onMuteListRemovedFromChatRoom,
     this.onOwnerChangedFromChatRoom,
@@ -1340,6 +1380,22 @@ class ChatGroupEventHandler {
     String member,
   )? onMemberJoinedFromGroup;
 
+  /// ~english
+  /// Occurs once per [ChatOptions.memberEventInterval] with the net member join, exit, mute and allowlist changes of the group.
+  ///
+  /// Only used when [ChatOptions.memberEventInterval] is set. If it is not set on this handler, the changes are passed to the single member callbacks instead.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 每个 [ChatOptions.memberEventInterval] 回调一次群组成员加入、退出、禁言和白名单的净变化。
+  ///
+  /// 仅在设置了 [ChatOptions.memberEventInterval] 时使用。未设置此回调时，变化会分别通过单个成员的回调通知。
+  /// ~end
+  final void Function(
+    String groupId,
+    ChatMemberChanges changes,
+  )? onMembersChangedFromGroup;
+
   /// ~english
   /// Occurs when one or more group members are muted.
   ///
@@ -1544,6 +1600,8 @@ class ChatGroupEventHandler {
   ///
   /// Param [onMemberJoinedFromGroup] A user joins a group.
   ///
+  /// Param [onMembersChangedFromGroup] The net member changes of the group within one [ChatOptions.memberEventInterval].
+  ///
   /// Param [onMuteListAddedFromGroup] One or more group members are muted.
   ///
   /// Param [onMuteListRemovedFromGroup] One or more group members are unmuted.
@@ -1598,6 +1656,8 @@ class ChatGroupEventHandler {
   ///
   /// Param [onMemberJoinedFromGroup] 新成员加入群组的回调。
   ///
+  /// Param [onMembersChangedFromGroup] 一个 [ChatOptions.memberEventInterval] 内群组成员的净变化。
+  ///
   /// Param [onMuteListAddedFromGroup] 有成员被禁言回调, 用户禁言后，将无法在群中发送消息，但可查看群组中的消息，而黑名单中的用户无法查看和发送群组消息。
   ///
   /// Param [onMuteListRemovedFromGroup] 有成员被解除禁言的回调。
@@ -1636,6 +1696,7 @@ class ChatGroupEventHandler {
     this.onInvitationReceivedFromGroup,
     this.onMemberExitedFromGroup,
     this.onMemberJoinedFromGroup,
+    this.onMembersChangedFromGroup,
     this.onMuteListAddedFromGroup,
     this.onMuteListRemovedFromGroup,
     this.onOwnerChangedFromGroup,
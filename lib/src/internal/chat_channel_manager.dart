@@ -1,23 +1,167 @@
+import 'dart:async';
+
+import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
 
+import 'chat_message_schema.dart';
+
 const channelPrefix = 'com.chat.im';
 
-const MethodChannel ChatChannel = const MethodChannel(
-  '$channelPrefix/chat_manager',
-  JSONMethodCodec(),
-);
-
-const MethodChannel ProgressChannel = const MethodChannel(
-  "$channelPrefix/file_progress_manager",
-  JSONMethodCodec(),
-);
-
-const MethodChannel ClientChannel = const MethodChannel(
-  '$channelPrefix/chat_client',
-  JSONMethodCodec(),
-);
-
-const MethodChannel PushChannel = const MethodChannel(
-  '$channelPrefix/chat_push_manager',
-  JSONMethodCodec(),
-);
+/// The wire formats a manager channel can use.
+///
+/// The native side reports the one it actually bound in the `init` reply,
+/// platforms that do not report anything stay on [json].
+class ChatChannelTransport {
+  static const String json = 'json';
+  static const String standard = 'standard';
+}
+
+/// [StandardMessageCodec] that hands maps back as `Map<String, dynamic>`,
+/// the shape the model `fromJson` constructors expect from the JSON transport.
+///
+/// Message records written by schema id ([ChatMessageSchema]) are expanded into
+/// the same keyed maps.
+class ChatStandardMessageCodec extends StandardMessageCodec {
+  const ChatStandardMessageCodec();
+
+  static const int _valueMap = 13;
+  static const int _valueSchemaRecord = 128;
+
+  @override
+  dynamic readValueOfType(int type, ReadBuffer buffer) {
+    if (type == _valueMap) {
+      final int length = readSize(buffer);
+      final Map<String, dynamic> result = <String, dynamic>{};
+      for (int i = 0; i < length; i++) {
+        result[readValue(buffer) as String] = readValue(buffer);
+      }
+      return result;
+    }
+    if (type == _valueSchemaRecord) {
+      final int schema = buffer.getUint8();
+      final int length = readSize(buffer);
+      final List<dynamic> values = List<dynamic>.filled(length, null);
+      for (int i = 0; i < length; i++) {
+        values[i] = readValue(buffer);
+      }
+      return ChatMessageSchema.expand(schema, values);
+    }
+    return super.readValueOfType(type, buffer);
+  }
+}
+
+/// A method channel whose codec can be switched after [ChatClient.init].
+///
+/// Instances are shared by name, so every declaration of the same channel
+/// follows the transport negotiated with the native side.
+class ChatMethodChannel {
+  static final Map<String, ChatMethodChannel> _channels = {};
+  static String _transport = ChatChannelTransport.json;
+
+  final String name;
+  final bool _switchable;
+  MethodChannel _channel;
+  Future<dynamic> Function(MethodCall call)? _handler;
+
+  factory ChatMethodChannel(String name, {bool switchable = true}) {
+    return _channels.putIfAbsent(
+      name,
+      () => ChatMethodChannel._internal(name, switchable),
+    );
+  }
+
+  ChatMethodChannel._internal(this.name, this._switchable)
+      : _channel = MethodChannel(
+          name,
+          _switchable ? _codecFor(_transport) : const JSONMethodCodec(),
+        );
+
+  static MethodCodec _codecFor(String transport) {
+    if (transport == ChatChannelTransport.standard) {
+      return const StandardMethodCodec(ChatStandardMessageCodec());
+    }
+    return const JSONMethodCodec();
+  }
+
+  static String get transport => _transport;
+
+  /// Rebinds all switchable channels to [transport]; called with the transport
+  /// the native side reported from `init`.
+  static void applyTransport(String? transport) {
+    String value = transport ?? ChatChannelTransport.json;
+    if (value == _transport) return;
+    _transport = value;
+    for (var channel in _channels.values) {
+      if (channel._switchable) {
+        channel._rebind(_codecFor(value));
+      }
+    }
+  }
+
+  void _rebind(MethodCodec codec) {
+    _channel = MethodChannel(name, codec);
+    if (_handler != null) {
+      _channel.setMethodCallHandler(_handler);
+    }
+  }
+
+  /// Zone key of the timeout set by [ChatClient.runWithTimeout].
+  static const Symbol timeoutKey = #chatCallTimeout;
+
+  // 在 runWithTimeout 里发起的调用带上 timeout, 由原生端执行
+  @optionalTypeArgs
+  Future<T?> invokeMethod<T>(String method, [dynamic arguments]) {
+    final Duration? timeout = Zone.current[timeoutKey];
+    if (timeout != null && (arguments == null || arguments is Map)) {
+      arguments = {...?arguments, 'timeout': timeout.inMilliseconds};
+    }
+    return _channel.invokeMethod<T>(method, arguments);
+  }
+
+  void setMethodCallHandler(
+      Future<dynamic> Function(MethodCall call)? handler) {
+    _handler = handler == null ? null : (call) => _dispatch(handler, call);
+    _channel.setMethodCallHandler(_handler);
+  }
+
+  /// Name of the envelope the native side uses to send several listener
+  /// events at once, see [ChatOptions.eventBatchInterval].
+  static const String eventBatch = 'onEventBatch';
+
+  // 批量事件是 [method, arguments, method, arguments, ...], 按顺序逐个交给 handler
+  // 某个事件的 handler 抛错只上报, 不影响同一批里后面的事件
+  static Future<dynamic> _dispatch(
+      Future<dynamic> Function(MethodCall call) handler, MethodCall call) async {
+    if (call.method != eventBatch) {
+      return handler(call);
+    }
+    final List events = call.arguments;
+    for (int i = 0; i + 1 < events.length; i += 2) {
+      final MethodCall event = MethodCall(events[i], events[i + 1]);
+      try {
+        await handler(event);
+      } catch (e, stack) {
+        FlutterError.reportError(FlutterErrorDetails(
+          exception: e,
+          stack: stack,
+          library: 'agora_chat_sdk',
+          context: ErrorDescription('while handling ${event.method}'),
+        ));
+      }
+    }
+    return null;
+  }
+}
+
+final ChatMethodChannel ChatChannel =
+    ChatMethodChannel('$channelPrefix/chat_manager');
+
+final ChatMethodChannel ProgressChannel =
+    ChatMethodChannel("$channelPrefix/file_progress_manager");
+
+/// `init` itself goes through this channel, so it always stays on JSON.
+final ChatMethodChannel ClientChannel =
+    ChatMethodChannel('$channelPrefix/chat_client', switchable: false);
+
+final ChatMethodChannel PushChannel =
+    ChatMethodChannel('$channelPrefix/chat_push_manager');
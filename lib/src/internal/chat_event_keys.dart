@@ -24,6 +24,7 @@ class ChatRoomEvent {
   static const String ON_SPECIFICATION_CHANGED = "onRoomSpecificationChanged";
   static const String ON_ATTRIBUTES_UPDATED = "onRoomAttributesDidUpdated";
   static const String ON_ATTRIBUTES_REMOVED = "onRoomAttributesDidRemoved";
+  static const String ON_MEMBERS_CHANGED = "onRoomMembersChanged";
 }
 
 class ChatGroupChangeEvent {
@@ -58,4 +59,5 @@ class ChatGroupChangeEvent {
   static const String ON_STATE_CHANGED = "onGroupStateChanged";
   static const String ON_ATTRIBUTES_CHANGED_OF_MEMBER =
       "onGroupAttributesChangedOfMember";
+  static const String ON_MEMBERS_CHANGED = "onGroupMembersChanged";
 }
@@ -0,0 +1,137 @@
+/// Field tables of the compact message record sent by the native side.
+///
+/// Mirrors `EMMessageSchema` on Android. A record carries a schema id and the
+/// field values in table order, it is expanded back into the same map the JSON
+/// transport produces, so [ChatMessage.fromJson] reads both without change.
+class ChatMessageSchema {
+  static const int version = 1;
+
+  static const int _message = 0;
+
+  static const List<String> _operator = [
+    'operatorId',
+    'operatorTime',
+    'operatorCount',
+  ];
+
+  static const Map<int, List<String>> _fields = {
+    _message: [
+      'msgId',
+      'conversationId',
+      'from',
+      'to',
+      'localTime',
+      'serverTime',
+      'status',
+      'chatType',
+      'direction',
+      'hasRead',
+      'hasReadAck',
+      'hasDeliverAck',
+      'needGroupAck',
+      'onlineState',
+      'broadcast',
+      'isContentReplaced',
+      'isThread',
+      'attributes',
+      'body',
+    ],
+    1: [..._operator, 'content', 'targetLanguages', 'translations'],
+    2: [
+      ..._operator,
+      'localPath',
+      'displayName',
+      'remotePath',
+      'secret',
+      'fileStatus',
+      'thumbnailLocalPath',
+      'thumbnailRemotePath',
+      'thumbnailSecret',
+      'height',
+      'width',
+      'sendOriginalImage',
+      'fileSize',
+    ],
+    3: [..._operator, 'latitude', 'longitude', 'buildingName', 'address'],
+    4: [
+      ..._operator,
+      'localPath',
+      'thumbnailLocalPath',
+      'duration',
+      'thumbnailRemotePath',
+      'thumbnailSecret',
+      'displayName',
+      'height',
+      'width',
+      'remotePath',
+      'fileStatus',
+      'secret',
+      'fileSize',
+    ],
+    5: [
+      ..._operator,
+      'localPath',
+      'duration',
+      'displayName',
+      'remotePath',
+      'fileStatus',
+      'secret',
+      'fileSize',
+    ],
+    6: [
+      ..._operator,
+      'localPath',
+      'fileSize',
+      'displayName',
+      'remotePath',
+      'secret',
+      'fileStatus',
+    ],
+    7: [..._operator, 'deliverOnlineOnly', 'action'],
+    8: [..._operator, 'event', 'params'],
+    9: [
+      ..._operator,
+      'title',
+      'summary',
+      'compatibleText',
+      'localPath',
+      'remotePath',
+      'secret',
+      'fileStatus',
+    ],
+  };
+
+  static const Map<int, String> _bodyTypes = {
+    1: 'txt',
+    2: 'img',
+    3: 'loc',
+    4: 'video',
+    5: 'voice',
+    6: 'file',
+    7: 'cmd',
+    8: 'custom',
+    9: 'combine',
+  };
+
+  /// Builds the keyed map for a record of [schema] holding [values].
+  /// Null slots are left out, as the JSON transport does.
+  static Map<String, dynamic> expand(int schema, List<dynamic> values) {
+    final List<String>? fields = _fields[schema];
+    if (fields == null) {
+      throw FormatException('Unknown message schema $schema');
+    }
+    final Map<String, dynamic> result = <String, dynamic>{};
+    final String? type = _bodyTypes[schema];
+    if (type != null) {
+      result['type'] = type;
+    }
+    final int count =
+        values.length < fields.length ? values.length : fields.length;
+    for (int i = 0; i < count; i++) {
+      if (values[i] != null) {
+        result[fields[i]] = values[i];
+      }
+    }
+    return result;
+  }
+}
@@ -19,6 +19,10 @@ class ChatMethodKeys {
   static const String getCurrentUser = "getCurrentUser";
   static const String isLoggedInBefore = "isLoggedInBefore";
   static const String isConnected = "isConnected";
+  static const String batch = "batch";
+  static const String setEventFilter = "setEventFilter";
+  static const String getMethodStats = "getMethodStats";
+  static const String getSchedulerMetrics = "getSchedulerMetrics";
 
   /// ChatClient listener
   static const String onMultiDeviceGroupEvent = "onMultiDeviceGroupEvent";
@@ -69,6 +73,7 @@ class ChatMethodKeys {
 
   /// ChatManager methods
   static const String sendMessage = "sendMessage";
+  static const String cancelRequest = "cancelRequest";
   static const String resendMessage = "resendMessage";
   static const String ackMessageRead = "ackMessageRead";
   static const String ackGroupMessageRead = "ackGroupMessageRead";
@@ -133,6 +138,7 @@ class ChatMethodKeys {
       "onReadAckForGroupMessageUpdated";
   static const String onGroupMessageRead = "onGroupMessageRead";
   static const String onMessagesDelivered = "onMessagesDelivered";
+  static const String onAckWatermarks = "onAckWatermarks";
   static const String onMessagesRecalled = "onMessagesRecalled";
   static const String onMessageChanged = "onMessageChanged";
 
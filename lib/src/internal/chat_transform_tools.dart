@@ -387,3 +387,14 @@ ChatPushRemindType chatPushRemindTypeFromInt(int iRemindType) {
   }
   return type;
 }
+
+String eventOverflowPolicyToString(ChatEventOverflowPolicy policy) {
+  switch (policy) {
+    case ChatEventOverflowPolicy.Spill:
+      return 'spill';
+    case ChatEventOverflowPolicy.DropOldest:
+      return 'dropOldest';
+    case ChatEventOverflowPolicy.Coalesce:
+      return 'coalesce';
+  }
+}
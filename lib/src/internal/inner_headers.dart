@@ -1,5 +1,6 @@
 export 'chat_method_keys.dart';
 export 'chat_channel_manager.dart';
+export 'chat_message_schema.dart';
 export 'chat_event_keys.dart';
 export 'chat_push_config.dart';
 export 'chat_transform_tools.dart';
@@ -26,6 +27,12 @@ export '../models/chat_push_configs.dart';
 export '../models/chat_translate_language.dart';
 export '../models/chat_userInfo.dart';
 export '../models/chat_silent_mode.dart';
+export '../models/chat_batch_call.dart';
+export '../models/chat_member_changes.dart';
+export '../models/chat_event_filter.dart';
+export '../models/chat_ack_watermark.dart';
+export '../models/chat_method_stats.dart';
+export '../models/chat_scheduler_metrics.dart';
 
 export '../tools/chat_extension.dart';
 export '../tools/chat_progress_manager.dart';
@@ -0,0 +1,84 @@
+import '../internal/inner_headers.dart';
+
+/// ~english
+/// The read or delivery acks of one conversation received within one [ChatOptions.ackWatermarkInterval].
+/// ~end
+///
+/// ~chinese
+/// 一个 [ChatOptions.ackWatermarkInterval] 内收到的某个会话的已读或送达回执。
+/// ~end
+class ChatAckWatermark {
+  ChatAckWatermark._private({
+    required this.conversationId,
+    required this.conversationType,
+    required this.isRead,
+    required this.serverTime,
+    required this.msgId,
+    required this.msgIds,
+  });
+
+  /// ~english
+  /// The conversation ID.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 会话 ID。
+  /// ~end
+  final String conversationId;
+
+  /// ~english
+  /// The conversation type.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 会话类型。
+  /// ~end
+  final ChatConversationType conversationType;
+
+  /// ~english
+  /// Whether these are read acks. `false` means delivery acks.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 是否为已读回执。`false` 表示送达回执。
+  /// ~end
+  final bool isRead;
+
+  /// ~english
+  /// The server time of the newest acked message. Messages of the conversation up to this time can be treated as acked.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 收到回执的最新一条消息的服务器时间。会话中此时间之前的消息可视为已收到回执。
+  /// ~end
+  final int serverTime;
+
+  /// ~english
+  /// The ID of the newest acked message.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 收到回执的最新一条消息的 ID。
+  /// ~end
+  final String msgId;
+
+  /// ~english
+  /// The IDs of all acked messages.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 所有收到回执的消息 ID。
+  /// ~end
+  final List<String> msgIds;
+
+  factory ChatAckWatermark.fromJson(Map map) {
+    return ChatAckWatermark._private(
+      conversationId: map['conversationId'],
+      conversationType: conversationTypeFromInt(map['chatType']),
+      isRead: map['read'] ?? false,
+      serverTime: map['serverTime'] ?? 0,
+      msgId: map['msgId'] ?? '',
+      msgIds: List.from(map['msgIds'] ?? []),
+    );
+  }
+}
@@ -0,0 +1,57 @@
+/// ~english
+/// One channel call of [ChatClient.batch].
+///
+/// Param [channel] The name of the native channel, without the `com.chat.im/` prefix, for example `chat_conversation`.
+///
+/// Param [method] The method name on that channel.
+///
+/// Param [params] The method parameters, the same map the method takes when it is called on its own.
+/// ~end
+///
+/// ~chinese
+/// [ChatClient.batch] 中的一个 channel 调用。
+///
+/// Param [channel] 原生 channel 名称，不含 `com.chat.im/` 前缀，如 `chat_conversation`。
+///
+/// Param [method] 该 channel 上的方法名。
+///
+/// Param [params] 方法参数，与单独调用该方法时传入的参数相同。
+/// ~end
+class ChatBatchCall {
+  const ChatBatchCall(this.channel, this.method, [this.params]);
+
+  /// ~english
+  /// The name of the native channel.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 原生 channel 名称。
+  /// ~end
+  final String channel;
+
+  /// ~english
+  /// The method name.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 方法名。
+  /// ~end
+  final String method;
+
+  /// ~english
+  /// The method parameters.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 方法参数。
+  /// ~end
+  final Map? params;
+
+  Map toJson() {
+    Map data = {'channel': channel, 'method': method};
+    if (params != null) {
+      data['params'] = params;
+    }
+    return data;
+  }
+}
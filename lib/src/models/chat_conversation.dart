@@ -144,8 +144,8 @@ class ChatConversation {
 
   Map<String, String>? _ext;
 
-  static const MethodChannel _emConversationChannel =
-      const MethodChannel('com.chat.im/chat_conversation', JSONMethodCodec());
+  static final ChatMethodChannel _emConversationChannel =
+      ChatMethodChannel('com.chat.im/chat_conversation');
 
   /// ~english
   /// The conversation extension attribute.
@@ -684,6 +684,10 @@ class ChatConversation {
   /// `ChatSearchDirection.Up`: Gets the messages loaded before the timestamp of the specified message ID.
   /// `ChatSearchDirection.Down`: Gets the messages loaded after the timestamp of the specified message ID.
   ///
+  /// Param [fields] The optional field groups to return. See [MessageField]. If not set, the full messages are returned.
+  ///
+  /// Param [requestId] An ID of your choice for this call. Pass it to [ChatManager.cancelRequest] to cancel the call. Only Android supports cancellation.
+  ///
   /// **Returns** The list of retrieved messages.
   ///
   /// **Throws** A description of the exception. See [ChatError].
@@ -706,6 +710,10 @@ class ChatConversation {
   ///
   /// Param [direction] 消息搜索方向。
   ///
+  /// Param [fields] 需要返回的可选字段分组，详见 [MessageField]。不传则返回完整消息。
+  ///
+  /// Param [requestId] 调用方指定的请求 ID，可传给 [ChatManager.cancelRequest] 取消该调用，仅 Android 支持取消。
+  ///
   /// **Return** 消息列表。
   ///
   /// **Throws**  如果有异常会在这里抛出，包含错误码和错误描述，详见 [ChatError]。
@@ -717,6 +725,8 @@ class ChatConversation {
     int count = 20,
     MessageSearchScope searchScope = MessageSearchScope.All,
     ChatSearchDirection direction = ChatSearchDirection.Up,
+    List<MessageField>? fields,
+    String? requestId,
   }) async {
     Map req = this._toJson();
     req["keywords"] = keywords;
@@ -725,6 +735,8 @@ class ChatConversation {
     req['searchScope'] = MessageSearchScope.values.indexOf(searchScope);
     req['direction'] = direction == ChatSearchDirection.Up ? "up" : "down";
     req.putIfNotNull("sender", sender);
+    req.putIfNotNull('fields', fields?.map((e) => e.index).toList());
+    req.putIfNotNull('requestId', requestId);
 
     Map<String, dynamic> result = await _emConversationChannel.invokeMethod(
         ChatMethodKeys.loadMsgWithKeywords, req);
@@ -752,6 +764,8 @@ class ChatConversation {
   ///
   ///  Param [count] The maximum number of message to retrieve.
   ///
+  /// Param [fields] The optional field groups to return. See [MessageField]. If not set, the full messages are returned.
+  ///
   /// **Returns** The list of searched messages.
   ///
   /// **Throws** A description of the exception. See [ChatError].
@@ -768,6 +782,8 @@ class ChatConversation {
   ///
   ///  Param [count] 搜索结果的最大条数。
   ///
+  /// Param [fields] 需要返回的可选字段分组，详见 [MessageField]。不传则返回完整消息。
+  ///
   /// **Return** 消息列表。
   ///
   /// **Throws**  如果有异常会在这里抛出，包含错误码和错误描述，详见 [ChatError]。
@@ -776,11 +792,13 @@ class ChatConversation {
     required int startTime,
     required int endTime,
     int count = 20,
+    List<MessageField>? fields,
   }) async {
     Map req = this._toJson();
     req["startTime"] = startTime;
     req['endTime'] = endTime;
     req['count'] = count;
+    req.putIfNotNull('fields', fields?.map((e) => e.index).toList());
 
     Map<String, dynamic> result = await _emConversationChannel.invokeMethod(
         ChatMethodKeys.loadMsgWithTime, req);
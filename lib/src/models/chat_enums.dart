@@ -1134,6 +1134,91 @@ enum MessageSearchScope {
   All,
 }
 
+/// ~english
+/// Optional message field groups returned by the message query methods.
+///
+/// The message ID, conversation ID, sender, recipient, chat type, direction and the body content are always returned. Other fields are only filled in for the groups passed in `fields`. Fields that are not returned keep their default values.
+/// ~end
+///
+/// ~chinese
+/// 消息查询方法可选返回的字段分组。
+///
+/// 消息 ID、会话 ID、发送方、接收方、会话类型、消息方向和消息体内容总会返回，其余字段只有在 `fields` 中传入对应分组时才会填充，未返回的字段保持默认值。
+/// ~end
+enum MessageField {
+  /// ~english
+  /// The local time and server time.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 本地时间和服务器时间。
+  /// ~end
+  Time,
+
+  /// ~english
+  /// The message sending status.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 消息发送状态。
+  /// ~end
+  Status,
+
+  /// ~english
+  /// The read and delivery flags: `hasRead`, `hasReadAck`, `hasDeliverAck` and `needGroupAck`.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 已读和送达标记：`hasRead`、`hasReadAck`、`hasDeliverAck` 和 `needGroupAck`。
+  /// ~end
+  Acks,
+
+  /// ~english
+  /// The message extension attributes.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 消息扩展属性。
+  /// ~end
+  Attributes,
+
+  /// ~english
+  /// The `onlineState`, `isBroadcast`, `isContentReplaced` and `isChatThreadMessage` flags.
+  /// ~end
+  ///
+  /// ~chinese
+  /// `onlineState`、`isBroadcast`、`isContentReplaced` 和 `isChatThreadMessage` 标记。
+  /// ~end
+  Flags,
+
+  /// ~english
+  /// The local and remote paths, secrets and download status of file bodies and their thumbnails.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 文件类消息体及其缩略图的本地路径、服务器路径、密钥和下载状态。
+  /// ~end
+  File,
+
+  /// ~english
+  /// The target languages and translations of text bodies.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 文本消息体的目标语言和译文。
+  /// ~end
+  Translation,
+
+  /// ~english
+  /// The operator information of modified message bodies.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 消息体被修改时的操作者信息。
+  /// ~end
+  Operator,
+}
+
 /// ~english
 /// The conversation mark types.
 ///
@@ -1167,3 +1252,39 @@ enum ConversationMarkType {
   Type18,
   Type19,
 }
+
+/// ~english
+/// What the native side does when more group, contact and chat room events are waiting for [ChatClient.startCallback] than [ChatOptions.eventQueueCapacity].
+/// ~end
+///
+/// ~chinese
+/// 等待 [ChatClient.startCallback] 的群组、联系人和聊天室事件超过 [ChatOptions.eventQueueCapacity] 时原生端的处理方式。
+/// ~end
+enum ChatEventOverflowPolicy {
+  /// ~english
+  /// Keep every event. The buffer has no upper bound.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 保留所有事件，缓存没有上限。
+  /// ~end
+  Spill,
+
+  /// ~english
+  /// Drop the oldest events.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 丢弃最早的事件。
+  /// ~end
+  DropOldest,
+
+  /// ~english
+  /// Drop the events that a newer one replaces, such as an earlier announcement or specification change of the same group, then the oldest events.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 先丢弃被更新事件取代的事件，如同一群组之前的公告或详情变更，再丢弃最早的事件。
+  /// ~end
+  Coalesce,
+}
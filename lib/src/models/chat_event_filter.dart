@@ -0,0 +1,84 @@
+import '../internal/inner_headers.dart';
+
+/// ~english
+/// The events the native side delivers to this Flutter engine. See [ChatClient.setEventFilter].
+///
+/// Every condition is optional, `null` lets everything through. An event is delivered only if it passes all set conditions.
+///
+/// Param [events] The names of the events to deliver, for example `onMessagesReceived`, `onCmdMessagesReceived`, `onMessagesRead`, `onChatThreadCreate`, or the type of a chat room or group event such as `onRoomMemberJoined`.
+///
+/// Param [conversationIds] The conversations whose message events are delivered.
+///
+/// Param [chatTypes] The chat types whose message events are delivered.
+///
+/// Param [messageTypes] The message types whose message events are delivered.
+/// ~end
+///
+/// ~chinese
+/// 原生端向当前 Flutter engine 发送的事件，详见 [ChatClient.setEventFilter]。
+///
+/// 每个条件都是可选的，`null` 表示不限制。事件满足所有已设置的条件才会发送。
+///
+/// Param [events] 要发送的事件名，如 `onMessagesReceived`、`onCmdMessagesReceived`、`onMessagesRead`、`onChatThreadCreate`，或聊天室、群组事件的类型，如 `onRoomMemberJoined`。
+///
+/// Param [conversationIds] 发送这些会话的消息事件。
+///
+/// Param [chatTypes] 发送这些聊天类型的消息事件。
+///
+/// Param [messageTypes] 发送这些消息类型的消息事件。
+/// ~end
+class ChatEventFilter {
+  const ChatEventFilter({
+    this.events,
+    this.conversationIds,
+    this.chatTypes,
+    this.messageTypes,
+  });
+
+  /// ~english
+  /// The names of the events to deliver.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 要发送的事件名。
+  /// ~end
+  final Set<String>? events;
+
+  /// ~english
+  /// The conversations whose message events are delivered.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 发送消息事件的会话。
+  /// ~end
+  final Set<String>? conversationIds;
+
+  /// ~english
+  /// The chat types whose message events are delivered.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 发送消息事件的聊天类型。
+  /// ~end
+  final Set<ChatType>? chatTypes;
+
+  /// ~english
+  /// The message types whose message events are delivered.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 发送消息事件的消息类型。
+  /// ~end
+  final Set<MessageType>? messageTypes;
+
+  Map toJson() {
+    Map data = {};
+    data.putIfNotNull('events', events?.toList());
+    data.putIfNotNull('conversationIds', conversationIds?.toList());
+    data.putIfNotNull(
+        'chatTypes', chatTypes?.map((e) => chatTypeToInt(e)).toList());
+    data.putIfNotNull('messageTypes',
+        messageTypes?.map((e) => messageTypeToTypeStr(e)).toList());
+    return data;
+  }
+}
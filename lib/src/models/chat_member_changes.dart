@@ -0,0 +1,101 @@
+/// ~english
+/// The net member changes of a chat room or group within one [ChatOptions.memberEventInterval].
+///
+/// A member who joins and leaves again within the interval, or is muted and unmuted again, does not appear.
+/// ~end
+///
+/// ~chinese
+/// 一个 [ChatOptions.memberEventInterval] 内聊天室或群组成员的净变化。
+///
+/// 在时间窗口内加入后又退出、或禁言后又解除禁言的成员不会出现。
+/// ~end
+class ChatMemberChanges {
+  ChatMemberChanges._private({
+    required this.joined,
+    required this.left,
+    required this.muted,
+    required this.unmuted,
+    required this.allowListAdded,
+    required this.allowListRemoved,
+  });
+
+  /// ~english
+  /// The members who joined.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 加入的成员。
+  /// ~end
+  final List<String> joined;
+
+  /// ~english
+  /// The members who left.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 退出的成员。
+  /// ~end
+  final List<String> left;
+
+  /// ~english
+  /// The muted members and the Unix timestamp in milliseconds when their mute expires.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 被禁言的成员及其禁言到期的 Unix 时间戳，单位为毫秒。
+  /// ~end
+  final Map<String, int> muted;
+
+  /// ~english
+  /// The unmuted members.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 被解除禁言的成员。
+  /// ~end
+  final List<String> unmuted;
+
+  /// ~english
+  /// The members added to the allow list.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 加入白名单的成员。
+  /// ~end
+  final List<String> allowListAdded;
+
+  /// ~english
+  /// The members removed from the allow list.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 移出白名单的成员。
+  /// ~end
+  final List<String> allowListRemoved;
+
+  factory ChatMemberChanges.fromJson(Map map) {
+    return ChatMemberChanges._private(
+      joined: List.from(map['joined'] ?? []),
+      left: List.from(map['left'] ?? []),
+      muted: Map<String, int>.from(map['muted'] ?? {}),
+      unmuted: List.from(map['unmuted'] ?? []),
+      allowListAdded: List.from(map['allowListAdded'] ?? []),
+      allowListRemoved: List.from(map['allowListRemoved'] ?? []),
+    );
+  }
+
+  /// ~english
+  /// The muted members grouped by their expire time.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 按禁言到期时间分组的被禁言成员。
+  /// ~end
+  Map<int, List<String>> get mutedByExpireTime {
+    Map<int, List<String>> ret = {};
+    muted.forEach((member, expire) {
+      ret.putIfAbsent(expire, () => []).add(member);
+    });
+    return ret;
+  }
+}
@@ -996,8 +996,8 @@ class ChatMessage {
     return toJson().toString();
   }
 
-  static const MethodChannel _emMessageChannel =
-      const MethodChannel('com.chat.im/chat_message', JSONMethodCodec());
+  static final ChatMethodChannel _emMessageChannel =
+      ChatMethodChannel('com.chat.im/chat_message');
 
   /// ~english
   /// Gets the Reaction list.
@@ -0,0 +1,80 @@
+/// ~english
+/// The call counters of one native method, see [ChatClient.getMethodStats].
+/// ~end
+///
+/// ~chinese
+/// 某个原生方法的调用统计，详见 [ChatClient.getMethodStats]。
+/// ~end
+class ChatMethodStats {
+  ChatMethodStats._private({
+    required this.calls,
+    required this.errors,
+    required this.totalTime,
+    required this.maxTime,
+    required this.timeouts,
+  });
+
+  /// ~english
+  /// The number of calls.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 调用次数。
+  /// ~end
+  final int calls;
+
+  /// ~english
+  /// The number of calls that ended with an error, including timeouts.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 以错误结束的调用次数，包含超时。
+  /// ~end
+  final int errors;
+
+  /// ~english
+  /// The total time in milliseconds from dispatch to reply of all finished calls.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 所有已完成调用从分发到返回的总耗时，单位为毫秒。
+  /// ~end
+  final int totalTime;
+
+  /// ~english
+  /// The longest time in milliseconds from dispatch to reply.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 从分发到返回的最长耗时，单位为毫秒。
+  /// ~end
+  final int maxTime;
+
+  /// ~english
+  /// The number of calls answered with a timeout error.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 以超时错误返回的调用次数。
+  /// ~end
+  final int timeouts;
+
+  /// ~english
+  /// The average time in milliseconds from dispatch to reply.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 从分发到返回的平均耗时，单位为毫秒。
+  /// ~end
+  double get averageTime => calls == 0 ? 0 : totalTime / calls;
+
+  factory ChatMethodStats.fromJson(Map map) {
+    return ChatMethodStats._private(
+      calls: map['calls'] ?? 0,
+      errors: map['errors'] ?? 0,
+      totalTime: map['totalMs'] ?? 0,
+      maxTime: map['maxMs'] ?? 0,
+      timeouts: map['timeouts'] ?? 0,
+    );
+  }
+}
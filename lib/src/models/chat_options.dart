@@ -344,6 +344,121 @@ class ChatOptions {
   /// ~end
   final bool useReplacedMessageContents;
 
+  /// ~english
+  /// Whether the manager channels use the binary standard codec instead of JSON.
+  ///
+  /// Messages, conversations and member lists are then passed to and from the native side without being turned into JSON text.
+  /// Platforms that do not support it keep using JSON. The default value is `false`.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 各个 manager 的 channel 是否使用二进制编码（StandardMethodCodec）代替 JSON。
+  ///
+  /// 开启后消息、会话、成员列表等数据在原生与 flutter 之间传递时不再转成 JSON 字符串。不支持的平台继续使用 JSON。默认为 `false`。
+  /// ~end
+  final bool enableBinaryTransport;
+
+  /// ~english
+  /// Whether large list results are encoded item by item on the native side.
+  ///
+  /// Applies to the loaded conversations, joined groups, chat rooms and contacts. Each item is converted and encoded on the native worker thread right away instead of building the whole list first, which lowers the peak memory of the initial sync on Android.
+  /// Takes effect only together with [enableBinaryTransport]. The default value is `false`.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 原生端是否逐条编码大列表结果。
+  ///
+  /// 适用于本地会话、已加入的群组、聊天室和联系人列表。开启后每一项在原生工作线程上转换后立即编码，而不是先构建整个列表，可以降低 Android 端首次同步时的内存峰值。
+  /// 仅在开启 [enableBinaryTransport] 时生效。默认为 `false`。
+  /// ~end
+  final bool enableLazyListResults;
+
+  /// ~english
+  /// The window in milliseconds over which the native side gathers listener events before sending them together.
+  ///
+  /// Applies to the chat, group, chat room, presence and thread events. A burst of events then reaches Flutter as one platform message per window, in the order they occurred, at the cost of up to one window of extra delay. `16` matches one frame at 60 Hz.
+  /// The default value is `0`, which sends each event on its own.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 原生端合并监听事件的时间窗口，单位为毫秒。
+  ///
+  /// 适用于消息、群组、聊天室、在线状态和子区事件。开启后一连串事件在每个窗口内只占用一次平台消息，并保持原有顺序，代价是最多一个窗口的延迟。`16` 约等于 60 Hz 下的一帧。
+  /// 默认为 `0`，即每个事件单独发送。
+  /// ~end
+  final int eventBatchInterval;
+
+  /// ~english
+  /// The maximum number of group, contact and chat room events the native side keeps while they wait for [ChatClient.startCallback] or for delivery.
+  ///
+  /// What happens past it is set by [eventOverflowPolicy]. The default value is `1024`.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 原生端在等待 [ChatClient.startCallback] 或等待发送时最多保留的群组、联系人和聊天室事件数。
+  ///
+  /// 超出后的处理方式由 [eventOverflowPolicy] 决定。默认为 `1024`。
+  /// ~end
+  final int eventQueueCapacity;
+
+  /// ~english
+  /// What the native side does with events past [eventQueueCapacity].
+  ///
+  /// The default value is [ChatEventOverflowPolicy.Coalesce]. [ChatEventOverflowPolicy.Spill] keeps every event, so memory is not bounded.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 事件超过 [eventQueueCapacity] 时原生端的处理方式。
+  ///
+  /// 默认为 [ChatEventOverflowPolicy.Coalesce]。[ChatEventOverflowPolicy.Spill] 保留所有事件，占用的内存没有上限。
+  /// ~end
+  final ChatEventOverflowPolicy eventOverflowPolicy;
+
+  /// ~english
+  /// The window in milliseconds over which the native side merges the member join, exit, mute and allowlist events of each chat room and group.
+  ///
+  /// Each chat room or group then reports at most one [ChatMemberChanges] per window, through [ChatRoomEventHandler.onMembersChangedFromChatRoom] and [ChatGroupEventHandler.onMembersChangedFromGroup], or through the single member callbacks if those are not set. Changes that cancel out within the window, such as a member joining and leaving again, are not reported.
+  /// The default value is `0`, which reports each event on its own.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 原生端合并每个聊天室和群组成员加入、退出、禁言和白名单事件的时间窗口，单位为毫秒。
+  ///
+  /// 开启后每个聊天室或群组每个窗口最多通知一次 [ChatMemberChanges]，通过 [ChatRoomEventHandler.onMembersChangedFromChatRoom] 和 [ChatGroupEventHandler.onMembersChangedFromGroup] 回调，未设置时通过单个成员的回调通知。窗口内相互抵消的变化，如成员加入后又退出，不会通知。
+  /// 默认为 `0`，即每个事件单独通知。
+  /// ~end
+  final int memberEventInterval;
+
+  /// ~english
+  /// The window in milliseconds over which the native side merges presence updates.
+  ///
+  /// A user whose presence changes several times within the window is reported once, with the latest presence, through [ChatPresenceEventHandler.onPresenceStatusChanged]. Updates that repeat the last known presence are never reported.
+  /// The default value is `0`, which reports each update right away.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 原生端合并在线状态更新的时间窗口，单位为毫秒。
+  ///
+  /// 在窗口内多次变化的用户只通过 [ChatPresenceEventHandler.onPresenceStatusChanged] 通知一次最新的状态。与上一次状态相同的更新不会通知。
+  /// 默认为 `0`，即每次更新立即通知。
+  /// ~end
+  final int presenceEventInterval;
+
+  /// ~english
+  /// The window in milliseconds over which the native side merges read and delivery acks into one watermark per conversation.
+  ///
+  /// When set, acks are reported through [ChatEventHandler.onAckWatermarks] as a [ChatAckWatermark] per conversation, with the newest acked message and the IDs of all acked messages. The acked messages themselves are not sent, and [ChatEventHandler.onMessagesRead] and [ChatEventHandler.onMessagesDelivered] are not called.
+  /// The default value is `0`, which reports each ack with its messages.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 原生端把已读和送达回执按会话合并成水位的时间窗口，单位为毫秒。
+  ///
+  /// 设置后回执通过 [ChatEventHandler.onAckWatermarks] 按会话以 [ChatAckWatermark] 通知，包含最新一条收到回执的消息和所有收到回执的消息 ID。不再发送消息本身，也不再回调 [ChatEventHandler.onMessagesRead] 和 [ChatEventHandler.onMessagesDelivered]。
+  /// 默认为 `0`，即每个回执连同消息单独通知。
+  /// ~end
+  final int ackWatermarkInterval;
+
   ChatPushConfig _pushConfig = ChatPushConfig();
 
   /// ~english
@@ -527,6 +642,22 @@ class ChatOptions {
   ///
   /// Param [regardImportMessagesAsRead] Whether to regard import messages as read, default is false.
   ///
+  /// Param [enableBinaryTransport] Whether the manager channels use the binary standard codec instead of JSON, default is false.
+  ///
+  /// Param [enableLazyListResults] Whether large list results are encoded item by item on the native side, default is false.
+  ///
+  /// Param [eventBatchInterval] The window in milliseconds over which listener events are sent together, default is 0.
+  ///
+  /// Param [eventQueueCapacity] The maximum number of buffered group, contact and chat room events, default is 1024.
+  ///
+  /// Param [eventOverflowPolicy] What happens to events past [eventQueueCapacity], default is [ChatEventOverflowPolicy.Coalesce].
+  ///
+  /// Param [memberEventInterval] The window in milliseconds over which member changes of a chat room or group are merged, default is 0.
+  ///
+  /// Param [presenceEventInterval] The window in milliseconds over which presence updates are merged, default is 0.
+  ///
+  /// Param [ackWatermarkInterval] The window in milliseconds over which read and delivery acks are merged per conversation, default is 0.
+  ///
   /// ~end
   ///
   /// ~chinese
@@ -613,6 +744,22 @@ class ChatOptions {
   ///
   /// Param [regardImportMessagesAsRead] 是否将导入的消息视为已读, 默认为 false。
   ///
+  /// Param [enableBinaryTransport] 各个 manager 的 channel 是否使用二进制编码代替 JSON, 默认为 false。
+  ///
+  /// Param [enableLazyListResults] 原生端是否逐条编码大列表结果, 默认为 false。
+  ///
+  /// Param [eventBatchInterval] 监听事件合并发送的时间窗口（毫秒）, 默认为 0。
+  ///
+  /// Param [eventQueueCapacity] 缓存的群组、联系人和聊天室事件的最大数量, 默认为 1024。
+  ///
+  /// Param [eventOverflowPolicy] 事件超过 [eventQueueCapacity] 时的处理方式, 默认为 [ChatEventOverflowPolicy.Coalesce]。
+  ///
+  /// Param [memberEventInterval] 合并聊天室和群组成员变化的时间窗口（毫秒）, 默认为 0。
+  ///
+  /// Param [presenceEventInterval] 合并在线状态更新的时间窗口（毫秒）, 默认为 0。
+  ///
+  /// Param [ackWatermarkInterval] 按会话合并已读和送达回执的时间窗口（毫秒）, 默认为 0。
+  ///
   /// ~end
   ChatOptions({
     required this.appKey,
@@ -642,6 +789,14 @@ class ChatOptions {
     this.enableTLS = false,
     this.messagesReceiveCallbackIncludeSend = false,
     this.regardImportMessagesAsRead = false,
+    this.enableBinaryTransport = false,
+    this.enableLazyListResults = false,
+    this.eventBatchInterval = 0,
+    this.eventQueueCapacity = 1024,
+    this.eventOverflowPolicy = ChatEventOverflowPolicy.Coalesce,
+    this.memberEventInterval = 0,
+    this.presenceEventInterval = 0,
+    this.ackWatermarkInterval = 0,
   });
 
   Map toJson() {
@@ -678,6 +833,22 @@ class ChatOptions {
     data.putIfNotNull('messagesReceiveCallbackIncludeSend',
         messagesReceiveCallbackIncludeSend);
     data.putIfNotNull('regardImportMessagesAsRead', regardImportMessagesAsRead);
+    data.putIfNotNull(
+        'transport',
+        enableBinaryTransport
+            ? ChatChannelTransport.standard
+            : ChatChannelTransport.json);
+    data['messageDeltas'] = true;
+    data['eventBatchInterval'] = eventBatchInterval;
+    data['eventQueueCapacity'] = eventQueueCapacity;
+    data['eventOverflowPolicy'] = eventOverflowPolicyToString(eventOverflowPolicy);
+    data['memberEventInterval'] = memberEventInterval;
+    data['presenceEventInterval'] = presenceEventInterval;
+    data['ackWatermarkInterval'] = ackWatermarkInterval;
+    if (enableBinaryTransport) {
+      data['messageSchema'] = ChatMessageSchema.version;
+      data['lazyListResults'] = enableLazyListResults;
+    }
 
     data["usingHttpsOnly"] = this.usingHttpsOnly;
     data["pushConfig"] = this._pushConfig.toJson();
@@ -0,0 +1,149 @@
+/// ~english
+/// The state of the native worker pool, see [ChatClient.getSchedulerMetrics].
+/// ~end
+///
+/// ~chinese
+/// 原生工作线程池的状态，详见 [ChatClient.getSchedulerMetrics]。
+/// ~end
+class ChatSchedulerMetrics {
+  ChatSchedulerMetrics._private({
+    required this.workers,
+    required this.detached,
+    required this.maxWorkers,
+    required this.lanes,
+  });
+
+  /// ~english
+  /// The number of running worker threads.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 正在运行的工作线程数。
+  /// ~end
+  final int workers;
+
+  /// ~english
+  /// The number of threads given up by calls that timed out while still running.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 超时但仍在执行的调用所让出的线程数。
+  /// ~end
+  final int detached;
+
+  /// ~english
+  /// The maximum number of worker threads.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 工作线程数上限。
+  /// ~end
+  final int maxWorkers;
+
+  /// ~english
+  /// The queue of each lane, keyed by `interactive`, `normal` and `bulk`.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 各个队列的状态，key 为 `interactive`、`normal` 和 `bulk`。
+  /// ~end
+  final Map<String, ChatSchedulerLaneMetrics> lanes;
+
+  factory ChatSchedulerMetrics.fromJson(Map map) {
+    Map<String, ChatSchedulerLaneMetrics> lanes = {};
+    for (var lane in ['interactive', 'normal', 'bulk']) {
+      if (map[lane] is Map) {
+        lanes[lane] = ChatSchedulerLaneMetrics.fromJson(map[lane]);
+      }
+    }
+    return ChatSchedulerMetrics._private(
+      workers: map['workers'] ?? 0,
+      detached: map['detached'] ?? 0,
+      maxWorkers: map['maxWorkers'] ?? 0,
+      lanes: lanes,
+    );
+  }
+}
+
+/// ~english
+/// The queue of one lane of the native worker pool.
+/// ~end
+///
+/// ~chinese
+/// 原生工作线程池中一个队列的状态。
+/// ~end
+class ChatSchedulerLaneMetrics {
+  ChatSchedulerLaneMetrics._private({
+    required this.queued,
+    required this.capacity,
+    required this.peak,
+    required this.active,
+    required this.submitted,
+    required this.rejected,
+  });
+
+  /// ~english
+  /// The number of queued tasks.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 排队中的任务数。
+  /// ~end
+  final int queued;
+
+  /// ~english
+  /// The number of queued tasks above which new calls are rejected.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 排队任务数达到此值后拒绝新的调用。
+  /// ~end
+  final int capacity;
+
+  /// ~english
+  /// The largest number of queued tasks so far.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 迄今为止排队任务数的最大值。
+  /// ~end
+  final int peak;
+
+  /// ~english
+  /// The number of tasks being run.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 正在执行的任务数。
+  /// ~end
+  final int active;
+
+  /// ~english
+  /// The number of tasks submitted so far.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 迄今为止提交的任务数。
+  /// ~end
+  final int submitted;
+
+  /// ~english
+  /// The number of calls rejected because the queue was full.
+  /// ~end
+  ///
+  /// ~chinese
+  /// 因队列已满被拒绝的调用数。
+  /// ~end
+  final int rejected;
+
+  factory ChatSchedulerLaneMetrics.fromJson(Map map) {
+    return ChatSchedulerLaneMetrics._private(
+      queued: map['queued'] ?? 0,
+      capacity: map['capacity'] ?? 0,
+      peak: map['peak'] ?? 0,
+      active: map['active'] ?? 0,
+      submitted: map['submitted'] ?? 0,
+      rejected: map['rejected'] ?? 0,
+    );
+  }
+}